@@ -0,0 +1,110 @@
+package org.organicdesign.fp;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.organicdesign.fp.StaticImports;
+import org.organicdesign.fp.collections.ImList;
+import org.organicdesign.fp.collections.ImMap;
+import org.organicdesign.fp.collections.ImSet;
+import org.organicdesign.fp.collections.PersistentHashMap;
+import org.organicdesign.fp.collections.PersistentHashSet;
+import org.organicdesign.fp.collections.PersistentTreeMap;
+import org.organicdesign.fp.collections.PersistentTreeSet;
+import org.organicdesign.fp.collections.PersistentVector;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+/**
+ Prints the heap used by each collection per element, not counting the elements themselves.
+ JMH measures time, not memory, so this is a plain main() that uses JOL to walk the object graph.
+ Run it with: java -cp target/benchmarks.jar org.organicdesign.fp.Footprint
+ */
+public class Footprint {
+
+    private static final int SIZE = 1000000;
+
+    private static final Integer[] KEYS = new Integer[SIZE];
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            KEYS[i] = i;
+        }
+    }
+
+    private static final GraphLayout KEYS_LAYOUT = GraphLayout.parseInstance((Object) KEYS);
+
+    private static void report(String name, Object coll) {
+        // The keys array itself isn't in the collection, so subtracting it only removes the keys.
+        long bytes = GraphLayout.parseInstance(coll).subtract(KEYS_LAYOUT).totalSize();
+        System.out.printf("%-40s %6.2f bytes/element%n", name, ((double) bytes) / SIZE);
+    }
+
+    public static void main(String[] args) {
+        PersistentTreeSet<Integer> pts = PersistentTreeSet.empty();
+        PersistentTreeMap<Integer,Integer> ptmNullVals = PersistentTreeMap.empty();
+        PersistentTreeMap<Integer,Integer> ptm = PersistentTreeMap.empty();
+        TreeSet<Integer> treeSet = new TreeSet<>();
+        for (Integer key : KEYS) {
+            pts = pts.put(key);
+            ptmNullVals = ptmNullVals.assoc(key, null);
+            // Each value is its own key, so no value objects are counted either.
+            ptm = ptm.assoc(key, key);
+            treeSet.add(key);
+        }
+        report("PersistentTreeSet", pts);
+        report("PersistentTreeMap (null values)", ptmNullVals);
+        report("PersistentTreeMap", ptm);
+        report("java.util.TreeSet", treeSet);
+
+        PersistentHashSet.MutHashSet<Integer> phs = PersistentHashSet.emptyMutable();
+        PersistentHashMap.MutHashMap<Integer,Integer> phm = PersistentHashMap.emptyMutable();
+        HashSet<Integer> hashSet = new HashSet<>();
+        for (Integer key : KEYS) {
+            phs.put(key);
+            phm.assoc(key, key);
+            hashSet.add(key);
+        }
+        report("PersistentHashSet", phs.immutable());
+        report("PersistentHashMap", phm.immutable());
+        report("java.util.HashSet", hashSet);
+
+        // Nodes made by a MutVector carry its edit token, ones made by append() don't.
+        PersistentVector<Integer> pv = PersistentVector.empty();
+        PersistentVector.MutVector<Integer> mv = PersistentVector.emptyMutable();
+        ArrayList<Integer> arrayList = new ArrayList<>();
+        for (Integer key : KEYS) {
+            pv = pv.append(key);
+            mv.append(key);
+            arrayList.add(key);
+        }
+        report("PersistentVector (append)", pv);
+        report("PersistentVector (MutVector)", mv.immutable());
+        report("java.util.ArrayList", arrayList);
+
+        // Lots of tiny collections, as in document-shaped data.
+        ImMap[] smallMaps = new ImMap[SIZE / 4];
+        ImMap[] smallHashMaps = new ImMap[SIZE / 4];
+        ImSet[] smallSets = new ImSet[SIZE / 4];
+        ImSet[] smallHashSets = new ImSet[SIZE / 4];
+        ImList[] smallVecs = new ImList[SIZE / 4];
+        ImList[] smallPersistentVecs = new ImList[SIZE / 4];
+        for (int i = 0; i < SIZE / 4; i++) {
+            int k = i * 4;
+            smallMaps[i] = StaticImports.map(StaticImports.tup(KEYS[k], KEYS[k + 1]),
+                                             StaticImports.tup(KEYS[k + 2], KEYS[k + 3]));
+            smallHashMaps[i] = PersistentHashMap.empty().assoc(KEYS[k], KEYS[k + 1])
+                                                       .assoc(KEYS[k + 2], KEYS[k + 3]);
+            smallSets[i] = StaticImports.set(KEYS[k], KEYS[k + 1], KEYS[k + 2], KEYS[k + 3]);
+            smallHashSets[i] = PersistentHashSet.of(java.util.Arrays.asList(KEYS).subList(k, k + 4));
+            smallVecs[i] = StaticImports.vec(KEYS[k], KEYS[k + 1], KEYS[k + 2], KEYS[k + 3]);
+            smallPersistentVecs[i] =
+                    PersistentVector.ofIter(java.util.Arrays.asList(KEYS).subList(k, k + 4));
+        }
+        report("2-entry PersistentArrayMaps", smallMaps);
+        report("2-entry PersistentHashMaps", smallHashMaps);
+        report("4-item PersistentArraySets", smallSets);
+        report("4-item PersistentHashSets", smallHashSets);
+        report("4-item PersistentArrayLists", smallVecs);
+        report("4-item PersistentVectors", smallPersistentVecs);
+    }
+}
@@ -5,15 +5,25 @@ import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
 import org.organicdesign.fp.collections.BaseList;
 import org.organicdesign.fp.collections.ImList;
+import org.organicdesign.fp.collections.ImMap;
+import org.organicdesign.fp.collections.MutMap;
+import org.organicdesign.fp.collections.PersistentHashMap;
+import org.organicdesign.fp.collections.PersistentHashSet;
+import org.organicdesign.fp.collections.PersistentTreeMap;
 import org.organicdesign.fp.collections.PersistentVector;
+import org.organicdesign.fp.collections.RangeOfInt;
 import org.organicdesign.fp.collections.RrbTree;
 import org.organicdesign.fp.collections.RrbTree.ImRrbt;
 import org.organicdesign.fp.collections.RrbTree.MutableRrbt;
+import org.organicdesign.fp.xform.IntXform;
+import org.organicdesign.fp.xform.Xform;
 import scala.collection.immutable.Vector$;
 import scala.collection.immutable.VectorIterator;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import static org.organicdesign.fp.collections.RrbTree.empty;
@@ -484,4 +494,248 @@ public class MyBenchmark {
 //    @Benchmark public void RandInsertScala100000() { randomInsertScala(100000); }
 //    @Benchmark public void RandInsertScala1000000() { randomInsertScala(1000000); }
 //    @Benchmark public void RandInsertScala10000000() { randomInsertScala(10000000); }
+
+    // ============================================ Hash Collisions ============================================
+    // 2^10 Strings built from "Aa" and "BB" all have the same hashCode, so they all land in one bin.
+
+    static List<String> collidingStrings(int numBlocks) {
+        List<String> ret = new ArrayList<>();
+        ret.add("");
+        for (int i = 0; i < numBlocks; i++) {
+            List<String> next = new ArrayList<>();
+            for (String str : ret) {
+                next.add(str + "Aa");
+                next.add(str + "BB");
+            }
+            ret = next;
+        }
+        return ret;
+    }
+
+    static final List<String> COLLIDING_KEYS = collidingStrings(10);
+
+    static PersistentHashMap<String,Integer> buildCollidingPhm() {
+        PersistentHashMap<String,Integer> m = PersistentHashMap.empty();
+        for (int i = 0; i < COLLIDING_KEYS.size(); i++) {
+            m = m.assoc(COLLIDING_KEYS.get(i), INTS[i & 0xf]);
+        }
+        return m;
+    }
+
+    static Map<String,Integer> buildCollidingHashMap() {
+        Map<String,Integer> m = new HashMap<>();
+        for (int i = 0; i < COLLIDING_KEYS.size(); i++) {
+            m.put(COLLIDING_KEYS.get(i), INTS[i & 0xf]);
+        }
+        return m;
+    }
+
+    @State(Scope.Thread) public static class CollidingPhm { public PersistentHashMap<String,Integer> map = buildCollidingPhm(); }
+    @State(Scope.Thread) public static class CollidingHashMap { public Map<String,Integer> map = buildCollidingHashMap(); }
+
+    @Benchmark public PersistentHashMap<String,Integer> BuildCollidingPhm() { return buildCollidingPhm(); }
+    @Benchmark public Map<String,Integer> BuildCollidingHashMap() { return buildCollidingHashMap(); }
+
+    @Benchmark public int GetEachCollidingPhm(CollidingPhm s) {
+        int ret = 0;
+        for (String key : COLLIDING_KEYS) {
+            ret += s.map.get(key);
+        }
+        return ret;
+    }
+    @Benchmark public int GetEachCollidingHashMap(CollidingHashMap s) {
+        int ret = 0;
+        for (String key : COLLIDING_KEYS) {
+            ret += s.map.get(key);
+        }
+        return ret;
+    }
+
+    // ============================================== Hash Sets ==============================================
+    // PersistentHashSet has its own key-only trie.  Compare with a map holding the same keys.
+
+    static final List<String> SET_KEYS = new ArrayList<>();
+    static {
+        for (int i = 0; i < 100000; i++) {
+            SET_KEYS.add("k" + i);
+        }
+    }
+
+    static PersistentHashSet<String> buildPhs() {
+        PersistentHashSet.MutHashSet<String> s = PersistentHashSet.emptyMutable();
+        for (String key : SET_KEYS) {
+            s.put(key);
+        }
+        return s.immutable();
+    }
+
+    static PersistentHashMap<String,String> buildKeyPhm() {
+        PersistentHashMap.MutHashMap<String,String> m = PersistentHashMap.emptyMutable();
+        for (String key : SET_KEYS) {
+            m.assoc(key, key);
+        }
+        return m.immutable();
+    }
+
+    @State(Scope.Thread) public static class Phs { public PersistentHashSet<String> set = buildPhs(); }
+    @State(Scope.Thread) public static class KeyPhm { public PersistentHashMap<String,String> map = buildKeyPhm(); }
+
+    @Benchmark public PersistentHashSet<String> BuildPhs() { return buildPhs(); }
+    @Benchmark public PersistentHashMap<String,String> BuildKeyPhm() { return buildKeyPhm(); }
+
+    @Benchmark public int ContainsEachPhs(Phs s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            if (s.set.contains(key)) { ret++; }
+        }
+        return ret;
+    }
+    @Benchmark public int ContainsEachKeyPhm(KeyPhm s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            if (s.map.containsKey(key)) { ret++; }
+        }
+        return ret;
+    }
+
+    @Benchmark public int IterPhs(Phs s) {
+        int ret = 0;
+        for (String key : s.set) {
+            ret += key.length();
+        }
+        return ret;
+    }
+
+    // =============================================== Lookups ===============================================
+    // Run with -prof gc: gc.alloc.rate.norm should be 0 B/op for everything but the Entry benchmarks,
+    // which allocate an Option (and for the hash map, an entry) per lookup.
+
+    static PersistentTreeMap<String,String> buildKeyPtm() {
+        PersistentTreeMap<String,String> m = PersistentTreeMap.empty();
+        for (String key : SET_KEYS) {
+            m = m.assoc(key, key);
+        }
+        return m;
+    }
+
+    @State(Scope.Thread) public static class KeyPtm { public PersistentTreeMap<String,String> map = buildKeyPtm(); }
+
+    @Benchmark public int GetEachKeyPhm(KeyPhm s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            ret += s.map.get(key).length();
+        }
+        return ret;
+    }
+    @Benchmark public int GetOrElseEachKeyPhm(KeyPhm s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            ret += s.map.getOrElse(key, "").length();
+        }
+        return ret;
+    }
+    @Benchmark public int EntryEachKeyPhm(KeyPhm s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            ret += s.map.entry(key).get().getValue().length();
+        }
+        return ret;
+    }
+
+    @Benchmark public int ContainsEachKeyPtm(KeyPtm s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            if (s.map.containsKey(key)) { ret++; }
+        }
+        return ret;
+    }
+    @Benchmark public int GetOrElseEachKeyPtm(KeyPtm s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            ret += s.map.getOrElse(key, "").length();
+        }
+        return ret;
+    }
+    @Benchmark public int EntryEachKeyPtm(KeyPtm s) {
+        int ret = 0;
+        for (String key : SET_KEYS) {
+            ret += s.map.entry(key).get().getValue().length();
+        }
+        return ret;
+    }
+
+    // ============================================ Xform Fusion ============================================
+    // Per-element overhead of an 8-stage Xform (fused into one operation) vs. the same work as a loop.
+
+    static final List<Integer> XFORM_INTS = new ArrayList<>();
+    static {
+        for (int i = 0; i < 100000; i++) {
+            XFORM_INTS.add(INTS[i & 0xf]);
+        }
+    }
+
+    @Benchmark public long XformEightStages() {
+        return Xform.of(XFORM_INTS)
+                    .filter(i -> i != 3)
+                    .map(i -> i + 1)
+                    .filter(i -> (i & 1) == 0)
+                    .map(i -> i * 3)
+                    .filter(i -> i > 5)
+                    .map(i -> i - 2)
+                    .filter(i -> i != 40)
+                    .map(i -> i >> 1)
+                    .fold(0L, (sum, i) -> sum + i);
+    }
+
+    @Benchmark public long LoopEightStages() {
+        long sum = 0;
+        for (Integer boxed : XFORM_INTS) {
+            int i = boxed;
+            if (i == 3) { continue; }
+            i = i + 1;
+            if ((i & 1) != 0) { continue; }
+            i = i * 3;
+            if (i <= 5) { continue; }
+            i = i - 2;
+            if (i == 40) { continue; }
+            sum += i >> 1;
+        }
+        return sum;
+    }
+
+    // ========================================= Primitive Xforms =========================================
+    // Summing three times each even number in a range: boxed Xform vs. IntXform.
+
+    static final RangeOfInt SUM_RANGE = RangeOfInt.of(0, 100000);
+
+    @Benchmark public long XformBoxedSum() {
+        return Xform.of(SUM_RANGE)
+                    .filter(i -> (i & 1) == 0)
+                    .map(i -> i * 3)
+                    .fold(0L, (sum, i) -> sum + i);
+    }
+
+    @Benchmark public long IntXformSum() {
+        return IntXform.of(SUM_RANGE)
+                       .filter(i -> (i & 1) == 0)
+                       .map(i -> i * 3)
+                       .sum();
+    }
+
+    // ============================================= Grouping =============================================
+    // Counting by key with countBy (split across the common ForkJoinPool) vs. one MutMap on one thread.
+
+    @Benchmark public ImMap<Integer,Long> XformCountBy() {
+        return Xform.of(XFORM_INTS).countBy(i -> i & 0x7);
+    }
+
+    @Benchmark public ImMap<Integer,Long> LoopCountBy() {
+        MutMap<Integer,Long> counts = PersistentHashMap.emptyMutable();
+        for (Integer i : XFORM_INTS) {
+            Integer key = i & 0x7;
+            Long count = counts.get(key);
+            counts.assoc(key, (count == null) ? 1L : count + 1);
+        }
+        return counts.immutable();
+    }
 }
@@ -24,6 +24,9 @@ import org.organicdesign.fp.collections.ImSortedSet;
 import org.organicdesign.fp.collections.MutList;
 import org.organicdesign.fp.collections.MutMap;
 import org.organicdesign.fp.collections.MutSet;
+import org.organicdesign.fp.collections.PersistentArrayList;
+import org.organicdesign.fp.collections.PersistentArrayMap;
+import org.organicdesign.fp.collections.PersistentArraySet;
 import org.organicdesign.fp.collections.PersistentHashMap;
 import org.organicdesign.fp.collections.PersistentHashSet;
 import org.organicdesign.fp.collections.PersistentTreeMap;
@@ -83,20 +86,21 @@ public final class StaticImports {
     private StaticImports() { throw new UnsupportedOperationException("No instantiation"); }
 
     /**
-     Returns a new PersistentHashMap of the given keys and their paired values.  Use the
+     Returns a new immutable map of the given keys and their paired values.  Use the
      {@link StaticImports#tup(Object, Object)} method to define those key/value pairs briefly and
-     easily.
+     easily.  Maps of up to {@link PersistentArrayMap#MAX_SIZE} entries are a compact
+     PersistentArrayMap, bigger ones a PersistentHashMap.
 
      @param kvPairs Key/value pairs (to go into the map).  In the case of a duplicate key, later
      values in the input list overwrite the earlier ones.  The resulting map can contain zero or one
      null key and any number of null values.  Null k/v pairs will be silently ignored.
 
-     @return a new PersistentHashMap of the given key/value pairs
+     @return a new PersistentArrayMap or PersistentHashMap of the given key/value pairs
      */
     @SafeVarargs
     public static <K,V> @NotNull ImMap<K,V> map(@Nullable Map.Entry<K,V> @Nullable ... kvPairs) {
-        if ( (kvPairs == null) || (kvPairs.length < 1) ) { return PersistentHashMap.empty(); }
-        return PersistentHashMap.of(Arrays.asList(kvPairs));
+        if ( (kvPairs == null) || (kvPairs.length < 1) ) { return PersistentArrayMap.empty(); }
+        return PersistentArrayMap.of(Arrays.asList(kvPairs));
     }
 
     /**
@@ -179,13 +183,14 @@ public final class StaticImports {
     }
 
     /**
-     * Returns a new PersistentHashSet of the values.  If the input contains duplicate elements, later
-     * values overwrite earlier ones.
+     * Returns a new immutable set of the values.  If the input contains duplicate elements, later
+     * values overwrite earlier ones.  Sets of up to {@link PersistentArraySet#MAX_SIZE} items are a
+     * compact PersistentArraySet, bigger ones a PersistentHashSet.
      */
     @SafeVarargs
     public static <T> @NotNull ImSet<T> set(T @Nullable ... items) {
-        if ( (items == null) || (items.length < 1) ) { return PersistentHashSet.empty(); }
-        return PersistentHashSet.of(Arrays.asList(items));
+        if ( (items == null) || (items.length < 1) ) { return PersistentArraySet.empty(); }
+        return PersistentArraySet.of(Arrays.asList(items));
     }
 
     /**
@@ -247,13 +252,17 @@ public final class StaticImports {
     public static <T,U,V> @NotNull Tuple3<T,U,V> tup(T t, U u, V v) { return Tuple3.of(t, u, v); }
 
     /**
-     * Returns a new PersistentVector of the given items.
+     * Returns a new immutable list of the given items: a compact PersistentArrayList for up to
+     * {@link PersistentArrayList#MAX_SIZE} items, otherwise a PersistentVector.
      * If you require inserts or join operations, use {@link #rrb} instead.
      */
     @SafeVarargs
     static public <T> @NotNull ImList<T> vec(T @Nullable ... items) {
-        if ( (items == null) || (items.length < 1) ) { return PersistentVector.empty(); }
-        return mutableVec(items).immutable();
+        if ( (items == null) || (items.length < 1) ) { return PersistentArrayList.empty(); }
+        if (items.length > PersistentArrayList.MAX_SIZE) {
+            return mutableVec(items).immutable();
+        }
+        return PersistentArrayList.of(Arrays.asList(items));
     }
 
     /**
@@ -0,0 +1,285 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.collections;
+
+import org.jetbrains.annotations.NotNull;
+import org.organicdesign.fp.function.Fn1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ <p>A shared reference to an immutable value (usually a Paguro collection) that many threads can
+ update, like a Clojure atom.  {@link #swap(Fn1)} applies a function to the current value and
+ publishes the result with a compare-and-set, retrying with the new current value if another
+ thread got there first.  Since the function may be called more than once, it should have no side
+ effects.</p>
+
+ <pre>{@code
+Atom<ImMap<String,Session>> sessions = Atom.of(map());
+
+// In any number of threads:
+sessions.swap(m -> m.assoc(id, session));
+
+// Anywhere:
+ImMap<String,Session> current = sessions.get();}</pre>
+
+ <p>When a lot of threads update the same atom at once, each retry throws away a whole path-copy.
+ {@link Combining} atoms (made with {@link #ofMap(ImMap)}, {@link #ofList(ImList)},
+ {@link #ofSet(ImSet)}, or {@link #combining(Object, Fn1, Fn1)}) avoid that by queueing the updates.
+ Whichever updater gets to be the "combiner" applies everything in the queue to one mutable copy
+ (see {@link ImMap#mutable()}), makes it immutable, and publishes it with a single
+ compare-and-set.</p>
+
+ <p>{@link #updates()}, {@link #retries()}, and {@link Combining#batches()} show how hot an atom
+ is.  A retry is a compare-and-set that lost a race and had to be done over.</p>
+ */
+public class Atom<T> {
+
+    private final @NotNull AtomicReference<T> ref;
+    // For metrics
+    private final @NotNull LongAdder updates = new LongAdder();
+    private final @NotNull LongAdder retries = new LongAdder();
+
+    // Only Atom and Combining.
+    private Atom(T initial) { ref = new AtomicReference<>(initial); }
+
+    /** Returns a new Atom holding the given value. */
+    public static <T> @NotNull Atom<T> of(T initial) { return new Atom<>(initial); }
+
+    /**
+     Returns a new Combining Atom holding the given value, which uses toMutable and toImmutable to
+     apply each batch of updates to a single mutable copy.
+     */
+    public static <T,M> @NotNull Combining<T,M>
+    combining(T initial, @NotNull Fn1<? super T,? extends M> toMutable,
+              @NotNull Fn1<? super M,? extends T> toImmutable) {
+        return new Combining<>(initial, toMutable, toImmutable);
+    }
+
+    /** Returns a new Combining Atom holding the given map, batching updates on its MutMap. */
+    public static <K,V> @NotNull Combining<ImMap<K,V>,MutMap<K,V>> ofMap(@NotNull ImMap<K,V> m) {
+        return combining(m, ImMap::mutable, MutMap::immutable);
+    }
+
+    /** Returns a new Combining Atom holding the given list, batching updates on its MutList. */
+    public static <E> @NotNull Combining<ImList<E>,MutList<E>> ofList(@NotNull ImList<E> list) {
+        return combining(list, ImList::mutable, MutList::immutable);
+    }
+
+    /** Returns a new Combining Atom holding the given set, batching updates on its MutSet. */
+    public static <E> @NotNull Combining<ImSet<E>,MutSet<E>> ofSet(@NotNull ImSet<E> set) {
+        return combining(set, ImSet::mutable, MutSet::immutable);
+    }
+
+    /** Returns the current value. */
+    public T get() { return ref.get(); }
+
+    /** Sets the value, no matter what it was before. */
+    public void reset(T newVal) {
+        ref.set(newVal);
+        updates.increment();
+    }
+
+    /**
+     Sets the value to newVal if it's currently expected (compared with ==).  Returns true if it
+     was set.  A false return is counted as a retry.
+     */
+    public boolean compareAndSet(T expected, T newVal) {
+        if (ref.compareAndSet(expected, newVal)) {
+            updates.increment();
+            return true;
+        }
+        retries.increment();
+        return false;
+    }
+
+    /**
+     Sets the value to f applied to the current value, retrying until no other thread changes it in
+     the meantime.  Returns the value that was set.
+     */
+    public T swap(@NotNull Fn1<? super T,? extends T> f) {
+        while (true) {
+            T old = ref.get();
+            T next = f.apply(old);
+            if (ref.compareAndSet(old, next)) {
+                updates.increment();
+                return next;
+            }
+            retries.increment();
+        }
+    }
+
+    /** The number of successful updates since this atom was made. */
+    public long updates() { return updates.sum(); }
+
+    /** The number of compare-and-sets that failed because another thread changed the value first. */
+    public long retries() { return retries.sum(); }
+
+    @Override public @NotNull String toString() {
+        return getClass().getSimpleName() + "(" + ref.get() + ")";
+    }
+
+    /**
+     An Atom that can also batch updates.  {@link #update(Fn1)} queues a function of the mutable
+     form of the value.  One thread at a time becomes the combiner and applies all the queued
+     functions (up to {@link #MAX_BATCH}) to one mutable copy, then publishes it.  The other updaters
+     wait for their batch to be published instead of making and discarding their own copies.
+
+     <p>{@link #swap(Fn1)}, {@link #compareAndSet(Object, Object)}, and {@link #reset(Object)} still
+     work.  If one of them changes the value while a batch is being applied, the combiner just
+     applies the batch again to the new value.</p>
+     */
+    public static final class Combining<T,M> extends Atom<T> {
+        /** The most updates the combiner will apply in one batch before publishing them. */
+        public static final int MAX_BATCH = 256;
+
+        // How many times a waiting updater calls Thread.onSpinWait() before it starts yielding.
+        private static final int SPINS = 128;
+
+        private static final class Request<M,T> {
+            final @NotNull Fn1<? super M,? extends M> fn;
+            T result;
+            Throwable error;
+            // Written last by the combiner, so result and error are visible once this is true.
+            volatile boolean done = false;
+
+            Request(@NotNull Fn1<? super M,? extends M> f) { fn = f; }
+        }
+
+        private final @NotNull Fn1<? super T,? extends M> toMutable;
+        private final @NotNull Fn1<? super M,? extends T> toImmutable;
+        private final @NotNull ConcurrentLinkedQueue<Request<M,T>> queue =
+                new ConcurrentLinkedQueue<>();
+        // True while some thread is the combiner.
+        private final @NotNull AtomicBoolean combining = new AtomicBoolean(false);
+        private final @NotNull LongAdder batches = new LongAdder();
+
+        private Combining(T initial, @NotNull Fn1<? super T,? extends M> toMut,
+                          @NotNull Fn1<? super M,? extends T> toIm) {
+            super(initial);
+            toMutable = toMut;
+            toImmutable = toIm;
+        }
+
+        /**
+         Applies f to a mutable copy of the value (along with any other updates queued at the same
+         time) and publishes the result.  Returns the value published by the batch that held this
+         update, so it may reflect other threads' updates too.  If f throws an exception, the rest
+         of its batch is applied without it and the exception is thrown here.  If toMutable or
+         toImmutable throws, nothing in the batch is published and every update in it throws that
+         exception.  Like with swap(), f may be called more than once and shouldn't have side
+         effects.
+         */
+        public T update(@NotNull Fn1<? super M,? extends M> f) {
+            Request<M,T> req = new Request<>(f);
+            queue.add(req);
+            int spins = 0;
+            while (!req.done) {
+                if (!combining.get() && combining.compareAndSet(false, true)) {
+                    try {
+                        // Our request is in the queue, so it will be in some batch.
+                        while (!req.done) {
+                            combine();
+                        }
+                    } finally {
+                        combining.set(false);
+                    }
+                } else if (spins < SPINS) {
+                    spins++;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            Throwable error = req.error;
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw new RuntimeException(error);
+            }
+            return req.result;
+        }
+
+        /**
+         Takes one batch from the queue, applies it, and publishes it.  Only called by the combiner.
+         Every request taken from the queue is done when this returns, even if something throws,
+         because their threads are waiting for it.
+         */
+        private void combine() {
+            List<Request<M,T>> batch = new ArrayList<>();
+            Request<M,T> req;
+            while ( (batch.size() < MAX_BATCH) && ((req = queue.poll()) != null) ) {
+                batch.add(req);
+            }
+            try {
+                applyBatch(batch);
+            } catch (Throwable t) {
+                for (Request<M,T> r : batch) {
+                    if (!r.done) {
+                        r.error = t;
+                        r.done = true;
+                    }
+                }
+            }
+        }
+
+        /** Applies the batch to the current value until it's published with a compare-and-set. */
+        private void applyBatch(@NotNull List<Request<M,T>> batch) {
+            while (!batch.isEmpty()) {
+                T old = get();
+                M mutable = toMutable.apply(old);
+                boolean failed = false;
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        mutable = batch.get(i).fn.apply(mutable);
+                    } catch (Throwable e) {
+                        // The mutable copy may be half-changed, so start over without this one.
+                        Request<M,T> bad = batch.remove(i);
+                        bad.error = e;
+                        bad.done = true;
+                        failed = true;
+                        break;
+                    }
+                }
+                if (failed) {
+                    continue;
+                }
+                T next = toImmutable.apply(mutable);
+                if (super.ref.compareAndSet(old, next)) {
+                    super.updates.add(batch.size());
+                    batches.increment();
+                    for (Request<M,T> r : batch) {
+                        r.result = next;
+                        r.done = true;
+                    }
+                    return;
+                }
+                super.retries.increment();
+            }
+        }
+
+        /**
+         The number of batches the combiner has published.  {@link #updates()} divided by this is the
+         average batch size: near 1 means there's little contention.
+         */
+        public long batches() { return batches.sum(); }
+    }
+}
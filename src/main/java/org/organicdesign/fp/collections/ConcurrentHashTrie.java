@@ -0,0 +1,790 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.collections;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.oneOf.Option;
+import org.organicdesign.fp.collections.UnmodMap.UnEntry;
+import org.organicdesign.fp.tuple.Tuple2;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ <p>A hash map that many threads can read and change at once without locks, with a constant-time
+ {@link #snapshot()} that returns an immutable {@link ImMap}.  This is the Ctrie ("concurrent
+ trie") of Aleksandar Prokopec, Nathan Bronson, Phil Bagwell and Martin Odersky, "Concurrent Tries
+ with Efficient Non-Blocking Snapshots" (PPoPP 2012), which is also the basis of Scala's TrieMap.</p>
+
+ <p>The trie has the same shape as the one in {@link PersistentHashMap}: 32-way bitmap-indexed
+ nodes keyed on 5 bits of the hash at a time, with collision lists at the bottom.  Each node is
+ held by an indirection node whose reference is changed with a compare-and-set, so a put or remove
+ copies just one node.  Every indirection node belongs to a generation.  Taking a snapshot starts
+ a new generation at the root, after which writers copy any older node before they change it.
+ The snapshot keeps the old root, so it never sees another change, and making it costs one
+ allocation no matter how big the map is.</p>
+
+ <pre>{@code
+ConcurrentHashTrie<String,Session> sessions = new ConcurrentHashTrie<>();
+
+// In any number of threads:
+sessions.put(id, session);
+sessions.remove(otherId);
+
+// In a reporting thread:
+ImMap<String,Session> report = sessions.snapshot();}</pre>
+
+ <p>Keys and values may be null.  Uses an {@link Equator} for hashing and comparing keys.</p>
+ */
+public final class ConcurrentHashTrie<K,V> {
+
+    // Returned by the internal operations when the key wasn't found.  Values can be null, so
+    // null can't mean that.
+    private static final Object NOT_FOUND = new Object();
+
+    // Returned by the internal operations when they lost a race and need to start over at the root.
+    private static final Object RESTART = new Object();
+
+    private static final int BITS = 5;
+    private static final int MASK = 0x1f;
+    // Below this many bits of shift, there's still some hash left to branch on.
+    private static final int MAX_SHIFT = 35;
+
+    // ======================================== Node types ========================================
+
+    /** Each indirection node belongs to a generation.  Compared by identity only. */
+    private static final class Gen {}
+
+    /** Something an indirection node can point to. */
+    private abstract static class MainNode<K,V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<MainNode,MainNode> PREV =
+                AtomicReferenceFieldUpdater.newUpdater(MainNode.class, MainNode.class, "prev");
+
+        // Non-null while a GCAS that installed this node is still being decided.  Then it's the
+        // node this one replaced, or a FailedNode holding that node if the GCAS failed.
+        volatile MainNode<K,V> prev;
+
+        boolean casPrev(MainNode<K,V> old, MainNode<K,V> n) {
+            return PREV.compareAndSet(this, old, n);
+        }
+    }
+
+    /** A key and value.  Immutable. */
+    private static final class SNode<K,V> {
+        final K key;
+        final V val;
+        final int hash;
+        SNode(K k, V v, int h) { key = k; val = v; hash = h; }
+    }
+
+    /** The one mutable node: holds a (compare-and-set) reference to a MainNode. */
+    private static final class INode<K,V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<INode,MainNode> MAIN =
+                AtomicReferenceFieldUpdater.newUpdater(INode.class, MainNode.class, "main");
+
+        final @NotNull Gen gen;
+        volatile MainNode<K,V> main;
+
+        INode(@NotNull Gen g, MainNode<K,V> m) { gen = g; main = m; }
+
+        boolean cas(MainNode<K,V> old, MainNode<K,V> n) { return MAIN.compareAndSet(this, old, n); }
+    }
+
+    /**
+     Like PersistentHashMap's BitmapIndexedNode: one cell per bit in the bitmap, holding either an
+     SNode or an INode.  Immutable.
+     */
+    private static final class CNode<K,V> extends MainNode<K,V> {
+        final int bitmap;
+        final Object @NotNull [] array;
+        final @NotNull Gen gen;
+
+        CNode(int b, Object @NotNull [] a, @NotNull Gen g) { bitmap = b; array = a; gen = g; }
+
+        CNode<K,V> updatedAt(int pos, Object n, Gen g) {
+            Object[] newArray = array.clone();
+            newArray[pos] = n;
+            return new CNode<>(bitmap, newArray, g);
+        }
+
+        CNode<K,V> insertedAt(int pos, int flag, Object n, Gen g) {
+            Object[] newArray = new Object[array.length + 1];
+            System.arraycopy(array, 0, newArray, 0, pos);
+            newArray[pos] = n;
+            System.arraycopy(array, pos, newArray, pos + 1, array.length - pos);
+            return new CNode<>(bitmap | flag, newArray, g);
+        }
+
+        CNode<K,V> removedAt(int pos, int flag, Gen g) {
+            Object[] newArray = new Object[array.length - 1];
+            System.arraycopy(array, 0, newArray, 0, pos);
+            System.arraycopy(array, pos + 1, newArray, pos, array.length - pos - 1);
+            return new CNode<>(bitmap ^ flag, newArray, g);
+        }
+
+        /**
+         Below the root, a CNode holding nothing but one SNode is replaced by a tomb so that the
+         parent can pull the SNode up a level.
+         */
+        MainNode<K,V> toContracted(int shift) {
+            if ( (array.length == 1) && (shift > 0) && (array[0] instanceof SNode) ) {
+                @SuppressWarnings("unchecked")
+                SNode<K,V> sn = (SNode<K,V>) array[0];
+                return new TNode<>(sn);
+            }
+            return this;
+        }
+    }
+
+    /** A tomb: an SNode waiting to be pulled up into its parent CNode.  Immutable. */
+    private static final class TNode<K,V> extends MainNode<K,V> {
+        final @NotNull SNode<K,V> sn;
+        TNode(@NotNull SNode<K,V> s) { sn = s; }
+    }
+
+    /** Entries whose keys have exactly the same hash.  Immutable. */
+    private static final class LNode<K,V> extends MainNode<K,V> {
+        final SNode<K,V> @NotNull [] entries;
+
+        LNode(SNode<K,V> @NotNull [] es) { entries = es; }
+
+        int indexOf(K key, Equator<K> equator) {
+            for (int i = 0; i < entries.length; i++) {
+                if (equator.eq(entries[i].key, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Object get(K key, Equator<K> equator) {
+            int i = indexOf(key, equator);
+            return (i < 0) ? NOT_FOUND : entries[i].val;
+        }
+
+        LNode<K,V> inserted(SNode<K,V> sn, Equator<K> equator) {
+            int i = indexOf(sn.key, equator);
+            SNode<K,V>[] newEntries;
+            if (i < 0) {
+                newEntries = Arrays.copyOf(entries, entries.length + 1);
+                newEntries[entries.length] = sn;
+            } else {
+                newEntries = entries.clone();
+                newEntries[i] = sn;
+            }
+            return new LNode<>(newEntries);
+        }
+
+        /** Only call this for a key that's present. */
+        MainNode<K,V> removed(K key, Equator<K> equator) {
+            int i = indexOf(key, equator);
+            if (entries.length == 2) {
+                // Tombed so that it gets pulled up into the parent.
+                return new TNode<>(entries[1 - i]);
+            }
+            @SuppressWarnings("unchecked")
+            SNode<K,V>[] newEntries = (SNode<K,V>[]) new SNode[entries.length - 1];
+            System.arraycopy(entries, 0, newEntries, 0, i);
+            System.arraycopy(entries, i + 1, newEntries, i, newEntries.length - i);
+            return new LNode<>(newEntries);
+        }
+    }
+
+    /** Marks a MainNode whose GCAS failed.  Its prev is the node to go back to. */
+    private static final class FailedNode<K,V> extends MainNode<K,V> {
+        FailedNode(MainNode<K,V> p) { prev = p; }
+    }
+
+    /** A pending change to the root, used only for taking snapshots. */
+    private static final class Descriptor<K,V> {
+        final @NotNull INode<K,V> oldRoot;
+        final MainNode<K,V> expectedMain;
+        final @NotNull INode<K,V> newRoot;
+        volatile boolean committed = false;
+
+        Descriptor(@NotNull INode<K,V> ov, MainNode<K,V> exp, @NotNull INode<K,V> nv) {
+            oldRoot = ov;
+            expectedMain = exp;
+            newRoot = nv;
+        }
+    }
+
+    // ==================================== Instance Variables ====================================
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentHashTrie,Object> ROOT =
+            AtomicReferenceFieldUpdater.newUpdater(ConcurrentHashTrie.class, Object.class, "root");
+
+    private final @NotNull Equator<K> equator;
+    // An INode, or a Descriptor while a snapshot is being taken.
+    private volatile Object root;
+    // Snapshots are read-only tries.  They are never handed out directly.
+    private final boolean readOnly;
+
+    /** Returns a new, empty map that uses the default Equator. */
+    public ConcurrentHashTrie() { this(null); }
+
+    /** Returns a new, empty map that uses the given Equator. */
+    public ConcurrentHashTrie(@Nullable Equator<K> eq) {
+        this((eq == null) ? Equator.defaultEquator() : eq, newRoot(), false);
+    }
+
+    private ConcurrentHashTrie(@NotNull Equator<K> eq, @NotNull INode<K,V> r, boolean ro) {
+        equator = eq;
+        root = r;
+        readOnly = ro;
+    }
+
+    private static <K,V> @NotNull INode<K,V> newRoot() {
+        Gen gen = new Gen();
+        return new INode<>(gen, new CNode<>(0, new Object[0], gen));
+    }
+
+    // ====================================== Public Methods ======================================
+
+    /** Returns the Equator used by this map for equals comparisons and hashCodes. */
+    public @NotNull Equator<K> equator() { return equator; }
+
+    /**
+     Associates the value with the key, replacing any value the key had before.  Returns the old
+     value, or null if there was none (or it was null).
+     */
+    public @Nullable V put(K key, V val) {
+        return valOrNull(insertHc(key, val, equator.hash(key)));
+    }
+
+    /** Removes the key and its value.  Returns the old value, or null if there was none. */
+    public @Nullable V remove(K key) {
+        int hash = equator.hash(key);
+        Object ret;
+        do {
+            INode<K,V> r = readRoot(false);
+            ret = remove(r, key, hash, 0, null, r.gen);
+        } while (ret == RESTART);
+        return valOrNull(ret);
+    }
+
+    /** Returns the value associated with the key, or null if there isn't one. */
+    public @Nullable V get(K key) { return valOrNull(lookupHc(key, equator.hash(key))); }
+
+    /** Returns the value associated with the key, or notFound if the key isn't in this map. */
+    @SuppressWarnings("unchecked")
+    public V getOrElse(K key, V notFound) {
+        Object ret = lookupHc(key, equator.hash(key));
+        return (ret == NOT_FOUND) ? notFound : (V) ret;
+    }
+
+    /** Returns true if the key is in this map. */
+    public boolean containsKey(K key) { return lookupHc(key, equator.hash(key)) != NOT_FOUND; }
+
+    /**
+     Returns an immutable map of everything in this one at this moment, in constant time.
+     Changes made to this map after the snapshot don't show up in it, and vice-versa.  The
+     snapshot's own assoc() and without() work like this map's put() and remove() on a private
+     copy, so they're a little slower than a PersistentHashMap's.
+     */
+    public @NotNull ImMap<K,V> snapshot() {
+        while (true) {
+            INode<K,V> r = readRoot(false);
+            MainNode<K,V> expected = gcasRead(r);
+            if (rdcssRoot(r, expected, copyToGen(r, new Gen()))) {
+                return new Snapshot<>(new ConcurrentHashTrie<>(equator, r, true), -1);
+            }
+        }
+    }
+
+    /** The number of entries in this map.  This takes a snapshot and counts it, so it's O(n). */
+    public int size() { return snapshot().size(); }
+
+    @Override public @NotNull String toString() {
+        return UnmodIterable.toString("ConcurrentHashTrie", snapshot());
+    }
+
+    // ====================================== Implementation ======================================
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valOrNull(Object o) { return (o == NOT_FOUND) ? null : (V) o; }
+
+    private Object insertHc(K key, V val, int hash) {
+        Object ret;
+        do {
+            INode<K,V> r = readRoot(false);
+            ret = insert(r, key, val, hash, 0, null, r.gen);
+        } while (ret == RESTART);
+        return ret;
+    }
+
+    private Object lookupHc(K key, int hash) {
+        Object ret;
+        do {
+            INode<K,V> r = readRoot(false);
+            ret = lookup(r, key, hash, 0, null, r.gen);
+        } while (ret == RESTART);
+        return ret;
+    }
+
+    // ------------------------------------ RDCSS on the root ------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private INode<K,V> readRoot(boolean abort) {
+        Object r = root;
+        return (r instanceof INode) ? (INode<K,V>) r : rdcssComplete(abort);
+    }
+
+    @SuppressWarnings("unchecked")
+    private INode<K,V> rdcssComplete(boolean abort) {
+        while (true) {
+            Object r = root;
+            if (r instanceof INode) {
+                return (INode<K,V>) r;
+            }
+            Descriptor<K,V> desc = (Descriptor<K,V>) r;
+            if (abort) {
+                if (ROOT.compareAndSet(this, desc, desc.oldRoot)) {
+                    return desc.oldRoot;
+                }
+            } else if (gcasRead(desc.oldRoot) == desc.expectedMain) {
+                if (ROOT.compareAndSet(this, desc, desc.newRoot)) {
+                    desc.committed = true;
+                    return desc.newRoot;
+                }
+            } else if (ROOT.compareAndSet(this, desc, desc.oldRoot)) {
+                return desc.oldRoot;
+            }
+        }
+    }
+
+    /** Replaces the root if it's still oldRoot and oldRoot still points to expected. */
+    private boolean rdcssRoot(INode<K,V> oldRoot, MainNode<K,V> expected, INode<K,V> newRoot) {
+        Descriptor<K,V> desc = new Descriptor<>(oldRoot, expected, newRoot);
+        if (ROOT.compareAndSet(this, oldRoot, desc)) {
+            rdcssComplete(false);
+            return desc.committed;
+        }
+        return false;
+    }
+
+    // ---------------------------------- GCAS on an INode's main ----------------------------------
+    // A GCAS only succeeds if the root is still in the generation of the INode being changed.
+    // That's what keeps a writer that started before a snapshot from changing the snapshot.
+
+    private MainNode<K,V> gcasRead(INode<K,V> in) {
+        MainNode<K,V> m = in.main;
+        return (m.prev == null) ? m : gcasComplete(in, m);
+    }
+
+    private MainNode<K,V> gcasComplete(INode<K,V> in, MainNode<K,V> m) {
+        while (true) {
+            if (m == null) {
+                return null;
+            }
+            MainNode<K,V> prev = m.prev;
+            INode<K,V> r = readRoot(true);
+            if (prev == null) {
+                return m;
+            }
+            if (prev instanceof FailedNode) {
+                // Put back the node the failed GCAS replaced.
+                if (in.cas(m, prev.prev)) {
+                    return prev.prev;
+                }
+                m = in.main;
+            } else if ( (r.gen == in.gen) && !readOnly ) {
+                // Commit
+                if (m.casPrev(prev, null)) {
+                    return m;
+                }
+            } else {
+                // Abort
+                m.casPrev(prev, new FailedNode<>(prev));
+                m = in.main;
+            }
+        }
+    }
+
+    private boolean gcas(INode<K,V> in, MainNode<K,V> old, MainNode<K,V> n) {
+        n.prev = old;
+        if (in.cas(old, n)) {
+            gcasComplete(in, n);
+            return n.prev == null;
+        }
+        return false;
+    }
+
+    private INode<K,V> copyToGen(INode<K,V> in, Gen newGen) {
+        return new INode<>(newGen, gcasRead(in));
+    }
+
+    /** Returns a copy of the CNode with all the INodes under it copied to the new generation. */
+    @SuppressWarnings("unchecked")
+    private CNode<K,V> renewed(CNode<K,V> cn, Gen newGen) {
+        Object[] newArray = cn.array.clone();
+        for (int i = 0; i < newArray.length; i++) {
+            if (newArray[i] instanceof INode) {
+                newArray[i] = copyToGen((INode<K,V>) newArray[i], newGen);
+            }
+        }
+        return new CNode<>(cn.bitmap, newArray, newGen);
+    }
+
+    /** Returns a copy of the CNode with any tombed children pulled up into it. */
+    @SuppressWarnings("unchecked")
+    private MainNode<K,V> toCompressed(CNode<K,V> cn, int shift, Gen gen) {
+        Object[] newArray = cn.array.clone();
+        for (int i = 0; i < newArray.length; i++) {
+            if (newArray[i] instanceof INode) {
+                MainNode<K,V> m = gcasRead((INode<K,V>) newArray[i]);
+                if (m instanceof TNode) {
+                    newArray[i] = ((TNode<K,V>) m).sn;
+                }
+            }
+        }
+        return new CNode<K,V>(cn.bitmap, newArray, gen).toContracted(shift);
+    }
+
+    private void clean(INode<K,V> in, int shift, Gen gen) {
+        MainNode<K,V> m = gcasRead(in);
+        if (m instanceof CNode) {
+            gcas(in, m, toCompressed((CNode<K,V>) m, shift, gen));
+        }
+    }
+
+    private static <K,V> MainNode<K,V> dual(SNode<K,V> x, SNode<K,V> y, int shift, Gen gen) {
+        if (shift < MAX_SHIFT) {
+            int xIdx = (x.hash >>> shift) & MASK;
+            int yIdx = (y.hash >>> shift) & MASK;
+            int bitmap = (1 << xIdx) | (1 << yIdx);
+            if (xIdx == yIdx) {
+                INode<K,V> sub = new INode<>(gen, dual(x, y, shift + BITS, gen));
+                return new CNode<>(bitmap, new Object[] { sub }, gen);
+            }
+            return new CNode<>(bitmap, (xIdx < yIdx) ? new Object[] { x, y }
+                                                     : new Object[] { y, x }, gen);
+        }
+        @SuppressWarnings("unchecked")
+        SNode<K,V>[] entries = (SNode<K,V>[]) new SNode[] { x, y };
+        return new LNode<>(entries);
+    }
+
+    // ---------------------------------------- Operations ----------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private Object lookup(INode<K,V> in, K key, int hash, int shift, INode<K,V> parent,
+                          Gen startGen) {
+        while (true) {
+            MainNode<K,V> m = gcasRead(in);
+            if (m instanceof CNode) {
+                CNode<K,V> cn = (CNode<K,V>) m;
+                int flag = 1 << ((hash >>> shift) & MASK);
+                if ((cn.bitmap & flag) == 0) {
+                    return NOT_FOUND;
+                }
+                Object sub = cn.array[Integer.bitCount(cn.bitmap & (flag - 1))];
+                if (sub instanceof INode) {
+                    INode<K,V> subIn = (INode<K,V>) sub;
+                    if (readOnly || (subIn.gen == startGen)) {
+                        parent = in;
+                        in = subIn;
+                        shift += BITS;
+                    } else if (!gcas(in, cn, renewed(cn, startGen))) {
+                        return RESTART;
+                    }
+                    continue;
+                }
+                SNode<K,V> sn = (SNode<K,V>) sub;
+                return ( (sn.hash == hash) && equator.eq(sn.key, key) ) ? sn.val : NOT_FOUND;
+            }
+            if (m instanceof TNode) {
+                if (!readOnly) {
+                    clean(parent, shift - BITS, in.gen);
+                    return RESTART;
+                }
+                SNode<K,V> sn = ((TNode<K,V>) m).sn;
+                return ( (sn.hash == hash) && equator.eq(sn.key, key) ) ? sn.val : NOT_FOUND;
+            }
+            return ((LNode<K,V>) m).get(key, equator);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object insert(INode<K,V> in, K key, V val, int hash, int shift, INode<K,V> parent,
+                          Gen startGen) {
+        while (true) {
+            MainNode<K,V> m = gcasRead(in);
+            if (m instanceof CNode) {
+                CNode<K,V> cn = (CNode<K,V>) m;
+                int flag = 1 << ((hash >>> shift) & MASK);
+                int pos = Integer.bitCount(cn.bitmap & (flag - 1));
+                CNode<K,V> current = (cn.gen == in.gen) ? cn : null;
+                if ((cn.bitmap & flag) == 0) {
+                    if (current == null) {
+                        current = renewed(cn, in.gen);
+                    }
+                    return gcas(in, cn, current.insertedAt(pos, flag, new SNode<>(key, val, hash),
+                                                           in.gen))
+                           ? NOT_FOUND : RESTART;
+                }
+                Object sub = cn.array[pos];
+                if (sub instanceof INode) {
+                    INode<K,V> subIn = (INode<K,V>) sub;
+                    if (subIn.gen == startGen) {
+                        parent = in;
+                        in = subIn;
+                        shift += BITS;
+                    } else if (!gcas(in, cn, renewed(cn, startGen))) {
+                        return RESTART;
+                    }
+                    continue;
+                }
+                SNode<K,V> sn = (SNode<K,V>) sub;
+                if ( (sn.hash == hash) && equator.eq(sn.key, key) ) {
+                    return gcas(in, cn, cn.updatedAt(pos, new SNode<>(key, val, hash), in.gen))
+                           ? sn.val : RESTART;
+                }
+                if (current == null) {
+                    current = renewed(cn, in.gen);
+                }
+                INode<K,V> subIn = new INode<>(in.gen, dual(sn, new SNode<>(key, val, hash),
+                                                            shift + BITS, in.gen));
+                return gcas(in, cn, current.updatedAt(pos, subIn, in.gen)) ? NOT_FOUND : RESTART;
+            }
+            if (m instanceof TNode) {
+                clean(parent, shift - BITS, in.gen);
+                return RESTART;
+            }
+            LNode<K,V> ln = (LNode<K,V>) m;
+            Object old = ln.get(key, equator);
+            return gcas(in, ln, ln.inserted(new SNode<>(key, val, hash), equator)) ? old : RESTART;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object remove(INode<K,V> in, K key, int hash, int shift, INode<K,V> parent,
+                          Gen startGen) {
+        while (true) {
+            MainNode<K,V> m = gcasRead(in);
+            if (m instanceof CNode) {
+                CNode<K,V> cn = (CNode<K,V>) m;
+                int flag = 1 << ((hash >>> shift) & MASK);
+                if ((cn.bitmap & flag) == 0) {
+                    return NOT_FOUND;
+                }
+                int pos = Integer.bitCount(cn.bitmap & (flag - 1));
+                Object sub = cn.array[pos];
+                Object ret;
+                if (sub instanceof INode) {
+                    INode<K,V> subIn = (INode<K,V>) sub;
+                    if (subIn.gen != startGen) {
+                        if (gcas(in, cn, renewed(cn, startGen))) {
+                            continue;
+                        }
+                        return RESTART;
+                    }
+                    ret = remove(subIn, key, hash, shift + BITS, in, startGen);
+                } else {
+                    SNode<K,V> sn = (SNode<K,V>) sub;
+                    if ( (sn.hash != hash) || !equator.eq(sn.key, key) ) {
+                        return NOT_FOUND;
+                    }
+                    MainNode<K,V> newCn = cn.removedAt(pos, flag, in.gen).toContracted(shift);
+                    ret = gcas(in, cn, newCn) ? sn.val : RESTART;
+                }
+                if ( (ret != NOT_FOUND) && (ret != RESTART) && (parent != null) ) {
+                    // Never a tomb at the root.
+                    MainNode<K,V> n = gcasRead(in);
+                    if (n instanceof TNode) {
+                        cleanParent(in, parent, (TNode<K,V>) n, hash, shift, startGen);
+                    }
+                }
+                return ret;
+            }
+            if (m instanceof TNode) {
+                clean(parent, shift - BITS, in.gen);
+                return RESTART;
+            }
+            LNode<K,V> ln = (LNode<K,V>) m;
+            Object old = ln.get(key, equator);
+            if (old == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            return gcas(in, ln, ln.removed(key, equator)) ? old : RESTART;
+        }
+    }
+
+    /** Pulls the SNode in the tomb up into the parent CNode, in place of the INode holding it. */
+    private void cleanParent(INode<K,V> in, INode<K,V> parent, TNode<K,V> tn, int hash, int shift,
+                             Gen startGen) {
+        while (true) {
+            MainNode<K,V> pm = gcasRead(parent);
+            if ( !(pm instanceof CNode) ) {
+                return;
+            }
+            CNode<K,V> cn = (CNode<K,V>) pm;
+            int flag = 1 << ((hash >>> (shift - BITS)) & MASK);
+            if ((cn.bitmap & flag) == 0) {
+                return;
+            }
+            int pos = Integer.bitCount(cn.bitmap & (flag - 1));
+            if (cn.array[pos] != in) {
+                return;
+            }
+            MainNode<K,V> newCn = cn.updatedAt(pos, tn.sn, in.gen).toContracted(shift - BITS);
+            if (gcas(parent, cn, newCn) || (readRoot(false).gen != startGen)) {
+                return;
+            }
+        }
+    }
+
+    // ========================================= Snapshot =========================================
+
+    /** Walks a read-only trie. */
+    private final class Iter implements UnmodIterator<UnEntry<K,V>> {
+        // INodes and SNodes still to visit.
+        private final ArrayDeque<Object> stack = new ArrayDeque<>();
+        private SNode<K,V> next;
+
+        private Iter(INode<K,V> r) {
+            stack.push(r);
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (!stack.isEmpty()) {
+                Object o = stack.pop();
+                if (o instanceof SNode) {
+                    next = (SNode<K,V>) o;
+                    return;
+                }
+                MainNode<K,V> m = gcasRead((INode<K,V>) o);
+                if (m instanceof CNode) {
+                    Object[] array = ((CNode<K,V>) m).array;
+                    for (int i = array.length - 1; i >= 0; i--) {
+                        stack.push(array[i]);
+                    }
+                } else if (m instanceof TNode) {
+                    next = ((TNode<K,V>) m).sn;
+                    return;
+                } else {
+                    SNode<K,V>[] entries = ((LNode<K,V>) m).entries;
+                    for (int i = entries.length - 1; i >= 0; i--) {
+                        stack.push(entries[i]);
+                    }
+                }
+            }
+        }
+
+        @Override public boolean hasNext() { return next != null; }
+
+        @Override public UnEntry<K,V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            SNode<K,V> sn = next;
+            advance();
+            return Tuple2.of(sn.key, sn.val);
+        }
+    }
+
+    /**
+     An ImMap view of a read-only trie.  Its assoc() and without() copy just the root, make the
+     change in that private copy the way ConcurrentHashTrie.put() would, then wrap it.
+     */
+    private static final class Snapshot<K,V> extends AbstractUnmodMap<K,V>
+            implements ImMap<K,V>, Serializable {
+        private static final long serialVersionUID = 20261019150000L;
+
+        private final transient @NotNull ConcurrentHashTrie<K,V> trie;
+        // Counted the first time it's asked for.  Racy, but every thread gets the same answer.
+        private transient int size;
+
+        private Snapshot(@NotNull ConcurrentHashTrie<K,V> t, int s) { trie = t; size = s; }
+
+        // Serializes as a PersistentHashMap.
+        private Object writeReplace() { return mutable().immutable(); }
+
+        @Override public @NotNull Equator<K> equator() { return trie.equator; }
+
+        @SuppressWarnings("unchecked")
+        @Override public @NotNull Option<UnEntry<K,V>> entry(K key) {
+            Object ret = trie.lookupHc(key, trie.equator.hash(key));
+            return (ret == NOT_FOUND) ? Option.none() : Option.some(Tuple2.of(key, (V) ret));
+        }
+
+        @Override public int size() {
+            if (size < 0) {
+                int count = 0;
+                for (UnmodIterator<UnEntry<K,V>> iter = iterator(); iter.hasNext(); iter.next()) {
+                    count++;
+                }
+                size = count;
+            }
+            return size;
+        }
+
+        /** A writable trie that starts out sharing all the nodes of this snapshot. */
+        private ConcurrentHashTrie<K,V> writableCopy() {
+            ConcurrentHashTrie<K,V> t = trie;
+            return new ConcurrentHashTrie<>(t.equator, t.copyToGen(t.readRoot(false), new Gen()),
+                                            false);
+        }
+
+        /** Nobody else can see the writable trie, so its root can simply be shared. */
+        private static <K,V> Snapshot<K,V> freeze(ConcurrentHashTrie<K,V> w, int s) {
+            return new Snapshot<>(new ConcurrentHashTrie<>(w.equator, w.readRoot(false), true), s);
+        }
+
+        @Override public @NotNull ImMap<K,V> assoc(K key, V val) {
+            int hash = trie.equator.hash(key);
+            Object old = trie.lookupHc(key, hash);
+            if ( (old != NOT_FOUND) && (old == val) ) {
+                return this;
+            }
+            ConcurrentHashTrie<K,V> w = writableCopy();
+            w.insertHc(key, val, hash);
+            return freeze(w, (size < 0) ? -1 :
+                             (old == NOT_FOUND) ? size + 1 :
+                             size);
+        }
+
+        @Override public @NotNull ImMap<K,V> without(K key) {
+            if (trie.lookupHc(key, trie.equator.hash(key)) == NOT_FOUND) {
+                return this;
+            }
+            ConcurrentHashTrie<K,V> w = writableCopy();
+            w.remove(key);
+            return freeze(w, (size < 0) ? -1 : size - 1);
+        }
+
+        /** Returns a MutMap (a PersistentHashMap.MutHashMap) of the same entries. */
+        @Override public @NotNull MutMap<K,V> mutable() {
+            MutMap<K,V> ret = PersistentHashMap.emptyMutable(trie.equator);
+            for (UnEntry<K,V> entry : this) {
+                ret.assoc(entry.getKey(), entry.getValue());
+            }
+            return ret;
+        }
+
+        @Override public @NotNull UnmodIterator<UnEntry<K,V>> iterator() {
+            return trie.new Iter(trie.readRoot(false));
+        }
+    }
+}
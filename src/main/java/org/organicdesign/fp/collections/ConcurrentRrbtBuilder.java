@@ -0,0 +1,190 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.collections;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.collections.RrbTree.ImRrbt;
+import org.organicdesign.fp.collections.RrbTree.MutRrbt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ <p>Lets many threads build a single, ordered {@link ImRrbt} at the same time.  Each producer
+ thread gets its own {@link Segment} and appends to it without contending with the others.
+ The resulting list holds the contents of each segment in the order the segments were created,
+ and the items in each segment in the order they were appended.</p>
+
+ <p>{@link #build()} joins the segments with the O(log n) {@link RrbTree#join(RrbTree)} in a
+ parallel tree-reduction, so there's no single-threaded copy of all the items at the end.
+ {@link #snapshot()} can be called at any time, from any thread, to get a consistent list of
+ everything appended so far.  It doesn't copy any items, so it's cheap enough to call
+ periodically while the producers are still running.</p>
+
+ <pre>{@code
+ConcurrentRrbtBuilder<Rec> builder = new ConcurrentRrbtBuilder<>();
+
+// In each producer thread:
+ConcurrentRrbtBuilder.Segment<Rec> seg = builder.segment();
+for (Rec r : myRecs) {
+    seg.append(r);
+}
+
+// After all producers are done:
+ImRrbt<Rec> recs = builder.build();}</pre>
+
+ <p>A Segment is meant to be appended to by one thread at a time.  It takes an uncontended lock on
+ each append so that a snapshot can safely freeze it.</p>
+ */
+public final class ConcurrentRrbtBuilder<E> {
+
+    // Fewer segments than this are joined on the calling thread.  Each join is only O(log n), so
+    // forking is only worth it when there are a lot of them.
+    private static final int SEQUENTIAL_JOIN_THRESHOLD = 8;
+
+    // In creation order.  Guarded by this.
+    private final @NotNull List<Segment<E>> segments = new ArrayList<>();
+
+    private volatile boolean built = false;
+
+    /** Returns a new, empty builder. */
+    public ConcurrentRrbtBuilder() {}
+
+    /**
+     Returns a new segment to append to.  Its items will follow the items of all previously
+     created segments in the final list.  Usually each producer thread calls this once.
+     */
+    public synchronized @NotNull Segment<E> segment() {
+        ensureNotBuilt();
+        Segment<E> seg = new Segment<>(this);
+        segments.add(seg);
+        return seg;
+    }
+
+    /**
+     Returns an immutable list of everything appended so far without stopping the producers for
+     longer than it takes to freeze each segment (constant time).  Each segment is frozen
+     separately, so the snapshot holds some prefix of what each producer has appended.
+     */
+    public @NotNull ImRrbt<E> snapshot() { return joinAll(freezeSegments()); }
+
+    /**
+     Joins all segments into one immutable list.  After this, appending to any segment of this
+     builder or creating new segments throws an IllegalStateException.
+     */
+    public @NotNull ImRrbt<E> build() {
+        built = true;
+        return joinAll(freezeSegments());
+    }
+
+    private @NotNull List<ImRrbt<E>> freezeSegments() {
+        List<Segment<E>> segs;
+        synchronized (this) {
+            segs = new ArrayList<>(segments);
+        }
+        List<ImRrbt<E>> trees = new ArrayList<>(segs.size());
+        for (Segment<E> seg : segs) {
+            trees.add(seg.immutable());
+        }
+        return trees;
+    }
+
+    private void ensureNotBuilt() {
+        if (built) {
+            throw new IllegalStateException("Builder used after build() call");
+        }
+    }
+
+    private static <E> @NotNull ImRrbt<E> joinAll(@NotNull List<ImRrbt<E>> trees) {
+        if (trees.size() < SEQUENTIAL_JOIN_THRESHOLD) {
+            return joinRange(trees, 0, trees.size());
+        }
+        return ForkJoinPool.commonPool().invoke(new JoinTask<>(trees, 0, trees.size()));
+    }
+
+    /** Joins trees from startIdx (inclusive) to endIdx (exclusive) on the current thread. */
+    private static <E> @NotNull ImRrbt<E> joinRange(
+            @NotNull List<ImRrbt<E>> trees,
+            int startIdx,
+            int endIdx
+    ) {
+        ImRrbt<E> ret = RrbTree.empty();
+        for (int i = startIdx; i < endIdx; i++) {
+            ret = ret.join(trees.get(i));
+        }
+        return ret;
+    }
+
+    /** Joins each half of a range of trees in parallel, then joins the two halves. */
+    private static final class JoinTask<E> extends RecursiveTask<ImRrbt<E>> {
+        private static final long serialVersionUID = 20261019120000L;
+
+        private final transient @NotNull List<ImRrbt<E>> trees;
+        private final int startIdx;
+        private final int endIdx;
+
+        JoinTask(@NotNull List<ImRrbt<E>> ts, int s, int e) { trees = ts; startIdx = s; endIdx = e; }
+
+        @Override
+        protected @NotNull ImRrbt<E> compute() {
+            if (endIdx - startIdx < SEQUENTIAL_JOIN_THRESHOLD) {
+                return joinRange(trees, startIdx, endIdx);
+            }
+            int midIdx = (startIdx + endIdx) >>> 1;
+            JoinTask<E> leftTask = new JoinTask<>(trees, startIdx, midIdx);
+            leftTask.fork();
+            ImRrbt<E> right = new JoinTask<>(trees, midIdx, endIdx).compute();
+            return leftTask.join().join(right);
+        }
+    }
+
+    /**
+     One producer's part of the list being built.  Appending to a segment never blocks on
+     another segment.
+     */
+    public static final class Segment<E> {
+        private final @NotNull ConcurrentRrbtBuilder<E> builder;
+        // Guarded by this.
+        private final @NotNull MutRrbt<E> items = RrbTree.emptyMutable();
+
+        private Segment(@NotNull ConcurrentRrbtBuilder<E> b) { builder = b; }
+
+        /** Adds an item to the end of this segment. */
+        @Contract(mutates = "this")
+        public synchronized @NotNull Segment<E> append(E item) {
+            builder.ensureNotBuilt();
+            items.append(item);
+            return this;
+        }
+
+        /** Adds all the given items to the end of this segment (taking the lock only once). */
+        @Contract(mutates = "this")
+        public synchronized @NotNull Segment<E> concat(@Nullable Iterable<? extends E> es) {
+            builder.ensureNotBuilt();
+            items.concat(es);
+            return this;
+        }
+
+        /** The number of items appended to this segment so far. */
+        public synchronized int size() { return items.size(); }
+
+        // MutRrbt.immutable() shares its nodes with the ImRrbt it returns and keeps on
+        // appending to copies of them, so this is cheap.
+        private synchronized @NotNull ImRrbt<E> immutable() { return items.immutable(); }
+    }
+}
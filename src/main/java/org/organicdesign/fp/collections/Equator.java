@@ -17,7 +17,10 @@ package org.organicdesign.fp.collections;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.Serializable;
 import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  An Equator represents an equality context in a way that is analgous to the java.util.Comparator
@@ -113,6 +116,67 @@ public interface Equator<T> {
         return o1.compareTo(o2);
     }
 
+    /**
+     An Equator that scrambles (spreads) the hash codes of another Equator with a seed.  Hash-based
+     collections like PersistentHashMap pick a slot with a few bits of the hash at a time, so
+     keys whose hashes only differ in their high bits (like multiples of 1024) make long chains of
+     nodes.  Spreading mixes every bit of the original hash into every bit of the result.  With a
+     secret seed, it is also hard for an attacker to pick keys that land in the same part of the
+     map.  Equality is unchanged, so keys with exactly the same original hash still collide.
+     PersistentHashMap keeps big collision bins of Comparable keys sorted to handle that case.
+     */
+    final class Spreading<T> implements Equator<T>, Serializable {
+        private static final long serialVersionUID = 20261019140000L;
+
+        private final @NotNull Equator<T> base;
+        private final int seed;
+
+        private Spreading(@NotNull Equator<T> b, int s) { base = b; seed = s; }
+
+        /** The Equator whose hashes are spread. */
+        public @NotNull Equator<T> base() { return base; }
+
+        /** The finalization step of the MurmurHash3 32-bit hash, applied to (hash ^ seed). */
+        @Override public int hash(T t) {
+            int h = base.hash(t) ^ seed;
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+
+        @Override public boolean eq(T o1, T o2) { return base.eq(o1, o2); }
+
+        @Override public int hashCode() { return base.hashCode() ^ seed; }
+
+        @Override public boolean equals(Object other) {
+            if (this == other) { return true; }
+            if ( !(other instanceof Spreading) ) { return false; }
+            Spreading<?> that = (Spreading<?>) other;
+            return (seed == that.seed) && Objects.equals(base, that.base);
+        }
+
+        @Override public String toString() { return "Equator.Spreading(" + base + ")"; }
+    }
+
+    /**
+     Returns an Equator that spreads the hashes of the given Equator using the given seed.
+     See {@link Spreading}.
+     */
+    static <T> @NotNull Equator<T> spreading(@NotNull Equator<T> base, int seed) {
+        return new Spreading<>(base, seed);
+    }
+
+    /**
+     Returns an Equator that spreads the hashes of the given Equator using a random seed.
+     Pass it to {@link PersistentHashMap#empty(Equator)} to give each map its own seed.
+     */
+    static <T> @NotNull Equator<T> spreading(@NotNull Equator<T> base) {
+        return new Spreading<>(base, ThreadLocalRandom.current().nextInt());
+    }
+
     // ========================================= Instance =========================================
     /**
      An integer digest used for very quick "can-equal" testing.
@@ -0,0 +1,166 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.collections;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ An immutable list of up to {@link #MAX_SIZE} items held in a single array, which is all a
+ {@link PersistentVector} this small holds too, minus the vector's size, shift, and root fields.
+ Appending to a full list returns an equivalent PersistentVector.  This is the list version of
+ {@link PersistentArrayMap}.
+ */
+public final class PersistentArrayList<E> extends UnmodList.AbstractUnmodList<E>
+        implements ImList<E>, Serializable {
+
+    /** The most items a PersistentArrayList will hold. */
+    public static final int MAX_SIZE = PersistentArrayMap.MAX_SIZE;
+
+    private static final @NotNull PersistentArrayList<Object> EMPTY =
+            new PersistentArrayList<>(new Object[0]);
+
+    /** Returns the empty PersistentArrayList (a singleton). */
+    @SuppressWarnings("unchecked")
+    public static <E> @NotNull PersistentArrayList<E> empty() {
+        return (PersistentArrayList<E>) EMPTY;
+    }
+
+    /**
+     Returns an ImList of the given items: a PersistentArrayList if there are few enough of them,
+     otherwise a PersistentVector.
+     */
+    public static <E> @NotNull ImList<E> of(@Nullable Iterable<? extends E> items) {
+        return PersistentArrayList.<E>empty().concat(items);
+    }
+
+    // Never shared with anyone else.
+    private final Object @NotNull [] items;
+
+    private PersistentArrayList(Object @NotNull [] items) { this.items = items; }
+
+    // ======================================= Serialization =======================================
+    // For serializable.  Make sure to change whenever internal data format changes.
+    private static final long serialVersionUID = 20261019140400L;
+
+    private static final class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = 20261019140500L;
+
+        private final Object @NotNull [] items;
+
+        SerializationProxy(Object @NotNull [] items) { this.items = items; }
+
+        private Object readResolve() throws InvalidObjectException {
+            if (items.length > MAX_SIZE) {
+                throw new InvalidObjectException("Bad array length: " + items.length);
+            }
+            return (items.length == 0) ? EMPTY : new PersistentArrayList<>(items);
+        }
+    }
+
+    private Object writeReplace() { return new SerializationProxy(items); }
+
+    private void readObject(java.io.ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    // ===================================== Instance Methods =====================================
+
+    @SuppressWarnings("unchecked")
+    @Override public E get(int i) {
+        if ( (i < 0) || (i >= items.length) ) {
+            throw new IndexOutOfBoundsException("Index: " + i + " Size: " + items.length);
+        }
+        return (E) items[i];
+    }
+
+    @Override public int size() { return items.length; }
+
+    /** Returns a new list with the item added.  Appending to a full list returns a PersistentVector. */
+    @Override public @NotNull ImList<E> append(E e) {
+        if (items.length >= MAX_SIZE) {
+            return mutable().append(e).immutable();
+        }
+        Object[] newItems = Arrays.copyOf(items, items.length + 1);
+        newItems[items.length] = e;
+        return new PersistentArrayList<>(newItems);
+    }
+
+    /**
+     Like {@link PersistentVector#replace(int, Object)}, replacing at index size() is the same as
+     appending.
+     */
+    @Override public @NotNull ImList<E> replace(int idx, E e) {
+        if (idx == items.length) {
+            return append(e);
+        }
+        if ( (idx < 0) || (idx > items.length) ) {
+            throw new IndexOutOfBoundsException("Index: " + idx + " Size: " + items.length);
+        }
+        if (items[idx] == e) { return this; }
+        Object[] newItems = items.clone();
+        newItems[idx] = e;
+        return new PersistentArrayList<>(newItems);
+    }
+
+    /** Stays a PersistentArrayList if the result is small enough, otherwise a PersistentVector. */
+    @SuppressWarnings("unchecked")
+    @Override public @NotNull ImList<E> concat(@Nullable Iterable<? extends E> es) {
+        if (es == null) { return this; }
+        Object[] newItems = Arrays.copyOf(items, MAX_SIZE);
+        int size = items.length;
+        Iterator<? extends E> iter = es.iterator();
+        while (iter.hasNext()) {
+            if (size >= MAX_SIZE) {
+                // Too many.  Move what we have to a vector and finish there.
+                PersistentVector.MutVector<E> ret = PersistentVector.emptyMutable();
+                for (Object item : newItems) {
+                    ret.append((E) item);
+                }
+                while (iter.hasNext()) {
+                    ret.append(iter.next());
+                }
+                return ret.immutable();
+            }
+            newItems[size++] = iter.next();
+        }
+        if (size == items.length) { return this; }
+        return new PersistentArrayList<>( (size == MAX_SIZE) ? newItems
+                                                             : Arrays.copyOf(newItems, size) );
+    }
+
+    @Override public @NotNull ImList<E> reverse() {
+        if (items.length < 2) { return this; }
+        Object[] newItems = new Object[items.length];
+        for (int i = 0; i < items.length; i++) {
+            newItems[i] = items[items.length - 1 - i];
+        }
+        return new PersistentArrayList<>(newItems);
+    }
+
+    /** Returns a MutList backed by a PersistentVector, so it can grow to any size. */
+    @SuppressWarnings("unchecked")
+    @Override public @NotNull PersistentVector.MutVector<E> mutable() {
+        PersistentVector.MutVector<E> ret = PersistentVector.emptyMutable();
+        for (Object item : items) {
+            ret.append((E) item);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,230 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.collections;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.oneOf.Option;
+import org.organicdesign.fp.tuple.Tuple2;
+
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ <p>An immutable map of up to {@link #MAX_SIZE} entries held in a single flat array of
+ alternating keys and values.  Keys are found by a linear scan with equals(), which for this few
+ entries is about as fast as hashing, and the whole map is just this object and its array instead
+ of a {@link PersistentHashMap}, its root node, and that node's array.  Like Clojure's
+ PersistentArrayMap, it's meant for the millions of tiny maps in document-shaped data.</p>
+
+ <p>Adding a key to a full map returns an equivalent {@link PersistentHashMap}.  Removing keys
+ leaves it a PersistentArrayMap.  Entries are iterated in the order their keys were first
+ added.  Always uses the {@link Equator#defaultEquator()}.  Null keys and values are allowed.</p>
+ */
+public final class PersistentArrayMap<K,V> extends AbstractUnmodMap<K,V>
+        implements ImMap<K,V>, Serializable {
+
+    /** The most entries a PersistentArrayMap will hold. */
+    public static final int MAX_SIZE = 8;
+
+    private static final @NotNull PersistentArrayMap<Object,Object> EMPTY =
+            new PersistentArrayMap<>(new Object[0]);
+
+    /** Returns the empty PersistentArrayMap (a singleton). */
+    @SuppressWarnings("unchecked")
+    public static <K,V> @NotNull PersistentArrayMap<K,V> empty() {
+        return (PersistentArrayMap<K,V>) EMPTY;
+    }
+
+    /**
+     Returns an ImMap of the given key/value pairs: a PersistentArrayMap if there are few enough
+     distinct keys, otherwise a PersistentHashMap.  Later values overwrite earlier ones for the same
+     key.  Null pairs are ignored.
+     */
+    public static <K,V> @NotNull ImMap<K,V> of(@Nullable Iterable<Map.Entry<K,V>> kvPairs) {
+        PersistentArrayMap<K,V> ret = empty();
+        if (kvPairs == null) { return ret; }
+        Iterator<Map.Entry<K,V>> iter = kvPairs.iterator();
+        while (iter.hasNext()) {
+            Map.Entry<K,V> entry = iter.next();
+            if (entry == null) { continue; }
+            ImMap<K,V> next = ret.assoc(entry.getKey(), entry.getValue());
+            if ( !(next instanceof PersistentArrayMap) ) {
+                // Promoted.  Add the rest to a MutMap instead of one persistent copy at a time.
+                PersistentHashMap.MutHashMap<K,V> mu = ((PersistentHashMap<K,V>) next).mutable();
+                while (iter.hasNext()) {
+                    entry = iter.next();
+                    if (entry != null) {
+                        mu.assoc(entry.getKey(), entry.getValue());
+                    }
+                }
+                return mu.immutable();
+            }
+            ret = (PersistentArrayMap<K,V>) next;
+        }
+        return ret;
+    }
+
+    // Even numbered cells are keys, odd ones are their values.  Never shared with anyone else.
+    private final Object @NotNull [] kvs;
+
+    private PersistentArrayMap(Object @NotNull [] kvs) { this.kvs = kvs; }
+
+    // ======================================= Serialization =======================================
+    // For serializable.  Make sure to change whenever internal data format changes.
+    private static final long serialVersionUID = 20261019140000L;
+
+    // The array is already as compact as it gets, so the proxy just holds onto it.
+    private static final class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = 20261019140100L;
+
+        private final Object @NotNull [] kvs;
+
+        SerializationProxy(Object @NotNull [] kvs) { this.kvs = kvs; }
+
+        private Object readResolve() throws InvalidObjectException {
+            if ( (kvs.length % 2 != 0) || (kvs.length > MAX_SIZE * 2) ) {
+                throw new InvalidObjectException("Bad array length: " + kvs.length);
+            }
+            return (kvs.length == 0) ? EMPTY : new PersistentArrayMap<>(kvs);
+        }
+    }
+
+    private Object writeReplace() { return new SerializationProxy(kvs); }
+
+    private void readObject(java.io.ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    // ===================================== Instance Methods =====================================
+
+    /** Returns the index of the key in kvs, or -1 if it's not there. */
+    private int indexOf(Object key) {
+        for (int i = 0; i < kvs.length; i += 2) {
+            if (Objects.equals(key, kvs[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K k(int i) { return (K) kvs[i]; }
+
+    @SuppressWarnings("unchecked")
+    private V v(int i) { return (V) kvs[i]; }
+
+    /** Always the default Equator. */
+    @Override public @NotNull Equator<K> equator() { return Equator.defaultEquator(); }
+
+    @Override public int size() { return kvs.length >> 1; }
+
+    @Override public @NotNull Option<UnEntry<K,V>> entry(K key) {
+        int i = indexOf(key);
+        return (i < 0) ? Option.none() : Option.some(Tuple2.of(k(i), v(i + 1)));
+    }
+
+    /** Returns the keys as a PersistentArraySet, in the same order. */
+    @Override public @NotNull ImSet<K> keySet() {
+        if (kvs.length == 0) { return PersistentArraySet.empty(); }
+        Object[] keys = new Object[kvs.length >> 1];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = kvs[i << 1];
+        }
+        return new PersistentArraySet<>(keys);
+    }
+
+    @Override public boolean containsKey(Object key) { return indexOf(key) >= 0; }
+
+    @Override public @Nullable V get(Object key) {
+        int i = indexOf(key);
+        return (i < 0) ? null : v(i + 1);
+    }
+
+    @Override public V getOrElse(K key, V notFound) {
+        int i = indexOf(key);
+        return (i < 0) ? notFound : v(i + 1);
+    }
+
+    /**
+     Returns a new map with the given key and value.  If this map is already full and the key is
+     new, the result is a PersistentHashMap.
+     */
+    @Override public @NotNull ImMap<K,V> assoc(K key, V val) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            if (kvs[i + 1] == val) { return this; }
+            Object[] newKvs = kvs.clone();
+            newKvs[i + 1] = val;
+            return new PersistentArrayMap<>(newKvs);
+        }
+        if (size() >= MAX_SIZE) {
+            return mutable().assoc(key, val).immutable();
+        }
+        Object[] newKvs = Arrays.copyOf(kvs, kvs.length + 2);
+        newKvs[kvs.length] = key;
+        newKvs[kvs.length + 1] = val;
+        return new PersistentArrayMap<>(newKvs);
+    }
+
+    @Override public @NotNull PersistentArrayMap<K,V> without(K key) {
+        int i = indexOf(key);
+        if (i < 0) { return this; }
+        if (kvs.length == 2) { return empty(); }
+        Object[] newKvs = new Object[kvs.length - 2];
+        System.arraycopy(kvs, 0, newKvs, 0, i);
+        System.arraycopy(kvs, i + 2, newKvs, i, newKvs.length - i);
+        return new PersistentArrayMap<>(newKvs);
+    }
+
+    /** Returns a MutMap backed by a PersistentHashMap, so it can grow to any size. */
+    @Override public @NotNull PersistentHashMap.MutHashMap<K,V> mutable() {
+        PersistentHashMap.MutHashMap<K,V> ret = PersistentHashMap.emptyMutable();
+        for (int i = 0; i < kvs.length; i += 2) {
+            ret.assoc(k(i), v(i + 1));
+        }
+        return ret;
+    }
+
+    private final class Iter<R> implements UnmodIterator<R> {
+        // 0 for entries, 1 for keys, 2 for values.
+        private final int kind;
+        private int idx = 0;
+
+        private Iter(int k) { kind = k; }
+
+        @Override public boolean hasNext() { return idx < kvs.length; }
+
+        @SuppressWarnings("unchecked")
+        @Override public R next() {
+            if (idx >= kvs.length) { throw new NoSuchElementException(); }
+            int i = idx;
+            idx += 2;
+            return (R) ( (kind == 0) ? Tuple2.of(k(i), v(i + 1)) :
+                         (kind == 1) ? kvs[i] :
+                         kvs[i + 1] );
+        }
+    }
+
+    @Override public @NotNull UnmodIterator<UnEntry<K,V>> iterator() { return new Iter<>(0); }
+
+    @Override public @NotNull UnmodIterator<K> keyIterator() { return new Iter<>(1); }
+
+    @Override public @NotNull UnmodIterator<V> valIterator() { return new Iter<>(2); }
+}
@@ -0,0 +1,169 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.collections;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ An immutable set of up to {@link #MAX_SIZE} items held in a single array and searched linearly
+ with equals().  This is the set version of {@link PersistentArrayMap}: adding an item to a full
+ set returns an equivalent {@link PersistentHashSet}, and removing items leaves it a
+ PersistentArraySet.  Items are iterated in the order they were first added.  Null is allowed.
+ */
+public final class PersistentArraySet<E> extends AbstractUnmodSet<E>
+        implements ImSet<E>, Serializable {
+
+    /** The most items a PersistentArraySet will hold. */
+    public static final int MAX_SIZE = PersistentArrayMap.MAX_SIZE;
+
+    private static final @NotNull PersistentArraySet<Object> EMPTY =
+            new PersistentArraySet<>(new Object[0]);
+
+    /** Returns the empty PersistentArraySet (a singleton). */
+    @SuppressWarnings("unchecked")
+    public static <E> @NotNull PersistentArraySet<E> empty() {
+        return (PersistentArraySet<E>) EMPTY;
+    }
+
+    /**
+     Returns an ImSet of the given items: a PersistentArraySet if there are few enough distinct
+     items, otherwise a PersistentHashSet.  Later items overwrite equal earlier ones.
+     */
+    public static <E> @NotNull ImSet<E> of(@Nullable Iterable<E> items) {
+        PersistentArraySet<E> ret = empty();
+        if (items == null) { return ret; }
+        Iterator<E> iter = items.iterator();
+        while (iter.hasNext()) {
+            ImSet<E> next = ret.put(iter.next());
+            if ( !(next instanceof PersistentArraySet) ) {
+                // Promoted.  Add the rest to a MutSet instead of one persistent copy at a time.
+                PersistentHashSet.MutHashSet<E> mu = ((PersistentHashSet<E>) next).mutable();
+                while (iter.hasNext()) {
+                    mu.put(iter.next());
+                }
+                return mu.immutable();
+            }
+            ret = (PersistentArraySet<E>) next;
+        }
+        return ret;
+    }
+
+    // Never shared with anyone else.
+    private final Object @NotNull [] items;
+
+    // The items must all be distinct.
+    PersistentArraySet(Object @NotNull [] items) { this.items = items; }
+
+    // ======================================= Serialization =======================================
+    // For serializable.  Make sure to change whenever internal data format changes.
+    private static final long serialVersionUID = 20261019140200L;
+
+    private static final class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = 20261019140300L;
+
+        private final Object @NotNull [] items;
+
+        SerializationProxy(Object @NotNull [] items) { this.items = items; }
+
+        private Object readResolve() throws InvalidObjectException {
+            if (items.length > MAX_SIZE) {
+                throw new InvalidObjectException("Bad array length: " + items.length);
+            }
+            return (items.length == 0) ? EMPTY : new PersistentArraySet<>(items);
+        }
+    }
+
+    private Object writeReplace() { return new SerializationProxy(items); }
+
+    private void readObject(java.io.ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    // ===================================== Instance Methods =====================================
+
+    private int indexOf(Object item) {
+        for (int i = 0; i < items.length; i++) {
+            if (Objects.equals(item, items[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override public int size() { return items.length; }
+
+    @Override public boolean contains(Object o) { return indexOf(o) >= 0; }
+
+    /**
+     Returns a new set with the given item.  If this set is already full and the item is new, the
+     result is a PersistentHashSet.
+     */
+    @Override public @NotNull ImSet<E> put(E e) {
+        int i = indexOf(e);
+        if (i >= 0) {
+            if (items[i] == e) { return this; }
+            Object[] newItems = items.clone();
+            newItems[i] = e;
+            return new PersistentArraySet<>(newItems);
+        }
+        if (items.length >= MAX_SIZE) {
+            return mutable().put(e).immutable();
+        }
+        Object[] newItems = Arrays.copyOf(items, items.length + 1);
+        newItems[items.length] = e;
+        return new PersistentArraySet<>(newItems);
+    }
+
+    @Override public @NotNull PersistentArraySet<E> without(E key) {
+        int i = indexOf(key);
+        if (i < 0) { return this; }
+        if (items.length == 1) { return empty(); }
+        Object[] newItems = new Object[items.length - 1];
+        System.arraycopy(items, 0, newItems, 0, i);
+        System.arraycopy(items, i + 1, newItems, i, newItems.length - i);
+        return new PersistentArraySet<>(newItems);
+    }
+
+    /** Returns a MutSet backed by a PersistentHashSet, so it can grow to any size. */
+    @SuppressWarnings("unchecked")
+    @Override public @NotNull PersistentHashSet.MutHashSet<E> mutable() {
+        PersistentHashSet.MutHashSet<E> ret = PersistentHashSet.emptyMutable();
+        for (Object item : items) {
+            ret.put((E) item);
+        }
+        return ret;
+    }
+
+    @Override public @NotNull UnmodIterator<E> iterator() {
+        return new UnmodIterator<E>() {
+            private int idx = 0;
+
+            @Override public boolean hasNext() { return idx < items.length; }
+
+            @SuppressWarnings("unchecked")
+            @Override public E next() {
+                if (idx >= items.length) { throw new NoSuchElementException(); }
+                return (E) items[idx++];
+            }
+        };
+    }
+}
@@ -15,10 +15,15 @@ import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -118,9 +123,15 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
     @SuppressWarnings("unchecked")
     private static <K,V> INode<K,V> iNode(Object @NotNull [] array, int i) { return (INode<K,V>) array[i]; }
 
+    // Passed to findVal() as notFound by containsKey(), because null can be a value.
+    private static final Object NOT_FOUND = new Object();
+
 
 //    interface IFn {}
 
+    // Maps smaller than this are never built or processed in parallel.
+    private static final int PARALLEL_THRESHOLD = 4096;
+
     final public static @NotNull PersistentHashMap<Object,Object> EMPTY =
             new PersistentHashMap<>(null, 0, null, false, null);
 
@@ -191,6 +202,150 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         return map.immutable();
     }
 
+    /**
+     Like {@link #ofEq(Equator, Iterable)}, but builds the map using up to the given number of
+     threads.  The entries are split into 32 buckets by the 5 hash bits that pick a slot in the
+     root node, then each bucket's sub-trie is built by its own transient (mutable) builder.  The
+     finished sub-tries become the children of the root in O(32) time.  As with ofEq(), later
+     values for duplicate keys replace earlier ones and null entries are skipped.  Small inputs
+     are built on the calling thread.
+
+     @param eq the Equator for the new map (null means the default Equator).
+     @param es the key/value pairs to put in the map.  A Collection lets the buckets be pre-sized.
+     @param parallelism the maximum number of threads to build the sub-tries on.
+     @return a new PersistentHashMap of the given key/value pairs
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> @NotNull PersistentHashMap<K,V> parallelOfEq(
+            @Nullable Equator<K> eq,
+            @Nullable Iterable<Map.Entry<K,V>> es,
+            int parallelism
+    ) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, not " +
+                                               parallelism);
+        }
+        Equator<K> equator = (eq == null) ? Equator.defaultEquator() : eq;
+        if (es == null) { return empty(equator); }
+
+        // Partition the input by the root slot each key will go in, keeping the input order.
+        int bucketSize = (es instanceof Collection) ? (((Collection<?>) es).size() >>> 5) + 1
+                                                    : 16;
+        List<List<Map.Entry<K,V>>> buckets = new ArrayList<>(32);
+        for (int i = 0; i < 32; i++) {
+            buckets.add(new ArrayList<>(bucketSize));
+        }
+        boolean hasNull = false;
+        V nullValue = null;
+        int numEntries = 0;
+        for (Map.Entry<K,V> entry : es) {
+            if (entry == null) {
+                continue;
+            }
+            K key = entry.getKey();
+            if (key == null) {
+                hasNull = true;
+                nullValue = entry.getValue();
+            } else {
+                buckets.get(mask(equator.hash(key), 0)).add(entry);
+                numEntries++;
+            }
+        }
+
+        INode<K,V>[] kids = new INode[32];
+        int[] kidSizes = new int[32];
+        if ((parallelism == 1) || (numEntries < PARALLEL_THRESHOLD)) {
+            for (int i = 0; i < 32; i++) {
+                kids[i] = subTrie(equator, buckets.get(i), kidSizes, i);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(32);
+                for (int i = 0; i < 32; i++) {
+                    int idx = i;
+                    List<Map.Entry<K,V>> bucket = buckets.get(i);
+                    tasks.add(pool.submit(
+                            () -> { kids[idx] = subTrie(equator, bucket, kidSizes, idx); }));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        int size = hasNull ? 1 : 0;
+        int numKids = 0;
+        int bitmap = 0;
+        for (int i = 0; i < 32; i++) {
+            if (kids[i] != null) {
+                size += kidSizes[i];
+                numKids++;
+                bitmap |= 1 << i;
+            }
+        }
+        INode<K,V> root;
+        if (numKids == 0) {
+            root = null;
+        } else if (numKids > 8) {
+            root = new ArrayNode<>(equator, numKids, kids);
+        } else {
+            // Too few children for an ArrayNode (same rule as ArrayNode.without()).
+            Object[] array = new Object[2 * numKids];
+            for (int i = 0, j = 1; i < 32; i++) {
+                if (kids[i] != null) {
+                    array[j] = kids[i];
+                    j += 2;
+                }
+            }
+            root = new BitmapIndexedNode<>(equator, bitmap, array);
+        }
+        return new PersistentHashMap<>(equator, size, root, hasNull, nullValue);
+    }
+
+    /**
+     Like {@link #of(Iterable)}, but builds the map using up to the given number of threads.
+     See {@link #parallelOfEq(Equator, Iterable, int)}.
+     */
+    public static <K,V> @NotNull PersistentHashMap<K,V> parallelOf(
+            @Nullable Iterable<Map.Entry<K,V>> kvPairs,
+            int parallelism
+    ) {
+        return parallelOfEq(null, kvPairs, parallelism);
+    }
+
+    /**
+     Builds the sub-trie for one slot of the root node (so at shift 5) from entries whose keys all
+     belong in that slot.  Puts the number of distinct keys in sizes[idx].  Returns null if there
+     are no entries.
+     */
+    private static <K,V> @Nullable INode<K,V> subTrie(
+            @NotNull Equator<K> equator,
+            @NotNull List<Map.Entry<K,V>> entries,
+            int @NotNull [] sizes,
+            int idx
+    ) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        Object edit = new Object();
+        Box<Box> addedLeaf = new Box<>(null);
+        INode<K,V> node = BitmapIndexedNode.empty(equator);
+        int count = 0;
+        for (Map.Entry<K,V> entry : entries) {
+            K key = entry.getKey();
+            addedLeaf.val = null;
+            node = node.assoc(edit, 5, equator.hash(key), key, entry.getValue(), addedLeaf);
+            if (addedLeaf.val != null) {
+                count++;
+            }
+        }
+        sizes[idx] = count;
+        return node;
+    }
+
     // ==================================== Instance Variables ====================================
     private final @NotNull Equator<K> equator;
     private final int size;
@@ -307,6 +462,23 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         return Option.someOrNullNoneOf(entry);
     }
 
+    // get(), getOrElse(), and containsKey() go straight to findVal() so that they don't allocate
+    // an entry and an Option for every lookup.
+    @SuppressWarnings("unchecked")
+    @Override public @Nullable V get(Object key) { return getOrElse((K) key, null); }
+
+    @Override public V getOrElse(K key, V notFound) {
+        if (key == null) {
+            return hasNull ? nullValue : notFound;
+        }
+        return (root == null) ? notFound : root.findVal(0, equator.hash(key), key, notFound);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public boolean containsKey(Object key) {
+        return getOrElse((K) key, (V) NOT_FOUND) != NOT_FOUND;
+    }
+
     // The iterator methods are identical to the Mutable version of this class below.
     @NotNull
     @Override public UnmodIterator<UnEntry<K,V>> iterator() {
@@ -383,10 +555,121 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         return new PersistentHashMap<>(equator, size - 1, newroot, hasNull, nullValue);
     }
 
+
+    /**
+     Returns a new map with the same keys, each paired with the result of applying the given
+     function to its key and value.  The trie is copied node-for-node, so no keys are hashed or
+     compared.  The function may be applied to entries in any order.
+     */
+    public <V2> @NotNull PersistentHashMap<K,V2> mapValues(
+            @NotNull Fn2<? super K,? super V,? extends V2> f
+    ) {
+        return mapValues(f, false);
+    }
+
+    /**
+     Like {@link #mapValues(Fn2)}, but maps the independent sub-tries of big maps in parallel on
+     the common ForkJoinPool.  The function must be thread-safe.
+     */
+    public <V2> @NotNull PersistentHashMap<K,V2> parallelMapValues(
+            @NotNull Fn2<? super K,? super V,? extends V2> f
+    ) {
+        return mapValues(f, size >= PARALLEL_THRESHOLD);
+    }
+
+    private <V2> @NotNull PersistentHashMap<K,V2> mapValues(
+            @NotNull Fn2<? super K,? super V,? extends V2> f,
+            boolean parallel
+    ) {
+        INode<K,V2> newRoot = null;
+        if (root != null) {
+            if (parallel) {
+                Callable<INode<K,V2>> mapAll = () -> root.mapValues(f, true);
+                newRoot = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(mapAll));
+            } else {
+                newRoot = root.mapValues(f, false);
+            }
+        }
+        return new PersistentHashMap<>(equator, size, newRoot, hasNull,
+                                       hasNull ? f.apply(null, nullValue) : null);
+    }
+
+    /**
+     Returns a new map holding only the entries for which the given predicate returns true, or
+     this map if they all do.  Sub-tries are rebuilt in place without re-hashing any keys, and
+     unchanged sub-tries are shared with this map.
+     */
+    public @NotNull PersistentHashMap<K,V> filterEntries(
+            @NotNull Fn2<? super K,? super V,Boolean> pred
+    ) {
+        return filterEntries(pred, false);
+    }
+
+    /**
+     Like {@link #filterEntries(Fn2)}, but tests the independent sub-tries of big maps in
+     parallel on the common ForkJoinPool.  The predicate must be thread-safe.
+     */
+    public @NotNull PersistentHashMap<K,V> parallelFilterEntries(
+            @NotNull Fn2<? super K,? super V,Boolean> pred
+    ) {
+        return filterEntries(pred, size >= PARALLEL_THRESHOLD);
+    }
+
+    private @NotNull PersistentHashMap<K,V> filterEntries(
+            @NotNull Fn2<? super K,? super V,Boolean> pred,
+            boolean parallel
+    ) {
+        int[] kept = new int[1];
+        INode<K,V> newRoot = null;
+        if (root != null) {
+            if (parallel) {
+                Callable<INode<K,V>> filterAll = () -> root.filter(pred, true, kept);
+                newRoot = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(filterAll));
+            } else {
+                newRoot = root.filter(pred, false, kept);
+            }
+        }
+        boolean keepNull = hasNull && pred.apply(null, nullValue);
+        if ((newRoot == root) && (keepNull == hasNull)) {
+            return this;
+        }
+        return new PersistentHashMap<>(equator, kept[0] + (keepNull ? 1 : 0), newRoot, keepNull,
+                                       keepNull ? nullValue : null);
+    }
+
+    /**
+     Splits this map into smaller maps for partitioned (e.g. parallel) processing.  The shards
+     hold disjoint sets of keys and together hold every entry of this map.  When this map is big
+     enough to have an ArrayNode at its root, each non-empty slot of the root (up to 32) becomes a
+     shard that shares its sub-trie with this map.  Only the size of each shard has to be counted.
+     The null key, if any, gets a shard of its own.  Smaller maps come back as a single shard.
+     */
+    public @NotNull ImList<PersistentHashMap<K,V>> shards() {
+        if ( !(root instanceof ArrayNode) ) {
+            return PersistentVector.<PersistentHashMap<K,V>>empty().append(this);
+        }
+        MutList<PersistentHashMap<K,V>> shards = PersistentVector.emptyMutable();
+        INode<K,V>[] kids = ((ArrayNode<K,V>) root).array;
+        for (int i = 0; i < kids.length; i++) {
+            if (kids[i] != null) {
+                INode<K,V> shardRoot = new BitmapIndexedNode<>(equator, 1 << i,
+                                                                new Object[] { null, kids[i] });
+                shards.append(new PersistentHashMap<>(equator, kids[i].entryCount(), shardRoot,
+                                                      false, null));
+            }
+        }
+        if (hasNull) {
+            shards.append(new PersistentHashMap<>(equator, 1, null, true, nullValue));
+        }
+        return shards.immutable();
+    }
+
     public static final class MutHashMap<K,V> extends AbstractUnmodMap<K,V>
             implements MutMap<K,V> {
 
-        private final AtomicReference<Thread> edit;
+        // Nodes created by this map carry this token so it can edit them in place.  Set to null
+        // by immutable(), after which those nodes can never be edited again.
+        private Object edit;
         private final Equator<K> equator;
         private INode<K,V> root;
         private int count;
@@ -404,11 +687,11 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         private final Box<Box> leafFlag = new Box<>(null);
 
         private MutHashMap(PersistentHashMap<K,V> m) {
-            this(m.equator(), new AtomicReference<>(Thread.currentThread()), m.root, m.size,
+            this(m.equator(), new Object(), m.root, m.size,
                  m.hasNull, m.nullValue);
         }
 
-        private MutHashMap(Equator<K> e, AtomicReference<Thread> edit, INode<K,V> root,
+        private MutHashMap(Equator<K> e, Object edit, INode<K,V> root,
                            int count, boolean hasNull, V nullValue) {
             this.equator = (e == null) ? Equator.defaultEquator() : e;
             this.edit = edit;
@@ -456,6 +739,22 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             return Option.someOrNullNoneOf(entry);
         }
 
+        @SuppressWarnings("unchecked")
+        @Override public @Nullable V get(Object key) { return getOrElse((K) key, null); }
+
+        @Override public V getOrElse(K key, V notFound) {
+            ensureEditable();
+            if (key == null) {
+                return hasNull ? nullValue : notFound;
+            }
+            return (root == null) ? notFound : root.findVal(0, equator.hash(key), key, notFound);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override public boolean containsKey(Object key) {
+            return getOrElse((K) key, (V) NOT_FOUND) != NOT_FOUND;
+        }
+
 //        @Override
 //        @SuppressWarnings("unchecked")
 //        public Sequence<UnEntry<K,V>> seq() {
@@ -511,7 +810,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         @Override
         public @NotNull PersistentHashMap<K,V> immutable() {
             ensureEditable();
-            edit.set(null);
+            edit = null;
             return new PersistentHashMap<>(equator, count, root, hasNull, nullValue);
         }
 
@@ -522,7 +821,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         }
 
         private void ensureEditable() {
-            if(edit.get() == null)
+            if(edit == null)
                 throw new IllegalStateException("Mutable used after immutable! call");
         }
     }
@@ -534,14 +833,14 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
 
         UnEntry<K,V> find(int shift, int hash, K key);
 
-//        V findVal(int shift, int hash, K key, V notFound);
+        V findVal(int shift, int hash, K key, V notFound);
 
 //        Sequence<UnmodMap.UnEntry<K,V>> nodeSeq();
 
-        INode<K,V> assoc(AtomicReference<Thread> edit, int shift, int hash, K key, V val,
+        INode<K,V> assoc(Object edit, int shift, int hash, K key, V val,
                          Box<Box> addedLeaf);
 
-        INode<K,V> without(AtomicReference<Thread> edit, int shift, int hash, K key,
+        INode<K,V> without(Object edit, int shift, int hash, K key,
                            Box<Box> removedLeaf);
 
 //        <R> R kvreduce(Fn3<R,K,V,R> f, R init);
@@ -551,39 +850,66 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
 //                   final Fn1<R,Object> fjfork, final Fn1<Object,R> fjjoin);
 
         <R> UnmodIterator<R> iterator(Fn2<K, V, R> aFn);
+
+        /**
+         Returns a node with the same keys in the same places, each paired with f(key, value).
+         If parallel is true, ArrayNodes map their children in separate ForkJoin tasks (so this
+         must be called from inside a ForkJoinPool).
+         */
+        <V2> INode<K,V2> mapValues(Fn2<? super K,? super V,? extends V2> f, boolean parallel);
+
+        /**
+         Returns a node with only the entries that pass the predicate, this node if they all do,
+         or null if none do.  Adds the number of entries kept to kept[0].
+         */
+        INode<K,V> filter(Fn2<? super K,? super V,Boolean> pred, boolean parallel, int[] kept);
+
+        /** Counts the entries under this node (visits every node, but not every entry). */
+        int entryCount();
     }
 
-    private final static class ArrayNode<K,V> implements INode<K,V>, UnmodIterable<UnEntry<K,V>> {
+    private static class ArrayNode<K,V> implements INode<K,V>, UnmodIterable<UnEntry<K,V>> {
         private final Equator<K> equator;
         int count;
         final INode<K,V> @NotNull [] array;
-        final AtomicReference<Thread> edit;
 
         ArrayNode(
                 Equator<K> eq,
-                AtomicReference<Thread> edit,
                 int count,
                 INode<K,V> @NotNull [] array
         ){
             this.equator = eq;
             this.array = array;
-            this.edit = edit;
             this.count = count;
         }
 
+        /** Returns a node that the MutHashMap holding the given edit token can change in place. */
+        static <K,V> ArrayNode<K,V> of(
+                Equator<K> eq,
+                Object edit,
+                int count,
+                INode<K,V> @NotNull [] array
+        ){
+            return (edit == null) ? new ArrayNode<>(eq, count, array)
+                                  : new EditArrayNode<>(eq, edit, count, array);
+        }
+
+        /** The edit token of the MutHashMap that created this node, or null if it's persistent. */
+        Object edit() { return null; }
+
         @Override public INode<K,V> assoc(int shift, int hash, K key, V val, Box<Box> addedLeaf) {
             int idx = mask(hash, shift);
             INode<K,V> node = array[idx];
             if (node == null) {
                 BitmapIndexedNode<K,V> e = BitmapIndexedNode.empty(equator);
                 INode<K,V> n = e.assoc(shift + 5, hash, key, val, addedLeaf);
-                return new ArrayNode<>(equator, null, count + 1, cloneAndSet(array, idx, n));
+                return new ArrayNode<>(equator, count + 1, cloneAndSet(array, idx, n));
             }
             INode<K,V> n = node.assoc(shift + 5, hash, key, val, addedLeaf);
             if (n == node) {
                 return this;
             }
-            return new ArrayNode<>(equator, null, count, cloneAndSet(array, idx, n));
+            return new ArrayNode<>(equator, count, cloneAndSet(array, idx, n));
         }
 
         @Override public INode<K,V> without(int shift, int hash, K key){
@@ -599,9 +925,9 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                     // shrink
                     return pack(null, idx);
                 }
-                return new ArrayNode<>(equator, null, count - 1, cloneAndSet(array, idx, null));
+                return new ArrayNode<>(equator, count - 1, cloneAndSet(array, idx, null));
             } else
-                return new ArrayNode<>(equator, null, count, cloneAndSet(array, idx, n));
+                return new ArrayNode<>(equator, count, cloneAndSet(array, idx, n));
         }
 
         @Override public UnmodMap.UnEntry<K,V> find(int shift, int hash, K key) {
@@ -612,13 +938,13 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             return node.find(shift + 5, hash, key);
         }
 
-//        @Override public V findVal(int shift, int hash, K key, V notFound){
-//            int idx = mask(hash, shift);
-//            INode<K,V> node = array[idx];
-//            if(node == null)
-//                return notFound;
-//            return node.findVal(shift + 5, hash, key, notFound);
-//        }
+        @Override public V findVal(int shift, int hash, K key, V notFound){
+            int idx = mask(hash, shift);
+            INode<K,V> node = array[idx];
+            if(node == null)
+                return notFound;
+            return node.findVal(shift + 5, hash, key, notFound);
+        }
 
 //        @Override public Sequence<UnmodMap.UnEntry<K,V>> nodeSeq(){ return Seq.create(array); }
 
@@ -684,20 +1010,20 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
 //        }
 
 
-        private ArrayNode<K,V> ensureEditable(AtomicReference<Thread> edit){
-            if(this.edit == edit)
+        private ArrayNode<K,V> ensureEditable(Object edit){
+            if(edit() == edit)
                 return this;
-            return new ArrayNode<>(equator, edit, count, this.array.clone());
+            return ArrayNode.of(equator, edit, count, this.array.clone());
         }
 
-        private ArrayNode<K,V> editAndSet(AtomicReference<Thread> edit, int i, INode<K,V> n) {
+        private ArrayNode<K,V> editAndSet(Object edit, int i, INode<K,V> n) {
             ArrayNode<K,V> editable = ensureEditable(edit);
             editable.array[i] = n;
             return editable;
         }
 
 
-        private INode<K,V> pack(AtomicReference<Thread> edit, int idx) {
+        private INode<K,V> pack(Object edit, int idx) {
             Object[] newArray = new Object[2*(count - 1)];
             int j = 1;
             int bitmap = 0;
@@ -713,10 +1039,10 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                     bitmap |= 1 << i;
                     j += 2;
                 }
-            return new BitmapIndexedNode<>(equator, edit, bitmap, newArray);
+            return BitmapIndexedNode.of(equator, edit, bitmap, newArray);
         }
 
-        @Override public INode<K,V> assoc(AtomicReference<Thread> edit, int shift, int hash,
+        @Override public INode<K,V> assoc(Object edit, int shift, int hash,
                                           K key, V val, Box<Box> addedLeaf) {
             int idx = mask(hash, shift);
             INode<K,V> node = array[idx];
@@ -734,7 +1060,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         }
 
         @Override
-        public INode<K,V> without(AtomicReference<Thread> edit, int shift, int hash, K key,
+        public INode<K,V> without(Object edit, int shift, int hash, K key,
                                   Box<Box> removedLeaf) {
             int idx = mask(hash, shift);
             INode<K,V> node = array[idx];
@@ -755,6 +1081,114 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             return editAndSet(edit, idx, n);
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public <V2> INode<K,V2> mapValues(Fn2<? super K,? super V,? extends V2> f,
+                                          boolean parallel) {
+            INode<K,V2>[] newArray = new INode[array.length];
+            if (parallel) {
+                ForkJoinTask<INode<K,V2>>[] tasks = new ForkJoinTask[array.length];
+                for (int i = 0; i < array.length; i++) {
+                    INode<K,V> node = array[i];
+                    if (node != null) {
+                        Callable<INode<K,V2>> mapNode = () -> node.mapValues(f, true);
+                        tasks[i] = ForkJoinTask.adapt(mapNode).fork();
+                    }
+                }
+                for (int i = 0; i < tasks.length; i++) {
+                    if (tasks[i] != null) {
+                        newArray[i] = tasks[i].join();
+                    }
+                }
+            } else {
+                for (int i = 0; i < array.length; i++) {
+                    if (array[i] != null) {
+                        newArray[i] = array[i].mapValues(f, false);
+                    }
+                }
+            }
+            return new ArrayNode<>(equator, count, newArray);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public INode<K,V> filter(Fn2<? super K,? super V,Boolean> pred, boolean parallel,
+                                 int[] kept) {
+            INode<K,V>[] newArray = new INode[array.length];
+            if (parallel) {
+                // Each task counts into its own slot so they don't race.
+                int[] childKept = new int[array.length];
+                ForkJoinTask<INode<K,V>>[] tasks = new ForkJoinTask[array.length];
+                for (int i = 0; i < array.length; i++) {
+                    INode<K,V> node = array[i];
+                    if (node != null) {
+                        int idx = i;
+                        Callable<INode<K,V>> filterNode = () -> {
+                            int[] k = new int[1];
+                            INode<K,V> n = node.filter(pred, true, k);
+                            childKept[idx] = k[0];
+                            return n;
+                        };
+                        tasks[i] = ForkJoinTask.adapt(filterNode).fork();
+                    }
+                }
+                for (int i = 0; i < tasks.length; i++) {
+                    if (tasks[i] != null) {
+                        newArray[i] = tasks[i].join();
+                        kept[0] += childKept[i];
+                    }
+                }
+            } else {
+                for (int i = 0; i < array.length; i++) {
+                    if (array[i] != null) {
+                        newArray[i] = array[i].filter(pred, false, kept);
+                    }
+                }
+            }
+
+            int newCount = 0;
+            boolean changed = false;
+            for (int i = 0; i < array.length; i++) {
+                if (newArray[i] != null) {
+                    newCount++;
+                }
+                if (newArray[i] != array[i]) {
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return this;
+            }
+            if (newCount == 0) {
+                return null;
+            }
+            if (newCount <= 8) {
+                // shrink (same rule as without())
+                Object[] packed = new Object[2 * newCount];
+                int bitmap = 0;
+                int j = 1;
+                for (int i = 0; i < newArray.length; i++) {
+                    if (newArray[i] != null) {
+                        packed[j] = newArray[i];
+                        bitmap |= 1 << i;
+                        j += 2;
+                    }
+                }
+                return new BitmapIndexedNode<>(equator, bitmap, packed);
+            }
+            return new ArrayNode<>(equator, newCount, newArray);
+        }
+
+        @Override public int entryCount() {
+            int ret = 0;
+            for (INode<K,V> node : array) {
+                if (node != null) {
+                    ret += node.entryCount();
+                }
+            }
+            return ret;
+        }
+
         @Override public String toString() {
             return UnmodIterable.toString("ArrayNode", this);
         }
@@ -804,35 +1238,53 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         }
     } // end class ArrayNode<K,V>
 
+    private static final class EditArrayNode<K,V> extends ArrayNode<K,V> {
+        private final Object edit;
+
+        EditArrayNode(Equator<K> eq, Object edit, int count, INode<K,V> @NotNull [] array) {
+            super(eq, count, array);
+            this.edit = edit;
+        }
+
+        @Override Object edit() { return edit; }
+    }
+
     @SuppressWarnings("unchecked")
-    private final static class BitmapIndexedNode<K,V> implements INode<K,V> {
+    private static class BitmapIndexedNode<K,V> implements INode<K,V> {
 //        static final BitmapIndexedNode EMPTY = new BitmapIndexedNode(null, 0, new Object[0]);
 
         static <K,V> BitmapIndexedNode<K,V> empty(Equator<K> e) {
-            return new BitmapIndexedNode(e, null, 0, new Object[0]);
+            return new BitmapIndexedNode(e, 0, new Object[0]);
         }
 
         private final Equator<K> equator;
         int bitmap;
         // even numbered cells are key or null, odd are val or node.
         Object[] array;
-        final AtomicReference<Thread> edit;
 
         @Override public String toString() {
             return "BitmapIndexedNode(" + bitmap + "," + Arrays.toString(array) + "," +
-                   edit + ")";
+                   edit() + ")";
         }
 
         int index(int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
 
-        BitmapIndexedNode(Equator<K> equator, AtomicReference<Thread> edit, int bitmap,
-                          Object[] array) {
+        BitmapIndexedNode(Equator<K> equator, int bitmap, Object[] array) {
             this.equator = equator;
             this.bitmap = bitmap;
             this.array = array;
-            this.edit = edit;
         }
 
+        /** Returns a node that the MutHashMap holding the given edit token can change in place. */
+        static <K,V> BitmapIndexedNode<K,V> of(Equator<K> equator, Object edit, int bitmap,
+                                               Object[] array) {
+            return (edit == null) ? new BitmapIndexedNode<>(equator, bitmap, array)
+                                  : new EditBitmapIndexedNode<>(equator, edit, bitmap, array);
+        }
+
+        /** The edit token of the MutHashMap that created this node, or null if it's persistent. */
+        Object edit() { return null; }
+
         @Override public INode<K,V> assoc(int shift, int hash, K key, V val, Box<Box> addedLeaf) {
             int bit = bitpos(hash, shift);
             int idx = index(bit);
@@ -843,17 +1295,17 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                     INode<K,V> n = ((INode) valOrNode).assoc(shift + 5, hash, key, val, addedLeaf);
                     if(n == valOrNode)
                         return this;
-                    return new BitmapIndexedNode<>(equator, null, bitmap,
+                    return new BitmapIndexedNode<>(equator, bitmap,
                                                    cloneAndSet(array, 2*idx+1, n));
                 }
                 if(equator.eq(key, keyOrNull)) {
                     if(val == valOrNode)
                         return this;
-                    return new BitmapIndexedNode<>(equator, null, bitmap,
+                    return new BitmapIndexedNode<>(equator, bitmap,
                                                    cloneAndSet(array, 2*idx+1, val));
                 }
                 addedLeaf.val = addedLeaf;
-                return new BitmapIndexedNode<>(equator, null, bitmap,
+                return new BitmapIndexedNode<>(equator, bitmap,
                                                cloneAndSet(array, 2*idx, 2*idx+1,
                                                            createNode(equator, shift + 5, keyOrNull,
                                                                       valOrNode, hash, key, val)));
@@ -875,7 +1327,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                                                                 addedLeaf);
                             j += 2;
                         }
-                    return new ArrayNode(equator, null, n + 1, nodes);
+                    return new ArrayNode(equator, n + 1, nodes);
                 } else {
                     Object[] newArray = new Object[2*(n+1)];
                     System.arraycopy(array, 0, newArray, 0, 2*idx);
@@ -883,7 +1335,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                     addedLeaf.val = addedLeaf;
                     newArray[2*idx+1] = val;
                     System.arraycopy(array, 2*idx, newArray, 2*(idx+1), 2*(n-idx));
-                    return new BitmapIndexedNode<>(equator, null, bitmap | bit, newArray);
+                    return new BitmapIndexedNode<>(equator, bitmap | bit, newArray);
                 }
             }
         }
@@ -900,15 +1352,15 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                 if (n == valOrNode)
                     return this;
                 if (n != null)
-                    return new BitmapIndexedNode<>(equator, null, bitmap, cloneAndSet(array,
+                    return new BitmapIndexedNode<>(equator, bitmap, cloneAndSet(array,
                                                                                       2*idx+1, n));
                 if (bitmap == bit)
                     return null;
-                return new BitmapIndexedNode<>(equator, null, bitmap ^ bit, removePair(array, idx));
+                return new BitmapIndexedNode<>(equator, bitmap ^ bit, removePair(array, idx));
             }
             if(equator.eq(key, keyOrNull))
                 // TODO: collapse
-                return new BitmapIndexedNode<>(equator, null, bitmap ^ bit, removePair(array, idx));
+                return new BitmapIndexedNode<>(equator, bitmap ^ bit, removePair(array, idx));
             return this;
         }
 
@@ -926,22 +1378,22 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             return null;
         }
 
-//        @Override public V findVal(int shift, int hash, K key, V notFound) {
-//            int bit = bitpos(hash, shift);
-//            if ((bitmap & bit) == 0) {
-//                return notFound;
-//            }
-//            int idx = index(bit);
-//            K keyOrNull = k(array, 2 * idx);
-//            if (keyOrNull == null) {
-//                INode<K,V> n = iNode(array, 2 * idx + 1);
-//                return n.findVal(shift + 5, hash, key, notFound);
-//            }
-//            if (equator.eq(key, keyOrNull)) {
-//                return v(array, 2 * idx + 1);
-//            }
-//            return notFound;
-//        }
+        @Override public V findVal(int shift, int hash, K key, V notFound) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            int idx = index(bit);
+            K keyOrNull = k(array, 2 * idx);
+            if (keyOrNull == null) {
+                INode<K,V> n = iNode(array, 2 * idx + 1);
+                return n.findVal(shift + 5, hash, key, notFound);
+            }
+            if (equator.eq(key, keyOrNull)) {
+                return v(array, 2 * idx + 1);
+            }
+            return notFound;
+        }
 
 //        @Override public Sequence<UnEntry<K,V>> nodeSeq() { return NodeSeq.create(array); }
 
@@ -960,22 +1412,22 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
 //            return doKvreduce(array, reducef, combinef.apply(null, null));
 //        }
 
-        private BitmapIndexedNode<K,V> ensureEditable(AtomicReference<Thread> edit){
-            if(this.edit == edit)
+        private BitmapIndexedNode<K,V> ensureEditable(Object edit){
+            if(edit() == edit)
                 return this;
             int n = Integer.bitCount(bitmap);
             Object[] newArray = new Object[n >= 0 ? 2*(n+1) : 4]; // make room for next assoc
             System.arraycopy(array, 0, newArray, 0, 2*n);
-            return new BitmapIndexedNode<>(equator, edit, bitmap, newArray);
+            return BitmapIndexedNode.of(equator, edit, bitmap, newArray);
         }
 
-        private BitmapIndexedNode<K,V> editAndSet(AtomicReference<Thread> edit, int i, Object a) {
+        private BitmapIndexedNode<K,V> editAndSet(Object edit, int i, Object a) {
             BitmapIndexedNode editable = ensureEditable(edit);
             editable.array[i] = a;
             return editable;
         }
 
-        private BitmapIndexedNode<K,V> editAndSet(AtomicReference<Thread> edit, int i,
+        private BitmapIndexedNode<K,V> editAndSet(Object edit, int i,
                                                   int j, Object b) {
             BitmapIndexedNode editable = ensureEditable(edit);
             editable.array[i] = null;
@@ -983,7 +1435,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             return editable;
         }
 
-        private BitmapIndexedNode<K,V> editAndRemovePair(AtomicReference<Thread> edit, int bit,
+        private BitmapIndexedNode<K,V> editAndRemovePair(Object edit, int bit,
                                                          int i) {
             if (bitmap == bit)
                 return null;
@@ -996,7 +1448,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             return editable;
         }
 
-        @Override public INode<K,V> assoc(AtomicReference<Thread> edit, int shift, int hash,
+        @Override public INode<K,V> assoc(Object edit, int shift, int hash,
                                           K key, V val, Box<Box> addedLeaf) {
             int bit = bitpos(hash, shift);
             int idx = index(bit);
@@ -1046,7 +1498,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                                                                 addedLeaf);
                             j += 2;
                         }
-                    return new ArrayNode(equator, edit, n + 1, nodes);
+                    return ArrayNode.of(equator, edit, n + 1, nodes);
                 } else {
                     Object[] newArray = new Object[2*(n+4)];
                     System.arraycopy(array, 0, newArray, 0, 2*idx);
@@ -1062,7 +1514,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             }
         }
 
-        @Override public INode<K,V> without(AtomicReference<Thread> edit, int shift, int hash,
+        @Override public INode<K,V> without(Object edit, int shift, int hash,
                                             K key, Box<Box> removedLeaf){
             int bit = bitpos(hash, shift);
             if((bitmap & bit) == 0)
@@ -1087,42 +1539,146 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             }
             return this;
         }
+
+        @Override public int entryCount() {
+            int len = 2 * Integer.bitCount(bitmap);
+            int ret = 0;
+            for (int i = 0; i < len; i += 2) {
+                ret += (array[i] == null) ? ((INode<K,V>) array[i + 1]).entryCount() : 1;
+            }
+            return ret;
+        }
+
+        @Override
+        public <V2> INode<K,V2> mapValues(Fn2<? super K,? super V,? extends V2> f,
+                                          boolean parallel) {
+            // Editable nodes can have spare room at the end of their arrays.
+            int len = 2 * Integer.bitCount(bitmap);
+            Object[] newArray = new Object[len];
+            for (int i = 0; i < len; i += 2) {
+                K keyOrNull = k(array, i);
+                newArray[i] = keyOrNull;
+                newArray[i + 1] = (keyOrNull == null)
+                                  ? ((INode<K,V>) array[i + 1]).mapValues(f, parallel)
+                                  : f.apply(keyOrNull, v(array, i + 1));
+            }
+            return new BitmapIndexedNode<>(equator, bitmap, newArray);
+        }
+
+        @Override
+        public INode<K,V> filter(Fn2<? super K,? super V,Boolean> pred, boolean parallel,
+                                 int[] kept) {
+            int len = 2 * Integer.bitCount(bitmap);
+            Object[] newArray = new Object[len];
+            int newBitmap = 0;
+            int j = 0;
+            boolean changed = false;
+            for (int bitIdx = 0, i = 0; i < len; bitIdx++) {
+                int bit = 1 << bitIdx;
+                if ((bitmap & bit) == 0) {
+                    continue;
+                }
+                K keyOrNull = k(array, i);
+                Object valOrNode = array[i + 1];
+                i += 2;
+                if (keyOrNull == null) {
+                    INode<K,V> n = ((INode<K,V>) valOrNode).filter(pred, parallel, kept);
+                    if (n != valOrNode) {
+                        changed = true;
+                    }
+                    if (n == null) {
+                        continue;
+                    }
+                    valOrNode = n;
+                } else if (pred.apply(keyOrNull, v(array, i - 1))) {
+                    kept[0]++;
+                } else {
+                    changed = true;
+                    continue;
+                }
+                newArray[j] = keyOrNull;
+                newArray[j + 1] = valOrNode;
+                newBitmap |= bit;
+                j += 2;
+            }
+            if (!changed) {
+                return this;
+            }
+            if (j == 0) {
+                return null;
+            }
+            return new BitmapIndexedNode<>(equator, newBitmap,
+                                           (j == len) ? newArray : Arrays.copyOf(newArray, j));
+        }
     }
 
-    private final static class HashCollisionNode<K,V> implements INode<K,V>{
+    private static final class EditBitmapIndexedNode<K,V> extends BitmapIndexedNode<K,V> {
+        private final Object edit;
+
+        EditBitmapIndexedNode(Equator<K> equator, Object edit, int bitmap, Object[] array) {
+            super(equator, bitmap, array);
+            this.edit = edit;
+        }
+
+        @Override Object edit() { return edit; }
+    }
+
+    private static class HashCollisionNode<K,V> implements INode<K,V>{
         private final Equator<K> equator;
         final int hash;
         int count;
         Object[] array;
-        final AtomicReference<Thread> edit;
+        // True when the keys are all of one Comparable class and the pairs are sorted by key, so
+        // that keys can be found by binary search.  Only used with equals()-based Equators.
+        boolean sorted;
 
-        HashCollisionNode(Equator<K> eq, AtomicReference<Thread> edit, int hash, int count,
-                          Object... array){
+        HashCollisionNode(Equator<K> eq, int hash, int count, boolean sorted, Object[] array){
             this.equator = eq;
-            this.edit = edit;
             this.hash = hash;
             this.count = count;
+            this.sorted = sorted;
             this.array = array;
         }
 
+        /** Returns a node that the MutHashMap holding the given edit token can change in place. */
+        static <K,V> HashCollisionNode<K,V> of(Equator<K> eq, Object edit, int hash, int count,
+                                               boolean sorted, Object[] array) {
+            return (edit == null) ? new HashCollisionNode<>(eq, hash, count, sorted, array)
+                                  : new EditHashCollisionNode<>(eq, edit, hash, count, sorted,
+                                                                array);
+        }
+
+        /** The edit token of the MutHashMap that created this node, or null if it's persistent. */
+        Object edit() { return null; }
+
         @Override public INode<K,V> assoc(int shift, int hash, K key, V val, Box<Box> addedLeaf) {
             if(hash == this.hash) {
                 int idx = findIndex(key);
                 if(idx != -1) {
                     if(array[idx + 1] == val)
                         return this;
-                    return new HashCollisionNode<>(equator, null, hash, count,
+                    return new HashCollisionNode<>(equator, hash, count, sorted,
                                                    cloneAndSet(array, idx + 1, val));
                 }
                 Object[] newArray = new Object[2 * (count + 1)];
+                addedLeaf.val = addedLeaf;
+                if (sorted && sameClass(key)) {
+                    int i = insertionPoint(key);
+                    System.arraycopy(array, 0, newArray, 0, 2 * i);
+                    newArray[2 * i] = key;
+                    newArray[2 * i + 1] = val;
+                    System.arraycopy(array, 2 * i, newArray, 2 * i + 2, 2 * (count - i));
+                    return new HashCollisionNode<>(equator, hash, count + 1, true, newArray);
+                }
                 System.arraycopy(array, 0, newArray, 0, 2 * count);
                 newArray[2 * count] = key;
                 newArray[2 * count + 1] = val;
-                addedLeaf.val = addedLeaf;
-                return new HashCollisionNode<>(equator, edit, hash, count + 1, newArray);
+                return new HashCollisionNode<>(equator, hash, count + 1,
+                                               sortIfPossible(equator, newArray, count + 1),
+                                               newArray);
             }
             // nest it in a bitmap node
-            return new BitmapIndexedNode<K,V>(equator, null, bitpos(this.hash, shift),
+            return new BitmapIndexedNode<K,V>(equator, bitpos(this.hash, shift),
                                               new Object[] {null, this})
                     .assoc(shift, hash, key, val, addedLeaf);
         }
@@ -1133,7 +1689,8 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                 return this;
             if(count == 1)
                 return null;
-            return new HashCollisionNode<>(equator, null, hash, count - 1,
+            // removePair() keeps the order, so this stays sorted if it was.
+            return new HashCollisionNode<>(equator, hash, count - 1, sorted,
                                            removePair(array, idx/2));
         }
 
@@ -1146,15 +1703,15 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             return null;
         }
 
-//        @Override public V findVal(int shift, int hash, K key, V notFound){
-//            int idx = findIndex(key);
-//            if(idx < 0)
-//                return notFound;
-//            if (equator.eq(key, k(array, idx))) {
-//                return v(array, idx + 1);
-//            }
-//            return notFound;
-//        }
+        @Override public V findVal(int shift, int hash, K key, V notFound){
+            int idx = findIndex(key);
+            if(idx < 0)
+                return notFound;
+            if (equator.eq(key, k(array, idx))) {
+                return v(array, idx + 1);
+            }
+            return notFound;
+        }
 
 //        @Override public Sequence<UnEntry<K,V>> nodeSeq() { return NodeSeq.create(array); }
 
@@ -1172,37 +1729,88 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
 //        }
 
         private int findIndex(K key){
+            if (sorted && sameClass(key)) {
+                int mid = sortedSearch(key);
+                if (mid < 0) {
+                    return -1;
+                }
+                // compareTo() can return 0 for keys that aren't equal (like BigDecimal 2.0 and
+                // 2.00) so check each of those.
+                for (int i = mid; (i >= 0) && (compare(key, i) == 0); i--) {
+                    if (equator.eq(key, k(array, 2*i))) { return 2*i; }
+                }
+                for (int i = mid + 1; (i < count) && (compare(key, i) == 0); i++) {
+                    if (equator.eq(key, k(array, 2*i))) { return 2*i; }
+                }
+                return -1;
+            }
             for (int i = 0; i < 2*count; i+=2) {
                 if (equator.eq(key, k(array, i))) { return i; }
             }
             return -1;
         }
 
-        private HashCollisionNode<K,V> ensureEditable(AtomicReference<Thread> edit){
-            if(this.edit == edit)
+        // Keys of some other class can't be compared to the ones in a sorted node.
+        private boolean sameClass(K key) { return key.getClass() == array[0].getClass(); }
+
+        @SuppressWarnings("unchecked")
+        private int compare(K key, int pairIdx) {
+            return ((Comparable<Object>) key).compareTo(array[2 * pairIdx]);
+        }
+
+        /**
+         Binary search of a sorted node.  Returns the pair index of a key that compares as equal to
+         the given one, or (-(insertion point) - 1) like {@link Arrays#binarySearch(Object[], Object)}.
+         */
+        private int sortedSearch(K key) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(key, mid);
+                if (c < 0) {
+                    hi = mid - 1;
+                } else if (c > 0) {
+                    lo = mid + 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+
+        /** The pair index where a new key goes in a sorted node. */
+        private int insertionPoint(K key) {
+            int i = sortedSearch(key);
+            return (i < 0) ? -(i + 1) : i;
+        }
+
+        private HashCollisionNode<K,V> ensureEditable(Object edit){
+            if(edit() == edit)
                 return this;
             Object[] newArray = new Object[2*(count+1)]; // make room for next assoc
             System.arraycopy(array, 0, newArray, 0, 2*count);
-            return new HashCollisionNode<>(equator, edit, hash, count, newArray);
+            return HashCollisionNode.of(equator, edit, hash, count, sorted, newArray);
         }
 
-        private HashCollisionNode<K,V> ensureEditable(AtomicReference<Thread> edit, int count,
-                                                      Object[] array){
-            if(this.edit == edit) {
+        private HashCollisionNode<K,V> ensureEditable(Object edit, int count,
+                                                      boolean sorted, Object[] array){
+            if(edit() == edit) {
                 this.array = array;
                 this.count = count;
+                this.sorted = sorted;
                 return this;
             }
-            return new HashCollisionNode<>(equator, edit, hash, count, array);
+            return HashCollisionNode.of(equator, edit, hash, count, sorted, array);
         }
 
-        private HashCollisionNode<K,V> editAndSet(AtomicReference<Thread> edit, int i, Object a) {
+        private HashCollisionNode<K,V> editAndSet(Object edit, int i, Object a) {
             HashCollisionNode<K,V> editable = ensureEditable(edit);
             editable.array[i] = a;
             return editable;
         }
 
-        private HashCollisionNode<K,V> editAndSet(AtomicReference<Thread> edit, int i, Object a,
+        private HashCollisionNode<K,V> editAndSet(Object edit, int i, Object a,
                                                   int j, Object b) {
             HashCollisionNode<K,V> editable = ensureEditable(edit);
             editable.array[i] = a;
@@ -1211,7 +1819,7 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
         }
 
 
-        @Override public INode<K,V> assoc(AtomicReference<Thread> edit, int shift, int hash,
+        @Override public INode<K,V> assoc(Object edit, int shift, int hash,
                                           K key, V val, Box<Box> addedLeaf) {
             if(hash == this.hash) {
                 int idx = findIndex(key);
@@ -1220,27 +1828,43 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
                         return this;
                     return editAndSet(edit, idx+1, val);
                 }
+                addedLeaf.val = addedLeaf;
+                if (sorted && sameClass(key)) {
+                    int i = insertionPoint(key);
+                    Object[] newArray = (array.length > 2*count) && (edit() == edit)
+                                        ? array
+                                        : new Object[2*(count + 1)];
+                    // Shift the higher pairs right (arraycopy handles the overlap), then copy
+                    // the lower ones if this is a new array.
+                    System.arraycopy(array, 2*i, newArray, 2*i + 2, 2*(count - i));
+                    if (newArray != array) {
+                        System.arraycopy(array, 0, newArray, 0, 2*i);
+                    }
+                    newArray[2*i] = key;
+                    newArray[2*i + 1] = val;
+                    return ensureEditable(edit, count + 1, true, newArray);
+                }
                 if (array.length > 2*count) {
-                    addedLeaf.val = addedLeaf;
                     HashCollisionNode<K,V> editable =
                             editAndSet(edit, 2*count, key, 2*count+1, val);
                     editable.count++;
+                    editable.sorted = sortIfPossible(equator, editable.array, editable.count);
                     return editable;
                 }
                 Object[] newArray = new Object[array.length + 2];
                 System.arraycopy(array, 0, newArray, 0, array.length);
                 newArray[array.length] = key;
                 newArray[array.length + 1] = val;
-                addedLeaf.val = addedLeaf;
-                return ensureEditable(edit, count + 1, newArray);
+                return ensureEditable(edit, count + 1,
+                                      sortIfPossible(equator, newArray, count + 1), newArray);
             }
             // nest it in a bitmap node
-            return new BitmapIndexedNode<K,V>(equator, edit, bitpos(this.hash, shift),
+            return BitmapIndexedNode.<K,V>of(equator, edit, bitpos(this.hash, shift),
                                               new Object[] {null, this, null, null})
                     .assoc(edit, shift, hash, key, val, addedLeaf);
         }
 
-        @Override public INode<K,V> without(AtomicReference<Thread> edit, int shift, int hash,
+        @Override public INode<K,V> without(Object edit, int shift, int hash,
                                             K key, Box<Box> removedLeaf) {
             int idx = findIndex(key);
             if(idx == -1)
@@ -1249,12 +1873,64 @@ public class PersistentHashMap<K,V> extends AbstractUnmodMap<K,V>
             if(count == 1)
                 return null;
             HashCollisionNode<K,V> editable = ensureEditable(edit);
-            editable.array[idx] = editable.array[2*count-2];
-            editable.array[idx+1] = editable.array[2*count-1];
+            if (sorted) {
+                // Keep the order by shifting the higher pairs down.
+                System.arraycopy(editable.array, idx + 2, editable.array, idx, 2*count - idx - 2);
+            } else {
+                editable.array[idx] = editable.array[2*count-2];
+                editable.array[idx+1] = editable.array[2*count-1];
+            }
             editable.array[2*count-2] = editable.array[2*count-1] = null;
             editable.count--;
             return editable;
         }
+
+        @Override public int entryCount() { return count; }
+
+        @Override
+        public <V2> INode<K,V2> mapValues(Fn2<? super K,? super V,? extends V2> f,
+                                          boolean parallel) {
+            Object[] newArray = new Object[2 * count];
+            for (int i = 0; i < newArray.length; i += 2) {
+                newArray[i] = array[i];
+                newArray[i + 1] = f.apply(k(array, i), v(array, i + 1));
+            }
+            return new HashCollisionNode<>(equator, hash, count, sorted, newArray);
+        }
+
+        @Override
+        public INode<K,V> filter(Fn2<? super K,? super V,Boolean> pred, boolean parallel,
+                                 int[] kept) {
+            Object[] newArray = new Object[2 * count];
+            int j = 0;
+            for (int i = 0; i < newArray.length; i += 2) {
+                if (pred.apply(k(array, i), v(array, i + 1))) {
+                    newArray[j++] = array[i];
+                    newArray[j++] = array[i + 1];
+                }
+            }
+            kept[0] += j / 2;
+            if (j == newArray.length) {
+                return this;
+            }
+            if (j == 0) {
+                return null;
+            }
+            return new HashCollisionNode<>(equator, hash, j / 2, sorted,
+                                           Arrays.copyOf(newArray, j));
+        }
+    }
+
+    private static final class EditHashCollisionNode<K,V> extends HashCollisionNode<K,V> {
+        private final Object edit;
+
+        EditHashCollisionNode(Equator<K> eq, Object edit, int hash, int count, boolean sorted,
+                              Object[] array) {
+            super(eq, hash, count, sorted, array);
+            this.edit = edit;
+        }
+
+        @Override Object edit() { return edit; }
     }
 
 /*
@@ -1370,6 +2046,52 @@ public static void main(String[] args){
         return newArray;
     }
 
+    // Collision bins with at least this many keys are kept sorted when possible (like the
+    // "treeified" bins in java.util.HashMap).  PersistentHashSet uses this too.
+    static final int SORTED_BIN_THRESHOLD = 8;
+
+    /** True if the given Equator's eq() is just equals() (so it agrees with compareTo()). */
+    static boolean equalsBased(@NotNull Equator<?> equator) {
+        return (equator == Equator.Equat.DEFAULT) ||
+               ( (equator instanceof Equator.Spreading) &&
+                 (((Equator.Spreading<?>) equator).base() == Equator.Equat.DEFAULT) );
+    }
+
+    /**
+     If there are enough keys for binary search to pay off, the Equator is equals()-based, and
+     the keys are all of one Comparable class, sorts the first count key/value pairs in the array
+     by key and returns true.  Otherwise, leaves the array alone and returns false.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean sortIfPossible(
+            @NotNull Equator<?> equator,
+            Object @NotNull [] array,
+            int count
+    ) {
+        if ( (count < SORTED_BIN_THRESHOLD) || !equalsBased(equator) ) {
+            return false;
+        }
+        Class<?> keyClass = array[0].getClass();
+        if ( !Comparable.class.isAssignableFrom(keyClass) ) {
+            return false;
+        }
+        for (int i = 2; i < 2 * count; i += 2) {
+            if (array[i].getClass() != keyClass) {
+                return false;
+            }
+        }
+        Object[][] pairs = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = new Object[] { array[2 * i], array[2 * i + 1] };
+        }
+        Arrays.sort(pairs, (a, b) -> ((Comparable<Object>) a[0]).compareTo(b[0]));
+        for (int i = 0; i < count; i++) {
+            array[2 * i] = pairs[i][0];
+            array[2 * i + 1] = pairs[i][1];
+        }
+        return true;
+    }
+
     private static <K,V> INode<K,V> createNode(
             @NotNull Equator<K> equator,
             int shift,
@@ -1381,24 +2103,23 @@ public static void main(String[] args){
     ) {
         int key1hash = equator.hash(key1);
         if(key1hash == key2hash)
-            return new HashCollisionNode<>(equator, null, key1hash, 2,
+            return new HashCollisionNode<>(equator, key1hash, 2, false,
                                            new Object[] {key1, val1, key2, val2});
         Box<Box> addedLeaf = new Box<>(null);
-        AtomicReference<Thread> edit = new AtomicReference<>();
         return BitmapIndexedNode.<K,V>empty(equator)
-                .assoc(edit, shift, key1hash, key1, val1, addedLeaf)
-                .assoc(edit, shift, key2hash, key2, val2, addedLeaf);
+                .assoc(shift, key1hash, key1, val1, addedLeaf)
+                .assoc(shift, key2hash, key2, val2, addedLeaf);
     }
 
     private static <K,V> INode<K,V> createNode(
             @NotNull Equator<K> equator,
-            AtomicReference<Thread> edit,
+            Object edit,
             int shift, K key1, V val1, int key2hash,
             K key2, V val2
     ) {
         int key1hash = equator.hash(key1);
         if(key1hash == key2hash)
-            return new HashCollisionNode<>(equator, null, key1hash, 2,
+            return new HashCollisionNode<>(equator, key1hash, 2, false,
                                            new Object[] {key1, val1, key2, val2});
         Box<Box> addedLeaf = new Box<>(null);
         return BitmapIndexedNode.<K,V>empty(equator)
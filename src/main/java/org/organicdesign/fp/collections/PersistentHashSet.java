@@ -18,13 +18,23 @@ import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.collections.PersistentTreeMap.Box;
+
+import static org.organicdesign.fp.collections.PersistentHashMap.SORTED_BIN_THRESHOLD;
+import static org.organicdesign.fp.collections.PersistentHashMap.equalsBased;
+import static org.organicdesign.fp.collections.UnmodIterator.emptyUnmodIterator;
 
 /**
- A wrapper that turns a PersistentTreeMap into a set.
+ A Hash Array Mapped Trie of keys only (no values).  It has the same shape as a
+ {@link PersistentHashMap}, but each leaf takes one array slot instead of a key slot and a value
+ slot, so it uses about half the memory for its arrays.  Contains and iteration work directly on
+ the keys without making any map entries.
 
  This file is a derivative work based on a Clojure collection licensed under the Eclipse Public
  License 1.0 Copyright Rich Hickey
@@ -35,7 +45,7 @@ public class PersistentHashSet<E> extends AbstractUnmodSet<E>
     // If you don't put this here, it inherits EMPTY from UnmodSet, which does not have .equals()
     // defined.  UnmodSet.empty won't put() either.
     public static final PersistentHashSet<Object> EMPTY =
-            new PersistentHashSet<>(PersistentHashMap.EMPTY);
+            new PersistentHashSet<>(null, 0, null, false);
 
     @SuppressWarnings("unchecked")
     public static <E> PersistentHashSet<E> empty() { return (PersistentHashSet<E>) EMPTY; }
@@ -46,7 +56,7 @@ public class PersistentHashSet<E> extends AbstractUnmodSet<E>
     }
 
     public static <E> PersistentHashSet<E> empty(Equator<E> eq) {
-        return new PersistentHashSet<>(PersistentHashMap.empty(eq));
+        return new PersistentHashSet<>(eq, 0, null, false);
     }
 
     /** Works around some type inference limitations of Java 8. */
@@ -79,16 +89,32 @@ public class PersistentHashSet<E> extends AbstractUnmodSet<E>
         return (PersistentHashSet<E>) ret.immutable();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     Returns a new PersistentHashSet of the keys of the given map, using the map's Equator.  The
+     set has its own key-only trie, so this copies the keys.
+     */
     public static <E> PersistentHashSet<E> ofMap(ImMap<E,?> map) {
-        return new PersistentHashSet<>((ImMap<E,E>) map);
+        MutHashSet<E> ret = emptyMutable(map.equator());
+        for (UnmodIterator<E> iter = map.keyIterator(); iter.hasNext(); ) {
+            ret.put(iter.next());
+        }
+        return ret.immutable();
     }
 
     // ==================================== Instance Variables ====================================
-    private final ImMap<E,E> impl;
+    private final @NotNull Equator<E> equator;
+    private final int size;
+    private transient final @Nullable INode<E> root;
+    private final boolean hasNull;
 
     // ======================================= Constructor =======================================
-    private PersistentHashSet(ImMap<E,E> i) { impl = i; }
+    private PersistentHashSet(@Nullable Equator<E> eq, int sz, @Nullable INode<E> root,
+                              boolean hasNull) {
+        this.equator = (eq == null) ? Equator.defaultEquator() : eq;
+        this.size = sz;
+        this.root = root;
+        this.hasNull = hasNull;
+    }
 
     // ======================================= Serialization =======================================
     // This class has a custom serialized form designed to be as small as possible.  It does not
@@ -98,41 +124,42 @@ public class PersistentHashSet<E> extends AbstractUnmodSet<E>
     private static final long serialVersionUID = 20160904155600L;
 
     // Check out Josh Bloch Item 78, p. 312 for an explanation of what's going on here.
+    // The serialized form (size, then each element) is the same as when this class wrapped a
+    // PersistentHashMap, so the serialVersionUID hasn't changed.
     private static class SerializationProxy<K> implements Serializable {
         // For serializable.  Make sure to change whenever internal data format changes.
         private static final long serialVersionUID = 20160904155600L;
 
         private final int size;
-        private transient ImMap<K,K> theMap;
-        SerializationProxy(ImMap<K,K> phm) {
-            size = phm.size();
-            theMap = phm;
+        private transient ImSet<K> theSet;
+        SerializationProxy(ImSet<K> phs) {
+            size = phs.size();
+            theSet = phs;
         }
 
         // Taken from Josh Bloch Item 75, p. 298
         private void writeObject(ObjectOutputStream s) throws IOException {
             s.defaultWriteObject();
             // Write out all elements in the proper order
-            for (Map.Entry<K,?> entry : theMap) {
-                s.writeObject(entry.getKey());
+            for (K key : theSet) {
+                s.writeObject(key);
             }
         }
 
         @SuppressWarnings("unchecked")
         private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
             s.defaultReadObject();
-            MutMap<K,K> tempMap = PersistentHashMap.<K,K>empty().mutable();
+            MutHashSet<K> tempSet = PersistentHashSet.emptyMutable();
             for (int i = 0; i < size; i++) {
-                K k = (K) s.readObject();
-                tempMap = tempMap.assoc(k, k);
+                tempSet.put((K) s.readObject());
             }
-            theMap = tempMap.immutable();
+            theSet = tempSet.immutable();
         }
 
-        private Object readResolve() { return PersistentHashSet.ofMap(theMap); }
+        private Object readResolve() { return theSet; }
     }
 
-    private Object writeReplace() { return new SerializationProxy<>(impl); }
+    private Object writeReplace() { return new SerializationProxy<>(this); }
 
     private void readObject(java.io.ObjectInputStream in) throws IOException,
             ClassNotFoundException {
@@ -140,77 +167,1017 @@ public class PersistentHashSet<E> extends AbstractUnmodSet<E>
     }
 
     // ===================================== Instance Methods =====================================
+    @SuppressWarnings("unchecked")
     @Override public boolean contains(Object key) {
-        //noinspection SuspiciousMethodCalls
-        return impl.containsKey(key);
+        if (key == null) {
+            return hasNull;
+        }
+        return (root != null) && root.contains(0, equator.hash((E) key), (E) key);
     }
 
     /** Returns the Equator used by this set for equals comparisons and hashCodes */
-    public Equator<E> equator() { return impl.equator(); }
+    public Equator<E> equator() { return equator; }
 
     @NotNull
     @Override public PersistentHashSet<E> without(E key) {
-        if (contains(key))
-            return new PersistentHashSet<>(impl.without(key));
-        return this;
+        if (key == null) {
+            return hasNull ? new PersistentHashSet<>(equator, size - 1, root, false) : this;
+        }
+        if (root == null) {
+            return this;
+        }
+        INode<E> newroot = root.without(0, equator.hash(key), key);
+        if (newroot == root) {
+            return this;
+        }
+        return new PersistentHashSet<>(equator, size - 1, newroot, hasNull);
     }
 
     @NotNull
     @Override public PersistentHashSet<E> put(E o) {
-        if (contains(o))
+        if (o == null) {
+            return hasNull ? this : new PersistentHashSet<>(equator, size + 1, root, true);
+        }
+        Box<Box> addedLeaf = new Box<>(null);
+        INode<E> newroot = (root == null) ? BitmapIndexedNode.empty(equator) : root;
+        newroot = newroot.put(0, equator.hash(o), o, addedLeaf);
+        if (newroot == root) {
             return this;
-        return new PersistentHashSet<>(impl.assoc(o, o));
+        }
+        return new PersistentHashSet<>(equator, (addedLeaf.val == null) ? size : size + 1,
+                                       newroot, hasNull);
     }
 
 //    @Override public Sequence<E> seq() { return impl.seq().map(e -> e.getKey()); }
 
     @NotNull
-    @Override public UnmodIterator<E> iterator() { return impl.keyIterator(); }
+    @Override public UnmodIterator<E> iterator() { return iterator(root, hasNull); }
 
-    @Override public int size() { return impl.size(); }
+    private static <E> @NotNull UnmodIterator<E> iterator(@Nullable INode<E> root,
+                                                          boolean hasNull) {
+        UnmodIterator<E> rootIter = (root == null) ? emptyUnmodIterator() : root.iterator();
+        return hasNull ? new NullFirstIter<>(rootIter) : rootIter;
+    }
+
+    @Override public int size() { return size; }
 
     @Contract(pure = true)
     public @NotNull MutHashSet<E> mutable() {
-        return new MutHashSet<>(impl.mutable());
+        return new MutHashSet<>(equator, new Object(), root,
+                                size, hasNull);
     }
 
     public static final class MutHashSet<E> extends AbstractUnmodSet<E>
             implements MutSet<E> {
 
-        MutMap<E,E> impl;
+        // Like the one in PersistentHashMap.MutHashMap: nulled out by immutable().
+        private Object edit;
+        private final Equator<E> equator;
+        private INode<E> root;
+        private int count;
+        private boolean hasNull;
+        // Reused for each put or without, like the one in PersistentHashMap.MutHashMap.
+        private final Box<Box> leafFlag = new Box<>(null);
+
+        private MutHashSet(Equator<E> e, Object edit, INode<E> root, int count,
+                           boolean hasNull) {
+            this.equator = e;
+            this.edit = edit;
+            this.root = root;
+            this.count = count;
+            this.hasNull = hasNull;
+        }
 
-        MutHashSet(MutMap<E,E> impl) { this.impl = impl; }
+        /** Returns the Equator used by this set for equals comparisons and hashCodes */
+        public Equator<E> equator() { return equator; }
 
-        @Override public int size() { return impl.size(); }
+        @Override public int size() {
+            ensureEditable();
+            return count;
+        }
 
         @NotNull
-        @Override public MutHashSet<E> put(E val) {
-            MutMap<E,E> m = impl.assoc(val, val);
-            if (m != impl) this.impl = m;
+        @Override
+        @Contract(mutates = "this")
+        public MutHashSet<E> put(E val) {
+            ensureEditable();
+            if (val == null) {
+                if (!hasNull) {
+                    hasNull = true;
+                    count++;
+                }
+                return this;
+            }
+            leafFlag.val = null;
+            INode<E> n = (root == null) ? BitmapIndexedNode.empty(equator) : root;
+            n = n.put(edit, 0, equator.hash(val), val, leafFlag);
+            if (n != root) {
+                root = n;
+            }
+            if (leafFlag.val != null) {
+                count++;
+            }
             return this;
         }
 
         @NotNull
         @Override
-        public UnmodIterator<E> iterator() { return impl.keyIterator(); }
+        public UnmodIterator<E> iterator() {
+            return PersistentHashSet.iterator(root, hasNull);
+        }
 
         @SuppressWarnings("unchecked")
         @Override public boolean contains(Object key) {
-            return impl.entry((E) key).isSome();
+            ensureEditable();
+            if (key == null) {
+                return hasNull;
+            }
+            return (root != null) && root.contains(0, equator.hash((E) key), (E) key);
         }
 
         @NotNull
-        @Override public MutHashSet<E> without(E key) {
-            MutMap<E,E> m = impl.without(key);
-            if (m != impl) this.impl = m;
+        @Override
+        @Contract(mutates = "this")
+        public MutHashSet<E> without(E key) {
+            ensureEditable();
+            if (key == null) {
+                if (hasNull) {
+                    hasNull = false;
+                    count--;
+                }
+                return this;
+            }
+            if (root == null) {
+                return this;
+            }
+            leafFlag.val = null;
+            INode<E> n = root.without(edit, 0, equator.hash(key), key, leafFlag);
+            if (n != root) {
+                root = n;
+            }
+            if (leafFlag.val != null) {
+                count--;
+            }
             return this;
         }
 
         @Override
         @Contract(pure = true)
         public @NotNull PersistentHashSet<E> immutable() {
-            return new PersistentHashSet<>(impl.immutable());
+            ensureEditable();
+            edit = null;
+            return new PersistentHashSet<>(equator, count, root, hasNull);
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Mutable used after immutable! call");
+            }
+        }
+    }
+
+    // ========================================== Nodes ==========================================
+    // These are the same as the nodes in PersistentHashMap, except that they hold only keys.
+    // Null is never stored in a node (it's the hasNull field) so null array cells are empty.
+
+    private static int mask(int hash, int shift) { return (hash >>> shift) & 0x01f; }
+
+    private static int bitpos(int hash, int shift) { return 1 << mask(hash, shift); }
+
+    // A method call is slow, but it keeps the cast localized.
+    @SuppressWarnings("unchecked")
+    private static <E> E k(Object @NotNull [] array, int i) { return (E) array[i]; }
+
+    @SuppressWarnings("unchecked")
+    private static <E> INode<E> iNode(Object @NotNull [] array, int i) {
+        return (INode<E>) array[i];
+    }
+
+    private interface INode<E> {
+        INode<E> put(int shift, int hash, E key, Box<Box> addedLeaf);
+
+        INode<E> without(int shift, int hash, E key);
+
+        boolean contains(int shift, int hash, E key);
+
+        INode<E> put(Object edit, int shift, int hash, E key,
+                     Box<Box> addedLeaf);
+
+        INode<E> without(Object edit, int shift, int hash, E key,
+                         Box<Box> removedLeaf);
+
+        UnmodIterator<E> iterator();
+    }
+
+    private static class ArrayNode<E> implements INode<E> {
+        private final Equator<E> equator;
+        int count;
+        final INode<E> @NotNull [] array;
+
+        ArrayNode(Equator<E> eq, int count, INode<E> @NotNull [] array) {
+            this.equator = eq;
+            this.count = count;
+            this.array = array;
+        }
+
+        static <E> ArrayNode<E> of(Equator<E> eq, Object edit, int count,
+                                   INode<E> @NotNull [] array) {
+            return (edit == null) ? new ArrayNode<>(eq, count, array)
+                                  : new EditArrayNode<>(eq, edit, count, array);
+        }
+
+        /** The edit token of the MutHashSet that created this node, or null if it's persistent. */
+        Object edit() { return null; }
+
+        @Override public INode<E> put(int shift, int hash, E key, Box<Box> addedLeaf) {
+            int idx = mask(hash, shift);
+            INode<E> node = array[idx];
+            if (node == null) {
+                INode<E> n = BitmapIndexedNode.empty(equator).put(shift + 5, hash, key, addedLeaf);
+                return new ArrayNode<>(equator, count + 1, cloneAndSet(array, idx, n));
+            }
+            INode<E> n = node.put(shift + 5, hash, key, addedLeaf);
+            if (n == node) {
+                return this;
+            }
+            return new ArrayNode<>(equator, count, cloneAndSet(array, idx, n));
+        }
+
+        @Override public INode<E> without(int shift, int hash, E key) {
+            int idx = mask(hash, shift);
+            INode<E> node = array[idx];
+            if (node == null) {
+                return this;
+            }
+            INode<E> n = node.without(shift + 5, hash, key);
+            if (n == node) {
+                return this;
+            }
+            if (n == null) {
+                if (count <= 8) {
+                    // shrink
+                    return pack(null, idx);
+                }
+                return new ArrayNode<>(equator, count - 1, cloneAndSet(array, idx, null));
+            }
+            return new ArrayNode<>(equator, count, cloneAndSet(array, idx, n));
+        }
+
+        @Override public boolean contains(int shift, int hash, E key) {
+            INode<E> node = array[mask(hash, shift)];
+            return (node != null) && node.contains(shift + 5, hash, key);
+        }
+
+        @Override public UnmodIterator<E> iterator() { return new Iter<>(array); }
+
+        private ArrayNode<E> ensureEditable(Object edit) {
+            if (edit() == edit) {
+                return this;
+            }
+            return ArrayNode.of(equator, edit, count, array.clone());
+        }
+
+        private ArrayNode<E> editAndSet(Object edit, int i, INode<E> n) {
+            ArrayNode<E> editable = ensureEditable(edit);
+            editable.array[i] = n;
+            return editable;
+        }
+
+        /** Returns a BitmapIndexedNode of all the child nodes except the one at idx. */
+        private INode<E> pack(Object edit, int idx) {
+            Object[] newArray = new Object[count - 1];
+            int j = 0;
+            int bitmap = 0;
+            for (int i = 0; i < array.length; i++) {
+                if ( (i != idx) && (array[i] != null) ) {
+                    newArray[j++] = array[i];
+                    bitmap |= 1 << i;
+                }
+            }
+            return BitmapIndexedNode.of(equator, edit, bitmap, bitmap, newArray);
+        }
+
+        @Override public INode<E> put(Object edit, int shift, int hash, E key,
+                                      Box<Box> addedLeaf) {
+            int idx = mask(hash, shift);
+            INode<E> node = array[idx];
+            if (node == null) {
+                ArrayNode<E> editable =
+                        editAndSet(edit, idx, BitmapIndexedNode.empty(equator)
+                                                               .put(edit, shift + 5, hash, key,
+                                                                    addedLeaf));
+                editable.count++;
+                return editable;
+            }
+            INode<E> n = node.put(edit, shift + 5, hash, key, addedLeaf);
+            if (n == node) {
+                return this;
+            }
+            return editAndSet(edit, idx, n);
+        }
+
+        @Override public INode<E> without(Object edit, int shift, int hash,
+                                          E key, Box<Box> removedLeaf) {
+            int idx = mask(hash, shift);
+            INode<E> node = array[idx];
+            if (node == null) {
+                return this;
+            }
+            INode<E> n = node.without(edit, shift + 5, hash, key, removedLeaf);
+            if (n == node) {
+                return this;
+            }
+            if (n == null) {
+                if (count <= 8) {
+                    // shrink
+                    return pack(edit, idx);
+                }
+                ArrayNode<E> editable = editAndSet(edit, idx, null);
+                editable.count--;
+                return editable;
+            }
+            return editAndSet(edit, idx, n);
+        }
+
+        @Override public String toString() {
+            Iterable<E> items = this::iterator;
+            return UnmodIterable.toString("ArrayNode", items);
+        }
+
+        private static class Iter<E> implements UnmodIterator<E> {
+            private final INode<E> @NotNull [] array;
+            private int i = 0;
+            private UnmodIterator<E> nestedIter;
+
+            private Iter(INode<E> @NotNull [] array) { this.array = array; }
+
+            @Override public boolean hasNext() {
+                while (true) {
+                    if (nestedIter != null) {
+                        if (nestedIter.hasNext()) {
+                            return true;
+                        }
+                        nestedIter = null;
+                    }
+                    if (i < array.length) {
+                        INode<E> node = array[i++];
+                        if (node != null) {
+                            nestedIter = node.iterator();
+                        }
+                    } else {
+                        return false;
+                    }
+                }
+            }
+
+            @Override public E next() {
+                if (hasNext()) {
+                    return nestedIter.next();
+                }
+                throw new NoSuchElementException();
+            }
+        }
+    } // end class ArrayNode<E>
+
+    private static final class EditArrayNode<E> extends ArrayNode<E> {
+        private final Object edit;
+
+        EditArrayNode(Equator<E> eq, Object edit, int count, INode<E> @NotNull [] array) {
+            super(eq, count, array);
+            this.edit = edit;
         }
+
+        @Override Object edit() { return edit; }
     }
 
+    /**
+     Each bit in bitmap has one cell in the array, in bit order.  If that bit is also set in
+     nodeMap, the cell holds a child node.  Otherwise it holds a key.
+     */
+    private static class BitmapIndexedNode<E> implements INode<E> {
+
+        static <E> BitmapIndexedNode<E> empty(Equator<E> e) {
+            return new BitmapIndexedNode<>(e, 0, 0, new Object[0]);
+        }
+
+        private final Equator<E> equator;
+        int bitmap;
+        int nodeMap;
+        Object[] array;
+
+        BitmapIndexedNode(Equator<E> equator, int bitmap, int nodeMap, Object[] array) {
+            this.equator = equator;
+            this.bitmap = bitmap;
+            this.nodeMap = nodeMap;
+            this.array = array;
+        }
+
+        static <E> BitmapIndexedNode<E> of(Equator<E> equator, Object edit, int bitmap,
+                                           int nodeMap, Object[] array) {
+            return (edit == null) ? new BitmapIndexedNode<>(equator, bitmap, nodeMap, array)
+                                  : new EditBitmapIndexedNode<>(equator, edit, bitmap, nodeMap,
+                                                                array);
+        }
+
+        /** The edit token of the MutHashSet that created this node, or null if it's persistent. */
+        Object edit() { return null; }
+
+        @Override public String toString() {
+            return "BitmapIndexedNode(" + bitmap + "," + nodeMap + "," + Arrays.toString(array) +
+                   "," + edit() + ")";
+        }
+
+        int index(int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
+
+        /** A new node holding just the given key (edit is null for a persistent node). */
+        private INode<E> leaf(Object edit, int shift, int hash, E key,
+                              Box<Box> addedLeaf) {
+            return (edit == null) ? empty(equator).put(shift, hash, key, addedLeaf)
+                                  : empty(equator).put(edit, shift, hash, key, addedLeaf);
+        }
+
+        /**
+         Makes an ArrayNode of all the keys and nodes in this one, plus the new key (edit is null
+         for a persistent node).
+         */
+        private ArrayNode<E> split(Object edit, int shift, int hash, E key,
+                                   Box<Box> addedLeaf) {
+            @SuppressWarnings("unchecked")
+            INode<E>[] nodes = new INode[32];
+            nodes[mask(hash, shift)] = leaf(edit, shift + 5, hash, key, addedLeaf);
+            int j = 0;
+            for (int i = 0; i < 32; i++) {
+                int bit = 1 << i;
+                if ((bitmap & bit) != 0) {
+                    if ((nodeMap & bit) != 0) {
+                        nodes[i] = iNode(array, j);
+                    } else {
+                        E k = k(array, j);
+                        nodes[i] = leaf(edit, shift + 5, equator.hash(k), k, addedLeaf);
+                    }
+                    j++;
+                }
+            }
+            return ArrayNode.of(equator, edit, Integer.bitCount(bitmap) + 1, nodes);
+        }
+
+        @Override public INode<E> put(int shift, int hash, E key, Box<Box> addedLeaf) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) != 0) {
+                if ((nodeMap & bit) != 0) {
+                    INode<E> node = iNode(array, idx);
+                    INode<E> n = node.put(shift + 5, hash, key, addedLeaf);
+                    if (n == node) {
+                        return this;
+                    }
+                    return new BitmapIndexedNode<>(equator, bitmap, nodeMap,
+                                                   cloneAndSet(array, idx, n));
+                }
+                E existing = k(array, idx);
+                if (equator.eq(key, existing)) {
+                    return this;
+                }
+                addedLeaf.val = addedLeaf;
+                return new BitmapIndexedNode<>(equator, bitmap, nodeMap | bit,
+                                               cloneAndSet(array, idx,
+                                                           createNode(equator, shift + 5,
+                                                                      existing, hash, key)));
+            }
+            int n = Integer.bitCount(bitmap);
+            if (n >= 16) {
+                return split(null, shift, hash, key, addedLeaf);
+            }
+            Object[] newArray = new Object[n + 1];
+            System.arraycopy(array, 0, newArray, 0, idx);
+            newArray[idx] = key;
+            System.arraycopy(array, idx, newArray, idx + 1, n - idx);
+            addedLeaf.val = addedLeaf;
+            return new BitmapIndexedNode<>(equator, bitmap | bit, nodeMap, newArray);
+        }
+
+        @Override public INode<E> without(int shift, int hash, E key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            if ((nodeMap & bit) != 0) {
+                INode<E> node = iNode(array, idx);
+                INode<E> n = node.without(shift + 5, hash, key);
+                if (n == node) {
+                    return this;
+                }
+                if (n != null) {
+                    return new BitmapIndexedNode<>(equator, bitmap, nodeMap,
+                                                   cloneAndSet(array, idx, n));
+                }
+            } else if (!equator.eq(key, k(array, idx))) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            return new BitmapIndexedNode<>(equator, bitmap ^ bit, nodeMap & ~bit,
+                                           removeAt(array, idx, Integer.bitCount(bitmap)));
+        }
+
+        @Override public boolean contains(int shift, int hash, E key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return false;
+            }
+            int idx = index(bit);
+            if ((nodeMap & bit) != 0) {
+                return iNode(array, idx).contains(shift + 5, hash, key);
+            }
+            return equator.eq(key, k(array, idx));
+        }
+
+        @Override public UnmodIterator<E> iterator() { return new NodeIter<>(array, bitmap, nodeMap); }
+
+        private BitmapIndexedNode<E> ensureEditable(Object edit) {
+            if (edit() == edit) {
+                return this;
+            }
+            int n = Integer.bitCount(bitmap);
+            Object[] newArray = new Object[n + 1]; // make room for next put
+            System.arraycopy(array, 0, newArray, 0, n);
+            return BitmapIndexedNode.of(equator, edit, bitmap, nodeMap, newArray);
+        }
+
+        private BitmapIndexedNode<E> editAndSet(Object edit, int i, Object a) {
+            BitmapIndexedNode<E> editable = ensureEditable(edit);
+            editable.array[i] = a;
+            return editable;
+        }
+
+        private BitmapIndexedNode<E> editAndRemove(Object edit, int bit, int i) {
+            if (bitmap == bit) {
+                return null;
+            }
+            BitmapIndexedNode<E> editable = ensureEditable(edit);
+            editable.bitmap ^= bit;
+            editable.nodeMap &= ~bit;
+            System.arraycopy(editable.array, i + 1, editable.array, i,
+                             editable.array.length - (i + 1));
+            editable.array[editable.array.length - 1] = null;
+            return editable;
+        }
+
+        @Override public INode<E> put(Object edit, int shift, int hash, E key,
+                                      Box<Box> addedLeaf) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) != 0) {
+                if ((nodeMap & bit) != 0) {
+                    INode<E> node = iNode(array, idx);
+                    INode<E> n = node.put(edit, shift + 5, hash, key, addedLeaf);
+                    if (n == node) {
+                        return this;
+                    }
+                    return editAndSet(edit, idx, n);
+                }
+                E existing = k(array, idx);
+                if (equator.eq(key, existing)) {
+                    return this;
+                }
+                addedLeaf.val = addedLeaf;
+                BitmapIndexedNode<E> editable =
+                        editAndSet(edit, idx, createNode(equator, edit, shift + 5, existing,
+                                                         hash, key));
+                editable.nodeMap |= bit;
+                return editable;
+            }
+            int n = Integer.bitCount(bitmap);
+            if (n < array.length) {
+                addedLeaf.val = addedLeaf;
+                BitmapIndexedNode<E> editable = ensureEditable(edit);
+                System.arraycopy(editable.array, idx, editable.array, idx + 1, n - idx);
+                editable.array[idx] = key;
+                editable.bitmap |= bit;
+                return editable;
+            }
+            if (n >= 16) {
+                return split(edit, shift, hash, key, addedLeaf);
+            }
+            Object[] newArray = new Object[n + 4];
+            System.arraycopy(array, 0, newArray, 0, idx);
+            newArray[idx] = key;
+            System.arraycopy(array, idx, newArray, idx + 1, n - idx);
+            addedLeaf.val = addedLeaf;
+            BitmapIndexedNode<E> editable = ensureEditable(edit);
+            editable.array = newArray;
+            editable.bitmap |= bit;
+            return editable;
+        }
+
+        @Override public INode<E> without(Object edit, int shift, int hash,
+                                          E key, Box<Box> removedLeaf) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            if ((nodeMap & bit) != 0) {
+                INode<E> node = iNode(array, idx);
+                INode<E> n = node.without(edit, shift + 5, hash, key, removedLeaf);
+                if (n == node) {
+                    return this;
+                }
+                if (n != null) {
+                    return editAndSet(edit, idx, n);
+                }
+                return editAndRemove(edit, bit, idx);
+            }
+            if (equator.eq(key, k(array, idx))) {
+                removedLeaf.val = removedLeaf;
+                return editAndRemove(edit, bit, idx);
+            }
+            return this;
+        }
+    }
+
+    private static final class EditBitmapIndexedNode<E> extends BitmapIndexedNode<E> {
+        private final Object edit;
+
+        EditBitmapIndexedNode(Equator<E> equator, Object edit, int bitmap, int nodeMap,
+                              Object[] array) {
+            super(equator, bitmap, nodeMap, array);
+            this.edit = edit;
+        }
+
+        @Override Object edit() { return edit; }
+    }
+
+    private static class HashCollisionNode<E> implements INode<E> {
+        private final Equator<E> equator;
+        final int hash;
+        int count;
+        Object[] array;
+        // True when the keys are all of one Comparable class and sorted, so that they can be found
+        // by binary search.  Only used with equals()-based Equators.
+        boolean sorted;
+
+        HashCollisionNode(Equator<E> eq, int hash, int count, boolean sorted, Object[] array) {
+            this.equator = eq;
+            this.hash = hash;
+            this.count = count;
+            this.sorted = sorted;
+            this.array = array;
+        }
+
+        static <E> HashCollisionNode<E> of(Equator<E> eq, Object edit, int hash, int count,
+                                           boolean sorted, Object[] array) {
+            return (edit == null) ? new HashCollisionNode<>(eq, hash, count, sorted, array)
+                                  : new EditHashCollisionNode<>(eq, edit, hash, count, sorted,
+                                                                array);
+        }
+
+        /** The edit token of the MutHashSet that created this node, or null if it's persistent. */
+        Object edit() { return null; }
+
+        @Override public INode<E> put(int shift, int hash, E key, Box<Box> addedLeaf) {
+            if (hash == this.hash) {
+                if (findIndex(key) != -1) {
+                    return this;
+                }
+                addedLeaf.val = addedLeaf;
+                Object[] newArray = new Object[count + 1];
+                if (sorted && sameClass(key)) {
+                    int i = insertionPoint(key);
+                    System.arraycopy(array, 0, newArray, 0, i);
+                    newArray[i] = key;
+                    System.arraycopy(array, i, newArray, i + 1, count - i);
+                    return new HashCollisionNode<>(equator, hash, count + 1, true, newArray);
+                }
+                System.arraycopy(array, 0, newArray, 0, count);
+                newArray[count] = key;
+                return new HashCollisionNode<>(equator, hash, count + 1,
+                                               sortIfPossible(equator, newArray, count + 1),
+                                               newArray);
+            }
+            // nest it in a bitmap node
+            int bit = bitpos(this.hash, shift);
+            return new BitmapIndexedNode<E>(equator, bit, bit, new Object[] { this })
+                    .put(shift, hash, key, addedLeaf);
+        }
+
+        @Override public INode<E> without(int shift, int hash, E key) {
+            int idx = findIndex(key);
+            if (idx == -1) {
+                return this;
+            }
+            if (count == 1) {
+                return null;
+            }
+            // removeAt() keeps the order, so this stays sorted if it was.
+            return new HashCollisionNode<>(equator, hash, count - 1, sorted,
+                                           removeAt(array, idx, count));
+        }
+
+        @Override public boolean contains(int shift, int hash, E key) {
+            return (hash == this.hash) && (findIndex(key) != -1);
+        }
+
+        @Override public UnmodIterator<E> iterator() { return new CollisionIter<>(array, count); }
+
+        private int findIndex(E key) {
+            if (sorted && sameClass(key)) {
+                int mid = sortedSearch(key);
+                if (mid < 0) {
+                    return -1;
+                }
+                // compareTo() can return 0 for keys that aren't equal, so check each of those.
+                for (int i = mid; (i >= 0) && (compare(key, i) == 0); i--) {
+                    if (equator.eq(key, k(array, i))) { return i; }
+                }
+                for (int i = mid + 1; (i < count) && (compare(key, i) == 0); i++) {
+                    if (equator.eq(key, k(array, i))) { return i; }
+                }
+                return -1;
+            }
+            for (int i = 0; i < count; i++) {
+                if (equator.eq(key, k(array, i))) { return i; }
+            }
+            return -1;
+        }
+
+        // Keys of some other class can't be compared to the ones in a sorted node.
+        private boolean sameClass(E key) { return key.getClass() == array[0].getClass(); }
+
+        @SuppressWarnings("unchecked")
+        private int compare(E key, int i) { return ((Comparable<Object>) key).compareTo(array[i]); }
+
+        /** Binary search like {@link Arrays#binarySearch(Object[], Object)}. */
+        private int sortedSearch(E key) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(key, mid);
+                if (c < 0) {
+                    hi = mid - 1;
+                } else if (c > 0) {
+                    lo = mid + 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+
+        /** The index where a new key goes in a sorted node. */
+        private int insertionPoint(E key) {
+            int i = sortedSearch(key);
+            return (i < 0) ? -(i + 1) : i;
+        }
+
+        private HashCollisionNode<E> ensureEditable(Object edit, int count,
+                                                    boolean sorted, Object[] array) {
+            if (edit() == edit) {
+                this.array = array;
+                this.count = count;
+                this.sorted = sorted;
+                return this;
+            }
+            return HashCollisionNode.of(equator, edit, hash, count, sorted, array);
+        }
+
+        @Override public INode<E> put(Object edit, int shift, int hash, E key,
+                                      Box<Box> addedLeaf) {
+            if (hash == this.hash) {
+                if (findIndex(key) != -1) {
+                    return this;
+                }
+                addedLeaf.val = addedLeaf;
+                // Reuse the array if it's ours and has room (one extra for the next put if not).
+                Object[] newArray = ( (edit() == edit) && (array.length > count) )
+                                    ? array
+                                    : new Object[count + 2];
+                if (sorted && sameClass(key)) {
+                    int i = insertionPoint(key);
+                    // Shift the higher keys right (arraycopy handles the overlap), then copy
+                    // the lower ones if this is a new array.
+                    System.arraycopy(array, i, newArray, i + 1, count - i);
+                    if (newArray != array) {
+                        System.arraycopy(array, 0, newArray, 0, i);
+                    }
+                    newArray[i] = key;
+                    return ensureEditable(edit, count + 1, true, newArray);
+                }
+                if (newArray != array) {
+                    System.arraycopy(array, 0, newArray, 0, count);
+                }
+                newArray[count] = key;
+                return ensureEditable(edit, count + 1,
+                                      sortIfPossible(equator, newArray, count + 1), newArray);
+            }
+            // nest it in a bitmap node
+            int bit = bitpos(this.hash, shift);
+            return BitmapIndexedNode.<E>of(equator, edit, bit, bit, new Object[] { this, null })
+                    .put(edit, shift, hash, key, addedLeaf);
+        }
+
+        @Override public INode<E> without(Object edit, int shift, int hash,
+                                          E key, Box<Box> removedLeaf) {
+            int idx = findIndex(key);
+            if (idx == -1) {
+                return this;
+            }
+            removedLeaf.val = removedLeaf;
+            if (count == 1) {
+                return null;
+            }
+            Object[] newArray = (edit() == edit) ? array : Arrays.copyOf(array, count);
+            if (sorted) {
+                // Keep the order by shifting the higher keys down.
+                System.arraycopy(newArray, idx + 1, newArray, idx, count - idx - 1);
+            } else {
+                newArray[idx] = newArray[count - 1];
+            }
+            newArray[count - 1] = null;
+            return ensureEditable(edit, count - 1, sorted, newArray);
+        }
+    }
+
+    private static final class EditHashCollisionNode<E> extends HashCollisionNode<E> {
+        private final Object edit;
+
+        EditHashCollisionNode(Equator<E> eq, Object edit, int hash, int count, boolean sorted,
+                              Object[] array) {
+            super(eq, hash, count, sorted, array);
+            this.edit = edit;
+        }
+
+        @Override Object edit() { return edit; }
+    }
+
+    /**
+     If there are enough keys for binary search to pay off, the Equator is equals()-based, and
+     the keys are all of one Comparable class, sorts the first count keys in the array and returns
+     true.  Otherwise, leaves the array alone and returns false.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean sortIfPossible(
+            @NotNull Equator<?> equator,
+            Object @NotNull [] array,
+            int count
+    ) {
+        if ( (count < SORTED_BIN_THRESHOLD) || !equalsBased(equator) ) {
+            return false;
+        }
+        Class<?> keyClass = array[0].getClass();
+        if ( !Comparable.class.isAssignableFrom(keyClass) ) {
+            return false;
+        }
+        for (int i = 1; i < count; i++) {
+            if (array[i].getClass() != keyClass) {
+                return false;
+            }
+        }
+        Arrays.sort(array, 0, count, (a, b) -> ((Comparable<Object>) a).compareTo(b));
+        return true;
+    }
+
+    private static <E> INode<E> createNode(
+            @NotNull Equator<E> equator,
+            int shift,
+            E key1,
+            int key2hash,
+            E key2
+    ) {
+        int key1hash = equator.hash(key1);
+        if (key1hash == key2hash) {
+            return new HashCollisionNode<>(equator, key1hash, 2, false, new Object[] { key1, key2 });
+        }
+        Box<Box> addedLeaf = new Box<>(null);
+        return BitmapIndexedNode.empty(equator)
+                .put(shift, key1hash, key1, addedLeaf)
+                .put(shift, key2hash, key2, addedLeaf);
+    }
+
+    private static <E> INode<E> createNode(
+            @NotNull Equator<E> equator,
+            Object edit,
+            int shift,
+            E key1,
+            int key2hash,
+            E key2
+    ) {
+        int key1hash = equator.hash(key1);
+        if (key1hash == key2hash) {
+            return new HashCollisionNode<>(equator, key1hash, 2, false,
+                                           new Object[] { key1, key2 });
+        }
+        Box<Box> addedLeaf = new Box<>(null);
+        return BitmapIndexedNode.empty(equator)
+                .put(edit, shift, key1hash, key1, addedLeaf)
+                .put(edit, shift, key2hash, key2, addedLeaf);
+    }
+
+    private static <E> INode<E> @NotNull [] cloneAndSet(INode<E> @NotNull [] array, int i,
+                                                        INode<E> a) {
+        INode<E>[] clone = array.clone();
+        clone[i] = a;
+        return clone;
+    }
+
+    private static Object @NotNull [] cloneAndSet(Object @NotNull [] array, int i, Object a) {
+        Object[] clone = array.clone();
+        clone[i] = a;
+        return clone;
+    }
+
+    /** Returns a copy of the first count items of the array, without the one at index i. */
+    private static Object @NotNull [] removeAt(Object @NotNull [] array, int i, int count) {
+        Object[] newArray = new Object[count - 1];
+        System.arraycopy(array, 0, newArray, 0, i);
+        System.arraycopy(array, i + 1, newArray, i, count - 1 - i);
+        return newArray;
+    }
+
+    /** Iterates the keys of a BitmapIndexedNode, and the keys of its child nodes in place. */
+    private static final class NodeIter<E> implements UnmodIterator<E> {
+        private final Object[] array;
+        // Bits not yet visited.
+        private int bits;
+        private final int nodeMap;
+        private int i = 0;
+        private UnmodIterator<E> nestedIter;
+
+        NodeIter(Object[] array, int bitmap, int nodeMap) {
+            this.array = array;
+            this.bits = bitmap;
+            this.nodeMap = nodeMap;
+        }
+
+        @Override public boolean hasNext() {
+            while (true) {
+                if (nestedIter != null) {
+                    if (nestedIter.hasNext()) {
+                        return true;
+                    }
+                    nestedIter = null;
+                }
+                if (bits == 0) {
+                    return false;
+                }
+                int bit = Integer.lowestOneBit(bits);
+                if ((nodeMap & bit) == 0) {
+                    return true;
+                }
+                bits ^= bit;
+                nestedIter = PersistentHashSet.<E>iNode(array, i++).iterator();
+            }
+        }
+
+        @Override public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nestedIter != null) {
+                return nestedIter.next();
+            }
+            bits ^= Integer.lowestOneBit(bits);
+            return k(array, i++);
+        }
+    }
+
+    private static final class CollisionIter<E> implements UnmodIterator<E> {
+        private final Object[] array;
+        private final int count;
+        private int i = 0;
+
+        CollisionIter(Object[] array, int count) {
+            this.array = array;
+            this.count = count;
+        }
+
+        @Override public boolean hasNext() { return i < count; }
+
+        @Override public E next() {
+            if (i >= count) {
+                throw new NoSuchElementException();
+            }
+            return k(array, i++);
+        }
+    }
+
+    private static final class NullFirstIter<E> implements UnmodIterator<E> {
+        private boolean seen = false;
+        private final UnmodIterator<E> rootIter;
+
+        NullFirstIter(UnmodIterator<E> ri) { rootIter = ri; }
+
+        @Override public boolean hasNext() { return !seen || rootIter.hasNext(); }
+
+        @Override public E next() {
+            if (!seen) {
+                seen = true;
+                return null;
+            }
+            return rootIter.next();
+        }
+    }
 }
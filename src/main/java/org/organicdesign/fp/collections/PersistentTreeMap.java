@@ -19,11 +19,17 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.organicdesign.fp.function.Fn1;
+import org.organicdesign.fp.function.Fn2;
 import org.organicdesign.fp.oneOf.Option;
 import org.organicdesign.fp.tuple.Tuple2;
 
@@ -40,7 +46,7 @@ import static org.organicdesign.fp.FunctionUtils.stringify;
 
  @author Rich Hickey: Original author
  @author Glen Peterson: Added generic types, static factories, custom serialization, and made Nodes
-         extend Tuple2.  All errors are Glen's.
+         implement UnEntry.  All errors are Glen's.
  */
 
 public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
@@ -487,21 +493,28 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
         return (comp == Equator.Comp.DEFAULT) ? null : comp;
     }
 
-//    /** Returns true if the map contains the given key. */
-//    @SuppressWarnings("unchecked")
-//    @Override public boolean containsKey(Object key) {
-//        return entryAt((K) key) != null;
-//    }
+    // containsKey(), get(), and getOrElse() use entryAt() directly so that they don't allocate an
+    // Option for every lookup.
 
-//    /** Returns the value associated with the given key. */
-//    @SuppressWarnings("unchecked")
-//    @Override
-//    public V get(Object key) {
-//        if (key == null) { return null; }
-//        Entry<K,V> entry = entryAt((K) key);
-//        if (entry == null) { return null; }
-//        return entry.getValue();
-//    }
+    /** Returns true if the map contains the given key. */
+    @SuppressWarnings("unchecked")
+    @Override public boolean containsKey(Object key) {
+        return entryAt((K) key) != null;
+    }
+
+    /** Returns the value associated with the given key. */
+    @SuppressWarnings("unchecked")
+    @Override
+    public @Nullable V get(Object key) {
+        Node<K,V> entry = entryAt((K) key);
+        return (entry == null) ? null : entry.getValue();
+    }
+
+    /** Returns the value associated with the given key, or notFound if there isn't one. */
+    @Override public V getOrElse(K key, V notFound) {
+        Node<K,V> entry = entryAt(key);
+        return (entry == null) ? notFound : entry.getValue();
+    }
 
 // public PersistentTreeMap<K,V> assocEx(K key, V val) {
 // Inherits default implementation of assocEx from IPersistentMap
@@ -540,6 +553,179 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
         return new PersistentTreeMap<>(comp, t.blacken(), size - 1);
     }
 
+    // Maps smaller than this are never processed in parallel.
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    // Subtrees this deep or deeper are processed sequentially (so, at most 2^6 tasks).
+    private static final int PARALLEL_DEPTH = 6;
+
+    /**
+     Returns a new map with the same keys, each paired with the result of applying the given
+     function to its key and value.  The tree is copied node-for-node with the same shape and
+     colors, so no keys are compared and nothing is rebalanced.  The function may be applied to
+     entries in any order.
+     */
+    public <V2> @NotNull PersistentTreeMap<K,V2> mapValues(
+            @NotNull Fn2<? super K,? super V,? extends V2> f
+    ) {
+        return new PersistentTreeMap<>(comp, mapNode(tree, f, 0, false), size);
+    }
+
+    /**
+     Like {@link #mapValues(Fn2)}, but maps the left and right sides of the top few levels of the
+     tree in parallel on the common ForkJoinPool.  The function must be thread-safe.
+     */
+    public <V2> @NotNull PersistentTreeMap<K,V2> parallelMapValues(
+            @NotNull Fn2<? super K,? super V,? extends V2> f
+    ) {
+        if (size < PARALLEL_THRESHOLD) {
+            return mapValues(f);
+        }
+        Callable<Node<K,V2>> mapAll = () -> mapNode(tree, f, 0, true);
+        Node<K,V2> newTree = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(mapAll));
+        return new PersistentTreeMap<>(comp, newTree, size);
+    }
+
+    /**
+     Returns a new map holding only the entries for which the given predicate returns true.  If
+     every entry passes, this map is returned.  Otherwise a balanced tree is built straight from
+     the (already sorted) survivors, so no keys are compared and no rotations are done.
+     */
+    public @NotNull PersistentTreeMap<K,V> filterEntries(
+            @NotNull Fn2<? super K,? super V,Boolean> pred
+    ) {
+        return filterTree(pred, false);
+    }
+
+    /**
+     Like {@link #filterEntries(Fn2)}, but tests the entries in parallel on the common
+     ForkJoinPool.  The predicate must be thread-safe.
+     */
+    public @NotNull PersistentTreeMap<K,V> parallelFilterEntries(
+            @NotNull Fn2<? super K,? super V,Boolean> pred
+    ) {
+        return filterTree(pred, size >= PARALLEL_THRESHOLD);
+    }
+
+    @SuppressWarnings("unchecked")
+    private @NotNull PersistentTreeMap<K,V> filterTree(
+            @NotNull Fn2<? super K,? super V,Boolean> pred,
+            boolean parallel
+    ) {
+        Node<K,V>[] nodes = (Node<K,V>[]) new Node[size];
+        copyInOrder(tree, nodes, 0);
+        boolean[] keep = new boolean[size];
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(
+                    ForkJoinTask.adapt(() -> testRange(nodes, keep, pred, 0, size, true)));
+        } else {
+            testRange(nodes, keep, pred, 0, size, false);
+        }
+
+        int numKept = 0;
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) {
+                nodes[numKept++] = nodes[i];
+            }
+        }
+        if (numKept == size) {
+            return this;
+        }
+        return new PersistentTreeMap<>(comp, buildBalanced(nodes, 0, numKept - 1, 0,
+                                                           redLevel(numKept)),
+                                       numKept);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V,V2> Node<K,V2> mapNode(
+            Node<K,V> t,
+            @NotNull Fn2<? super K,? super V,? extends V2> f,
+            int depth,
+            boolean parallel
+    ) {
+        if (t == null) {
+            return null;
+        }
+        Node<K,V2> left;
+        Node<K,V2> right;
+        if (parallel && (depth < PARALLEL_DEPTH)) {
+            Callable<Node<K,V2>> mapLeft = () -> mapNode(t.left(), f, depth + 1, true);
+            ForkJoinTask<Node<K,V2>> leftTask = ForkJoinTask.adapt(mapLeft).fork();
+            right = mapNode(t.right(), f, depth + 1, true);
+            left = leftTask.join();
+        } else {
+            left = mapNode(t.left(), f, depth + 1, false);
+            right = mapNode(t.right(), f, depth + 1, false);
+        }
+        V2 val = f.apply(t.getKey(), t.getValue());
+        return (t instanceof Red) ? red(t.getKey(), val, left, right)
+                                  : black(t.getKey(), val, left, right);
+    }
+
+    /** Fills the given array with the nodes under t in key order, starting at idx. */
+    private static <K,V> int copyInOrder(Node<K,V> t, Node<K,V>[] dest, int idx) {
+        while (t != null) {
+            idx = copyInOrder(t.left(), dest, idx);
+            dest[idx++] = t;
+            t = t.right();
+        }
+        return idx;
+    }
+
+    /** Sets keep[i] for each node from (inclusive) to (exclusive) that passes the predicate. */
+    private static <K,V> void testRange(
+            Node<K,V>[] nodes,
+            boolean[] keep,
+            @NotNull Fn2<? super K,? super V,Boolean> pred,
+            int from,
+            int to,
+            boolean parallel
+    ) {
+        if (parallel && ((to - from) > (PARALLEL_THRESHOLD >> 2))) {
+            int mid = (from + to) >>> 1;
+            ForkJoinTask<?> leftTask =
+                    ForkJoinTask.adapt(() -> testRange(nodes, keep, pred, from, mid, true)).fork();
+            testRange(nodes, keep, pred, mid, to, true);
+            leftTask.join();
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            keep[i] = pred.apply(nodes[i].getKey(), nodes[i].getValue());
+        }
+    }
+
+    /**
+     Returns the depth at which a tree built by buildBalanced() from the given number of nodes
+     has its (incomplete) bottom row.  Those nodes are colored red so that every path has the
+     same number of black nodes.  Same as in java.util.TreeMap.
+     */
+    private static int redLevel(int size) {
+        int level = 0;
+        for (int m = size - 1; m >= 0; m = m / 2 - 1) {
+            level++;
+        }
+        return level;
+    }
+
+    /** Builds a balanced red-black tree from sorted nodes lo through hi (inclusive). */
+    private static <K,V> Node<K,V> buildBalanced(
+            Node<K,V>[] sorted,
+            int lo,
+            int hi,
+            int level,
+            int redLevel
+    ) {
+        if (hi < lo) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node<K,V> left = buildBalanced(sorted, lo, mid - 1, level + 1, redLevel);
+        Node<K,V> right = buildBalanced(sorted, mid + 1, hi, level + 1, redLevel);
+        Node<K,V> t = sorted[mid];
+        return (level == redLevel) ? red(t.getKey(), t.getValue(), left, right)
+                                   : black(t.getKey(), t.getValue(), left, right);
+    }
+
 //    @Override
 //    public ISeq<Map.Entry<K,V>> seq() {
 //        if (size > 0)
@@ -605,7 +791,7 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
     /** {@inheritDoc} */
     @NotNull
     @Override
-    public UnmodSortedIterator<UnEntry<K,V>> iterator() { return iterator(Tuple2::of); }
+    public UnmodSortedIterator<UnEntry<K,V>> iterator() { return iterator(t -> t); }
 
     @NotNull
     @Override
@@ -666,40 +852,28 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
      */
     @NotNull
     @Override public Option<UnmodMap.UnEntry<K,V>> entry(K key) {
+        return Option.someOrNullNoneOf(entryAt(key));
+    }
+
+    // In TreeMap, this is final Entry<K,V> getEntry(Object key)
+    /** Returns the node matching the given key, or null if the key is not found. */
+    private @Nullable Node<K,V> entryAt(K key) {
         Node<K,V> t = tree;
         while (t != null) {
             int c = comp.compare(key, t.getKey());
             if (c == 0)
-                return Option.some(t);
+                return t;
             else if (c < 0)
                 t = t.left();
             else
                 t = t.right();
         }
-        return Option.none(); // t; // t is always null
+        return null; // t; // t is always null
     }
 
-//    // In TreeMap, this is final Entry<K,V> getEntry(Object key)
-//    /** Returns the key/value pair matching the given key, or null if the key is not found. */
-//    public UnEntry<K,V> entryAt(K key) {
-//        Node<K,V> t = tree;
-//        while (t != null) {
-//            int c = comp.compare(key, t.key);
-//            if (c == 0)
-//                return t;
-//            else if (c < 0)
-//                t = t.left();
-//            else
-//                t = t.right();
-//        }
-//        return null; // t; // t is always null
-//    }
-
     private Node<K,V> add(Node<K,V> t, K key, V val, Box<Node<K,V>> found) {
         if (t == null) {
-//            if (val == null)
-//                return new Red<>(key);
-            return new Red<>(key, val);
+            return red(key, val, null, null);
         }
         int c = comp.compare(key, t.getKey());
         if (c == 0) {
@@ -854,13 +1028,13 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
                  Node<? extends K,? extends V> left,
                  Node<? extends K,? extends V> right) {
         if (left == null && right == null) {
-//            if (val == null)
-//                return new Red<K,V>(key, val);
-            return new Red<K,V>(key, val);
+            if (val == null)
+                return new Red<K,V>(key);
+            return new RedVal<K,V>(key, val);
         }
-//        if (val == null)
-//            return new RedBranch<K,V>((K) key, (Node<K,V>) left, (Node<K,V>) right);
-        return new RedBranch<K,V>((K) key, (V) val, (Node<K,V>) left, (Node<K,V>) right);
+        if (val == null)
+            return new RedBranch<K,V>((K) key, (Node<K,V>) left, (Node<K,V>) right);
+        return new RedBranchVal<K,V>((K) key, (V) val, (Node<K,V>) left, (Node<K,V>) right);
     }
 
     @SuppressWarnings({"unchecked", "RedundantCast", "Convert2Diamond"})
@@ -869,13 +1043,13 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
                      Node<? extends K,? extends V> left,
                      Node<? extends K,? extends V> right) {
         if (left == null && right == null) {
-//            if (val == null)
-//                return new Black<>(key);
-            return new Black<K,V>(key, val);
+            if (val == null)
+                return new Black<K,V>(key);
+            return new BlackVal<K,V>(key, val);
         }
-//        if (val == null)
-//            return new BlackBranch<K,V>((K) key, (Node<K,V>) left, (Node<K,V>) right);
-        return new BlackBranch<K,V>((K) key, (V) val, (Node<K,V>) left, (Node<K,V>) right);
+        if (val == null)
+            return new BlackBranch<K,V>((K) key, (Node<K,V>) left, (Node<K,V>) right);
+        return new BlackBranchVal<K,V>((K) key, (V) val, (Node<K,V>) left, (Node<K,V>) right);
     }
 
 //    public static class Reduced<A> {
@@ -883,8 +1057,31 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
 //        private Reduced(A a) { val = a; }
 //    }
 
-    private static abstract class Node<K, V> extends Tuple2<K,V> {
-        Node(K key, V val) { super(key, val); }
+    /**
+     Each node is also the map entry for its key.  As in Clojure, only the *Val subclasses have a
+     field for the value, so a node with a null value (like every node in a PersistentTreeSet) is
+     8 bytes smaller than one with a value.  Use the red() and black() factory methods to get the
+     right subclass.
+     */
+    private static abstract class Node<K, V> implements UnEntry<K,V>, Serializable {
+        // For serializable.  Make sure to change whenever internal data format changes.
+        private static final long serialVersionUID = 20261019140000L;
+
+        final K key;
+
+        Node(K key) { this.key = key; }
+
+        @Override public K getKey() { return key; }
+
+        @Override public V getValue() { return null; }
+
+        /** Required to implement Map.Entry, but calling it only issues an exception */
+        @SuppressWarnings("deprecation")
+        @Override
+        @Deprecated
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("Map entries are immutable");
+        }
 
         Node<K,V> left() { return null; }
 
@@ -905,19 +1102,37 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
         abstract Node<K,V> redden();
 
         Node<K,V> balanceLeft(Node<K,V> parent) {
-            return black(parent._1, parent._2, this, parent.right());
+            return black(parent.key, parent.getValue(), this, parent.right());
         }
 
         Node<K,V> balanceRight(Node<K,V> parent) {
-            return black(parent._1, parent._2, parent.left(), this);
+            return black(parent.key, parent.getValue(), parent.left(), this);
         }
 
         abstract Node<K,V> replace(K key, V val, Node<K,V> left, Node<K,V> right);
 
+        // Same equals() and hashCode() as Tuple2 (and as specified by Map.Entry).
+        @Override public boolean equals(Object other) {
+            if (this == other) { return true; }
+            if ( !(other instanceof Map.Entry) ) { return false; }
+            Map.Entry<?,?> that = (Map.Entry<?,?>) other;
+            return Objects.equals(key, that.getKey()) &&
+                   Objects.equals(getValue(), that.getValue());
+        }
+
+        @Override public int hashCode() {
+            V val = getValue();
+            return (key == null ? 0 : key.hashCode()) ^
+                   (val == null ? 0 : val.hashCode());
+        }
+
         @Override public String toString() {
-            return stringify(_1) + "=" + stringify(_2);
+            return stringify(key) + "=" + stringify(getValue());
         }
 
+        // An entry (but never the tree under it) is serialized as a plain Tuple2.
+        Object writeReplace() { return Tuple2.of(key, getValue()); }
+
 //        public <R> R kvreduce(Fn3<R,K,V,R> f, R init) {
 //            if (left() != null) {
 //                init = left().kvreduce(f, init);
@@ -936,23 +1151,25 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
     } // end class Node.
 
     private static class Black<K, V> extends Node<K,V> {
-        Black(K key, V val) { super(key, val); }
+        private static final long serialVersionUID = 20261019140000L;
+
+        Black(K key) { super(key); }
 
         @Override Node<K,V> addLeft(Node<K,V> ins) { return ins.balanceLeft(this); }
 
         @Override Node<K,V> addRight(Node<K,V> ins) { return ins.balanceRight(this); }
 
         @Override Node<K,V> removeLeft(Node<K,V> del) {
-            return balanceLeftDel(_1, _2, del, right());
+            return balanceLeftDel(key, getValue(), del, right());
         }
 
         @Override Node<K,V> removeRight(Node<K,V> del) {
-            return balanceRightDel(_1, _2, left(), del);
+            return balanceRightDel(key, getValue(), left(), del);
         }
 
         @Override Node<K,V> blacken() { return this; }
 
-        @Override Node<K,V> redden() { return new Red<>(_1, _2); }
+        @Override Node<K,V> redden() { return red(key, getValue(), left(), right()); }
 
         @Override
         Node<K,V> replace(K key, V val, Node<K,V> left, Node<K,V> right) {
@@ -960,33 +1177,57 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
         }
     }
 
+    private static class BlackVal<K, V> extends Black<K,V> {
+        private static final long serialVersionUID = 20261019140000L;
+
+        final V val;
+
+        BlackVal(K key, V val) { super(key); this.val = val; }
+
+        @Override public V getValue() { return val; }
+    }
+
     private static class BlackBranch<K, V> extends Black<K,V> {
+        private static final long serialVersionUID = 20261019140000L;
+
         final transient Node<K,V> left;
         final transient Node<K,V> right;
 
-        BlackBranch(K key, V val, Node<K,V> l, Node<K,V> r) {
-            super(key, val); left = l; right = r;
+        BlackBranch(K key, Node<K,V> l, Node<K,V> r) {
+            super(key); left = l; right = r;
         }
 
         @Override public Node<K,V> left() { return left; }
 
         @Override public Node<K,V> right() { return right; }
+    }
 
-        @Override Node<K,V> redden() { return new RedBranch<>(_1, _2, left, right); }
+    private static class BlackBranchVal<K, V> extends BlackBranch<K,V> {
+        private static final long serialVersionUID = 20261019140000L;
+
+        final V val;
+
+        BlackBranchVal(K key, V val, Node<K,V> l, Node<K,V> r) {
+            super(key, l, r); this.val = val;
+        }
+
+        @Override public V getValue() { return val; }
     }
 
     private static class Red<K, V> extends Node<K,V> {
-        Red(K key, V val) { super(key, val); }
+        private static final long serialVersionUID = 20261019140000L;
+
+        Red(K key) { super(key); }
 
-        @Override Node<K,V> addLeft(Node<K,V> ins) { return red(_1, _2, ins, right()); }
+        @Override Node<K,V> addLeft(Node<K,V> ins) { return red(key, getValue(), ins, right()); }
 
-        @Override Node<K,V> addRight(Node<K,V> ins) { return red(_1, _2, left(), ins); }
+        @Override Node<K,V> addRight(Node<K,V> ins) { return red(key, getValue(), left(), ins); }
 
-        @Override Node<K,V> removeLeft(Node<K,V> del) { return red(_1, _2, del, right()); }
+        @Override Node<K,V> removeLeft(Node<K,V> del) { return red(key, getValue(), del, right()); }
 
-        @Override Node<K,V> removeRight(Node<K,V> del) { return red(_1, _2, left(), del); }
+        @Override Node<K,V> removeRight(Node<K,V> del) { return red(key, getValue(), left(), del); }
 
-        @Override Node<K,V> blacken() { return new Black<>(_1, _2); }
+        @Override Node<K,V> blacken() { return black(key, getValue(), left(), right()); }
 
         @Override
         Node<K,V> redden() { throw new UnsupportedOperationException("Invariant violation"); }
@@ -997,12 +1238,24 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
         }
     }
 
+    private static class RedVal<K, V> extends Red<K,V> {
+        private static final long serialVersionUID = 20261019140000L;
+
+        final V val;
+
+        RedVal(K key, V val) { super(key); this.val = val; }
+
+        @Override public V getValue() { return val; }
+    }
+
     private static class RedBranch<K, V> extends Red<K,V> {
+        private static final long serialVersionUID = 20261019140000L;
+
         final transient Node<K,V> left;
         final transient Node<K,V> right;
 
-        RedBranch(K key, V val, Node<K,V> left, Node<K,V> right) {
-            super(key, val);
+        RedBranch(K key, Node<K,V> left, Node<K,V> right) {
+            super(key);
             this.left = left;
             this.right = right;
         }
@@ -1013,10 +1266,11 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
 
         @Override Node<K,V> balanceLeft(Node<K,V> parent) {
             if (left instanceof PersistentTreeMap.Red)
-                return red(_1, _2, left.blacken(),
+                return red(key, getValue(), left.blacken(),
                            black(parent.getKey(), parent.getValue(), right, parent.right()));
             else if (right instanceof PersistentTreeMap.Red)
-                return red(right.getKey(), right.getValue(), black(_1, _2, left, right.left()),
+                return red(right.getKey(), right.getValue(),
+                           black(key, getValue(), left, right.left()),
                            black(parent.getKey(), parent.getValue(), right.right(), parent.right()));
             else
                 return super.balanceLeft(parent);
@@ -1025,18 +1279,29 @@ public class PersistentTreeMap<K,V> extends AbstractUnmodMap<K,V>
 
         @Override Node<K,V> balanceRight(Node<K,V> parent) {
             if (right instanceof PersistentTreeMap.Red)
-                return red(_1, _2,
+                return red(key, getValue(),
                            black(parent.getKey(), parent.getValue(), parent.left(), left),
                            right.blacken());
             else if (left instanceof PersistentTreeMap.Red)
                 return red(left.getKey(), left.getValue(),
                            black(parent.getKey(), parent.getValue(), parent.left(), left.left()),
-                           black(_1, _2, left.right(), right));
+                           black(key, getValue(), left.right(), right));
             else
                 return super.balanceRight(parent);
         }
+    }
+
+    private static class RedBranchVal<K, V> extends RedBranch<K,V> {
+        private static final long serialVersionUID = 20261019140000L;
+
+        final V val;
+
+        RedBranchVal(K key, V val, Node<K,V> left, Node<K,V> right) {
+            super(key, left, right);
+            this.val = val;
+        }
 
-        @Override Node<K,V> blacken() { return new BlackBranch<>(_1, _2, left, right); }
+        @Override public V getValue() { return val; }
     }
 
 
@@ -25,7 +25,8 @@ import org.organicdesign.fp.oneOf.Option;
 import static org.organicdesign.fp.collections.Equator.defaultComparator;
 
 /**
- A wrapper that turns a PersistentTreeMap into a set.
+ A wrapper that turns a PersistentTreeMap into a set.  Every element maps to null, so the tree
+ uses PersistentTreeMap's key-only nodes, which have no field for a value.
 
  This file is a derivative work based on a Clojure collection licensed under the Eclipse Public
  License 1.0 Copyright Rich Hickey.  Errors by Glen Peterson.
@@ -193,16 +194,7 @@ public class PersistentTreeSet<E> extends AbstractUnmodSet<E>
     /** {@inheritDoc} */
     @NotNull
     @Override
-    public UnmodSortedIterator<E> iterator() {
-        return new UnmodSortedIterator<E>() {
-            UnmodSortedIterator<? extends UnmodMap.UnEntry<E,?>> iter = impl.iterator();
-            @Override public boolean hasNext() { return iter.hasNext(); }
-            @Override public E next() {
-                UnmodMap.UnEntry<E,?> e = iter.next();
-                return e == null ? null : e.getKey();
-            }
-        };
-    }
+    public UnmodSortedIterator<E> iterator() { return impl.keyIterator(); }
 
     /**
      This is designed to be correct, rather than fully compatible with TreeSet.equals().
@@ -16,13 +16,19 @@ import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.organicdesign.fp.function.Fn0;
+import org.organicdesign.fp.function.Fn1;
 import org.organicdesign.fp.oneOf.Option;
 
 /**
@@ -68,32 +74,46 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
         // for the tree, but not for the tail.  Instead of creating a new tail one bigger after
         // each append, it creates a STRICT_NODE_SIZE tail and inserts items into it in place.
         //
-        // The reason we need this AtomicReference is that some mutable vector could still have
-        // a pointer to the Tail array that's in the tree.  When first mutating, the current thread
-        // is placed in here.  After the mutable structure is made immutable, a null is placed in
-        // here.  Subsequent attempts to mutate anything check and if they find the null, they
-        // throw an exception.
-        transient public final AtomicReference<Thread> edit;
+        // Nodes made by a MutVector are EditNodes, which remember which MutVector made them so
+        // that it can change them in place instead of copying them.  Nodes made by persistent
+        // operations don't need that, so they don't have a field for it.
 
         // This is either the data in the node (for a leaf node), or it's pointers to sub-nodes (for
         // a branch node).  We could probably have two separate classes: NodeLeaf and NodeBranch
         // where NodeLeaf has T[] and NodeBranch has Node<T>[].
         public final Object[] array;
 
-        Node(AtomicReference<Thread> edit, Object[] array) {
+        Node(Object[] array) { this.array = array; }
+
+        Node() { this.array = new Object[MAX_NODE_LENGTH]; }
+
+        /** The token of the MutVector that made this node, or null for a persistent node. */
+        Object edit() { return null; }
+    }
+
+    /** A node made by a MutVector, which that MutVector (and only that one) may change in place. */
+    private static final class EditNode extends Node {
+        private final Object edit;
+
+        EditNode(Object edit, Object[] array) {
+            super(array);
             this.edit = edit;
-            this.array = array;
         }
 
-        Node(AtomicReference<Thread> edit) {
+        EditNode(Object edit) {
+            super();
             this.edit = edit;
-            this.array = new Object[MAX_NODE_LENGTH];
         }
+
+        @Override Object edit() { return edit; }
     }
 
-    private final static AtomicReference<Thread> NOEDIT = new AtomicReference<>(null);
+    /** Returns a new, empty node owned by the given MutVector token, or a persistent one if null. */
+    private static Node newNode(Object edit) {
+        return (edit == null) ? new Node() : new EditNode(edit);
+    }
 
-    private final static Node EMPTY_NODE = new Node(NOEDIT, new Object[MAX_NODE_LENGTH]);
+    private final static Node EMPTY_NODE = new Node();
 
     public final static PersistentVector<?> EMPTY =
             new PersistentVector<>(0, NODE_LENGTH_POW_2, EMPTY_NODE, new Object[]{});
@@ -278,13 +298,13 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
         }
         //full tail, push into tree
         Node newroot;
-        Node tailnode = new Node(root.edit, tail);
+        Node tailnode = new Node(tail);
         int newshift = shift;
         //overflow root?
         if ((size >>> NODE_LENGTH_POW_2) > (1 << shift)) {
-            newroot = new Node(root.edit);
+            newroot = new Node();
             newroot.array[0] = root;
-            newroot.array[1] = newPath(root.edit, shift, tailnode);
+            newroot.array[1] = newPath(null, shift, tailnode);
             newshift += NODE_LENGTH_POW_2;
         } else {
             newroot = pushTail(shift, root, tailnode);
@@ -313,20 +333,212 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
         return (PersistentVector<E>) ImList.super.concat(items);
     }
 
+    /**
+     Returns a new PersistentVector with the items of this one sorted by the given comparator.
+     Items are copied out a whole leaf at a time, sorted (stable), and built straight into full
+     leaves without going through append().
+     */
+    public @NotNull PersistentVector<E> sorted(@NotNull Comparator<? super E> comp) {
+        return sortedVector(comp, false);
+    }
+
+    /**
+     Like {@link #sorted(Comparator)}, but uses a parallel merge sort
+     ({@link Arrays#parallelSort(Object[], Comparator)}).  Worth it for big vectors.
+     */
+    public @NotNull PersistentVector<E> parallelSorted(@NotNull Comparator<? super E> comp) {
+        return sortedVector(comp, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private @NotNull PersistentVector<E> sortedVector(
+            @NotNull Comparator<? super E> comp,
+            boolean parallel
+    ) {
+        E[] items = (E[]) new Object[size];
+        int tailoff = tailoff();
+        for (int i = 0; i < tailoff; i += MAX_NODE_LENGTH) {
+            System.arraycopy(leafNodeArrayFor(i), 0, items, i, MAX_NODE_LENGTH);
+        }
+        System.arraycopy(tail, 0, items, tailoff, size - tailoff);
+        if (parallel) {
+            Arrays.parallelSort(items, comp);
+        } else {
+            Arrays.sort(items, comp);
+        }
+        return fromArray(items);
+    }
+
+    /**
+     Builds a vector one whole leaf at a time from the given array (which is not modified).  The
+     result has exactly the same shape as if the items had been appended one at a time.
+     */
+    private static <T> @NotNull PersistentVector<T> fromArray(T @NotNull [] items) {
+        int size = items.length;
+        if (size == 0) {
+            return empty();
+        }
+        // Same as tailoff()
+        int tailoff = ((size - 1) >>> NODE_LENGTH_POW_2) << NODE_LENGTH_POW_2;
+        List<Node> nodes = new ArrayList<>(tailoff >>> NODE_LENGTH_POW_2);
+        for (int i = 0; i < tailoff; i += MAX_NODE_LENGTH) {
+            nodes.add(new Node(Arrays.copyOfRange(items, i, i + MAX_NODE_LENGTH)));
+        }
+        int shift = NODE_LENGTH_POW_2;
+        while (nodes.size() > MAX_NODE_LENGTH) {
+            nodes = parentNodes(nodes);
+            shift += NODE_LENGTH_POW_2;
+        }
+        Node root = nodes.isEmpty() ? EMPTY_NODE : parentNodes(nodes).get(0);
+        return new PersistentVector<>(size, shift, root, Arrays.copyOfRange(items, tailoff, size));
+    }
+
+    /**
+     Returns a new PersistentVector with the given function applied to each item.  Each leaf and
+     the tail are mapped into new arrays of the same length and the branch nodes are rebuilt
+     around them with exactly the same shape, so there's no appending or tail-pushing.  The
+     function may be applied to items in any order.
+     */
+    public <F> @NotNull PersistentVector<F> mapPreservingShape(
+            @NotNull Fn1<? super E, ? extends F> f
+    ) {
+        return mapVector(f, false);
+    }
+
+    /**
+     Like {@link #mapPreservingShape(Fn1)}, but maps big subtrees in parallel on the common
+     ForkJoinPool.  The function must be thread-safe.
+     */
+    public <F> @NotNull PersistentVector<F> parallelMapPreservingShape(
+            @NotNull Fn1<? super E, ? extends F> f
+    ) {
+        return mapVector(f, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <F> @NotNull PersistentVector<F> mapVector(
+            @NotNull Fn1<? super E, ? extends F> f,
+            boolean parallel
+    ) {
+        if (size == 0) {
+            return empty();
+        }
+        Node newRoot = (root == EMPTY_NODE) ? EMPTY_NODE : mapNode(root, shift, f, parallel);
+        int tailLength = size - tailoff();
+        F[] newTail = (F[]) new Object[tailLength];
+        for (int i = 0; i < tailLength; i++) {
+            newTail[i] = f.apply(tail[i]);
+        }
+        return new PersistentVector<>(size, shift, newRoot, newTail);
+    }
+
+    /**
+     Returns a copy of the given node with f applied to every item under it.  Level is the shift
+     for this node: 0 for a leaf.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E,F> @NotNull Node mapNode(
+            @NotNull Node node,
+            int level,
+            @NotNull Fn1<? super E, ? extends F> f,
+            boolean parallel
+    ) {
+        Object[] array = node.array;
+        Object[] ret = new Object[array.length];
+        if (level == 0) {
+            for (int i = 0; i < array.length; i++) {
+                ret[i] = f.apply((E) array[i]);
+            }
+            return new Node(ret);
+        }
+        // A node one above the leaves holds at most 1024 items - not worth forking.
+        if (parallel && (level > NODE_LENGTH_POW_2)) {
+            return ForkJoinPool.commonPool().invoke(new MapTask<>(node, level, f));
+        }
+        // Branch nodes are null-padded on the right.
+        for (int i = 0; (i < array.length) && (array[i] != null); i++) {
+            ret[i] = mapNode((Node) array[i], level - NODE_LENGTH_POW_2, f, false);
+        }
+        return new Node(ret);
+    }
+
+    /** Maps each child of a branch node as its own task (recursively, for big children). */
+    private static final class MapTask<E,F> extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 20261019130002L;
+
+        private final transient @NotNull Node node;
+        private final int level;
+        private final transient @NotNull Fn1<? super E, ? extends F> f;
+
+        MapTask(@NotNull Node n, int lvl, @NotNull Fn1<? super E, ? extends F> fn) {
+            node = n; level = lvl; f = fn;
+        }
+
+        @Override
+        protected @NotNull Node compute() {
+            int kidLevel = level - NODE_LENGTH_POW_2;
+            List<RecursiveTask<Node>> tasks = new ArrayList<>(MAX_NODE_LENGTH);
+            for (Object kid : node.array) {
+                if (kid == null) {
+                    break;
+                }
+                tasks.add((kidLevel > NODE_LENGTH_POW_2)
+                          ? new MapTask<>((Node) kid, kidLevel, f)
+                          : new SequentialMapTask<>((Node) kid, kidLevel, f));
+            }
+            invokeAll(tasks);
+            Object[] ret = new Object[node.array.length];
+            for (int i = 0; i < tasks.size(); i++) {
+                ret[i] = tasks.get(i).join();
+            }
+            return new Node(ret);
+        }
+    }
+
+    /** Maps a small subtree on one thread. */
+    private static final class SequentialMapTask<E,F> extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 20261019130003L;
+
+        private final transient @NotNull Node node;
+        private final int level;
+        private final transient @NotNull Fn1<? super E, ? extends F> f;
+
+        SequentialMapTask(@NotNull Node n, int lvl, @NotNull Fn1<? super E, ? extends F> fn) {
+            node = n; level = lvl; f = fn;
+        }
+
+        @Override
+        protected @NotNull Node compute() { return mapNode(node, level, f, false); }
+    }
+
+    /** Puts each run of MAX_NODE_LENGTH nodes into a new parent node. */
+    private static @NotNull List<Node> parentNodes(@NotNull List<Node> kids) {
+        List<Node> parents = new ArrayList<>((kids.size() + LOW_BITS) >>> NODE_LENGTH_POW_2);
+        for (int i = 0; i < kids.size(); i += MAX_NODE_LENGTH) {
+            Node parent = new Node();
+            int numKids = Math.min(MAX_NODE_LENGTH, kids.size() - i);
+            for (int j = 0; j < numKids; j++) {
+                parent.array[j] = kids.get(i + j);
+            }
+            parents.add(parent);
+        }
+        return parents;
+    }
+
     private Node pushTail(int level, Node parent, Node tailnode) {
         //if parent is leaf, insert node,
         // else does it map to an existing child? -> nodeToInsert = pushNode one more level
         // else alloc new path
         //return  nodeToInsert placed in copy of parent
         int subidx = ((size - 1) >>> level) & LOW_BITS;
-        Node ret = new Node(parent.edit, parent.array.clone());
+        Node ret = new Node(parent.array.clone());
         Node nodeToInsert;
         if (level == NODE_LENGTH_POW_2) {
             nodeToInsert = tailnode;
         } else {
             Node child = (Node) parent.array[subidx];
             nodeToInsert = (child == null)
-                    ? newPath(root.edit, level - NODE_LENGTH_POW_2, tailnode)
+                    ? newPath(null, level - NODE_LENGTH_POW_2, tailnode)
                     : pushTail(level - NODE_LENGTH_POW_2, child, tailnode);
         }
         ret.array[subidx] = nodeToInsert;
@@ -487,7 +699,7 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
 //    }
 
     private static Node doAssoc(int level, Node node, int i, Object val) {
-        Node ret = new Node(node.edit, node.array.clone());
+        Node ret = new Node(node.array.clone());
         if (level == 0) {
             ret.array[i & LOW_BITS] = val;
         } else {
@@ -499,11 +711,11 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
         return ret;
     }
 
-    private static Node newPath(AtomicReference<Thread> edit, int level, Node node) {
+    private static Node newPath(Object edit, int level, Node node) {
         if (level == 0) {
             return node;
         }
-        Node ret = new Node(edit);
+        Node ret = newNode(edit);
         ret.array[0] = newPath(edit, level - NODE_LENGTH_POW_2, node);
         return ret;
     }
@@ -534,22 +746,25 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
 
         private F[] tail;
 
-        private MutVector(int c, int s, Node r, F[] t) {
-            size = c; shift = s; root = r; tail = t;
-        }
+        // Identifies the nodes this MutVector made, and may change in place.  Any unique object
+        // will do.  Set to null by immutable() so that this can't change the nodes any more.
+        private Object edit = new Object();
 
         private MutVector(PersistentVector<F> v) {
-            this(v.size, v.shift, editableRoot(v.root), editableTail(v.tail));
+            size = v.size;
+            shift = v.shift;
+            root = new EditNode(edit, v.root.array.clone());
+            tail = editableTail(v.tail);
         }
 
         private Node ensureEditable(Node node) {
-            if (node.edit == root.edit)
+            if (node.edit() == edit)
                 return node;
-            return new Node(root.edit, node.array.clone());
+            return new EditNode(edit, node.array.clone());
         }
 
         private void ensureEditable() {
-            if (root.edit.get() == null) {
+            if (edit == null) {
                 throw new IllegalStateException("Mutable used after immutable! call");
             }
             //		root = editableRoot(root);
@@ -569,7 +784,7 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
             //			{
             //			throw new IllegalStateException("Mutation release by non-owner thread");
             //			}
-            root.edit.set(null);
+            edit = null;
             F[] trimmedTail = (F[]) new Object[size - tailoff()];
             System.arraycopy(tail, 0, trimmedTail, 0, trimmedTail.length);
             return new PersistentVector<>(size, shift, root, trimmedTail);
@@ -589,15 +804,15 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
             }
             //full tail, push into tree
             Node newroot;
-            Node tailnode = new Node(root.edit, tail);
+            Node tailnode = new EditNode(edit, tail);
             tail = (F[]) new Object[MAX_NODE_LENGTH];
             tail[0] = val;
             int newshift = shift;
             //overflow root?
             if ((size >>> NODE_LENGTH_POW_2) > (1 << shift)) {
-                newroot = new Node(root.edit);
+                newroot = new EditNode(edit);
                 newroot.array[0] = root;
-                newroot.array[1] = newPath(root.edit, shift, tailnode);
+                newroot.array[1] = newPath(edit, shift, tailnode);
                 newshift += NODE_LENGTH_POW_2;
             } else
                 newroot = pushTail(shift, root, tailnode);
@@ -635,7 +850,7 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
                 Node child = (Node) parent.array[subidx];
                 nodeToInsert = (child != null) ?
                         pushTail(level - NODE_LENGTH_POW_2, child, tailnode)
-                        : newPath(root.edit, level - NODE_LENGTH_POW_2, tailnode);
+                        : newPath(edit, level - NODE_LENGTH_POW_2, tailnode);
             }
             ret.array[subidx] = nodeToInsert;
             return ret;
@@ -806,9 +1021,6 @@ public class PersistentVector<E> extends UnmodList.AbstractUnmodList<E>
 //            }
 //        }
 
-        private static Node editableRoot(Node node) {
-            return new Node(new AtomicReference<>(Thread.currentThread()), node.array.clone());
-        }
         @SuppressWarnings("unchecked")
         private static <T> T[] editableTail(T[] tl) {
             Object[] ret = new Object[MAX_NODE_LENGTH];
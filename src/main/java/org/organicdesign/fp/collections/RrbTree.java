@@ -17,14 +17,19 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.organicdesign.fp.function.Fn0;
+import org.organicdesign.fp.function.Fn1;
 import org.organicdesign.fp.indent.Indented;
 import org.organicdesign.fp.oneOf.Option;
 import org.organicdesign.fp.tuple.Tuple2;
 import org.organicdesign.fp.tuple.Tuple4;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static org.organicdesign.fp.collections.Cowry.*;
 import static org.organicdesign.fp.indent.IndentUtils.arrayString;
@@ -85,6 +90,16 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
         private @NotNull Node<E> root;
         private int size;
 
+        // False when the focus array may be shared with an ImRrbt (or another tree) and must be
+        // copied before it is written to.  This lets immutable() and mutable() hand the focus
+        // back and forth without copying it.
+        private boolean focusOwned;
+
+        // Nodes tagged with this token were created by this MutRrbt and nothing else can see them,
+        // so they can be updated in place.  Whenever our nodes become visible outside this
+        // MutRrbt, we start a new token so that those nodes are copied the next time we touch them.
+        private @NotNull Object edit = new Object();
+
         MutRrbt(E @NotNull [] f, int fi, int fl, @NotNull Node<E> r, int s) {
             focus = f; focusStartIndex = fi; focusLength = fl; root = r; size = s;
         }
@@ -106,6 +121,7 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
                   (focusStartIndex < (size - focusLength))) ) {
                 root = root.pushFocus(focusStartIndex, arrayCopy(focus, focusLength, null));
                 focus = (E[]) new Object[STRICT_NODE_LENGTH];
+                focusOwned = true;
                 focus[0] = val;
                 focusStartIndex = size;
                 focusLength = 1;
@@ -115,8 +131,9 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
 
             // TODO: 3. Make the root the first argument to RrbTree, MutRrbt and ImRrbt.
 
-            if (focus.length <= focusLength) {
+            if (!focusOwned || (focus.length <= focusLength)) {
                 focus = arrayCopy(focus, STRICT_NODE_LENGTH, null);
+                focusOwned = true;
             }
             focus[focusLength] = val;
             focusLength++;
@@ -208,12 +225,23 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
             return root.get(i);
         }
 
-        /** {@inheritDoc} */
+        /**
+         Returns an immutable version of this tree.  This does not copy the tree nodes.  It only
+         copies the focus if it has room to grow (it never holds more than STRICT_NODE_LENGTH
+         items).  This MutRrbt remains usable and copies each shared node (or the focus) only the
+         first time it changes it.
+         */
         @Override
         public @NotNull ImRrbt<E> immutable() {
-            return new ImRrbt<>(arrayCopy(focus, focusLength, null),
-                                focusStartIndex,
-                                root, size);
+            edit = new Object();
+            final E[] imFocus;
+            if (focus.length == focusLength) {
+                imFocus = focus;
+                focusOwned = false;
+            } else {
+                imFocus = arrayCopy(focus, focusLength, null);
+            }
+            return new ImRrbt<>(imFocus, focusStartIndex, root, size);
         }
 
         /** {@inheritDoc} */
@@ -236,6 +264,7 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
                 root = root.pushFocus(focusStartIndex,
                                                   arrayCopy(focus, focusLength, null));
                 focus = singleElementArray(element);
+                focusOwned = true;
                 focusStartIndex = idx;
                 focusLength = 1;
                 size++;
@@ -246,6 +275,7 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
             // TODO: Make sure Immutable does this too.
             if (focusLength == 0) {
                 focus = singleElementArray(element);
+                focusOwned = true;
                 focusStartIndex = idx;
                 focusLength = 1;
                 size++;
@@ -260,11 +290,12 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
                 // We want to double the length each time up to STRICT_NODE_LENGTH
                 // because there is no guarantee that the next insert will be in the same
                 // place, so this hedges our bets.
-                if (focus.length <= focusLength) {
+                if (!focusOwned || (focus.length <= focusLength)) {
                     int newLen = (focusLength >= HALF_STRICT_NODE_LENGTH)
                                  ? STRICT_NODE_LENGTH
                                  : focusLength << 1; // double size.
                     focus = arrayCopy(focus, newLen, null);
+                    focusOwned = true;
                 }
                 // Shift existing items past insertion index to the right
                 int numItemsToShift = focusLength - diff;
@@ -286,6 +317,7 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
                 root = root.pushFocus(focusStartIndex, arrayCopy(focus, focusLength, null));
             }
             focus = singleElementArray(element);
+            focusOwned = true;
             focusStartIndex = idx;
             focusLength = 1;
             size++;
@@ -298,9 +330,14 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
             return new Iter(pushFocus());
         }
 
-        /** {@inheritDoc} */
+        /**
+         {@inheritDoc}
+         The returned nodes end up shared with another tree or an iterator, so this MutRrbt gives
+         up the right to update them in place.
+         */
         @Override
         @NotNull Node<E> pushFocus() {
+            edit = new Object();
             return (focusLength == 0)
                    ? root
                    : root.pushFocus(focusStartIndex,
@@ -331,19 +368,74 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
             if (index >= focusStartIndex) {
                 int focusOffset = index - focusStartIndex;
                 if (focusOffset < focusLength) {
+                    if (!focusOwned) {
+                        focus = arrayCopy(focus, focus.length, null);
+                        focusOwned = true;
+                    }
                     focus[focusOffset] = item;
                     return this;
                 }
                 index -= focusLength;
             }
             // About to do replace with maybe-adjusted index
-            root = root.replace(index, item);
+            root = root.replace(index, item, edit);
             return this;
         }
 
         /** {@inheritDoc} */
         public @NotNull MutRrbt<E> without(int index) { return (MutRrbt<E>) super.without(index); }
 
+        /** {@inheritDoc} */
+        @Override
+        @Contract(mutates = "this")
+        public @NotNull MutRrbt<E> insertAll(int idx, @Nullable Iterable<? extends E> es) {
+            return become(super.insertAll(idx, es));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        @Contract(mutates = "this")
+        public @NotNull MutRrbt<E> removeRange(int fromIndex, int toIndex) {
+            return become(super.removeRange(fromIndex, toIndex));
+        }
+
+        /** Takes on the internal state of the given tree so that bulk edits mutate this one. */
+        private @NotNull MutRrbt<E> become(@NotNull RrbTree<E> t) {
+            if (t != this) {
+                MutRrbt<E> that = (MutRrbt<E>) t;
+                focus = that.focus;
+                focusOwned = that.focusOwned;
+                focusStartIndex = that.focusStartIndex;
+                focusLength = that.focusLength;
+                root = that.root;
+                size = that.size;
+            }
+            return this;
+        }
+
+        /**
+         {@inheritDoc}
+         This MutRrbt is unchanged - a new one is returned.
+         */
+        @Override
+        public <F> @NotNull MutRrbt<F> mapPreservingShape(@NotNull Fn1<? super E, ? extends F> f) {
+            return new MutRrbt<>(mapArray(focus, focusLength, f), focusStartIndex, focusLength,
+                                 mapNode(root, f, false), size);
+        }
+
+        /**
+         {@inheritDoc}
+         This MutRrbt is unchanged - a new one is returned.
+         */
+        @Override
+        public <F> @NotNull MutRrbt<F> parallelMapPreservingShape(
+                @NotNull Fn1<? super E, ? extends F> f
+        ) {
+            Node<F> newRoot = mapNode(root, f, true);
+            return new MutRrbt<>(mapArray(focus, focusLength, f), focusStartIndex, focusLength,
+                                 newRoot, size);
+        }
+
         @Override public int size() { return size; }
 
         @Override
@@ -545,13 +637,13 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
             return new ImRrbt<>(newFocus, idx, newRoot, size + 1);
         }
 
-        /** {@inheritDoc} */
+        /**
+         Returns a mutable version of this tree in constant time.  Nothing is copied up front.
+         The MutRrbt copies the focus and each node the first time it changes them.
+         */
         @Override
         public @NotNull MutRrbt<E> mutable() {
-            // TODO: Should we defensively copy the root as well?
-            return new MutRrbt<>(arrayCopy(focus, focus.length, null),
-                                 focusStartIndex, focus.length,
-                                 root, size);
+            return new MutRrbt<>(focus, focusStartIndex, focus.length, root, size);
         }
 
         /** {@inheritDoc} */
@@ -598,6 +690,51 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
         /** {@inheritDoc} */
         public @NotNull ImRrbt<E> without(int index) { return (ImRrbt<E>) super.without(index); }
 
+        /** {@inheritDoc} */
+        @Override
+        public @NotNull ImRrbt<E> insertAll(int idx, @Nullable Iterable<? extends E> es) {
+            return (ImRrbt<E>) super.insertAll(idx, es);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public @NotNull ImRrbt<E> removeRange(int fromIndex, int toIndex) {
+            return (ImRrbt<E>) super.removeRange(fromIndex, toIndex);
+        }
+
+        /**
+         Returns a new ImRrbt with the items of this one sorted by the given comparator.  Items are
+         copied out a whole leaf at a time, sorted (stable), and built straight into packed leaves
+         without going through append().
+         */
+        public @NotNull ImRrbt<E> sorted(@NotNull Comparator<? super E> comp) {
+            return (ImRrbt<E>) sortedTree(comp, false);
+        }
+
+        /**
+         Like {@link #sorted(Comparator)}, but uses a parallel merge sort
+         ({@link Arrays#parallelSort(Object[], Comparator)}).  Worth it for big lists.
+         */
+        public @NotNull ImRrbt<E> parallelSorted(@NotNull Comparator<? super E> comp) {
+            return (ImRrbt<E>) sortedTree(comp, true);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public <F> @NotNull ImRrbt<F> mapPreservingShape(@NotNull Fn1<? super E, ? extends F> f) {
+            return new ImRrbt<>(mapArray(focus, focus.length, f), focusStartIndex,
+                                mapNode(root, f, false), size);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public <F> @NotNull ImRrbt<F> parallelMapPreservingShape(
+                @NotNull Fn1<? super E, ? extends F> f
+        ) {
+            Node<F> newRoot = mapNode(root, f, true);
+            return new ImRrbt<>(mapArray(focus, focus.length, f), focusStartIndex, newRoot, size);
+        }
+
         @Override public int size() { return size; }
 
         @Override
@@ -683,6 +820,22 @@ public abstract class RrbTree<E> implements BaseList<E>, Indented {
     @Override
     abstract public @NotNull UnmodSortedIterator<E> iterator();
 
+    /**
+     Returns a new tree of the same kind with the given function applied to each item.  Each leaf
+     is mapped into a new leaf of the same length, and the new branch nodes reuse the size tables
+     of the old ones, so the result has exactly the same shape as this tree: no appends,
+     rebalancing, or focus-pushing.  The function may be applied to items in any order.
+     */
+    public abstract <F> @NotNull RrbTree<F> mapPreservingShape(@NotNull Fn1<? super E, ? extends F> f);
+
+    /**
+     Like {@link #mapPreservingShape(Fn1)}, but maps big subtrees in parallel on the common
+     ForkJoinPool.  The function must be thread-safe.
+     */
+    public abstract <F> @NotNull RrbTree<F> parallelMapPreservingShape(
+            @NotNull Fn1<? super E, ? extends F> f
+    );
+
 /*
 I'm implementing something like the [Bagwell/Rompf RRB-Tree][1] and I'm a little unsatisfied with
 the details of the join/merge algorithm.  I wonder if there's a standard way to do this that they
@@ -864,7 +1017,8 @@ involves changing more nodes than maybe necessary.
             Node<E> newRoot =
                     new Relaxed<>(new int[] {leftSize, leftSize + rightRoot.size()}, newRootArray);
 //            newRoot.debugValidate();
-            return makeNew(emptyArray(), 0, 0, newRoot, newRoot.size());
+            // An empty focus goes at the end so that a following append() stays in order.
+            return makeNew(emptyArray(), newRoot.size(), 0, newRoot, newRoot.size());
         } else {
             throw new IllegalStateException("How did we get here?");
         }
@@ -887,7 +1041,7 @@ involves changing more nodes than maybe necessary.
         }
 
 //        n.debugValidate();
-        return makeNew(emptyArray(), 0, 0, n, n.size());
+        return makeNew(emptyArray(), n.size(), 0, n, n.size());
     }
 
     /**
@@ -983,6 +1137,228 @@ involves changing more nodes than maybe necessary.
         }
     }
 
+    /**
+     Inserts all the given items at the given index, pushing the current element at that index and
+     all subsequent elements to the right.  The new items are built into a tree of packed leaves
+     which is then stitched in with a single split and join.  This is O(log n + k) where k is the
+     number of items inserted, instead of O(k log n) for k individual inserts.
+
+     @param idx the insertion point (0 &lt;= idx &lt;= size)
+     @param es the items to insert
+     @return a new RRB-Tree with the items inserted.
+     */
+    public @NotNull RrbTree<E> insertAll(int idx, @Nullable Iterable<? extends E> es) {
+        if ( (idx < 0) || (idx > size()) ) {
+            throw new IndexOutOfBoundsException("Index: " + idx + " size: " + size());
+        }
+        RrbTree<E> middle = packedTree(es);
+        if (middle.size() == 0) {
+            return this;
+        }
+        if (idx == size()) {
+            return join(middle);
+        }
+        if (idx == 0) {
+            return middle.join(this);
+        }
+        Tuple2<? extends RrbTree<E>,? extends RrbTree<E>> s = split(idx);
+        return s._1().join(middle).join(s._2());
+    }
+
+    /**
+     Returns a new RrbTree minus the items from fromIndex (inclusive) to toIndex (exclusive).  All
+     items to the right are shifted left.  This is O(log n) no matter how many items are removed.
+
+     @param fromIndex the index of the first item to remove
+     @param toIndex one greater than the index of the last item to remove
+     @return a new RRB-Tree without the given range.
+     */
+    public @NotNull RrbTree<E> removeRange(int fromIndex, int toIndex) {
+        if ( (fromIndex < 0) || (toIndex > size()) || (fromIndex > toIndex) ) {
+            throw new IndexOutOfBoundsException("Failed test: 0 <= fromIndex <= toIndex <= size" +
+                                                " fromIndex: " + fromIndex +
+                                                " toIndex: " + toIndex + " size: " + size());
+        }
+        if (fromIndex == toIndex) {
+            return this;
+        }
+        Tuple2<? extends RrbTree<E>,? extends RrbTree<E>> s1 = split(fromIndex);
+        RrbTree<E> right = s1._2().split(toIndex - fromIndex)._2();
+        return s1._1().join(right);
+    }
+
+    /**
+     Builds a new tree (of the same mutable/immutable type as this one) directly from full leaves
+     of STRICT_NODE_LENGTH items, without going through append().  Leftover items become the focus
+     at the end of the new tree.
+     */
+    @SuppressWarnings("unchecked")
+    private @NotNull RrbTree<E> packedTree(@Nullable Iterable<? extends E> es) {
+        if (es == null) {
+            return mt();
+        }
+        List<Node<E>> nodes = new ArrayList<>();
+        E[] leafItems = (E[]) new Object[STRICT_NODE_LENGTH];
+        int leafIdx = 0;
+        for (E e : es) {
+            if (leafIdx == STRICT_NODE_LENGTH) {
+                nodes.add(new Leaf<>(leafItems));
+                leafItems = (E[]) new Object[STRICT_NODE_LENGTH];
+                leafIdx = 0;
+            }
+            leafItems[leafIdx++] = e;
+        }
+        // The last (possibly partial) leaf becomes the focus, just as it would after appends.
+        return packedTree(nodes, arrayCopy(leafItems, leafIdx, null));
+    }
+
+    /**
+     Like {@link #packedTree(Iterable)}, but copies whole leaves out of the given array at once.
+     The array is not modified.
+     */
+    private @NotNull RrbTree<E> packedTree(E @NotNull [] items) {
+        if (items.length == 0) {
+            return mt();
+        }
+        // Same as packedTree(Iterable): the last leaf (full or not) becomes the focus.
+        int focusStart = ((items.length - 1) >> NODE_LENGTH_POW_2) << NODE_LENGTH_POW_2;
+        List<Node<E>> nodes = new ArrayList<>((focusStart >> NODE_LENGTH_POW_2) + 1);
+        for (int i = 0; i < focusStart; i += STRICT_NODE_LENGTH) {
+            nodes.add(new Leaf<>(Arrays.copyOfRange(items, i, i + STRICT_NODE_LENGTH)));
+        }
+        return packedTree(nodes, Arrays.copyOfRange(items, focusStart, items.length));
+    }
+
+    /** Builds a tree from full leaves and a focus to go after them. */
+    private @NotNull RrbTree<E> packedTree(@NotNull List<Node<E>> nodes, E @NotNull [] newFocus) {
+        // Build each level of Relaxed nodes from the one below it until only the root remains.
+        while (nodes.size() > 1) {
+            List<Node<E>> parents = new ArrayList<>((nodes.size() >> NODE_LENGTH_POW_2) + 1);
+            for (int i = 0; i < nodes.size(); i += STRICT_NODE_LENGTH) {
+                Node<E>[] kids =
+                        nodes.subList(i, Math.min(i + STRICT_NODE_LENGTH, nodes.size()))
+                             .toArray(genericNodeArray(0));
+                parents.add(new Relaxed<>(Relaxed.makeSizeArray(kids), kids));
+            }
+            nodes = parents;
+        }
+        Node<E> newRoot = nodes.isEmpty() ? emptyLeaf() : nodes.get(0);
+        int rootSize = newRoot.size();
+        return makeNew(newFocus, rootSize, newFocus.length, newRoot, rootSize + newFocus.length);
+    }
+
+    /**
+     Copies all items into a new array one whole leaf at a time, sorts it with the given
+     comparator (in parallel if requested), and builds a new tree of packed leaves from the
+     result.  The sort is stable.
+     */
+    @NotNull RrbTree<E> sortedTree(@NotNull Comparator<? super E> comp, boolean parallel) {
+        @SuppressWarnings("unchecked")
+        E[] items = (E[]) new Object[size()];
+        copyLeaves(pushFocus(), items, 0);
+        if (parallel) {
+            Arrays.parallelSort(items, comp);
+        } else {
+            Arrays.sort(items, comp);
+        }
+        return packedTree(items);
+    }
+
+    /**
+     Copies the items in all leaves under the given node into the destination array starting at
+     the given position.
+     @return the position after the last item copied.
+     */
+    private static <E> int copyLeaves(@NotNull Node<E> node, E @NotNull [] dest, int destPos) {
+        if (node instanceof Leaf) {
+            E[] items = ((Leaf<E>) node).items;
+            System.arraycopy(items, 0, dest, destPos, items.length);
+            return destPos + items.length;
+        }
+        for (Node<E> n : ((Relaxed<E>) node).nodes) {
+            destPos = copyLeaves(n, dest, destPos);
+        }
+        return destPos;
+    }
+
+    /** Returns a new array of the given length holding f applied to each of the first len items. */
+    @SuppressWarnings("unchecked")
+    static <E,F> F @NotNull [] mapArray(E @NotNull [] items, int len,
+                                        @NotNull Fn1<? super E, ? extends F> f) {
+        if (len == 0) {
+            return emptyArray();
+        }
+        F[] ret = (F[]) new Object[len];
+        for (int i = 0; i < len; i++) {
+            ret[i] = f.apply(items[i]);
+        }
+        return ret;
+    }
+
+    /**
+     Maps every leaf under the given node, building new Relaxed nodes around them that share the
+     old nodes' cumulativeSizes (which are never changed in place).
+     */
+    static <E,F> @NotNull Node<F> mapNode(@NotNull Node<E> node,
+                                          @NotNull Fn1<? super E, ? extends F> f,
+                                          boolean parallel) {
+        if (node instanceof Leaf) {
+            E[] items = ((Leaf<E>) node).items;
+            return (items.length == 0) ? emptyLeaf()
+                                       : new Leaf<>(mapArray(items, items.length, f));
+        }
+        if (parallel && (node.size() >= PARALLEL_MAP_THRESHOLD)) {
+            return ForkJoinPool.commonPool().invoke(new MapTask<>((Relaxed<E>) node, f));
+        }
+        Relaxed<E> relaxed = (Relaxed<E>) node;
+        Node<F>[] kids = genericNodeArray(relaxed.nodes.length);
+        for (int i = 0; i < kids.length; i++) {
+            kids[i] = mapNode(relaxed.nodes[i], f, false);
+        }
+        return new Relaxed<>(relaxed.cumulativeSizes, kids);
+    }
+
+    /** Maps each child of a Relaxed node as its own task (recursively, for big children). */
+    private static final class MapTask<E,F> extends RecursiveTask<Node<F>> {
+        private static final long serialVersionUID = 20261019130000L;
+
+        private final transient @NotNull Relaxed<E> node;
+        private final transient @NotNull Fn1<? super E, ? extends F> f;
+
+        MapTask(@NotNull Relaxed<E> n, @NotNull Fn1<? super E, ? extends F> fn) { node = n; f = fn; }
+
+        @Override
+        protected @NotNull Node<F> compute() {
+            List<RecursiveTask<Node<F>>> tasks = new ArrayList<>(node.nodes.length);
+            for (Node<E> kid : node.nodes) {
+                tasks.add((kid instanceof Relaxed) && (kid.size() >= PARALLEL_MAP_THRESHOLD)
+                          ? new MapTask<>((Relaxed<E>) kid, f)
+                          : new SequentialMapTask<>(kid, f));
+            }
+            invokeAll(tasks);
+            Node<F>[] kids = genericNodeArray(tasks.size());
+            for (int i = 0; i < kids.length; i++) {
+                kids[i] = tasks.get(i).join();
+            }
+            return new Relaxed<>(node.cumulativeSizes, kids);
+        }
+    }
+
+    /** Maps a small subtree on one thread. */
+    private static final class SequentialMapTask<E,F> extends RecursiveTask<Node<F>> {
+        private static final long serialVersionUID = 20261019130001L;
+
+        private final transient @NotNull Node<E> node;
+        private final transient @NotNull Fn1<? super E, ? extends F> f;
+
+        SequentialMapTask(@NotNull Node<E> n, @NotNull Fn1<? super E, ? extends F> fn) {
+            node = n; f = fn;
+        }
+
+        @Override
+        protected @NotNull Node<F> compute() { return mapNode(node, f, false); }
+    }
+
     private static <E> @NotNull Node<E> eliminateUnnecessaryAncestors(Node<E> n) {
         while ( !(n instanceof Leaf) &&
                 (n.numChildren() == 1) ) {
@@ -1046,6 +1422,10 @@ involves changing more nodes than maybe necessary.
     // (MIN_NODE_LENGTH + MAX_NODE_LENGTH) / 2 should equal STRICT_NODE_LENGTH so that they have roughly the
     // same average node size to make the index interpolation easier.
     private static final int MIN_NODE_LENGTH = (STRICT_NODE_LENGTH+1) * 2 / 3;
+
+    // Subtrees with fewer items than this are mapped on a single thread.
+    private static final int PARALLEL_MAP_THRESHOLD = STRICT_NODE_LENGTH * STRICT_NODE_LENGTH;
+
     // Always check if less-than this.  Never if less-than-or-equal.  Cormen adds a -1 here and tests
     // for <= (I think!).
     private static final int MAX_NODE_LENGTH = ( (STRICT_NODE_LENGTH+1) * 4 / 3);
@@ -1112,6 +1492,12 @@ involves changing more nodes than maybe necessary.
 
         @NotNull Node<T> replace(int idx, T t);
 
+        /**
+         Like {@link #replace(int, Object)} but updates nodes tagged with the given edit token in
+         place.  Any nodes it has to copy are tagged with the token.
+         */
+        @NotNull Node<T> replace(int idx, T t, @NotNull Object edit);
+
         @NotNull SplitNode<T> splitAt(int splitIndex);
     }
 
@@ -1316,6 +1702,18 @@ involves changing more nodes than maybe necessary.
             return new Leaf<>(replaceInArrayAt(t, items, idx, null));
         }
 
+        @Override
+        public @NotNull Node<T> replace(int idx, T t, @NotNull Object edit) {
+            if (isEditable(edit)) {
+                items[idx] = t;
+                return this;
+            }
+            return new EditableLeaf<>(replaceInArrayAt(t, items, idx, null), edit);
+        }
+
+        /** True if this node was made by the MutRrbt holding the given edit token. */
+        boolean isEditable(@NotNull Object edit) { return false; }
+
         @Override public boolean thisNodeHasRelaxedCapacity(int numItems) {
 //            if ( (numItems < 1) || (numItems >= MAX_NODE_LENGTH) ) {
 //                throw new IllegalArgumentException("Bad size: " + numItems);
@@ -1335,6 +1733,15 @@ involves changing more nodes than maybe necessary.
         }
     } // end class Leaf
 
+    /** A Leaf that was created by a MutRrbt and can be updated in place by that MutRrbt. */
+    private static final class EditableLeaf<T> extends Leaf<T> {
+        private final @NotNull Object edit;
+
+        EditableLeaf(T[] ts, @NotNull Object e) { super(ts); edit = e; }
+
+        @Override boolean isEditable(@NotNull Object e) { return edit == e; }
+    }
+
     // Contains a relaxed tree of nodes that average around 32 items each.
     private static class Relaxed<T> implements Node<T> {
 
@@ -1869,6 +2276,24 @@ involves changing more nodes than maybe necessary.
             return new Relaxed<>(cumulativeSizes, newNodes);
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public @NotNull Node<T> replace(int index, T t, @NotNull Object edit) {
+            int subNodeIndex = subNodeIndex(index);
+            Node<T> alteredNode =
+                    nodes[subNodeIndex].replace(subNodeAdjustedIndex(index, subNodeIndex), t, edit);
+            if (isEditable(edit)) {
+                nodes[subNodeIndex] = alteredNode;
+                return this;
+            }
+            // Replace doesn't change any sizes, so the cumulativeSizes can be shared.
+            Node<T>[] newNodes = replaceInArrayAt(alteredNode, nodes, subNodeIndex, Node.class);
+            return new EditableRelaxed<>(cumulativeSizes, newNodes, edit);
+        }
+
+        /** True if this node was made by the MutRrbt holding the given edit token. */
+        boolean isEditable(@NotNull Object edit) { return false; }
+
         @Override
         public @NotNull String indentedStr(int indent) {
             StringBuilder sB = new StringBuilder() // indentSpace(indent)
@@ -2043,6 +2468,15 @@ involves changing more nodes than maybe necessary.
         } // end fixRight()
     } // end class Relaxed
 
+    /** A Relaxed node that was created by a MutRrbt and can be updated in place by that MutRrbt. */
+    private static final class EditableRelaxed<T> extends Relaxed<T> {
+        private final @NotNull Object edit;
+
+        EditableRelaxed(int[] szs, Node<T>[] ns, @NotNull Object e) { super(szs, ns); edit = e; }
+
+        @Override boolean isEditable(@NotNull Object e) { return edit == e; }
+    }
+
     // =================================== Tree-walking Iterator ==================================
 
     /** Holds a node and the index of the child node we are currently iterating in. */
@@ -2,6 +2,7 @@ package org.organicdesign.fp.collections;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.function.Fn0;
 import org.organicdesign.fp.function.Fn1;
 import org.organicdesign.fp.function.Fn2;
 import org.organicdesign.fp.oneOf.Option;
@@ -188,6 +189,14 @@ public interface UnmodIterable<T> extends Iterable<T>, Transformable<T> {
         return Xform.of(this).foldUntil(accum, terminator, reducer);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    default <M> M parallelFold(@NotNull Fn0<? extends M> newAccum,
+                               @NotNull Fn2<? super M,? super T,? extends M> reducer,
+                               @NotNull Fn2<? super M,? super M,? extends M> combiner) {
+        return Xform.of(this).parallelFold(newAccum, reducer, combiner);
+    }
+
     /** {@inheritDoc} */
     @Override default @NotNull UnmodIterable<T> filter(@NotNull Fn1<? super T,Boolean> f) {
         return Xform.of(this).filter(f);
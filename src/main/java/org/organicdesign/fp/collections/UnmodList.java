@@ -74,6 +74,33 @@ public interface UnmodList<E> extends List<E>, UnmodSortedCollection<E> {
 
     // ========================================= Instance =========================================
 
+    /**
+     Searches this list for the given key using a binary search.  The list must already be sorted
+     by the given comparator (for instance by ImRrbt.sorted() or PersistentVector.sorted()).
+     Each probe is a get(), so this is O(log n) gets.
+
+     @param key the item to search for
+     @param comp the comparator the list is sorted by
+     @return the index of the key if it's found (any of them if there are duplicates), otherwise
+     (-(insertion point) - 1) just like {@link Collections#binarySearch(List, Object, Comparator)}.
+     */
+    default int binarySearch(E key, @NotNull Comparator<? super E> comp) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comp.compare(get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
     /** Not allowed - this is supposed to be unmodifiable */
     @SuppressWarnings("deprecation")
     @Override @Deprecated default boolean add(E e) {
@@ -0,0 +1,396 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.xform;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.oneOf.Option;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+/**
+ <p>An Xform of unboxed doubles.  The double version of {@link IntXform}: each stage passes plain
+ doubles to the next, and {@link #sum()}, {@link #min()}, {@link #max()} and the other terminal
+ operations allocate nothing per item.  Make one from a double[], an {@link IntXform} or
+ {@link LongXform}, or from an {@link Xform} with {@link Xform#mapToDouble(ToDoubleFunction)}.</p>
+ */
+public abstract class DoubleXform {
+
+    /**
+     Receives each item that makes it through the pipeline.  Returns false to stop the source from
+     sending any more.
+     */
+    interface Sink {
+        boolean accept(double item);
+    }
+
+    /**
+     Pushes each item through the stages to the sink until the source runs out or the sink returns
+     false.  This is how the terminal operations run.  Each call builds its own chain of sinks, so
+     stages that count (take and drop) start over every time.
+     */
+    abstract void run(@NotNull Sink sink);
+
+    /**
+     Returns an iterator that pulls items through the stages one at a time.  Only used at the
+     boundary with Xform, so that an object pipeline fed by this one is still lazy.
+     */
+    abstract @NotNull PrimitiveIterator.OfDouble iterator();
+
+    /**
+     The iterator of a stage, which closes the iterator it reads from.  So when an Xform stops
+     pulling early, a source that holds a resource (like the file of Xform.lines()) still gets
+     closed.
+     */
+    abstract static class StageIter implements PrimitiveIterator.OfDouble, AutoCloseable {
+        private final @NotNull Iterator<?> src;
+
+        StageIter(@NotNull Iterator<?> s) { src = s; }
+
+        @Override public void close() { Xform.close(src); }
+    }
+
+    // Only the factories and stages in this package make these.
+    DoubleXform() {}
+
+    // ========================================= Sources =========================================
+
+    private static final @NotNull DoubleXform EMPTY = of(new double[0]);
+
+    /** Returns an empty DoubleXform. */
+    public static @NotNull DoubleXform empty() { return EMPTY; }
+
+    /**
+     Returns a DoubleXform of the given items.  Like {@link Arrays#asList(Object[])}, the array is not
+     copied, so don't change it until you're done with the DoubleXform.
+     */
+    public static @NotNull DoubleXform of(double @Nullable ... items) {
+        return (items == null) ? EMPTY : of(items, 0, items.length);
+    }
+
+    /** Returns a DoubleXform of the items from fromIdx (inclusive) to toIdx (exclusive).  Not copied. */
+    public static @NotNull DoubleXform of(double @NotNull [] items, int fromIdx, int toIdx) {
+        if ( (fromIdx < 0) || (fromIdx > toIdx) || (toIdx > items.length) ) {
+            throw new IndexOutOfBoundsException("fromIdx=" + fromIdx + " toIdx=" + toIdx +
+                                                " length=" + items.length);
+        }
+        return new DoubleXform() {
+            @Override void run(@NotNull Sink sink) {
+                for (int i = fromIdx; i < toIdx; i++) {
+                    if (!sink.accept(items[i])) { return; }
+                }
+            }
+
+            @Override @NotNull PrimitiveIterator.OfDouble iterator() {
+                return Arrays.stream(items, fromIdx, toIdx).iterator();
+            }
+        };
+    }
+
+    /**
+     Returns a DoubleXform of f applied to each item of the Xform.  This is the boundary where the
+     pipeline goes from objects to primitives.
+     */
+    public static <A> @NotNull DoubleXform of(@NotNull Xform<A> xform,
+                                         @NotNull ToDoubleFunction<? super A> f) {
+        return new DoubleXform() {
+            @Override void run(@NotNull Sink sink) {
+                Iterator<A> iter = xform.iterator();
+                try {
+                    while (iter.hasNext()) {
+                        if (!sink.accept(f.applyAsDouble(iter.next()))) { return; }
+                    }
+                } finally {
+                    // In case it's reading a file and we stopped early.
+                    Xform.close(iter);
+                }
+            }
+
+            @Override @NotNull PrimitiveIterator.OfDouble iterator() {
+                Iterator<A> iter = xform.iterator();
+                return new StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public double nextDouble() { return f.applyAsDouble(iter.next()); }
+                };
+            }
+        };
+    }
+
+    // ========================================== Stages ==========================================
+
+    /** Returns a DoubleXform of f applied to each item. */
+    public @NotNull DoubleXform map(@NotNull DoubleUnaryOperator f) {
+        DoubleXform src = this;
+        return new DoubleXform() {
+            @Override void run(@NotNull Sink sink) {
+                src.run(i -> sink.accept(f.applyAsDouble(i)));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfDouble iterator() {
+                PrimitiveIterator.OfDouble iter = src.iterator();
+                return new StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public double nextDouble() { return f.applyAsDouble(iter.nextDouble()); }
+                };
+            }
+        };
+    }
+
+    /** Returns a DoubleXform of only the items for which the predicate returns true. */
+    public @NotNull DoubleXform filter(@NotNull DoublePredicate predicate) {
+        DoubleXform src = this;
+        return new DoubleXform() {
+            @Override void run(@NotNull Sink sink) {
+                src.run(i -> !predicate.test(i) || sink.accept(i));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfDouble iterator() {
+                PrimitiveIterator.OfDouble iter = src.iterator();
+                return new StageIter(iter) {
+                    private double next;
+                    private boolean ready = false;
+
+                    @Override public boolean hasNext() {
+                        while (!ready && iter.hasNext()) {
+                            double i = iter.nextDouble();
+                            if (predicate.test(i)) {
+                                next = i;
+                                ready = true;
+                            }
+                        }
+                        return ready;
+                    }
+
+                    @Override public double nextDouble() {
+                        if (!hasNext()) { throw new NoSuchElementException(); }
+                        ready = false;
+                        return next;
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns a DoubleXform without its first n items. */
+    public @NotNull DoubleXform drop(long n) {
+        if (n < 0) { throw new IllegalArgumentException("Can't drop less than zero items."); }
+        if (n == 0) { return this; }
+        DoubleXform src = this;
+        return new DoubleXform() {
+            @Override void run(@NotNull Sink sink) {
+                long[] left = { n };
+                src.run(i -> {
+                    if (left[0] > 0) {
+                        left[0]--;
+                        return true;
+                    }
+                    return sink.accept(i);
+                });
+            }
+
+            @Override @NotNull PrimitiveIterator.OfDouble iterator() {
+                PrimitiveIterator.OfDouble iter = src.iterator();
+                return new StageIter(iter) {
+                    private long left = n;
+
+                    @Override public boolean hasNext() {
+                        // Skip on the first read, not when the iterator is made.
+                        while ( (left > 0) && iter.hasNext() ) {
+                            iter.nextDouble();
+                            left--;
+                        }
+                        return iter.hasNext();
+                    }
+
+                    @Override public double nextDouble() {
+                        if (!hasNext()) { throw new NoSuchElementException(); }
+                        return iter.nextDouble();
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns a DoubleXform of at most the first n items.  Stops reading the source after those. */
+    public @NotNull DoubleXform take(long n) {
+        if (n < 0) { throw new IllegalArgumentException("Num items must be >= 0"); }
+        DoubleXform src = this;
+        return new DoubleXform() {
+            @Override void run(@NotNull Sink sink) {
+                if (n == 0) { return; }
+                long[] left = { n };
+                src.run(i -> sink.accept(i) && (--left[0] > 0));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfDouble iterator() {
+                PrimitiveIterator.OfDouble iter = src.iterator();
+                return new StageIter(iter) {
+                    private long left = n;
+                    @Override public boolean hasNext() { return (left > 0) && iter.hasNext(); }
+                    @Override public double nextDouble() {
+                        if (left < 1) { throw new NoSuchElementException(); }
+                        left--;
+                        return iter.nextDouble();
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns a IntXform of f applied to each item. */
+    public @NotNull IntXform mapToInt(@NotNull DoubleToIntFunction f) {
+        DoubleXform src = this;
+        return new IntXform() {
+            @Override void run(@NotNull IntXform.Sink sink) {
+                src.run(i -> sink.accept(f.applyAsInt(i)));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                PrimitiveIterator.OfDouble iter = src.iterator();
+                return new IntXform.StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public int nextInt() { return f.applyAsInt(iter.nextDouble()); }
+                };
+            }
+        };
+    }
+
+    /** Returns a LongXform of f applied to each item. */
+    public @NotNull LongXform mapToLong(@NotNull DoubleToLongFunction f) {
+        DoubleXform src = this;
+        return new LongXform() {
+            @Override void run(@NotNull LongXform.Sink sink) {
+                src.run(i -> sink.accept(f.applyAsLong(i)));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfLong iterator() {
+                PrimitiveIterator.OfDouble iter = src.iterator();
+                return new LongXform.StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public long nextLong() { return f.applyAsLong(iter.nextDouble()); }
+                };
+            }
+        };
+    }
+
+    /** Returns an Xform of the items, boxed.  This is where the pipeline starts allocating. */
+    public @NotNull Xform<Double> boxed() { return mapToObj(i -> i); }
+
+    /**
+     Returns an Xform of f applied to each item.  This is the boundary where the pipeline goes from
+     primitives to objects.  It's still lazy: items are pulled through this pipeline only as the
+     Xform needs them.
+     */
+    public <R> @NotNull Xform<R> mapToObj(@NotNull DoubleFunction<? extends R> f) {
+        DoubleXform src = this;
+        return Xform.of(() -> {
+            PrimitiveIterator.OfDouble iter = src.iterator();
+            class ObjIter implements Iterator<R>, AutoCloseable {
+                @Override public boolean hasNext() { return iter.hasNext(); }
+                @Override public R next() { return f.apply(iter.nextDouble()); }
+                @Override public void close() { Xform.close(iter); }
+            }
+            return new ObjIter();
+        });
+    }
+
+    // ======================================== Terminals ========================================
+
+    /** Combines each item with the result so far, starting with ident. */
+    public double fold(double ident, @NotNull DoubleBinaryOperator reducer) {
+        double[] ret = { ident };
+        run(i -> {
+            ret[0] = reducer.applyAsDouble(ret[0], i);
+            return true;
+        });
+        return ret[0];
+    }
+
+    /** The sum of all the items. */
+    public double sum() {
+        double[] ret = { 0 };
+        run(i -> {
+            ret[0] += i;
+            return true;
+        });
+        return ret[0];
+    }
+
+    /** The number of items. */
+    public long count() {
+        long[] ret = { 0 };
+        run(i -> {
+            ret[0]++;
+            return true;
+        });
+        return ret[0];
+    }
+
+    /** The smallest item, or none if there aren't any.  Only the result is boxed. */
+    public @NotNull Option<Double> min() { return extreme(true); }
+
+    /** The largest item, or none if there aren't any.  Only the result is boxed. */
+    public @NotNull Option<Double> max() { return extreme(false); }
+
+    private @NotNull Option<Double> extreme(boolean min) {
+        double[] ret = { 0 };
+        boolean[] found = { false };
+        run(i -> {
+            if (!found[0]) {
+                found[0] = true;
+                ret[0] = i;
+            } else if (min ? (Double.compare(i, ret[0]) < 0) : (Double.compare(i, ret[0]) > 0)) {
+                ret[0] = i;
+            }
+            return true;
+        });
+        return found[0] ? Option.some(ret[0]) : Option.none();
+    }
+
+    /** Returns the first item, or none if there aren't any.  Stops reading after that. */
+    public @NotNull Option<Double> head() {
+        double[] ret = { 0 };
+        boolean[] found = { false };
+        run(i -> {
+            ret[0] = i;
+            found[0] = true;
+            return false;
+        });
+        return found[0] ? Option.some(ret[0]) : Option.none();
+    }
+
+    /** Returns a new array of all the items. */
+    public double @NotNull [] toArray() {
+        double[][] buf = { new double[16] };
+        int[] size = { 0 };
+        run(i -> {
+            if (size[0] == buf[0].length) {
+                buf[0] = Arrays.copyOf(buf[0], buf[0].length << 1);
+            }
+            buf[0][size[0]++] = i;
+            return true;
+        });
+        return (size[0] == buf[0].length) ? buf[0] : Arrays.copyOf(buf[0], size[0]);
+    }
+}
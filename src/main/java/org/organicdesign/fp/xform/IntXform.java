@@ -0,0 +1,444 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.xform;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.collections.RangeOfInt;
+import org.organicdesign.fp.oneOf.Option;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ <p>An Xform of unboxed ints.  Each stage ({@link #map(IntUnaryOperator)},
+ {@link #filter(IntPredicate)}, {@link #take(long)}, {@link #drop(long)}) passes plain ints to the
+ next, and the terminal operations ({@link #fold(int, IntBinaryOperator)}, {@link #sum()},
+ {@link #min()}, {@link #max()}, {@link #toArray()}) keep their results unboxed, so summing a
+ range or an array allocates nothing per item.  Make one from a {@link RangeOfInt}, an int[], a
+ CharSequence, or from an {@link Xform} with {@link Xform#mapToInt(ToIntFunction)}.
+ {@link #boxed()} and {@link #mapToObj(IntFunction)} turn it back into an Xform.</p>
+
+ <p>Like Xform, this is an immutable description of the work.  Nothing happens until a terminal
+ operation is called, and each call runs the whole pipeline again.</p>
+ */
+public abstract class IntXform {
+
+    /**
+     Receives each item that makes it through the pipeline.  Returns false to stop the source from
+     sending any more.
+     */
+    interface Sink {
+        boolean accept(int item);
+    }
+
+    /**
+     Pushes each item through the stages to the sink until the source runs out or the sink returns
+     false.  This is how the terminal operations run.  Each call builds its own chain of sinks, so
+     stages that count (take and drop) start over every time.
+     */
+    abstract void run(@NotNull Sink sink);
+
+    /**
+     Returns an iterator that pulls items through the stages one at a time.  Only used at the
+     boundary with Xform, so that an object pipeline fed by this one is still lazy.
+     */
+    abstract @NotNull PrimitiveIterator.OfInt iterator();
+
+    /**
+     The iterator of a stage, which closes the iterator it reads from.  So when an Xform stops
+     pulling early, a source that holds a resource (like the file of Xform.lines()) still gets
+     closed.
+     */
+    abstract static class StageIter implements PrimitiveIterator.OfInt, AutoCloseable {
+        private final @NotNull Iterator<?> src;
+
+        StageIter(@NotNull Iterator<?> s) { src = s; }
+
+        @Override public void close() { Xform.close(src); }
+    }
+
+    // Only the factories and stages in this package make these.
+    IntXform() {}
+
+    // ========================================= Sources =========================================
+
+    private static final @NotNull IntXform EMPTY = of(new int[0]);
+
+    /** Returns an empty IntXform. */
+    public static @NotNull IntXform empty() { return EMPTY; }
+
+    /**
+     Returns a IntXform of the given items.  Like {@link Arrays#asList(Object[])}, the array is not
+     copied, so don't change it until you're done with the IntXform.
+     */
+    public static @NotNull IntXform of(int @Nullable ... items) {
+        return (items == null) ? EMPTY : of(items, 0, items.length);
+    }
+
+    /** Returns a IntXform of the items from fromIdx (inclusive) to toIdx (exclusive).  Not copied. */
+    public static @NotNull IntXform of(int @NotNull [] items, int fromIdx, int toIdx) {
+        if ( (fromIdx < 0) || (fromIdx > toIdx) || (toIdx > items.length) ) {
+            throw new IndexOutOfBoundsException("fromIdx=" + fromIdx + " toIdx=" + toIdx +
+                                                " length=" + items.length);
+        }
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                for (int i = fromIdx; i < toIdx; i++) {
+                    if (!sink.accept(items[i])) { return; }
+                }
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                return Arrays.stream(items, fromIdx, toIdx).iterator();
+            }
+        };
+    }
+
+    /** Returns an IntXform of the ints in the range, without boxing any of them. */
+    public static @NotNull IntXform of(@NotNull RangeOfInt range) {
+        int size = range.size();
+        if (size == 0) { return EMPTY; }
+        int start = range.get(0);
+        return range(start, start + size);
+    }
+
+    /** Returns an IntXform of the ints from start (inclusive) to end (exclusive). */
+    public static @NotNull IntXform range(int start, int end) {
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                for (int i = start; i < end; i++) {
+                    if (!sink.accept(i)) { return; }
+                }
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                return IntStream.range(start, end).iterator();
+            }
+        };
+    }
+
+    /**
+     Returns an IntXform of the chars in the sequence (the unboxed version of
+     {@link org.organicdesign.fp.StaticImports#xformChars(CharSequence)}).
+     */
+    public static @NotNull IntXform ofChars(@Nullable CharSequence seq) {
+        if (seq == null) { return EMPTY; }
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                for (int i = 0; i < seq.length(); i++) {
+                    if (!sink.accept(seq.charAt(i))) { return; }
+                }
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() { return seq.chars().iterator(); }
+        };
+    }
+
+    /**
+     Returns a IntXform of f applied to each item of the Xform.  This is the boundary where the
+     pipeline goes from objects to primitives.
+     */
+    public static <A> @NotNull IntXform of(@NotNull Xform<A> xform,
+                                         @NotNull ToIntFunction<? super A> f) {
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                Iterator<A> iter = xform.iterator();
+                try {
+                    while (iter.hasNext()) {
+                        if (!sink.accept(f.applyAsInt(iter.next()))) { return; }
+                    }
+                } finally {
+                    // In case it's reading a file and we stopped early.
+                    Xform.close(iter);
+                }
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                Iterator<A> iter = xform.iterator();
+                return new StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public int nextInt() { return f.applyAsInt(iter.next()); }
+                };
+            }
+        };
+    }
+
+    // ========================================== Stages ==========================================
+
+    /** Returns a IntXform of f applied to each item. */
+    public @NotNull IntXform map(@NotNull IntUnaryOperator f) {
+        IntXform src = this;
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                src.run(i -> sink.accept(f.applyAsInt(i)));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                PrimitiveIterator.OfInt iter = src.iterator();
+                return new StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public int nextInt() { return f.applyAsInt(iter.nextInt()); }
+                };
+            }
+        };
+    }
+
+    /** Returns a IntXform of only the items for which the predicate returns true. */
+    public @NotNull IntXform filter(@NotNull IntPredicate predicate) {
+        IntXform src = this;
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                src.run(i -> !predicate.test(i) || sink.accept(i));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                PrimitiveIterator.OfInt iter = src.iterator();
+                return new StageIter(iter) {
+                    private int next;
+                    private boolean ready = false;
+
+                    @Override public boolean hasNext() {
+                        while (!ready && iter.hasNext()) {
+                            int i = iter.nextInt();
+                            if (predicate.test(i)) {
+                                next = i;
+                                ready = true;
+                            }
+                        }
+                        return ready;
+                    }
+
+                    @Override public int nextInt() {
+                        if (!hasNext()) { throw new NoSuchElementException(); }
+                        ready = false;
+                        return next;
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns a IntXform without its first n items. */
+    public @NotNull IntXform drop(long n) {
+        if (n < 0) { throw new IllegalArgumentException("Can't drop less than zero items."); }
+        if (n == 0) { return this; }
+        IntXform src = this;
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                long[] left = { n };
+                src.run(i -> {
+                    if (left[0] > 0) {
+                        left[0]--;
+                        return true;
+                    }
+                    return sink.accept(i);
+                });
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                PrimitiveIterator.OfInt iter = src.iterator();
+                return new StageIter(iter) {
+                    private long left = n;
+
+                    @Override public boolean hasNext() {
+                        // Skip on the first read, not when the iterator is made.
+                        while ( (left > 0) && iter.hasNext() ) {
+                            iter.nextInt();
+                            left--;
+                        }
+                        return iter.hasNext();
+                    }
+
+                    @Override public int nextInt() {
+                        if (!hasNext()) { throw new NoSuchElementException(); }
+                        return iter.nextInt();
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns a IntXform of at most the first n items.  Stops reading the source after those. */
+    public @NotNull IntXform take(long n) {
+        if (n < 0) { throw new IllegalArgumentException("Num items must be >= 0"); }
+        IntXform src = this;
+        return new IntXform() {
+            @Override void run(@NotNull Sink sink) {
+                if (n == 0) { return; }
+                long[] left = { n };
+                src.run(i -> sink.accept(i) && (--left[0] > 0));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfInt iterator() {
+                PrimitiveIterator.OfInt iter = src.iterator();
+                return new StageIter(iter) {
+                    private long left = n;
+                    @Override public boolean hasNext() { return (left > 0) && iter.hasNext(); }
+                    @Override public int nextInt() {
+                        if (left < 1) { throw new NoSuchElementException(); }
+                        left--;
+                        return iter.nextInt();
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns a LongXform of f applied to each item. */
+    public @NotNull LongXform mapToLong(@NotNull IntToLongFunction f) {
+        IntXform src = this;
+        return new LongXform() {
+            @Override void run(@NotNull LongXform.Sink sink) {
+                src.run(i -> sink.accept(f.applyAsLong(i)));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfLong iterator() {
+                PrimitiveIterator.OfInt iter = src.iterator();
+                return new LongXform.StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public long nextLong() { return f.applyAsLong(iter.nextInt()); }
+                };
+            }
+        };
+    }
+
+    /** Returns a DoubleXform of f applied to each item. */
+    public @NotNull DoubleXform mapToDouble(@NotNull IntToDoubleFunction f) {
+        IntXform src = this;
+        return new DoubleXform() {
+            @Override void run(@NotNull DoubleXform.Sink sink) {
+                src.run(i -> sink.accept(f.applyAsDouble(i)));
+            }
+
+            @Override @NotNull PrimitiveIterator.OfDouble iterator() {
+                PrimitiveIterator.OfInt iter = src.iterator();
+                return new DoubleXform.StageIter(iter) {
+                    @Override public boolean hasNext() { return iter.hasNext(); }
+                    @Override public double nextDouble() { return f.applyAsDouble(iter.nextInt()); }
+                };
+            }
+        };
+    }
+
+    /** Returns an Xform of the items, boxed.  This is where the pipeline starts allocating. */
+    public @NotNull Xform<Integer> boxed() { return mapToObj(i -> i); }
+
+    /**
+     Returns an Xform of f applied to each item.  This is the boundary where the pipeline goes from
+     primitives to objects.  It's still lazy: items are pulled through this pipeline only as the
+     Xform needs them.
+     */
+    public <R> @NotNull Xform<R> mapToObj(@NotNull IntFunction<? extends R> f) {
+        IntXform src = this;
+        return Xform.of(() -> {
+            PrimitiveIterator.OfInt iter = src.iterator();
+            class ObjIter implements Iterator<R>, AutoCloseable {
+                @Override public boolean hasNext() { return iter.hasNext(); }
+                @Override public R next() { return f.apply(iter.nextInt()); }
+                @Override public void close() { Xform.close(iter); }
+            }
+            return new ObjIter();
+        });
+    }
+
+    // ======================================== Terminals ========================================
+
+    /** Combines each item with the result so far, starting with ident. */
+    public int fold(int ident, @NotNull IntBinaryOperator reducer) {
+        int[] ret = { ident };
+        run(i -> {
+            ret[0] = reducer.applyAsInt(ret[0], i);
+            return true;
+        });
+        return ret[0];
+    }
+
+    /** The sum of all the items, as a long so that it doesn't overflow. */
+    public long sum() {
+        long[] ret = { 0 };
+        run(i -> {
+            ret[0] += i;
+            return true;
+        });
+        return ret[0];
+    }
+
+    /** The number of items. */
+    public long count() {
+        long[] ret = { 0 };
+        run(i -> {
+            ret[0]++;
+            return true;
+        });
+        return ret[0];
+    }
+
+    /** The smallest item, or none if there aren't any.  Only the result is boxed. */
+    public @NotNull Option<Integer> min() { return extreme(true); }
+
+    /** The largest item, or none if there aren't any.  Only the result is boxed. */
+    public @NotNull Option<Integer> max() { return extreme(false); }
+
+    private @NotNull Option<Integer> extreme(boolean min) {
+        int[] ret = { 0 };
+        boolean[] found = { false };
+        run(i -> {
+            if (!found[0]) {
+                found[0] = true;
+                ret[0] = i;
+            } else if (min ? (i < ret[0]) : (i > ret[0])) {
+                ret[0] = i;
+            }
+            return true;
+        });
+        return found[0] ? Option.some(ret[0]) : Option.none();
+    }
+
+    /** Returns the first item, or none if there aren't any.  Stops reading after that. */
+    public @NotNull Option<Integer> head() {
+        int[] ret = { 0 };
+        boolean[] found = { false };
+        run(i -> {
+            ret[0] = i;
+            found[0] = true;
+            return false;
+        });
+        return found[0] ? Option.some(ret[0]) : Option.none();
+    }
+
+    /** Returns a new array of all the items. */
+    public int @NotNull [] toArray() {
+        int[][] buf = { new int[16] };
+        int[] size = { 0 };
+        run(i -> {
+            if (size[0] == buf[0].length) {
+                buf[0] = Arrays.copyOf(buf[0], buf[0].length << 1);
+            }
+            buf[0][size[0]++] = i;
+            return true;
+        });
+        return (size[0] == buf[0].length) ? buf[0] : Arrays.copyOf(buf[0], size[0]);
+    }
+}
@@ -39,6 +39,8 @@ import org.organicdesign.fp.collections.PersistentVector;
 import org.organicdesign.fp.collections.RrbTree;
 import org.organicdesign.fp.collections.RrbTree.ImRrbt;
 import org.organicdesign.fp.collections.RrbTree.MutRrbt;
+import org.organicdesign.fp.collections.UnmodMap.UnEntry;
+import org.organicdesign.fp.function.Fn0;
 import org.organicdesign.fp.function.Fn1;
 import org.organicdesign.fp.function.Fn2;
 import org.organicdesign.fp.oneOf.Option;
@@ -69,11 +71,20 @@ public interface Transformable<T> {
      */
     @NotNull Transformable<T> concat(@Nullable Iterable<? extends T> list);
 
+    /**
+     Counts the items that have each key.
+     @param keyFn returns the key for each item.
+     @return an immutable map of each key to the number of items that had it.
+     */
+    default <K> @NotNull ImMap<K,Long> countBy(@NotNull Fn1<? super T,? extends K> keyFn) {
+        return groupBy(keyFn, t -> 1L, Long::sum);
+    }
+
     /**
      Ignore the first n items and return only those that come after.
-     The Xform API is designed to allow dropping items with a single pointer addition if the data
-     source is a List, but that feature is not implemented yet.  For best results, drop as early in
-     your chain of functions as practical.
+     When the data source is an indexed List and only maps come before the drop, Xform drops by
+     slicing the source instead of iterating.  For best results, drop as early in your chain of
+     functions as practical.
      @param numItems the number of items at the beginning of this Transformable to ignore
      @return a Transformable with the specified number of items ignored.
      */
@@ -175,6 +186,77 @@ public interface Transformable<T> {
                             @Nullable Fn2<? super G,? super T,B> terminator,
                             @NotNull Fn2<? super G,? super T,G> reducer);
 
+    /**
+     Groups the items by key.  Items with the same key are listed in the order they came in, even
+     when Xform splits the work across threads (see {@link #parallelFold(Fn0, Fn2, Fn2)}).
+     @param keyFn returns the key for each item.
+     @return an immutable map of each key to the items that had it.
+     */
+    default <K> @NotNull ImMap<K,ImList<T>> groupBy(@NotNull Fn1<? super T,? extends K> keyFn) {
+        Fn0<MutMap<K,MutList<T>>> newMap = PersistentHashMap::emptyMutable;
+        MutMap<K,MutList<T>> groups =
+                parallelFold(newMap,
+                             (m, t) -> {
+                                 K key = keyFn.apply(t);
+                                 MutList<T> group = m.get(key);
+                                 return (group == null)
+                                        ? m.assoc(key, PersistentVector.<T>emptyMutable().append(t))
+                                        : m.assoc(key, group.append(t));
+                             },
+                             (left, right) -> {
+                                 for (UnEntry<K,MutList<T>> entry : right) {
+                                     MutList<T> group = left.get(entry.getKey());
+                                     left = (group == null)
+                                            ? left.assoc(entry.getKey(), entry.getValue())
+                                            : left.assoc(entry.getKey(),
+                                                         group.concat(entry.getValue()));
+                                 }
+                                 return left;
+                             });
+        MutMap<K,ImList<T>> ret = PersistentHashMap.emptyMutable();
+        for (UnEntry<K,MutList<T>> entry : groups) {
+            ret.assoc(entry.getKey(), entry.getValue().immutable());
+        }
+        return ret.immutable();
+    }
+
+    /**
+     Groups the items by key, and combines the values for each key as it goes, so that only one
+     value per key is kept.  For instance, the total salary by department is:
+     <pre><code>employees.groupBy(Employee::dept, Employee::salary, Long::sum)</code></pre>
+     @param keyFn returns the key for each item.
+     @param valFn returns the value for each item.
+     @param reducer combines two values for the same key.  The earlier one is the first argument.
+     When Xform splits the work across threads, it's also used to combine the results for each
+     part, so it must be associative: reducer(reducer(a, b), c) must equal
+     reducer(a, reducer(b, c)).
+     @return an immutable map of each key to the combined value of the items that had it.
+     */
+    default <K,V> @NotNull ImMap<K,V> groupBy(@NotNull Fn1<? super T,? extends K> keyFn,
+                                              @NotNull Fn1<? super T,? extends V> valFn,
+                                              @NotNull Fn2<? super V,? super V,? extends V> reducer) {
+        Fn2<MutMap<K,V>,MutMap<K,V>,MutMap<K,V>> merge = (left, right) -> {
+            for (UnEntry<K,V> entry : right) {
+                K key = entry.getKey();
+                left = left.containsKey(key)
+                       ? left.assoc(key, reducer.apply(left.get(key), entry.getValue()))
+                       : left.assoc(key, entry.getValue());
+            }
+            return left;
+        };
+        Fn0<MutMap<K,V>> newMap = PersistentHashMap::emptyMutable;
+        return parallelFold(newMap,
+                            (MutMap<K,V> m, T t) -> {
+                                K key = keyFn.apply(t);
+                                V val = valFn.apply(t);
+                                return m.containsKey(key)
+                                       ? m.assoc(key, reducer.apply(m.get(key), val))
+                                       : m.assoc(key, val);
+                            },
+                            merge)
+                .immutable();
+    }
+
     /**
      Transform each item into exactly one new item using the given function.
      @param func a function that returns a new value for any value in the input
@@ -183,6 +265,45 @@ public interface Transformable<T> {
      */
     <U> @NotNull Transformable<U> map(@NotNull Fn1<? super T,? extends U> func);
 
+    /**
+     Like {@link #fold(Object, Fn2)}, but Xform may split the items into parts, fold each part on
+     a different thread of the {@link java.util.concurrent.ForkJoinPool#commonPool()}, then
+     combine the results.  It only does that when the source is a large indexed list (an
+     {@link org.organicdesign.fp.collections.UnmodList} or a RandomAccess java.util.List) and
+     every step of the transform treats each item on its own (filter, map, and flatMap, but not
+     drop, take, or their while-versions).  Otherwise, this is a plain fold.  So the functions
+     you pass to the transform and to this method may be called from several threads at once.
+
+     @param newAccum makes a new, empty accumulator for each part.  This is usually a mutable
+     collection, such as {@link PersistentHashMap#emptyMutable()}.
+     @param reducer combines each item with the accumulator for its part.  It may change the
+     accumulator, since each part has its own.
+     @param combiner combines the accumulators of two neighboring parts.  The earlier part is the
+     first argument.
+     @return the combined result of all the parts.
+     */
+    default <M> M parallelFold(@NotNull Fn0<? extends M> newAccum,
+                               @NotNull Fn2<? super M,? super T,? extends M> reducer,
+                               @NotNull Fn2<? super M,? super M,? extends M> combiner) {
+        return fold(newAccum.apply(), reducer::apply);
+    }
+
+    /**
+     Splits the items into those that match the predicate, and those that don't.
+     @param predicate returns true for items that go in the true list.
+     @return an immutable map with two keys, true and false, each mapped to the list of items for
+     which the predicate returned that value (possibly an empty list).
+     */
+    default @NotNull ImMap<Boolean,ImList<T>> partitionBy(@NotNull Fn1<? super T,Boolean> predicate) {
+        ImMap<Boolean,ImList<T>> ret = groupBy(predicate);
+        for (Boolean key : new Boolean[] { Boolean.TRUE, Boolean.FALSE }) {
+            if (!ret.containsKey(key)) {
+                ret = ret.assoc(key, PersistentVector.empty());
+            }
+        }
+        return ret;
+    }
+
     /**
      Add items to the beginning of this Transformable ("precat" is a PREpending version of conCAT).
      @param list the items to add
@@ -17,13 +17,47 @@ package org.organicdesign.fp.xform;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.organicdesign.fp.StaticImports;
+import org.organicdesign.fp.collections.ImList;
+import org.organicdesign.fp.collections.PersistentHashSet;
+import org.organicdesign.fp.collections.PersistentVector;
 import org.organicdesign.fp.collections.UnmodIterable;
+import org.organicdesign.fp.collections.RrbTree.ImRrbt;
 import org.organicdesign.fp.collections.UnmodIterator;
+import org.organicdesign.fp.collections.UnmodList;
+import org.organicdesign.fp.function.Fn0;
 import org.organicdesign.fp.function.Fn1;
 import org.organicdesign.fp.function.Fn2;
+import org.organicdesign.fp.oneOf.Option;
 import org.organicdesign.fp.oneOf.Or;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  An immutable description of operations to be performed (a transformation, transform, or x-form).
@@ -50,8 +84,8 @@ public abstract class Xform<A> implements UnmodIterable<A> {
     enum OpStrategy { HANDLE_INTERNALLY, ASK_SUPPLIER, CANNOT_HANDLE }
 
     private static final @NotNull Object TERMINATE = new Object();
-    @SuppressWarnings("unchecked")
-    private @NotNull A terminate() { return (A) TERMINATE; }
+    // Returned by a FusedOp's map when one of its filters rejected the item.
+    private static final @NotNull Object SKIP = new Object();
 
     /**
      * These are mutable operations that the transform carries out when it is run.  This is like the
@@ -84,6 +118,26 @@ public abstract class Xform<A> implements UnmodIterable<A> {
          */
         public @NotNull OpStrategy take(long num) { return OpStrategy.CANNOT_HANDLE; }
 
+        /**
+         True once this operation will never let another item through (a take that has taken all
+         it's going to).  Checked right after the map function, so that nothing more is read from
+         the source just to find out that it would be thrown away.
+         */
+        boolean isSpent() { return false; }
+
+        /**
+         True for plain filters and maps, which can be combined with their neighbors into a single
+         FusedOp once all the drops and takes have been placed.
+         */
+        boolean isFusible() { return false; }
+
+        /**
+         True when this operation treats each item on its own, keeping nothing from one item to the
+         next, so that parallelFold() can send different parts of the source through it on
+         different threads at once.
+         */
+        boolean isPerItem() { return false; }
+
         /**
          We need to model this as a separate op for when the previous op is CANNOT_HANDLE.  It is
          coded as a filter, but still needs to be modeled separately so that subsequent drops can be
@@ -109,12 +163,59 @@ public abstract class Xform<A> implements UnmodIterable<A> {
             }
         }
 
+        /**
+         A filter that lets each item through the first time it's seen.  Remembers what it has
+         seen in a transient hash set, so it holds one entry per distinct item.
+         */
+        private static final class DistinctOp extends Operation {
+            private final @NotNull PersistentHashSet.MutHashSet<Object> seen =
+                    PersistentHashSet.emptyMutable();
+
+            DistinctOp() {
+                filter = o -> {
+                    int before = seen.size();
+                    seen.put(o);
+                    return seen.size() > before;
+                };
+            }
+            @Override boolean isFusible() { return true; }
+        }
+
+        /**
+         A filter that drops items until the predicate first returns false, then lets everything
+         through.  Unlike a FilterOp, it remembers whether it's done dropping.
+         */
+        private static final class DropWhileOp extends Operation {
+            // Starts out active (meaning dropping items until the inner function returns false).
+            // Once the inner function returns false, switches into passive mode in which the
+            // filter always returns true.
+            private boolean active = true;
+
+            DropWhileOp(Fn1<Object,Boolean> predicate) {
+                filter = o -> {
+                    if (!active) {
+                        return Boolean.TRUE;
+                    }
+                    if (predicate.apply(o)) {
+                        return Boolean.FALSE;
+                    }
+                    active = false;
+                    return Boolean.TRUE;
+                };
+            }
+            @Override boolean isFusible() { return true; }
+        }
+
         private static final class FilterOp extends Operation {
             FilterOp(Fn1<Object,Boolean> func) { filter = func; }
+            @Override boolean isFusible() { return true; }
+            @Override boolean isPerItem() { return true; }
         }
 
         private static final class MapOp extends Operation {
             MapOp(Fn1 func) { map = func; }
+            @Override boolean isFusible() { return true; }
+            @Override boolean isPerItem() { return true; }
             @Override
             public @NotNull Or<Long,OpStrategy> drop(long num) {
                 return Or.bad(OpStrategy.ASK_SUPPLIER);
@@ -123,6 +224,20 @@ public abstract class Xform<A> implements UnmodIterable<A> {
             public @NotNull OpStrategy take(long num) { return OpStrategy.ASK_SUPPLIER; }
         }
 
+        /**
+         A takeWhile is coded as a map that returns TERMINATE when the predicate fails.  Unlike
+         other maps, a drop can't be moved ahead of it: takeWhile(p).drop(2) would see different
+         items than drop(2).takeWhile(p).  A take can.
+         */
+        private static final class TakeWhileOp extends Operation {
+            TakeWhileOp(Fn1<Object,Boolean> predicate) {
+                map = a -> predicate.apply(a) ? a : TERMINATE;
+            }
+            @Override
+            public @NotNull OpStrategy take(long num) { return OpStrategy.ASK_SUPPLIER; }
+            @Override boolean isFusible() { return true; }
+        }
+
         // TODO: FlatMap should drop and take internally using addition/subtraction on each output
         // TODO: list instead of testing each list item individually.
         private static final class FlatMapOp extends Operation {
@@ -130,6 +245,7 @@ public abstract class Xform<A> implements UnmodIterable<A> {
 //            int numToDrop = 0;
 
             FlatMapOp(Fn1<Object,Iterable> func) { flatMap = func; }
+            @Override boolean isPerItem() { return true; }
         }
 
         /**
@@ -162,6 +278,58 @@ public abstract class Xform<A> implements UnmodIterable<A> {
                 }
                 return OpStrategy.HANDLE_INTERNALLY;
             }
+
+            @Override boolean isSpent() { return numToTake < 1; }
+        }
+
+        /**
+         A run of adjacent filters and maps, compiled into one operation so that _fold() checks
+         and calls one op per item instead of one per stage.  Any filters at the start of the run
+         are combined into this op's filter.  The rest become a single chain of map functions,
+         where a filter returns SKIP instead of calling the next stage, and a TERMINATE from a map
+         (takeWhile) is passed straight out without calling the next stage.
+         */
+        static final class FusedOp extends Operation {
+            FusedOp(@NotNull List<Operation> ops) {
+                int i = 0;
+                while ( (i < ops.size()) && (ops.get(i).map == null) ) {
+                    Fn1<Object,Boolean> f = ops.get(i).filter;
+                    filter = (filter == null) ? f : andFilter(filter, f);
+                    i++;
+                }
+                Fn1 stage = null;
+                for (int k = ops.size() - 1; k >= i; k--) {
+                    Operation op = ops.get(k);
+                    stage = (op.map == null) ? filterStage(op.filter, stage)
+                                             : mapStage(op.map, stage);
+                }
+                map = stage;
+            }
+
+            private static @NotNull Fn1<Object,Boolean> andFilter(@NotNull Fn1<Object,Boolean> f,
+                                                                  @NotNull Fn1<Object,Boolean> g) {
+                return o -> f.apply(o) && g.apply(o);
+            }
+
+            @SuppressWarnings("unchecked")
+            private static @NotNull Fn1 filterStage(@NotNull Fn1<Object,Boolean> f,
+                                                    @Nullable Fn1 next) {
+                if (next == null) {
+                    return o -> f.apply(o) ? o : SKIP;
+                }
+                return o -> f.apply(o) ? next.apply(o) : SKIP;
+            }
+
+            @SuppressWarnings("unchecked")
+            private static @NotNull Fn1 mapStage(@NotNull Fn1 f, @Nullable Fn1 next) {
+                if (next == null) {
+                    return f;
+                }
+                return o -> {
+                    Object ret = f.apply(o);
+                    return (ret == TERMINATE) ? ret : next.apply(ret);
+                };
+            }
         }
     } // end class Operation
 
@@ -178,42 +346,92 @@ public abstract class Xform<A> implements UnmodIterable<A> {
      wrapping or casting.
      */
     protected static class RunList implements Iterable {
-        final Iterable source;
+        // Not final so that a drop or take can replace it with a slice of itself.
+        Iterable source;
         final List<Operation> list = new ArrayList<>();
 //        RunList next = null;
         final RunList prev;
 
         private RunList(RunList prv, Iterable src) { prev = prv; source = src; }
 
+        /** The operations to run, with each run of adjacent filters and maps fused into one. */
         @NotNull Operation @NotNull [] opArray() {
-            return list.toArray(new Operation[0]);
+            List<Operation> ret = new ArrayList<>(list.size());
+            int i = 0;
+            while (i < list.size()) {
+                int end = i + 1;
+                if (list.get(i).isFusible()) {
+                    while ( (end < list.size()) && list.get(end).isFusible() ) {
+                        end++;
+                    }
+                }
+                ret.add((end - i == 1) ? list.get(i)
+                                       : new Operation.FusedOp(list.subList(i, end)));
+                i = end;
+            }
+            return ret.toArray(new Operation[0]);
         }
         @Override public @NotNull Iterator iterator() { return source.iterator(); }
+
+        /**
+         Returns the source if it's a list that can be sliced without iterating it (any UnmodList,
+         or a RandomAccess java.util.List), otherwise null.  A RunList with a previous part (a
+         concat) has more items than just its source, so it never can.
+         */
+        private @Nullable List indexedSource() {
+            if ( (prev != null) || !(source instanceof List) ) {
+                return null;
+            }
+            return ( (source instanceof UnmodList) || (source instanceof RandomAccess) )
+                   ? (List) source
+                   : null;
+        }
+
+        private static @NotNull Iterable slice(@NotNull List list, int from, int to) {
+            if ( (from == 0) && (to == list.size()) ) {
+                return list;
+            }
+            if (list instanceof ImRrbt) {
+                // O(log n) and the result iterates as fast as any RrbTree.
+                ImRrbt tree = (ImRrbt) list;
+                if (to < tree.size()) {
+                    tree = (ImRrbt) tree.split(to)._1();
+                }
+                return (from > 0) ? (ImRrbt) tree.split(from)._2() : tree;
+            }
+            return list.subList(from, to);
+        }
+
+        /** Drops from an indexed source by slicing it.  False if the source isn't indexed. */
+        boolean dropFromSource(long num) {
+            List list = indexedSource();
+            if (list == null) { return false; }
+            int size = list.size();
+            source = slice(list, (int) Math.min(num, size), size);
+            return true;
+        }
+
+        /** Takes from an indexed source by slicing it.  False if the source isn't indexed. */
+        boolean takeFromSource(long num) {
+            List list = indexedSource();
+            if (list == null) { return false; }
+            source = slice(list, 0, (int) Math.min(num, list.size()));
+            return true;
+        }
     }
 
     /**
-     When iterator() is called, the AppendOp processes the previous source and operation into
-     an ArrayList.  Then yields an iterator that yield the result of that operation until it runs
-     out.  Then continues to yield the appended items until they run out, at which point hasNext()
-     returns false;
+     When iterator() is called, the AppendOp yields the items of the previous source and operations
+     one at a time until they run out.  Then continues to yield the appended items until they run
+     out, at which point hasNext() returns false;
      */
     private static final class AppendOp extends RunList {
         private AppendOp(RunList prv, Iterable src) { super(prv, src); }
 
         @Override
         public @NotNull Iterator iterator() {
-            @SuppressWarnings("Convert2Lambda")
-            ArrayList prevSrc = _fold(prev, prev.opArray(), 0, new ArrayList(),
-                                      new Fn2<ArrayList,Object,ArrayList>() {
-                                          @SuppressWarnings("unchecked")
-                                          @Override
-                                          public @NotNull ArrayList applyEx(@NotNull ArrayList res, Object item) {
-                                              res.add(item);
-                                              return res;
-                                          }
-                                      });
-            return new Iterator() {
-                @NotNull Iterator innerIter = prevSrc.iterator();
+            class AppendIter implements Iterator, AutoCloseable {
+                @NotNull Iterator innerIter = new RunIter(prev);
                 boolean usingPrevSrc = true;
                 /** {@inheritDoc} */
                 @Override public boolean hasNext() {
@@ -221,18 +439,115 @@ public abstract class Xform<A> implements UnmodIterable<A> {
                         return true;
                     } else if (usingPrevSrc) {
                         usingPrevSrc = false;
+                        Xform.close(innerIter);
                         innerIter = source.iterator();
                     }
                     return innerIter.hasNext();
                 }
 
+                @Override public void close() { Xform.close(innerIter); }
+
                 @Override public Object next() {
+                    // Make sure we've moved on to the appended source if the previous one is done.
+                    hasNext();
                     return innerIter.next();
                 }
-            };
+            }
+            return new AppendIter();
         } // end iterator()
     }
 
+    /**
+     The pull-based counterpart of _fold(): runs each source item through the operations only when
+     the consumer asks for the next result.  Each flatMap pushes an iterator over its output, along
+     with the index of the operation after the flatMap, onto a stack.  So memory use is bounded by
+     the flatMap nesting, and no work is done past the last item the consumer pulled.
+     */
+    private static final class RunIter implements UnmodIterator, AutoCloseable {
+        private static final class Frame {
+            final @NotNull Iterator iter;
+            final int opIdx;
+            Frame(@NotNull Iterator i, int idx) { iter = i; opIdx = idx; }
+        }
+
+        private final @NotNull Operation @NotNull [] ops;
+        private final @NotNull ArrayDeque<Frame> stack = new ArrayDeque<>();
+        private Object next;
+        // Whether next holds an item that hasn't been returned yet.
+        private boolean ready = false;
+        // Index of the last spent operation.  Frames that feed it must not be read any more.
+        private int spentIdx = -1;
+
+        RunIter(@NotNull RunList runList) {
+            ops = runList.opArray();
+            stack.push(new Frame(runList.iterator(), 0));
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override public boolean hasNext() {
+            if (ready) { return true; }
+
+            frameLoop:
+            while (!stack.isEmpty()) {
+                Frame frame = stack.peek();
+                if (frame.opIdx <= spentIdx) {
+                    close();
+                    return false;
+                }
+                if (!frame.iter.hasNext()) {
+                    Xform.close(stack.pop().iter);
+                    continue;
+                }
+                Object o = frame.iter.next();
+                for (int j = frame.opIdx; j < ops.length; j++) {
+                    @NotNull Operation op = ops[j];
+                    if ( (op.filter != null) && !op.filter.apply(o) ) {
+                        continue frameLoop;
+                    }
+                    if (op.map != null) {
+                        o = op.map.apply(o);
+                        if (o == TERMINATE) {
+                            // Nothing after this point can produce any more items.
+                            close();
+                            return false;
+                        }
+                        if (o == SKIP) {
+                            continue frameLoop;
+                        }
+                        if (op.isSpent()) {
+                            spentIdx = j;
+                        }
+                    } else if (op.flatMap != null) {
+                        stack.push(new Frame(op.flatMap.apply(o).iterator(), j + 1));
+                        continue frameLoop;
+                    }
+                }
+                next = o;
+                ready = true;
+                return true;
+            }
+            return false;
+        }
+
+        @Override public Object next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            ready = false;
+            Object ret = next;
+            next = null;
+            return ret;
+        }
+
+        /**
+         Closes every source (including those of flatMaps) that's still open.  Called when this
+         runs out of items, or when the fold reading it stops early.
+         */
+        @Override public void close() {
+            while (!stack.isEmpty()) {
+                Xform.close(stack.pop().iter);
+            }
+        }
+    }
+
     /** Describes a concat() operation, but does not perform it. */
     private static final class AppendIterDesc<T> extends Xform<T> {
         final Xform<T> src;
@@ -245,13 +560,23 @@ public abstract class Xform<A> implements UnmodIterable<A> {
         }
     }
 
+    /** Describes a distinct() operation (implemented as a filter), but does not perform it. */
+    private static final class DistinctDesc<T> extends Xform<T> {
+        DistinctDesc(Xform<T> prev) { super(prev); }
+
+        @Override
+        protected @NotNull RunList toRunList() {
+            RunList ret = prevOp.toRunList();
+            ret.list.add(new Operation.DistinctOp());
+            return ret;
+        }
+    }
+
     /**
      Describes a "drop" operation.  Drops will be pushed as early in the operation-list as possible,
-     ideally being done using one-time pointer addition on the source.
-
-     I have working source-pointer-addition code, but it added a fair amount of complexity to
-     implement it for Lists and arrays, but not for Iterables in general, so it is not currently
-     (2015-08-21) part of this implementation.
+     ideally being done using one-time pointer addition on the source.  That happens when every
+     earlier op is a map (which asks its supplier) and the source is an indexed list, which is
+     then sliced (see RunList.dropFromSource()).
 
      When source-pointer-addition is not possible, a Drop op-code is created (implemented as a
      filter function).  Subsequent drop ops will be combined into the earliest drop (for speed).
@@ -279,6 +604,10 @@ public abstract class Xform<A> implements UnmodIterable<A> {
                     return ret;
                 }
             }
+            // Every op (if any) asked its supplier, so ask the source.
+            if ( (i < 0) && ret.dropFromSource(dropAmt) ) {
+                return ret;
+            }
 //            if ( !Or.bad(OpStrategy.CANNOT_HANDLE).equals(earlierDs) && (i <= 0) ) {
 //                Or<Long,OpStrategy> srcDs = ret.source.drop(dropAmt);
 //                if (srcDs.isGood()) {
@@ -304,25 +633,11 @@ public abstract class Xform<A> implements UnmodIterable<A> {
 
         DropWhileDesc(Xform<T> prev, Fn1<? super T,Boolean> func) { super(prev); f = func; }
 
+        @SuppressWarnings("unchecked")
         @Override
         protected @NotNull RunList toRunList() {
             RunList ret = prevOp.toRunList();
-            ret.list.add(new Operation.FilterOp(new Fn1<>() {
-                // Starts out active (meaning dropping items until the inner function returns true).
-                // Once inner function returns true, switches into passive mode in which this (outer)
-                // function always returns true.
-                // There are probably more efficient ways to do this, but I'm going for correct first.
-                private boolean active = true;
-                @Override public Boolean applyEx(Object o) {
-                    if (!active) {
-                        return true;
-                    }
-                    @SuppressWarnings("unchecked")
-                    boolean ret = ! ((Fn1<Object, Boolean>) f).apply(o);
-                    if (ret) { active = false; }
-                    return ret;
-                }
-            }));
+            ret.list.add(new Operation.DropWhileOp((Fn1<Object,Boolean>) f));
             return ret;
         }
     }
@@ -372,6 +687,21 @@ public abstract class Xform<A> implements UnmodIterable<A> {
         }
     }
 
+    /** Describes a takeWhile() operation (implemented as a map), but does not perform it. */
+    private static final class TakeWhileDesc<T> extends Xform<T> {
+        final Fn1<? super T,Boolean> f;
+
+        TakeWhileDesc(Xform<T> prev, Fn1<? super T,Boolean> func) { super(prev); f = func; }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected @NotNull RunList toRunList() {
+            RunList ret = prevOp.toRunList();
+            ret.list.add(new Operation.TakeWhileOp((Fn1<Object,Boolean>) f));
+            return ret;
+        }
+    }
+
     /**
      Describes a "take" operation, but does not perform it.  Takes will be pushed as early in the
      operation-list as possible, ideally being done using one-time pointer addition on the source.
@@ -401,6 +731,10 @@ public abstract class Xform<A> implements UnmodIterable<A> {
                     return ret;
                 }
             }
+            // Every op (if any) asked its supplier, so ask the source.
+            if ( (i < 0) && ret.takeFromSource(take) ) {
+                return ret;
+            }
 //            if ( (earlierTs != OpStrategy.CANNOT_HANDLE) && (i <= 0) ) {
 //                OpStrategy srcDs = ret.source.take(take);
 //                if (srcDs == OpStrategy.HANDLE_INTERNALLY) {
@@ -415,6 +749,279 @@ public abstract class Xform<A> implements UnmodIterable<A> {
         }
     }
 
+    /**
+     Describes a mapAsync() or mapAsyncUnordered() operation, but does not perform it.  When run,
+     it reads the items before it lazily through their iterator, keeping up to maxConcurrency of
+     them in the executor at once.
+     */
+    private static final class MapAsyncDesc<T,U> extends Xform<U> {
+        private final @NotNull Fn1<? super T,? extends U> f;
+        private final int maxConcurrency;
+        private final @NotNull Executor executor;
+        private final boolean ordered;
+
+        MapAsyncDesc(Xform<T> prev, @NotNull Fn1<? super T,? extends U> func, int max,
+                     @NotNull Executor exec, boolean ord) {
+            super(prev);
+            f = func;
+            maxConcurrency = max;
+            executor = exec;
+            ordered = ord;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected @NotNull RunList toRunList() {
+            Xform<T> prev = prevOp;
+            return new RunList(null, () -> new MapAsyncIter<>(prev.iterator(), f, maxConcurrency,
+                                                              executor, ordered));
+        }
+    }
+
+    /**
+     Submits f of each source item to the executor, up to maxConcurrency at a time, and returns
+     the results either in source order or as they finish.  Only the thread doing the fold reads
+     the source.  If the fold stops early, the tasks still running are left to finish and their
+     results are thrown away.
+     */
+    private static final class MapAsyncIter<T,U> implements UnmodIterator<U>, AutoCloseable {
+        private final @NotNull Iterator<T> source;
+        private final @NotNull Fn1<? super T,? extends U> f;
+        private final int maxConcurrency;
+        private final @NotNull Executor executor;
+        private final boolean ordered;
+        // Submitted tasks, in source order.  Only used when ordered.
+        private final @NotNull ArrayDeque<Future<U>> pending = new ArrayDeque<>();
+        // Finished tasks, in the order they finished.  Only used when unordered.
+        private final @NotNull LinkedBlockingQueue<Future<U>> finished =
+                new LinkedBlockingQueue<>();
+        private int inFlight = 0;
+
+        MapAsyncIter(@NotNull Iterator<T> src, @NotNull Fn1<? super T,? extends U> func, int max,
+                     @NotNull Executor exec, boolean ord) {
+            source = src; f = func; maxConcurrency = max; executor = exec; ordered = ord;
+        }
+
+        private void fill() {
+            while ( (inFlight < maxConcurrency) && source.hasNext() ) {
+                T item = source.next();
+                FutureTask<U> task = new FutureTask<U>(() -> f.apply(item)) {
+                    @Override protected void done() {
+                        if (!ordered) {
+                            finished.add(this);
+                        }
+                    }
+                };
+                executor.execute(task);
+                if (ordered) {
+                    pending.add(task);
+                }
+                inFlight++;
+            }
+        }
+
+        @Override public boolean hasNext() {
+            fill();
+            return inFlight > 0;
+        }
+
+        @Override public U next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            try {
+                Future<U> next = ordered ? pending.remove() : finished.take();
+                U ret;
+                try {
+                    ret = next.get();
+                } finally {
+                    inFlight--;
+                }
+                fill();
+                return ret;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for mapAsync", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+                if (cause instanceof Error) { throw (Error) cause; }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        /** Closes the source.  Calls that are already running are left to finish. */
+        @Override public void close() { Xform.close(source); }
+    }
+
+    // Threads for mapAsync() when no executor is given.  Made on first use.  Idle threads exit
+    // after a minute.  Daemon threads, so that they never keep the JVM running.
+    private static final class AsyncExecutor {
+        private static final AtomicInteger threadNum = new AtomicInteger();
+        static final @NotNull ExecutorService INSTANCE = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "Xform-mapAsync-" + threadNum.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     Describes a sortedBy() operation, but does not perform it.  When run, it folds everything
+     before it into a list, sorts that, and makes it the source for everything after it.
+     */
+    private static final class SortedDesc<T> extends Xform<T> {
+        private final @NotNull Comparator<? super T> comp;
+
+        SortedDesc(Xform<T> prev, @NotNull Comparator<? super T> c) { super(prev); comp = c; }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected @NotNull RunList toRunList() {
+            Xform<T> prev = prevOp;
+            return new RunList(null, () -> {
+                List<T> items = prev.fold(new ArrayList<>(), (list, t) -> {
+                    list.add(t);
+                    return list;
+                });
+                items.sort(comp);
+                return items.iterator();
+            });
+        }
+    }
+
+    /**
+     Describes a topK() operation, but does not perform it.  When run, it folds everything before
+     it into a heap that never holds more than k items, then makes the sorted contents of the
+     heap the source for everything after it.
+     */
+    private static final class TopKDesc<T> extends Xform<T> {
+        private final int k;
+        private final @NotNull Comparator<? super T> comp;
+
+        TopKDesc(Xform<T> prev, int k, @NotNull Comparator<? super T> c) {
+            super(prev);
+            this.k = k;
+            comp = c;
+        }
+
+        // An item and the order it came in, so that equal items come out in that order, just like
+        // they would from sortedBy().take(k).
+        private static final class Ranked<T> {
+            final T item;
+            final long seq;
+            Ranked(T t, long s) { item = t; seq = s; }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected @NotNull RunList toRunList() {
+            Xform<T> prev = prevOp;
+            Comparator<Ranked<T>> ranked = (a, b) -> {
+                int ret = comp.compare(a.item, b.item);
+                return (ret != 0) ? ret : Long.compare(a.seq, b.seq);
+            };
+            return new RunList(null, () -> {
+                if (k == 0) { return Collections.emptyIterator(); }
+                // The head of the heap is the last of the k best so far: the one to replace.
+                PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(k, ranked.reversed());
+                long[] seq = { 0 };
+                prev.fold(heap, (h, t) -> {
+                    Ranked<T> r = new Ranked<>(t, seq[0]++);
+                    if (h.size() < k) {
+                        h.add(r);
+                    } else if (ranked.compare(r, h.peek()) < 0) {
+                        h.poll();
+                        h.add(r);
+                    }
+                    return h;
+                });
+                List<Ranked<T>> best = new ArrayList<>(heap);
+                best.sort(ranked);
+                List<T> ret = new ArrayList<>(best.size());
+                for (Ranked<T> r : best) {
+                    ret.add(r.item);
+                }
+                return ret.iterator();
+            });
+        }
+    }
+
+    /**
+     Describes a window() or chunk() operation, but does not perform it.  When run, it reads
+     the items before it lazily through their iterator, holding no more than one window at a time.
+     */
+    private static final class WindowDesc<T> extends Xform<ImList<T>> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+
+        WindowDesc(Xform<T> prev, int size, int step, boolean partial) {
+            super(prev);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected @NotNull RunList toRunList() {
+            Xform<T> prev = prevOp;
+            return new RunList(null, () -> new WindowIter<>(prev.iterator(), size, step, partial));
+        }
+    }
+
+    private static final class WindowIter<T> implements UnmodIterator<ImList<T>>, AutoCloseable {
+        private final @NotNull Iterator<T> source;
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private final @NotNull List<T> buffer = new ArrayList<>();
+        // Items to skip before the next window, when the step is bigger than the size.
+        private int toSkip = 0;
+        private @Nullable ImList<T> next = null;
+        private boolean done = false;
+
+        WindowIter(@NotNull Iterator<T> src, int sz, int stp, boolean prtl) {
+            source = src; size = sz; step = stp; partial = prtl;
+        }
+
+        @Override public boolean hasNext() {
+            if ( (next == null) && !done ) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override public ImList<T> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            ImList<T> ret = next;
+            next = null;
+            return ret;
+        }
+
+        private @Nullable ImList<T> advance() {
+            while ( (toSkip > 0) && source.hasNext() ) {
+                source.next();
+                toSkip--;
+            }
+            while ( (buffer.size() < size) && source.hasNext() ) {
+                buffer.add(source.next());
+            }
+            if (buffer.size() < size) {
+                done = true;
+                return (partial && !buffer.isEmpty()) ? PersistentVector.ofIter(buffer) : null;
+            }
+            ImList<T> ret = PersistentVector.ofIter(buffer);
+            if (step >= size) {
+                buffer.clear();
+                toSkip = step - size;
+            } else {
+                buffer.subList(0, step).clear();
+            }
+            return ret;
+        }
+
+        @Override public void close() { Xform.close(source); }
+    }
+
     static final class SourceProviderIterableDesc<T> extends Xform<T> {
         private final Iterable<? extends T> list;
         SourceProviderIterableDesc(Iterable<? extends T> l) { super(null); list = l; }
@@ -443,6 +1050,148 @@ public abstract class Xform<A> implements UnmodIterable<A> {
         return new SourceProviderIterableDesc<>(list);
     }
 
+    /**
+     Reads one item at a time from a resource (like a file) that it opens on the first hasNext()
+     and closes when it runs out of items, or when close() is called because the fold reading it
+     stopped early.  IOExceptions are thrown as UncheckedIOExceptions.
+     */
+    private static abstract class ResourceIter<T> implements UnmodIterator<T>, AutoCloseable {
+        private @Nullable Closeable resource = null;
+        private boolean finished = false;
+        private @Nullable T next = null;
+
+        /** Opens the resource.  Only called once. */
+        abstract @NotNull Closeable open() throws IOException;
+
+        /** Reads the next item, or returns null if there aren't any more. */
+        abstract @Nullable T read() throws IOException;
+
+        @Override public boolean hasNext() {
+            if (next != null) { return true; }
+            if (finished) { return false; }
+            try {
+                if (resource == null) {
+                    resource = open();
+                }
+                next = read();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            if (next == null) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override public T next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            T ret = next;
+            next = null;
+            return ret;
+        }
+
+        @Override public void close() {
+            finished = true;
+            next = null;
+            if (resource != null) {
+                Closeable r = resource;
+                resource = null;
+                try {
+                    r.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     Returns an Xform of the lines of a text file.  The file is opened each time the Xform is run,
+     read one line at a time, and closed when the lines run out or the fold stops early (because
+     of a take(), takeWhile(), foldUntil(), and so on).  So it only holds one line in memory at a
+     time, no matter how big the file is.  If you use {@link #iterator()} instead of a fold, the
+     file is closed when the iterator runs out, but stays open if you stop before then, so prefer
+     take() or foldUntil() for stopping early.
+     @param path the file to read.
+     @param charset the encoding of the file.
+     */
+    public static @NotNull Xform<String> lines(@NotNull Path path, @NotNull Charset charset) {
+        return of(() -> new ResourceIter<String>() {
+            private BufferedReader reader;
+
+            @Override @NotNull Closeable open() throws IOException {
+                reader = Files.newBufferedReader(path, charset);
+                return reader;
+            }
+
+            @Override @Nullable String read() throws IOException { return reader.readLine(); }
+        });
+    }
+
+    /** Returns an Xform of the lines of a UTF-8 text file.  See {@link #lines(Path, Charset)}. */
+    public static @NotNull Xform<String> lines(@NotNull Path path) {
+        return lines(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     Returns an Xform of the fixed-size records of a binary file, as a new byte array for each.
+     If the file size isn't a multiple of recordSize, the last record is shorter.  The file is
+     opened and closed the same way as {@link #lines(Path, Charset)}.
+     @param path the file to read.
+     @param recordSize the number of bytes in each record.
+     */
+    public static @NotNull Xform<byte[]> records(@NotNull Path path, int recordSize) {
+        if (recordSize < 1) { throw new IllegalArgumentException("recordSize must be > 0"); }
+        return of(() -> new ResourceIter<byte[]>() {
+            private InputStream in;
+
+            @Override @NotNull Closeable open() throws IOException {
+                in = new BufferedInputStream(Files.newInputStream(path),
+                                             Math.max(8192, recordSize));
+                return in;
+            }
+
+            @Override byte @Nullable [] read() throws IOException {
+                byte[] ret = in.readNBytes(recordSize);
+                return (ret.length == 0) ? null : ret;
+            }
+        });
+    }
+
+    /**
+     Returns an Xform of read-only, memory-mapped chunks of a file, each chunkSize bytes long
+     except maybe the last.  The operating system pages each chunk in as it's read, so this is
+     the fastest way to scan a big file without copying it onto the heap.  The file is opened and
+     closed the same way as {@link #lines(Path, Charset)}.  Closing the file doesn't unmap the
+     chunks: each one stays readable until it's garbage collected.
+     @param path the file to map.
+     @param chunkSize the number of bytes in each chunk.
+     */
+    public static @NotNull Xform<ByteBuffer> mappedChunks(@NotNull Path path, int chunkSize) {
+        if (chunkSize < 1) { throw new IllegalArgumentException("chunkSize must be > 0"); }
+        return of(() -> new ResourceIter<ByteBuffer>() {
+            private FileChannel channel;
+            private long size;
+            private long position = 0;
+
+            @Override @NotNull Closeable open() throws IOException {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+                size = channel.size();
+                return channel;
+            }
+
+            @Override @Nullable ByteBuffer read() throws IOException {
+                if (position >= size) { return null; }
+                long len = Math.min(chunkSize, size - position);
+                ByteBuffer ret = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+                position += len;
+                return ret;
+            }
+        });
+    }
+
     // ========================================= Instance =========================================
 
     // Fields
@@ -452,6 +1201,107 @@ public abstract class Xform<A> implements UnmodIterable<A> {
     // Constructor
     Xform(Xform pre) { prevOp = pre; }
 
+    /**
+     The mutable state of one fold() or foldUntil().  It's shared by the nested _fold() calls that
+     flatMap makes, so that stopping inside one stops them all.
+     */
+    private static final class FoldRun {
+        // From foldUntil().  Null for fold().
+        final @Nullable Fn2 terminator;
+        // Set when nothing more should be read from any source.
+        boolean done = false;
+        // What the terminator returned, if it stopped the fold.
+        Object terminatedWith = null;
+
+        FoldRun(@Nullable Fn2 t) { terminator = t; }
+    }
+
+    /**
+     Folds one slice of an indexed source on a ForkJoinPool thread, splitting it in half (and
+     combining the halves in order) until the slices are small enough.  All the slices share the
+     same ops, which is only safe because parallelFold() checks that they are all per-item.
+     */
+    @SuppressWarnings("serial")
+    private static final class ParallelFold extends RecursiveTask<Object> {
+        private final @NotNull List source;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final @NotNull Operation @NotNull [] ops;
+        private final @NotNull Fn0 newAccum;
+        private final @NotNull Fn2 reducer;
+        private final @NotNull Fn2 combiner;
+
+        ParallelFold(@NotNull List src, int f, int t, int chunk, @NotNull Operation @NotNull [] o,
+                     @NotNull Fn0 n, @NotNull Fn2 r, @NotNull Fn2 c) {
+            source = src; from = f; to = t; chunkSize = chunk; ops = o;
+            newAccum = n; reducer = r; combiner = c;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override protected Object compute() {
+            if (to - from <= chunkSize) {
+                return _fold(RunList.slice(source, from, to), ops, 0, newAccum.apply(), reducer,
+                             new FoldRun(null));
+            }
+            int mid = (from + to) >>> 1;
+            ParallelFold left = new ParallelFold(source, from, mid, chunkSize, ops, newAccum,
+                                                 reducer, combiner);
+            left.fork();
+            Object right = new ParallelFold(source, mid, to, chunkSize, ops, newAccum, reducer,
+                                            combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+
+    /**
+     Runs the operations of a pipeline on items that are pushed to it one at a time, instead of
+     reading them from a source.  The operations are compiled once, so a take() or drop() counts
+     across all the pushes.  Used by {@link XformFlow#processor(Fn1, int)}.  Not thread-safe: only
+     one push at a time.
+     */
+    static final class PushRun<T,R> {
+        private final @NotNull Operation @NotNull [] ops;
+        private final @NotNull FoldRun run = new FoldRun(null);
+
+        /**
+         @param pipeline adds operations to the Xform it's given.  Operations that replace the
+         source, such as concat(), sortedBy(), or window(), can't be pushed to and cause an
+         IllegalArgumentException.
+         */
+        @SuppressWarnings("unchecked")
+        PushRun(@NotNull Fn1<? super Xform<T>,? extends Xform<R>> pipeline) {
+            // Not a List, so that drops and takes become operations instead of being pushed down
+            // into the source.
+            Iterable<T> placeholder = Collections::emptyIterator;
+            RunList runList = pipeline.apply(of(placeholder)).toRunList();
+            if ( (runList.prev != null) || (runList.source != placeholder) ) {
+                throw new IllegalArgumentException(
+                        "Only operations that work one item at a time (like filter, map, flatMap," +
+                        " drop, and take) can run on pushed items.");
+            }
+            ops = runList.opArray();
+        }
+
+        /**
+         Runs one item through the operations, passing each result (there could be zero, one, or
+         many) to the sink.
+         @return false once no more items can get through (a take or takeWhile is done).
+         */
+        @SuppressWarnings("unchecked")
+        boolean push(T item, @NotNull Consumer<? super R> sink) {
+            if (run.done) { return false; }
+            _fold(Collections.singletonList(item), ops, 0, null, (ignored, r) -> {
+                sink.accept((R) r);
+                return null;
+            }, run);
+            return !run.done;
+        }
+    }
+
+    /** parallelFold() doesn't split a source with fewer items than this. */
+    static final int MIN_PARALLEL_CHUNK = 1024;
+
     // TODO: Everything should be implemented in terms of foldUntil now that we have that.
     /**
      @param reducer combines each value in the list with the result so far.  The result so far is the first argument.
@@ -466,52 +1316,114 @@ public abstract class Xform<A> implements UnmodIterable<A> {
     // sentinel values to break out or skip processing as appropriate.  Initial tests indicate this
     // is 2.6 times faster than wrapping items type-safely in Options and 10 to 100 times faster
     // than lazily evaluated and cached linked-list, Sequence model.
+    //
+    // The terminator is checked against the result so far, right before each item would be
+    // combined with it, which works the same at any depth of flatMap because the result so far
+    // is passed into (and back out of) each recursive call.  Whatever stops the fold sets
+    // run.done, so each enclosing call returns as soon as its recursive call does.
     @SuppressWarnings("unchecked")
     private static <H> H _fold(
             @NotNull Iterable source,
             @NotNull Operation @NotNull [] ops,
             int opIdx,
             H ident,
-            @NotNull Fn2 reducer
+            @NotNull Fn2 reducer,
+            @NotNull FoldRun run
     ) {
         Object ret = ident;
 
-        // This is a label - the first one I have used in Java in years, or maybe ever.
-        // I'm assuming this is fast, but will have to test to confirm it.
-        sourceLoop:
-        for (Object o : source) {
-            for (int j = opIdx; j < ops.length; j++) {
-                @NotNull Operation op = ops[j];
-                if ( (op.filter != null) && !op.filter.apply(o) ) {
-                    // stop processing this source item and go to the next one.
-                    continue sourceLoop;
-                }
-                if (op.map != null) {
-                    o = op.map.apply(o);
-                    // This is how map can handle takeWhile, take, and other termination marker
-                    // roles.  Remember, the fewer functions we have to check for, the faster this
-                    // will execute.
-                    if (o == TERMINATE) {
-                        return (H) ret;
+        Iterator iter = source.iterator();
+        try {
+            // This is a label - the first one I have used in Java in years, or maybe ever.
+            // I'm assuming this is fast, but will have to test to confirm it.
+            sourceLoop:
+            while (iter.hasNext()) {
+                Object o = iter.next();
+                for (int j = opIdx; j < ops.length; j++) {
+                    @NotNull Operation op = ops[j];
+                    if ( (op.filter != null) && !op.filter.apply(o) ) {
+                        // stop processing this source item and go to the next one.
+                        continue sourceLoop;
+                    }
+                    if (op.map != null) {
+                        o = op.map.apply(o);
+                        // This is how map can handle takeWhile, take, and other termination
+                        // marker roles.  Remember, the fewer functions we have to check for, the
+                        // faster this will execute.
+                        if (o == TERMINATE) {
+                            run.done = true;
+                            return (H) ret;
+                        }
+                        if (o == SKIP) {
+                            // A filter in a FusedOp rejected it.
+                            continue sourceLoop;
+                        }
+                        if (op.isSpent()) {
+                            // This is the last item this op will let through.  Finish it, then
+                            // stop instead of reading another item just to have the take throw it
+                            // away.
+                            ret = _fold(Collections.singletonList(o), ops, j + 1, (H) ret, reducer,
+                                        run);
+                            run.done = true;
+                            return (H) ret;
+                        }
+                    } else if (op.flatMap != null) {
+                        ret = _fold(op.flatMap.apply(o), ops, j + 1, (H) ret, reducer, run);
+                        if (run.done) {
+                            return (H) ret;
+                        }
+                        // stop processing this source item and go to the next one.
+                        continue sourceLoop;
                     }
-                } else if (op.flatMap != null) {
-                    ret = _fold(op.flatMap.apply(o), ops, j + 1, (H) ret, reducer);
-                    // stop processing this source item and go to the next one.
-                    continue sourceLoop;
-                }
 //                    if ( (op.terminate != null) && op.terminate.apply(o) ) {
 //                        return (G) ret;
 //                    }
+                }
+                // Here, the item made it through all the operations.  Combine it with the result.
+                if (run.terminator != null) {
+                    Object term = run.terminator.apply(ret, o);
+                    if (term != null) {
+                        run.terminatedWith = term;
+                        run.done = true;
+                        return (H) ret;
+                    }
+                }
+                ret = reducer.apply(ret, o);
             }
-            // Here, the item made it through all the operations.  Combine it with the result.
-            ret = reducer.apply(ret, o);
+        } finally {
+            // Whether the source ran out or the fold stopped early.
+            close(iter);
         }
         return (H) ret;
     } // end _fold();
 
+    /**
+     Closes the iterator if it holds a resource (such as the open file of {@link #lines(Path)}),
+     otherwise does nothing.
+     */
+    static void close(@NotNull Iterator iter) {
+        if (iter instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) iter).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     Returns an iterator that runs the transformation lazily, one item at a time, as you call
+     hasNext() and next().  Stopping early stops all the work.  fold() is faster when you want all
+     the items.
+     */
+    @SuppressWarnings("unchecked")
     @Override
     public @NotNull UnmodIterator<A> iterator() {
-        return toMutList().iterator();
+        return new RunIter(toRunList());
     }
 
     // =============================================================================================
@@ -546,48 +1458,72 @@ public abstract class Xform<A> implements UnmodIterable<A> {
 
         // Construct an optimized array of OpRuns (mutable operations for this run)
         RunList runList = toRunList();
-        return _fold(runList, runList.opArray(), 0, ident, reducer);
+        return _fold(runList, runList.opArray(), 0, ident, reducer, new FoldRun(null));
     }
 
     /**
-     * This implementation should be correct, but could be slow in the case where previous operations
-     * are slow and the terminateWhen operation is fast and terminates early.  It actually renders
-     * items to a mutable List, then runs through the list performing the requested reduction,
-     * checking for early termination on the result.  If you can do a takeWhile() or take() earlier
-     * in the transform chain instead of doing it here, always do that.  If you really need early
-     * termination based on the *result* of a fold, and the operations are expensive or the input
-     * is huge, try using a View instead.  If you don't care about those things, then this method is
-     * perfect for you.
+     * Stops reading the source as soon as the terminator returns non-null, even from inside a
+     * flatMap.  The terminator sees the result so far and each item, just before that item would
+     * be passed to the reducer.
      *
      * {@inheritDoc}
      */
+    @SuppressWarnings("unchecked")
     @Override
     public <G,B> @NotNull Or<G,B> foldUntil(
             G accum,
             @Nullable Fn2<? super G,? super A,B> terminator,
             @NotNull Fn2<? super G,? super A,G> reducer
     ) {
-        if (terminator == null) {
-            return Or.good(fold(accum, reducer));
+        RunList runList = toRunList();
+        FoldRun run = new FoldRun(terminator);
+        G ret = _fold(runList, runList.opArray(), 0, accum, reducer, run);
+        return (run.terminatedWith != null) ? Or.bad((B) run.terminatedWith)
+                                            : Or.good(ret);
+    }
+
+    /**
+     Splits the source into parts for the {@link ForkJoinPool#commonPool()} when it's an indexed
+     list of at least twice {@link #MIN_PARALLEL_CHUNK} items and all the operations are
+     per-item.  Aims for about four parts per thread, so that a thread that finishes early can
+     steal some work.
+
+     {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <M> M parallelFold(@NotNull Fn0<? extends M> newAccum,
+                              @NotNull Fn2<? super M,? super A,? extends M> reducer,
+                              @NotNull Fn2<? super M,? super M,? extends M> combiner) {
+        RunList runList = toRunList();
+        List src = runList.indexedSource();
+        int threads = ForkJoinPool.getCommonPoolParallelism();
+        boolean perItem = true;
+        for (Operation op : runList.list) {
+            perItem &= op.isPerItem();
         }
+        if ( (src == null) || !perItem || (threads < 2) ||
+             (src.size() < MIN_PARALLEL_CHUNK * 2) ) {
+            return _fold(runList, runList.opArray(), 0, newAccum.apply(), reducer,
+                         new FoldRun(null));
+        }
+        int chunkSize = Math.max(MIN_PARALLEL_CHUNK, src.size() / (threads * 4));
+        return (M) ForkJoinPool.commonPool()
+                               .invoke(new ParallelFold(src, 0, src.size(), chunkSize,
+                                                        runList.opArray(), newAccum, reducer,
+                                                        combiner));
+    }
 
-        // Yes, this is a cheap plastic imitation of what you'd hope for if you really need this
-        // method.  The trouble is that when I implemented it correctly in _fold, I found
-        // it was going to be incredibly difficult, or more likely impossible to implement
-        // when the previous operation was flatMap, since you don't have the right result type to
-        // check against when you recurse in to the flat mapping function, and if you check the
-        // return from the recursion, it may have too many elements already.
-        // In XformTest.java, there's something marked "Early termination test" that illustrates
-        // this exact problem.
-        List<A> as = this.toMutList();
-        for (A a : as) {
-            B term = terminator.apply(accum, a);
-            if (term != null) {
-                return Or.bad(term);
-            }
-            accum = reducer.apply(accum, a);
+    /** The first item, if any.  Closes the source (see {@link #lines(Path)}) right after. */
+    @Override
+    public @NotNull Option<A> head() {
+        UnmodIterator<A> iter = iterator();
+        try {
+            return iter.hasNext() ? Option.some(iter.next())
+                                  : Option.none();
+        } finally {
+            close(iter);
         }
-        return Or.good(accum);
     }
 
     @Override
@@ -605,6 +1541,30 @@ public abstract class Xform<A> implements UnmodIterable<A> {
         return new MapDesc<>(this, f);
     }
 
+    /**
+     Returns an {@link IntXform} of f applied to each item, so that the rest of the pipeline works
+     on unboxed ints.
+     */
+    public @NotNull IntXform mapToInt(@NotNull ToIntFunction<? super A> f) {
+        return IntXform.of(this, f);
+    }
+
+    /**
+     Returns a {@link LongXform} of f applied to each item, so that the rest of the pipeline works
+     on unboxed longs.
+     */
+    public @NotNull LongXform mapToLong(@NotNull ToLongFunction<? super A> f) {
+        return LongXform.of(this, f);
+    }
+
+    /**
+     Returns a {@link DoubleXform} of f applied to each item, so that the rest of the pipeline works
+     on unboxed doubles.
+     */
+    public @NotNull DoubleXform mapToDouble(@NotNull ToDoubleFunction<? super A> f) {
+        return DoubleXform.of(this, f);
+    }
+
     protected abstract @NotNull RunList toRunList();
 
     @Override
@@ -617,6 +1577,120 @@ public abstract class Xform<A> implements UnmodIterable<A> {
     public @NotNull Xform<A> takeWhile(@NotNull Fn1<? super A,Boolean> f) {
         // I'm coding this as a map operation that either returns the source, or a TERMINATE
         // sentinel value.
-        return new MapDesc<>(this, a -> f.apply(a) ? a : terminate());
+        return new TakeWhileDesc<>(this, f);
+    }
+
+    /**
+     Groups the items into lists of n items each, except for the last list, which has whatever is
+     left over.  Only one list is held in memory at a time (plus whatever the items before this
+     one need).  Same as {@code window(n, n)}, but keeps the last, shorter list.
+     @param n the number of items in each list.
+     @return an Xform of lists.
+     */
+    public @NotNull Xform<ImList<A>> chunk(int n) {
+        if (n < 1) { throw new IllegalArgumentException("Chunk size must be > 0"); }
+        return new WindowDesc<>(this, n, n, true);
+    }
+
+    /**
+     Returns only the first of each group of equal items (by equals() and hashCode()), in the
+     order they came in.  Holds one set entry per distinct item seen so far.
+     @return an Xform without duplicates.
+     */
+    public @NotNull Xform<A> distinct() { return new DistinctDesc<>(this); }
+
+    /**
+     Like {@link #map(Fn1)}, but calls f for up to maxConcurrency items at once on other threads.
+     This is for functions that spend most of their time waiting, such as calls to a database or
+     another service.  The results come out in the same order as the items came in, so one slow
+     call holds up the ones after it (but not more than maxConcurrency of them).  Use
+     {@link #mapAsyncUnordered(Fn1, int)} to take each result as soon as it's ready.
+
+     <p>Items are read from the source as they are needed to keep maxConcurrency calls going.  If
+     the fold stops early (after a take(), for instance), calls that are already running finish
+     and their results are ignored.  If f throws an exception, the fold throws it when it gets to
+     that item.</p>
+
+     <p>Uses a shared pool of daemon threads that grows as needed.  See
+     {@link #mapAsync(Fn1, int, Executor)} to use your own.</p>
+     @param f the function, which must be safe to call from several threads at once.
+     @param maxConcurrency the most calls to f that can be running at one time.
+     @return an Xform of the results of f, in the same order as the items came in.
+     */
+    public <B> @NotNull Xform<B> mapAsync(@NotNull Fn1<? super A,? extends B> f,
+                                          int maxConcurrency) {
+        return mapAsync(f, maxConcurrency, AsyncExecutor.INSTANCE);
+    }
+
+    /**
+     Like {@link #mapAsync(Fn1, int)}, but runs f with the given executor.  On Java 21 or later,
+     {@code Executors.newVirtualThreadPerTaskExecutor()} is a good choice for blocking calls.
+     */
+    public <B> @NotNull Xform<B> mapAsync(@NotNull Fn1<? super A,? extends B> f,
+                                          int maxConcurrency, @NotNull Executor executor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be > 0");
+        }
+        return new MapAsyncDesc<>(this, f, maxConcurrency, executor, true);
+    }
+
+    /**
+     Like {@link #mapAsync(Fn1, int)}, but returns each result as soon as it's ready, so the
+     results may come out in any order.  A slow call doesn't hold up the others.
+     */
+    public <B> @NotNull Xform<B> mapAsyncUnordered(@NotNull Fn1<? super A,? extends B> f,
+                                                   int maxConcurrency) {
+        return mapAsyncUnordered(f, maxConcurrency, AsyncExecutor.INSTANCE);
+    }
+
+    /** Like {@link #mapAsyncUnordered(Fn1, int)}, but runs f with the given executor. */
+    public <B> @NotNull Xform<B> mapAsyncUnordered(@NotNull Fn1<? super A,? extends B> f,
+                                                   int maxConcurrency,
+                                                   @NotNull Executor executor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be > 0");
+        }
+        return new MapAsyncDesc<>(this, f, maxConcurrency, executor, false);
+    }
+
+    /**
+     Returns the items sorted by the given comparator.  This is a stable sort: equal items stay in
+     the order they came in.  Sorting has to see every item before it can return the first one,
+     so this holds all the items in memory.  If you only need the first few, use
+     {@link #topK(int, Comparator)} which holds only those.
+     @param comp determines the order.
+     @return an Xform of the same items, in sorted order.
+     */
+    public @NotNull Xform<A> sortedBy(@NotNull Comparator<? super A> comp) {
+        return new SortedDesc<>(this, comp);
+    }
+
+    /**
+     Returns the first k items in the order of the given comparator, the same as
+     {@code sortedBy(comp).take(k)}, but holding no more than k items in memory.  It takes
+     O(n log k) time.  For the k biggest, pass a reversed comparator.
+     @param k the number of items to return.
+     @param comp determines the order.
+     @return an Xform of up to k items, in sorted order.
+     */
+    public @NotNull Xform<A> topK(int k, @NotNull Comparator<? super A> comp) {
+        if (k < 0) { throw new IllegalArgumentException("k must be >= 0"); }
+        return new TopKDesc<>(this, k, comp);
+    }
+
+    /**
+     Returns a sliding window of size items, which moves step items at a time.  Only full windows
+     are returned, so a source with fewer than size items produces none.  If step is bigger than
+     size, the items in between the windows are skipped.  Only one window is held in memory at a
+     time (plus whatever the items before this one need).
+     @param size the number of items in each window.
+     @param step how far each window is from the one before it.
+     @return an Xform of lists of size items each.
+     */
+    public @NotNull Xform<ImList<A>> window(int size, int step) {
+        if ( (size < 1) || (step < 1) ) {
+            throw new IllegalArgumentException("Size and step must be > 0");
+        }
+        return new WindowDesc<>(this, size, step, false);
     }
 }
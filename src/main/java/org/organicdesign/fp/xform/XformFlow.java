@@ -0,0 +1,402 @@
+// Copyright 2026 PlanBase Inc. & Glen Peterson
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.organicdesign.fp.xform;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.organicdesign.fp.function.Fn1;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ <p>Connects Xforms to reactive streams ({@link Flow}), with backpressure.</p>
+
+ <p>{@link #publisher(Iterable, Executor)} makes any Iterable (such as an Xform or a Paguro
+ collection) into a {@link Flow.Publisher}.  It reads items only as a subscriber asks for them
+ (plus the one hasNext() looks at to see whether there are any more), so nothing is buffered.</p>
+
+ <p>{@link #processor(Fn1, int)} runs the operations of an Xform on items as they arrive from
+ upstream and sends the results downstream.  It never asks upstream for more than bufferSize
+ items beyond what it has already sent on, so a slow subscriber slows down the publisher instead
+ of filling up memory.</p>
+
+ <pre>{@code
+Flow.Processor<String,Integer> lengths =
+        XformFlow.processor(xf -> xf.filter(s -> !s.isEmpty()).map(String::length).take(100), 64);
+publisher.subscribe(lengths);
+lengths.subscribe(subscriber);}</pre>
+ */
+public final class XformFlow {
+
+    // No instances
+    private XformFlow() { throw new UnsupportedOperationException("No instantiation"); }
+
+    /**
+     Returns a Publisher that sends the items of the given Iterable to each subscriber, using a
+     new iterator for each one.  Items are read only as they are requested and are sent to the
+     subscriber on a thread from the given executor.  Nulls are not allowed in reactive streams,
+     so a null item is sent as an onError(NullPointerException).
+     */
+    public static <T> @NotNull Flow.Publisher<T> publisher(@NotNull Iterable<? extends T> items,
+                                                           @NotNull Executor executor) {
+        return subscriber -> {
+            Objects.requireNonNull(subscriber, "subscriber");
+            IterSubscription<T> sub = new IterSubscription<>(items, subscriber, executor);
+            subscriber.onSubscribe(sub);
+        };
+    }
+
+    /** Like {@link #publisher(Iterable, Executor)}, using the {@link ForkJoinPool#commonPool()}. */
+    public static <T> @NotNull Flow.Publisher<T> publisher(@NotNull Iterable<? extends T> items) {
+        return publisher(items, ForkJoinPool.commonPool());
+    }
+
+    /**
+     Returns a Processor that runs the operations added by the given pipeline function on each
+     item it receives.  Once a take() or takeWhile() is done, it cancels its upstream subscription
+     and completes.  It can have only one subscriber.
+
+     @param pipeline adds operations to the Xform it's given, for instance
+     {@code xf -> xf.filter(...).map(...)}.  Only operations that work on one item at a time can be
+     used: filter, map, flatMap, drop, dropWhile, take, takeWhile, distinct.  Operations that
+     replace the source (like concat() or sortedBy()) cause an IllegalArgumentException.
+     @param bufferSize the most items to have requested from upstream but not yet sent on.
+     A flatMap can make more than one result per item, so the results waiting to be sent on
+     can be more than this.
+     */
+    public static <T,R> @NotNull Flow.Processor<T,R>
+    processor(@NotNull Fn1<? super Xform<T>,? extends Xform<R>> pipeline, int bufferSize) {
+        if (bufferSize < 1) { throw new IllegalArgumentException("bufferSize must be > 0"); }
+        return new XformProcessor<>(new Xform.PushRun<>(pipeline), bufferSize);
+    }
+
+    /** Adds n to the demand, stopping at Long.MAX_VALUE (which means unbounded). */
+    private static void addDemand(@NotNull AtomicLong requested, long n) {
+        requested.accumulateAndGet(n, (r, m) -> {
+            long sum = r + m;
+            return (sum < 0) ? Long.MAX_VALUE : sum;
+        });
+    }
+
+    /**
+     Sends items from an iterator to one subscriber.  Whichever call to request() raises the demand
+     from zero schedules a drain on the executor, and the drain keeps going until the demand or
+     the items run out.  The wip (work in progress) count makes sure only one drain runs at a
+     time, and that a request() that comes in during a drain isn't missed.  The drain also closes
+     the iterator (in case it's reading a file) once it's done, cancelled, or fails.
+     */
+    private static final class IterSubscription<T> implements Flow.Subscription, Runnable {
+        private final @NotNull Iterable<? extends T> items;
+        private final @NotNull Flow.Subscriber<? super T> subscriber;
+        private final @NotNull Executor executor;
+        private final @NotNull AtomicLong requested = new AtomicLong();
+        private final @NotNull AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile @Nullable Throwable badRequest = null;
+        // Only touched by the drain.
+        private @Nullable Iterator<? extends T> iter = null;
+
+        IterSubscription(@NotNull Iterable<? extends T> i, @NotNull Flow.Subscriber<? super T> s,
+                         @NotNull Executor e) {
+            items = i; subscriber = s; executor = e;
+        }
+
+        @Override public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("request(" + n + ") must be > 0");
+            } else {
+                addDemand(requested, n);
+            }
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override public void cancel() {
+            cancelled = true;
+            // Schedule a drain (if one isn't running) to close the iterator on the drain thread.
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override public void run() {
+            int missed = 1;
+            while (true) {
+                if (cancelled) {
+                    closeIter();
+                    return;
+                }
+                if (badRequest != null) {
+                    terminate(badRequest);
+                    return;
+                }
+                long r = requested.get();
+                long sent = 0;
+                boolean done = false;
+                try {
+                    if (iter == null) {
+                        iter = items.iterator();
+                    }
+                    while ( (sent != r) && !cancelled && !done ) {
+                        if (!iter.hasNext()) {
+                            done = true;
+                        } else {
+                            T item = iter.next();
+                            if (item == null) {
+                                throw new NullPointerException("Null item from publisher source");
+                            }
+                            subscriber.onNext(item);
+                            sent++;
+                        }
+                    }
+                    // The spec lets us complete without waiting for another request.
+                    if (!cancelled && !done && !iter.hasNext()) {
+                        done = true;
+                    }
+                } catch (Throwable t) {
+                    terminate(t);
+                    return;
+                }
+                if (done) {
+                    terminate(null);
+                    return;
+                }
+                if ( (sent != 0) && (r != Long.MAX_VALUE) ) {
+                    requested.addAndGet(-sent);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) { return; }
+            }
+        }
+
+        /**
+         Closes the iterator, then sends onError(error), or onComplete() if error is null.  If
+         closing fails, that's sent as the error instead (or added to the error as suppressed).
+         */
+        private void terminate(@Nullable Throwable error) {
+            cancelled = true;
+            try {
+                closeIter();
+            } catch (Throwable t) {
+                if (error == null) {
+                    error = t;
+                } else {
+                    error.addSuppressed(t);
+                }
+            }
+            if (error != null) {
+                subscriber.onError(error);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        // Only called by the drain.
+        private void closeIter() {
+            Iterator<? extends T> it = iter;
+            if (it != null) {
+                iter = null;
+                Xform.close(it);
+            }
+        }
+    }
+
+    /**
+     The Processor.  Results of the pipeline wait in a queue until the subscriber asks for them.
+     Signals from upstream (onNext and so on) and from downstream (request and cancel) can come
+     in on different threads, so every one of them calls drain(), and the wip count makes sure
+     only one thread at a time sends anything downstream.
+     */
+    private static final class XformProcessor<T,R> implements Flow.Processor<T,R> {
+        private final @NotNull Xform.PushRun<T,R> pushRun;
+        private final int bufferSize;
+        private final @NotNull Queue<R> queue = new ConcurrentLinkedQueue<>();
+        // queue.size() has to count every node, so keep track of it here.
+        private final @NotNull AtomicInteger queued = new AtomicInteger();
+        // Downstream demand not yet met.
+        private final @NotNull AtomicLong requested = new AtomicLong();
+        // Items requested from upstream that haven't arrived yet.
+        private final @NotNull AtomicLong outstanding = new AtomicLong();
+        private final @NotNull AtomicInteger wip = new AtomicInteger();
+        private volatile @Nullable Flow.Subscription upstream = null;
+        private volatile @Nullable Flow.Subscriber<? super R> downstream = null;
+        private volatile boolean upstreamDone = false;
+        private volatile @Nullable Throwable error = null;
+        private volatile boolean cancelled = false;
+        // Only touched by the drain.
+        private boolean terminated = false;
+
+        XformProcessor(@NotNull Xform.PushRun<T,R> p, int b) { pushRun = p; bufferSize = b; }
+
+        // ===================================== Upstream side =====================================
+
+        @Override public void onSubscribe(@NotNull Flow.Subscription subscription) {
+            if ( (upstream != null) || cancelled ) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            drain();
+        }
+
+        @Override public void onNext(@NotNull T item) {
+            outstanding.decrementAndGet();
+            if (upstreamDone) { return; }
+            boolean more;
+            try {
+                more = pushRun.push(item, r -> {
+                    Objects.requireNonNull(r, "Reactive streams don't allow null items");
+                    queued.incrementAndGet();
+                    queue.add(r);
+                });
+            } catch (Throwable t) {
+                cancelUpstream();
+                error = t;
+                upstreamDone = true;
+                drain();
+                return;
+            }
+            if (!more) {
+                // A take or takeWhile is done, so nothing else will get through.
+                cancelUpstream();
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        @Override public void onError(@NotNull Throwable t) {
+            error = t;
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override public void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        private void cancelUpstream() {
+            Flow.Subscription up = upstream;
+            if (up != null) {
+                up.cancel();
+            }
+        }
+
+        // ==================================== Downstream side ====================================
+
+        @Override public void subscribe(@NotNull Flow.Subscriber<? super R> subscriber) {
+            Objects.requireNonNull(subscriber, "subscriber");
+            synchronized (this) {
+                if (downstream != null) {
+                    subscriber.onSubscribe(new Flow.Subscription() {
+                        @Override public void request(long n) {}
+                        @Override public void cancel() {}
+                    });
+                    subscriber.onError(new IllegalStateException(
+                            "This processor already has a subscriber"));
+                    return;
+                }
+                downstream = subscriber;
+            }
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) {
+                    if (n <= 0) {
+                        cancelUpstream();
+                        error = new IllegalArgumentException("request(" + n + ") must be > 0");
+                        upstreamDone = true;
+                        clearQueue();
+                    } else {
+                        addDemand(requested, n);
+                    }
+                    drain();
+                }
+
+                @Override public void cancel() {
+                    cancelled = true;
+                    cancelUpstream();
+                    drain();
+                }
+            });
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) { return; }
+            int missed = 1;
+            while (true) {
+                Flow.Subscriber<? super R> down = downstream;
+                if (cancelled) {
+                    clearQueue();
+                } else if ( (down != null) && !terminated ) {
+                    long r = requested.get();
+                    long sent = 0;
+                    R item;
+                    while ( (sent != r) && ((item = queue.poll()) != null) ) {
+                        queued.decrementAndGet();
+                        down.onNext(item);
+                        sent++;
+                    }
+                    if ( (sent != 0) && (r != Long.MAX_VALUE) ) {
+                        requested.addAndGet(-sent);
+                    }
+                    Throwable err = error;
+                    // An error is sent after whatever results the subscriber has asked for, but
+                    // doesn't wait for it to ask for more.
+                    if ( upstreamDone && ((err != null) || queue.isEmpty()) ) {
+                        terminated = true;
+                        clearQueue();
+                        if (err != null) {
+                            down.onError(err);
+                        } else {
+                            down.onComplete();
+                        }
+                    } else {
+                        requestMore();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) { return; }
+            }
+        }
+
+        private void clearQueue() {
+            while (queue.poll() != null) {
+                queued.decrementAndGet();
+            }
+        }
+
+        /**
+         Asks upstream for enough items to fill the buffer, but only once half of it is free, so as
+         not to make a separate request for every item.
+         */
+        private void requestMore() {
+            Flow.Subscription up = upstream;
+            if ( (up == null) || upstreamDone ) { return; }
+            long room = bufferSize - queued.get() - outstanding.get();
+            if (room >= Math.max(1, bufferSize / 2)) {
+                outstanding.addAndGet(room);
+                up.request(room);
+            }
+        }
+    }
+}
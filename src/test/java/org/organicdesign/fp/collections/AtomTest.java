@@ -0,0 +1,141 @@
+package org.organicdesign.fp.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.organicdesign.fp.StaticImports.map;
+import static org.organicdesign.fp.StaticImports.set;
+import static org.organicdesign.fp.StaticImports.vec;
+
+public class AtomTest {
+
+    @Test public void basics() {
+        Atom<ImList<String>> a = Atom.of(vec());
+        assertEquals(vec("a"), a.swap(l -> l.append("a")));
+        ImList<String> current = a.get();
+        assertFalse(a.compareAndSet(vec(), vec("x")));
+        assertTrue(a.compareAndSet(current, current.append("b")));
+        assertEquals(vec("a", "b"), a.get());
+        a.reset(vec());
+        assertEquals(vec(), a.get());
+        assertEquals(3, a.updates());
+        assertEquals(1, a.retries());
+        assertEquals("Atom(PersistentArrayList())", a.toString());
+    }
+
+    private static void runThreads(int numThreads, Runnable r) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                r.run();
+            });
+            threads.add(t);
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+
+    @Test public void concurrentSwap() throws InterruptedException {
+        Atom<ImMap<Integer,Integer>> a = Atom.of(map());
+        runThreads(4, () -> {
+            for (int i = 0; i < 2000; i++) {
+                a.swap(m -> m.assoc(m.size(), m.size()));
+            }
+        });
+        assertEquals(8000, a.get().size());
+        assertEquals(8000, a.updates());
+    }
+
+    @Test public void combining() throws InterruptedException {
+        Atom.Combining<ImMap<Integer,Integer>,MutMap<Integer,Integer>> a = Atom.ofMap(map());
+        runThreads(8, () -> {
+            for (int i = 0; i < 2000; i++) {
+                a.update(m -> m.assoc(m.size(), m.size()));
+                if ((i % 100) == 0) {
+                    a.swap(m -> m.assoc(m.size(), m.size()));
+                }
+            }
+        });
+        ImMap<Integer,Integer> m = a.get();
+        assertEquals(8 * 2020, m.size());
+        for (int i = 0; i < m.size(); i++) {
+            assertEquals(Integer.valueOf(i), m.get(i));
+        }
+        assertEquals(8 * 2020, a.updates());
+        assertTrue(a.batches() >= 1);
+        assertTrue(a.batches() <= 8 * 2000);
+    }
+
+    @Test public void combiningListAndSet() {
+        Atom.Combining<ImList<String>,MutList<String>> l = Atom.ofList(vec("a"));
+        ImList<String> result = l.update(ml -> ml.append("b"));
+        assertEquals(vec("a", "b"), result);
+        assertSame(result, l.get());
+        assertEquals(1, l.batches());
+
+        Atom.Combining<ImSet<Integer>,MutSet<Integer>> s = Atom.ofSet(set(1));
+        assertEquals(set(1, 2), s.update(ms -> ms.put(2)));
+    }
+
+    @Test public void combiningExceptions() {
+        Atom.Combining<ImList<String>,MutList<String>> l = Atom.ofList(vec());
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                                               () -> l.update(ml -> {
+                                                   ml.append("half-done");
+                                                   throw new IllegalStateException("oops");
+                                               }));
+        assertEquals("oops", e.getMessage());
+        assertEquals(vec(), l.get());
+        assertEquals(vec("a"), l.update(ml -> ml.append("a")));
+    }
+
+    /** An Error from one update mustn't leave the rest of its batch waiting forever. */
+    @Test public void combiningErrors() {
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            Atom.Combining<ImMap<Integer,Integer>,MutMap<Integer,Integer>> a = Atom.ofMap(map());
+            AtomicInteger errors = new AtomicInteger();
+            runThreads(8, () -> {
+                for (int i = 0; i < 500; i++) {
+                    boolean fail = (i % 50) == 0;
+                    try {
+                        a.update(m -> {
+                            if (fail) { throw new AssertionError("bad"); }
+                            return m.assoc(m.size(), m.size());
+                        });
+                    } catch (AssertionError e) {
+                        assertEquals("bad", e.getMessage());
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            assertEquals(8 * 10, errors.get());
+            assertEquals(8 * 490, a.get().size());
+            assertEquals(8 * 490, a.updates());
+        });
+
+        // Nothing in a batch is published if toImmutable throws.
+        Atom.Combining<ImList<String>,MutList<String>> l =
+                Atom.combining(vec(), ImList::mutable, ml -> {
+                    if (ml.size() == 2) { throw new AssertionError("two"); }
+                    return ml.immutable();
+                });
+        assertEquals(vec("a"), l.update(ml -> ml.append("a")));
+        assertThrows(AssertionError.class, () -> l.update(ml -> ml.append("b")));
+        assertEquals(vec("a"), l.get());
+    }
+}
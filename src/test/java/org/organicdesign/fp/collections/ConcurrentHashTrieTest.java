@@ -0,0 +1,237 @@
+package org.organicdesign.fp.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.organicdesign.fp.TestUtilities.serializeDeserialize;
+
+public class ConcurrentHashTrieTest {
+
+    @Test public void basics() {
+        ConcurrentHashTrie<Integer,String> t = new ConcurrentHashTrie<>();
+        Map<Integer,String> control = new HashMap<>();
+        assertEquals(0, t.size());
+        for (int i = 0; i < 5000; i++) {
+            assertNull(t.put(i, "v" + i));
+            control.put(i, "v" + i);
+        }
+        assertEquals("v7", t.put(7, "seven"));
+        control.put(7, "seven");
+        assertEquals(control, t.snapshot());
+        assertEquals(control.size(), t.size());
+
+        for (int i = 0; i < 5000; i += 3) {
+            assertEquals(control.remove(i), t.remove(i));
+            assertNull(t.remove(i));
+            assertFalse(t.containsKey(i));
+        }
+        assertEquals(control, t.snapshot());
+        for (Map.Entry<Integer,String> entry : control.entrySet()) {
+            assertEquals(entry.getValue(), t.get(entry.getKey()));
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            t.remove(i);
+        }
+        assertEquals(0, t.size());
+        assertEquals(PersistentHashMap.empty(), t.snapshot());
+    }
+
+    @Test public void nullKeysAndValues() {
+        ConcurrentHashTrie<String,String> t = new ConcurrentHashTrie<>();
+        assertNull(t.put(null, "a"));
+        assertNull(t.put("b", null));
+        assertEquals("a", t.get(null));
+        assertTrue(t.containsKey("b"));
+        assertNull(t.getOrElse("b", "x"));
+        assertEquals("x", t.getOrElse("c", "x"));
+        assertEquals("a", t.remove(null));
+        assertFalse(t.containsKey(null));
+        assertEquals(1, t.size());
+    }
+
+    @Test public void collisions() {
+        List<String> keys = PersistentHashMapTest.collidingStrings(5);
+        ConcurrentHashTrie<String,Integer> t = new ConcurrentHashTrie<>();
+        Map<String,Integer> control = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            t.put(keys.get(i), i);
+            control.put(keys.get(i), i);
+            t.put("k" + i, i);
+            control.put("k" + i, i);
+        }
+        ImMap<String,Integer> snap = t.snapshot();
+        assertEquals(control, snap);
+        for (String key : keys) {
+            assertEquals(control.remove(key), t.remove(key));
+            assertEquals(control, t.snapshot());
+        }
+        // The snapshot didn't change.
+        assertEquals(keys.size() * 2, snap.size());
+        assertEquals(Integer.valueOf(3), snap.get(keys.get(3)));
+    }
+
+    @Test public void snapshotIsolation() {
+        ConcurrentHashTrie<Integer,Integer> t = new ConcurrentHashTrie<>();
+        for (int i = 0; i < 1000; i++) {
+            t.put(i, i);
+        }
+        ImMap<Integer,Integer> snap = t.snapshot();
+        for (int i = 0; i < 1000; i++) {
+            t.put(i, -i);
+        }
+        for (int i = 500; i < 1000; i++) {
+            t.remove(i);
+        }
+        assertEquals(1000, snap.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), snap.get(i));
+            assertEquals((i < 500) ? Integer.valueOf(-i) : null, t.get(i));
+        }
+        assertEquals(500, t.size());
+
+        // Persistent operations on a snapshot don't affect it or the trie.
+        ImMap<Integer,Integer> snap2 = snap.assoc(5000, 1).without(3);
+        assertSame(snap, snap.assoc(4, 4));
+        assertSame(snap, snap.without(-1));
+        assertEquals(1000, snap2.size());
+        assertEquals(Integer.valueOf(1), snap2.get(5000));
+        assertFalse(snap2.containsKey(3));
+        assertTrue(snap.containsKey(3));
+        assertFalse(t.containsKey(5000));
+
+        Map<Integer,Integer> control = new HashMap<>(snap2);
+        assertEquals(control, serializeDeserialize(snap2));
+        assertEquals(control, snap2.mutable().immutable());
+    }
+
+    /**
+     Several threads each write their own keys, in order, while another thread takes snapshots.
+     Each snapshot must show a prefix of every writer's keys.
+     */
+    @Test public void concurrentSnapshots() throws InterruptedException {
+        final int numWriters = 4;
+        final int perWriter = 20000;
+        ConcurrentHashTrie<Integer,Integer> t = new ConcurrentHashTrie<>();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < numWriters; w++) {
+            final int writer = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        t.put(i * numWriters + writer, i);
+                    }
+                    // Remove the odd ones, in order.
+                    for (int i = 1; i < perWriter; i += 2) {
+                        assertEquals(Integer.valueOf(i), t.remove(i * numWriters + writer));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread thread : writers) {
+                running |= thread.isAlive();
+            }
+            ImMap<Integer,Integer> snap = t.snapshot();
+            int size = 0;
+            for (int w = 0; w < numWriters; w++) {
+                // Count how many this writer had put.
+                int i = 0;
+                while ( (i < perWriter) && snap.containsKey(i * numWriters + w) ) {
+                    i += 2;
+                }
+                // Every later even key is missing: still a prefix.
+                for (int j = i; j < perWriter; j += 2) {
+                    assertFalse(snap.containsKey(j * numWriters + w));
+                }
+                for (int j = 0; j < i; j += 2) {
+                    assertEquals(Integer.valueOf(j), snap.get(j * numWriters + w));
+                }
+                size += i / 2;
+            }
+            // Plus whichever odd keys are there.
+            int odd = 0;
+            for (UnmodMap.UnEntry<Integer,Integer> entry : snap) {
+                if ((entry.getValue() & 1) == 1) {
+                    odd++;
+                }
+            }
+            assertEquals(size + odd, snap.size());
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            fail(failure.get());
+        }
+
+        Map<Integer,Integer> control = new HashMap<>();
+        for (int w = 0; w < numWriters; w++) {
+            for (int i = 0; i < perWriter; i += 2) {
+                control.put(i * numWriters + w, i);
+            }
+        }
+        assertEquals(control, t.snapshot());
+        assertEquals(control.size(), t.size());
+    }
+
+    @Test public void concurrentSameKeys() throws InterruptedException {
+        ConcurrentHashTrie<Integer,Integer> t = new ConcurrentHashTrie<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            Thread thread = new Thread(() -> {
+                for (int round = 0; round < 20; round++) {
+                    for (int i = 0; i < 2000; i++) {
+                        t.put(i, i);
+                    }
+                    t.snapshot();
+                    for (int i = 0; i < 2000; i++) {
+                        t.remove(i);
+                    }
+                }
+                for (int i = 0; i < 2000; i++) {
+                    t.put(i, i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(2000, t.size());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(Integer.valueOf(i), t.get(i));
+        }
+    }
+
+    @Test public void equatorAndToString() {
+        Equator<String> caseInsensitive = new Equator<String>() {
+            @Override public int hash(String s) { return s.toLowerCase().hashCode(); }
+            @Override public boolean eq(String a, String b) { return a.equalsIgnoreCase(b); }
+        };
+        ConcurrentHashTrie<String,Integer> t = new ConcurrentHashTrie<>(caseInsensitive);
+        t.put("Hello", 1);
+        assertEquals(Integer.valueOf(1), t.put("HELLO", 2));
+        assertEquals(1, t.size());
+        assertEquals("ConcurrentHashTrie(Tuple2(\"HELLO\",2))", t.toString());
+    }
+}
@@ -0,0 +1,108 @@
+package org.organicdesign.fp.collections;
+
+import org.junit.jupiter.api.Test;
+import org.organicdesign.fp.collections.RrbTree.ImRrbt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentRrbtBuilderTest {
+
+    // Segment i holds i * SEG_OFFSET, i * SEG_OFFSET + 1, ...
+    private static final int SEG_OFFSET = 1_000_000;
+
+    @Test public void emptyBuilder() {
+        ConcurrentRrbtBuilder<Integer> builder = new ConcurrentRrbtBuilder<>();
+        assertEquals(RrbTree.empty(), builder.snapshot());
+        builder.segment();
+        assertEquals(RrbTree.empty(), builder.build());
+    }
+
+    @Test public void singleThreadOrder() {
+        ConcurrentRrbtBuilder<Integer> builder = new ConcurrentRrbtBuilder<>();
+        ConcurrentRrbtBuilder.Segment<Integer> s1 = builder.segment();
+        ConcurrentRrbtBuilder.Segment<Integer> s2 = builder.segment();
+        s2.append(4).append(5);
+        s1.append(1).concat(List.of(2, 3));
+        assertEquals(3, s1.size());
+        assertEquals(List.of(1, 2, 3, 4, 5), builder.snapshot());
+        s2.append(6);
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), builder.build());
+
+        assertThrows(IllegalStateException.class, () -> s1.append(7));
+        assertThrows(IllegalStateException.class, () -> s2.concat(List.of(8)));
+        assertThrows(IllegalStateException.class, builder::segment);
+    }
+
+    /** Checks that each segment's part of the snapshot is a prefix of what it will append. */
+    private static void assertPrefixes(ImRrbt<Integer> snap) {
+        int expectedSeg = 0;
+        int expectedItem = 0;
+        for (int item : snap) {
+            int seg = item / SEG_OFFSET;
+            if (seg != expectedSeg) {
+                assertTrue(seg > expectedSeg, "Segments out of order");
+                expectedSeg = seg;
+                expectedItem = seg * SEG_OFFSET;
+            }
+            assertEquals(expectedItem, item);
+            expectedItem++;
+        }
+    }
+
+    @Test public void manyProducers() throws InterruptedException {
+        int numThreads = 12;
+        int[] sizes = new int[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            // Some tiny, some spanning several levels of the tree.
+            sizes[i] = (i % 3 == 0) ? i : i * 3_001;
+        }
+
+        ConcurrentRrbtBuilder<Integer> builder = new ConcurrentRrbtBuilder<>();
+        List<ConcurrentRrbtBuilder.Segment<Integer>> segs = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            segs.add(builder.segment());
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            final int segIdx = i;
+            threads.add(new Thread(() -> {
+                ConcurrentRrbtBuilder.Segment<Integer> seg = segs.get(segIdx);
+                for (int j = 0; j < sizes[segIdx]; j++) {
+                    seg.append(segIdx * SEG_OFFSET + j);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+
+        // Take snapshots while the producers are working.
+        for (int i = 0; i < 20; i++) {
+            ImRrbt<Integer> snap = builder.snapshot();
+            snap.debugValidate();
+            assertPrefixes(snap);
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        List<Integer> control = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            for (int j = 0; j < sizes[i]; j++) {
+                control.add(i * SEG_OFFSET + j);
+            }
+        }
+        ImRrbt<Integer> snap = builder.snapshot();
+        assertEquals(control, snap);
+
+        ImRrbt<Integer> built = builder.build();
+        built.debugValidate();
+        assertEquals(control, built);
+        // Snapshots are unaffected by later work.
+        assertEquals(control, snap);
+    }
+}
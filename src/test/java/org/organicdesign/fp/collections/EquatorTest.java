@@ -1,6 +1,7 @@
 package org.organicdesign.fp.collections;
 
 import org.junit.Test;
+import org.organicdesign.fp.TestUtilities;
 
 import static org.junit.Assert.*;
 import static org.organicdesign.fp.collections.ComparisonContext.defCompCtx;
@@ -168,4 +169,36 @@ public class EquatorTest {
         assertFalse(defCompCtx().gte(3, 4));
 
     }
-}
\ No newline at end of file
+
+    @Test public void spreadingTest() {
+        Equator<Object> spread = Equator.spreading(defaultEquator(), 12345);
+        assertTrue(spread.eq("Hello", "Hello"));
+        assertFalse(spread.eq("Hello", "World"));
+        assertTrue(spread.eq(null, null));
+        assertEquals(spread.hash("Hello"), spread.hash("Hello"));
+        assertNotEquals("Hello".hashCode(), spread.hash("Hello"));
+
+        // Keys that only differ in high bits get different low bits.
+        int lowBits = spread.hash(1 << 20) & 0x1f;
+        boolean differs = false;
+        for (int i = 2; i < 10; i++) {
+            differs |= (spread.hash(i << 20) & 0x1f) != lowBits;
+        }
+        assertTrue(differs);
+
+        assertEquals(spread, Equator.spreading(defaultEquator(), 12345));
+        assertEquals(spread.hashCode(), Equator.spreading(defaultEquator(), 12345).hashCode());
+        assertNotEquals(spread, Equator.spreading(defaultEquator(), 54321));
+        assertEquals(spread, TestUtilities.serializeDeserialize(spread));
+        assertEquals(defaultEquator(), ((Equator.Spreading<Object>) spread).base());
+
+        PersistentHashMap<Integer,Integer> m = PersistentHashMap.empty(Equator.spreading(defaultEquator()));
+        for (int i = 0; i < 5000; i++) {
+            m = m.assoc(i << 10, i);
+        }
+        assertEquals(5000, m.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(Integer.valueOf(i), m.get(i << 10));
+        }
+    }
+}
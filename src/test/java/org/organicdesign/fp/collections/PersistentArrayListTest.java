@@ -0,0 +1,79 @@
+package org.organicdesign.fp.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.organicdesign.fp.StaticImports.vec;
+import static org.organicdesign.fp.TestUtilities.serializeDeserialize;
+
+public class PersistentArrayListTest {
+
+    @Test public void appendAndReplace() {
+        List<Integer> control = new ArrayList<>();
+        ImList<Integer> l = PersistentArrayList.empty();
+        for (int i = 0; i < PersistentArrayList.MAX_SIZE; i++) {
+            l = l.append(i);
+            control.add(i);
+            assertTrue(l instanceof PersistentArrayList);
+            assertEquals(control, l);
+            assertEquals(control.hashCode(), l.hashCode());
+        }
+        assertSame(l, l.replace(2, 2));
+        assertEquals(Integer.valueOf(-2), l.replace(2, -2).get(2));
+        assertEquals(Integer.valueOf(2), l.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> PersistentArrayList.empty().get(0));
+
+        ImList<Integer> big = l.replace(l.size(), 99);
+        control.add(99);
+        assertTrue(big instanceof PersistentVector);
+        assertEquals(control, big);
+
+        List<Integer> reversed = new ArrayList<>(control.subList(0, PersistentArrayList.MAX_SIZE));
+        java.util.Collections.reverse(reversed);
+        assertEquals(reversed, l.reverse());
+    }
+
+    @Test public void concat() {
+        ImList<Integer> l = vec(1, 2, 3);
+        assertSame(l, l.concat(null));
+        assertSame(l, l.concat(new ArrayList<>()));
+        ImList<Integer> l2 = l.concat(Arrays.asList(4, 5));
+        assertTrue(l2 instanceof PersistentArrayList);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), l2);
+
+        // A one-shot Iterable that crosses the threshold.
+        List<Integer> control = new ArrayList<>(Arrays.asList(1, 2, 3));
+        for (int i = 4; i < 40; i++) {
+            control.add(i);
+        }
+        java.util.Iterator<Integer> iter = control.subList(3, control.size()).iterator();
+        ImList<Integer> l3 = l.concat(() -> iter);
+        assertTrue(l3 instanceof PersistentVector);
+        assertEquals(control, l3);
+        assertEquals(control, PersistentArrayList.of(control));
+        assertTrue(PersistentArrayList.of(control.subList(0, 8)) instanceof PersistentArrayList);
+    }
+
+    @Test public void staticImports() {
+        assertSame(PersistentArrayList.empty(), vec());
+        assertTrue(vec(1, 2, 3, 4, 5, 6, 7, 8) instanceof PersistentArrayList);
+        assertTrue(vec(1, 2, 3, 4, 5, 6, 7, 8, 9) instanceof PersistentVector);
+        assertEquals(PersistentVector.ofIter(Arrays.asList(1, 2)), vec(1, 2));
+        assertEquals(vec(1, 2), PersistentVector.ofIter(Arrays.asList(1, 2)));
+
+        MutList<Integer> mu = vec(1, 2).mutable();
+        mu.append(3);
+        assertEquals(Arrays.asList(1, 2, 3), mu);
+    }
+
+    @Test public void serialization() {
+        ImList<String> l = vec("a", null, "c");
+        ImList<String> l2 = serializeDeserialize(l);
+        assertTrue(l2 instanceof PersistentArrayList);
+        assertEquals(l, l2);
+    }
+}
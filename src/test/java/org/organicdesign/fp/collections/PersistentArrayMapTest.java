@@ -0,0 +1,100 @@
+package org.organicdesign.fp.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.organicdesign.fp.StaticImports.map;
+import static org.organicdesign.fp.StaticImports.tup;
+import static org.organicdesign.fp.TestUtilities.serializeDeserialize;
+
+public class PersistentArrayMapTest {
+
+    @Test public void growAndShrink() {
+        Map<Integer,String> control = new HashMap<>();
+        ImMap<Integer,String> m = PersistentArrayMap.empty();
+        for (int i = 0; i < PersistentArrayMap.MAX_SIZE; i++) {
+            m = m.assoc(i, "v" + i);
+            control.put(i, "v" + i);
+            assertTrue(m instanceof PersistentArrayMap);
+            assertEquals(control, m);
+            assertEquals(control.hashCode(), m.hashCode());
+        }
+        // Overwriting doesn't grow it.
+        m = m.assoc(3, "three");
+        control.put(3, "three");
+        assertTrue(m instanceof PersistentArrayMap);
+        assertSame(m, m.assoc(3, "three"));
+        assertEquals(control, m);
+
+        ImMap<Integer,String> big = m.assoc(null, "nada");
+        control.put(null, "nada");
+        assertTrue(big instanceof PersistentHashMap);
+        assertEquals(control, big);
+        assertEquals(big, m.assoc(null, "nada"));
+
+        for (int i = 0; i < PersistentArrayMap.MAX_SIZE; i++) {
+            m = m.without(i);
+            control.remove(i);
+            assertEquals(PersistentArrayMap.MAX_SIZE - i - 1, m.size());
+            assertNull(m.get(i));
+            assertFalse(m.containsKey(i));
+        }
+        assertSame(PersistentArrayMap.empty(), m);
+        assertSame(m, m.without(99));
+    }
+
+    @Test public void nullKeysAndValues() {
+        ImMap<String,String> m = PersistentArrayMap.<String,String>empty()
+                .assoc(null, "a").assoc("b", null);
+        assertEquals("a", m.get(null));
+        assertNull(m.get("b"));
+        assertTrue(m.containsKey("b"));
+        assertEquals("x", m.getOrElse("c", "x"));
+        assertNull(m.getOrElse("b", "x"));
+        assertTrue(m.entry("b").isSome());
+        assertFalse(m.entry("c").isSome());
+        ImMap<String,String> phm = m.mutable().immutable();
+        assertTrue(phm instanceof PersistentHashMap);
+        assertEquals(phm, m);
+        assertEquals(m, phm);
+        assertEquals(1, m.without(null).size());
+    }
+
+    @Test public void iteration() {
+        ImMap<String,Integer> m = map(tup("c", 3), tup("a", 1), tup("b", 2), tup("a", 4));
+        assertTrue(m instanceof PersistentArrayMap);
+        assertEquals("PersistentArrayMap(Tuple2(\"c\",3),Tuple2(\"a\",4),Tuple2(\"b\",2))",
+                     m.toString());
+        assertEquals(PersistentVector.ofIter(java.util.Arrays.asList("c", "a", "b")),
+                     PersistentVector.ofIter(m.keySet()));
+        assertEquals(9, m.fold(0, (accum, entry) -> accum + entry.getValue()));
+
+        MutMap<String,Integer> mu = m.mutable();
+        mu.assoc("d", 5);
+        assertEquals(4, mu.size());
+        assertEquals(3, m.size());
+    }
+
+    @Test public void staticImports() {
+        assertSame(PersistentArrayMap.empty(), map());
+        assertTrue(map(tup(1, 1), tup(2, 2), tup(3, 3), tup(4, 4),
+                       tup(5, 5), tup(6, 6), tup(7, 7), tup(8, 8)) instanceof PersistentArrayMap);
+        ImMap<Integer,Integer> nine = map(tup(1, 1), tup(2, 2), tup(3, 3), tup(4, 4), tup(5, 5),
+                                          tup(6, 6), tup(7, 7), tup(8, 8), tup(9, 9));
+        assertTrue(nine instanceof PersistentHashMap);
+        // Duplicate keys keep it small.
+        assertTrue(map(tup(1, 1), tup(1, 1), tup(1, 1), tup(1, 1), tup(1, 1),
+                       tup(1, 1), tup(1, 1), tup(1, 1), tup(1, 1)) instanceof PersistentArrayMap);
+    }
+
+    @Test public void serialization() {
+        ImMap<String,Integer> m = map(tup("c", 3), tup(null, 1), tup("b", null));
+        ImMap<String,Integer> m2 = serializeDeserialize(m);
+        assertTrue(m2 instanceof PersistentArrayMap);
+        assertEquals(m, m2);
+        assertSame(PersistentArrayMap.empty(), serializeDeserialize(PersistentArrayMap.empty()));
+    }
+}
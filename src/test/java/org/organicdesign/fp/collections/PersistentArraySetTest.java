@@ -0,0 +1,61 @@
+package org.organicdesign.fp.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.organicdesign.fp.StaticImports.set;
+import static org.organicdesign.fp.TestUtilities.serializeDeserialize;
+
+public class PersistentArraySetTest {
+
+    @Test public void growAndShrink() {
+        Set<Integer> control = new HashSet<>();
+        ImSet<Integer> s = PersistentArraySet.empty();
+        for (int i = 0; i < PersistentArraySet.MAX_SIZE; i++) {
+            s = s.put(i);
+            control.add(i);
+            assertTrue(s instanceof PersistentArraySet);
+            assertEquals(control, s);
+            assertEquals(control.hashCode(), s.hashCode());
+        }
+        assertSame(s, s.put(3));
+
+        ImSet<Integer> big = s.put(null);
+        control.add(null);
+        assertTrue(big instanceof PersistentHashSet);
+        assertEquals(control, big);
+        assertTrue(big.contains(null));
+
+        for (int i = 0; i < PersistentArraySet.MAX_SIZE; i++) {
+            s = s.without(i);
+            assertFalse(s.contains(i));
+            assertEquals(PersistentArraySet.MAX_SIZE - i - 1, s.size());
+        }
+        assertSame(PersistentArraySet.empty(), s);
+    }
+
+    @Test public void staticImports() {
+        assertSame(PersistentArraySet.empty(), set());
+        ImSet<String> s = set("c", "a", null, "a");
+        assertTrue(s instanceof PersistentArraySet);
+        assertEquals("PersistentArraySet(\"c\",\"a\",null)", s.toString());
+        assertTrue(set(1, 2, 3, 4, 5, 6, 7, 8, 9) instanceof PersistentHashSet);
+        assertEquals(PersistentHashSet.of(s), s);
+
+        MutSet<String> mu = s.mutable();
+        mu.put("d");
+        assertEquals(4, mu.size());
+        assertEquals(3, s.size());
+        assertEquals(set("a", "b", "c", null), s.union(set("b")));
+    }
+
+    @Test public void serialization() {
+        ImSet<String> s = set("c", null, "b");
+        ImSet<String> s2 = serializeDeserialize(s);
+        assertTrue(s2 instanceof PersistentArraySet);
+        assertEquals(s, s2);
+    }
+}
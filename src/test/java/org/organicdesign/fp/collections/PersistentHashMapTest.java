@@ -1618,4 +1618,303 @@ public class PersistentHashMapTest {
         assertNotEquals(h2, h2.assoc(null, "nada"));
         assertEquals(h2.size() + 1, h2.assoc(null, "nada").size());
     }
+
+    /** Int keys, a null key, and some colliding keys, with sizes that make ArrayNodes. */
+    private static List<PersistentHashMap<Object,Integer>> mapsToTransform() {
+        List<PersistentHashMap<Object,Integer>> maps = new ArrayList<>();
+        for (int size : new int[] { 0, 1, 17, 33, 1000, 20000 }) {
+            PersistentHashMap<Object,Integer> im = PersistentHashMap.empty();
+            PersistentHashMap.MutHashMap<Object,Integer> mu = PersistentHashMap.emptyMutable();
+            for (int i = 0; i < size; i++) {
+                im = im.assoc(i, i);
+                mu.assoc(i, i);
+            }
+            for (int i = 0; i < 5; i++) {
+                im = im.assoc(new HashCollision("c" + i), -i);
+                mu.assoc(new HashCollision("c" + i), -i);
+            }
+            maps.add(im);
+            maps.add(im.assoc(null, -100));
+            // Mutable nodes can have spare room in their arrays.
+            maps.add(mu.immutable());
+        }
+        return maps;
+    }
+
+    @Test public void mapValuesTest() {
+        for (PersistentHashMap<Object,Integer> m : mapsToTransform()) {
+            Map<Object,String> control = new HashMap<>();
+            for (UnmodMap.UnEntry<Object,Integer> e : m) {
+                control.put(e.getKey(), e.getKey() + "=" + e.getValue());
+            }
+            PersistentHashMap<Object,String> mapped = m.mapValues((k, v) -> k + "=" + v);
+            assertEquals(control, mapped);
+            assertEquals(m.size(), mapped.size());
+            assertEquals(control, m.parallelMapValues((k, v) -> k + "=" + v));
+
+            // Still a working map
+            PersistentHashMap<Object,String> changed = mapped.assoc(-1, "new")
+                                                             .without(0)
+                                                             .without(new HashCollision("c2"));
+            control.put(-1, "new");
+            control.remove(0);
+            control.remove(new HashCollision("c2"));
+            assertEquals(control, changed);
+        }
+    }
+
+    @Test public void filterEntriesTest() {
+        for (PersistentHashMap<Object,Integer> m : mapsToTransform()) {
+            assertSame(m, m.filterEntries((k, v) -> true));
+            assertSame(m, m.parallelFilterEntries((k, v) -> true));
+            assertEquals(0, m.filterEntries((k, v) -> false).size());
+            assertEquals(PersistentHashMap.empty(), m.parallelFilterEntries((k, v) -> false));
+
+            Map<Object,Integer> control = new HashMap<>();
+            for (UnmodMap.UnEntry<Object,Integer> e : m) {
+                if ((e.getValue() % 3) == 0) {
+                    control.put(e.getKey(), e.getValue());
+                }
+            }
+            PersistentHashMap<Object,Integer> filtered = m.filterEntries((k, v) -> (v % 3) == 0);
+            assertEquals(control, filtered);
+            assertEquals(control.size(), filtered.size());
+            PersistentHashMap<Object,Integer> parFiltered =
+                    m.parallelFilterEntries((k, v) -> (v % 3) == 0);
+            assertEquals(control, parFiltered);
+            assertEquals(control.size(), parFiltered.size());
+
+            // Still a working map
+            filtered = filtered.assoc(1, 1).without(3).without(new HashCollision("c0"));
+            control.put(1, 1);
+            control.remove(3);
+            control.remove(new HashCollision("c0"));
+            assertEquals(control, filtered);
+            assertEquals(control.size(), filtered.size());
+        }
+    }
+
+    @Test public void parallelOfTest() {
+        assertEquals(PersistentHashMap.empty(), PersistentHashMap.parallelOf(null, 4));
+        assertThrows(IllegalArgumentException.class,
+                     () -> PersistentHashMap.parallelOf(Collections.emptyList(), 0));
+
+        for (int size : new int[] { 0, 1, 9, 100, 50000 }) {
+            List<Map.Entry<Object,Integer>> entries = new ArrayList<>();
+            Map<Object,Integer> control = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                entries.add(tup(i, i));
+                // Duplicate keys: the later value wins.
+                if ((i % 10) == 0) {
+                    entries.add(tup(i, -i));
+                }
+            }
+            entries.add(null);
+            entries.add(tup(null, 7));
+            for (int i = 0; i < 5; i++) {
+                entries.add(tup(new HashCollision("c" + i), i));
+            }
+            for (Map.Entry<Object,Integer> e : entries) {
+                if (e != null) {
+                    control.put(e.getKey(), e.getValue());
+                }
+            }
+
+            for (int parallelism : new int[] { 1, 4 }) {
+                PersistentHashMap<Object,Integer> m =
+                        PersistentHashMap.parallelOf(entries, parallelism);
+                assertEquals(control, m);
+                assertEquals(control.size(), m.size());
+                assertEquals(PersistentHashMap.of(entries), m);
+
+                // Still a working map
+                Map<Object,Integer> control2 = new HashMap<>(control);
+                for (int i = 0; i < size; i += 7) {
+                    m = m.without(i).assoc(-i - 1, i);
+                    control2.remove(i);
+                    control2.put(-i - 1, i);
+                }
+                assertEquals(control2, m);
+                assertEquals(control2.size(), m.size());
+            }
+        }
+        // An Iterable that isn't a Collection
+        List<Map.Entry<String,Integer>> list = Arrays.asList(tup("a", 1), tup("b", 2));
+        Iterable<Map.Entry<String,Integer>> notACollection = list::iterator;
+        assertEquals(map(tup("a", 1), tup("b", 2)),
+                     PersistentHashMap.parallelOf(notACollection, 2));
+    }
+
+    @Test public void shardsTest() {
+        PersistentHashMap<String,Integer> small = PersistentHashMap.of(vec(tup("a", 1)));
+        assertEquals(vec(small), small.shards());
+        assertEquals(1, PersistentHashMap.empty().shards().size());
+
+        for (PersistentHashMap<Object,Integer> m : mapsToTransform()) {
+            ImList<PersistentHashMap<Object,Integer>> shards = m.shards();
+            Map<Object,Integer> union = new HashMap<>();
+            int totalSize = 0;
+            for (PersistentHashMap<Object,Integer> shard : shards) {
+                assertEquals(shard.size(), shard.entrySet().size());
+                totalSize += shard.size();
+                for (UnmodMap.UnEntry<Object,Integer> e : shard) {
+                    assertNull(union.put(e.getKey(), e.getValue()), "Shards overlap");
+                    assertEquals(e.getValue(), shard.get(e.getKey()));
+                }
+            }
+            assertEquals(m.size(), totalSize);
+            assertEquals(m, union);
+            if (m.size() > 1000) {
+                assertTrue(shards.size() >= 32);
+            }
+        }
+    }
+
+    /** All 2^numBlocks strings made of "Aa" and "BB", which all have the same hashCode. */
+    static List<String> collidingStrings(int numBlocks) {
+        List<String> ret = new ArrayList<>();
+        ret.add("");
+        for (int i = 0; i < numBlocks; i++) {
+            List<String> next = new ArrayList<>();
+            for (String str : ret) {
+                next.add(str + "Aa");
+                next.add(str + "BB");
+            }
+            ret = next;
+        }
+        return ret;
+    }
+
+    /**
+     Same hash as {@link HashCollision}, but Comparable.  compareTo() only looks at the first
+     character, so it returns 0 for some keys that aren't equal (like BigDecimal does).
+     */
+    static class ComparableCollision implements Comparable<ComparableCollision> {
+        final String str;
+        ComparableCollision(String s) { str = s; }
+
+        @Override public int compareTo(ComparableCollision that) {
+            return Character.compare(str.charAt(0), that.str.charAt(0));
+        }
+        @Override public int hashCode() { return 37; }
+        @Override public String toString() { return str; }
+        @Override public boolean equals(Object other) {
+            if (this == other) { return true; }
+            if (!(other instanceof ComparableCollision)) { return false; }
+            return Objects.equals(str, ((ComparableCollision) other).str);
+        }
+    }
+
+    private static <K> void collisionGuts(List<K> keys, Equator<K> eq) {
+        Map<K,Integer> control = new HashMap<>();
+        PersistentHashMap<K,Integer> im = PersistentHashMap.empty(eq);
+        PersistentHashMap.MutHashMap<K,Integer> mu = PersistentHashMap.emptyMutable(eq);
+        for (int i = 0; i < keys.size(); i++) {
+            control.put(keys.get(i), i);
+            im = im.assoc(keys.get(i), i);
+            mu.assoc(keys.get(i), i);
+            assertEquals(Integer.valueOf(i), im.get(keys.get(i)));
+            assertEquals(Integer.valueOf(i), mu.get(keys.get(i)));
+        }
+        assertEquals(control, im);
+        assertEquals(control, mu);
+        for (K key : keys) {
+            assertEquals(control.get(key), im.get(key));
+            assertEquals(control.get(key), mu.get(key));
+        }
+
+        // Replace and remove every third key.
+        for (int i = 0; i < keys.size(); i += 3) {
+            im = im.assoc(keys.get(i), -i).without(keys.get(i + 1 < keys.size() ? i + 1 : 0));
+            mu.assoc(keys.get(i), -i).without(keys.get(i + 1 < keys.size() ? i + 1 : 0));
+            control.put(keys.get(i), -i);
+            control.remove(keys.get(i + 1 < keys.size() ? i + 1 : 0));
+        }
+        assertEquals(control, im);
+        assertEquals(control, mu);
+        assertEquals(control, mu.immutable());
+        for (K key : keys) {
+            assertEquals(control.get(key), im.get(key));
+            assertEquals(control.containsKey(key), im.containsKey(key));
+        }
+    }
+
+    @Test public void collisionBins() {
+        // All in one bin, all Comparable and consistent with equals.
+        List<String> strs = collidingStrings(8);
+        assertEquals(256, strs.size());
+        assertEquals(strs.get(0).hashCode(), strs.get(255).hashCode());
+        Collections.shuffle(strs, new Random(3));
+        collisionGuts(strs, Equator.defaultEquator());
+        collisionGuts(strs, Equator.spreading(Equator.defaultEquator()));
+
+        // compareTo() not consistent with equals()
+        List<ComparableCollision> comps = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            comps.add(new ComparableCollision(((char) ('a' + (i % 5))) + "-" + i));
+        }
+        collisionGuts(comps, Equator.defaultEquator());
+
+        // Mixed classes in one bin fall back to a linear search.
+        List<Object> mixed = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            mixed.add(((i % 4) == 0) ? new HashCollision("h" + i)
+                                     : new ComparableCollision("m" + i));
+        }
+        collisionGuts(mixed, Equator.defaultEquator());
+        // ...and so does adding an odd key to a big bin of one class.
+        List<Object> oddOneLast = new ArrayList<>(comps);
+        oddOneLast.add(new HashCollision("odd"));
+        collisionGuts(oddOneLast, Equator.defaultEquator());
+
+        // A non-default Equator never uses compareTo().
+        Equator<String> caseInsensitive = new Equator<String>() {
+            @Override public int hash(String s) { return 37; }
+            @Override public boolean eq(String a, String b) { return a.equalsIgnoreCase(b); }
+        };
+        PersistentHashMap<String,Integer> ci = PersistentHashMap.empty(caseInsensitive);
+        for (int i = 0; i < 20; i++) {
+            ci = ci.assoc("key" + i, i);
+        }
+        assertEquals(Integer.valueOf(7), ci.get("KEY7"));
+        assertEquals(20, ci.assoc("KEY7", -7).size());
+    }
+
+    /** get(), getOrElse(), and containsKey() skip entry(), so check that they agree with it. */
+    @Test public void lookupsWithoutEntry() {
+        List<String> colliders = collidingStrings(3);
+        PersistentHashMap.MutHashMap<String,Integer> mu = PersistentHashMap.emptyMutable();
+        for (int i = 0; i < colliders.size(); i++) {
+            mu.assoc(colliders.get(i), i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            mu.assoc("k" + i, (i == 7) ? null : i);
+        }
+        mu.assoc(null, -1);
+        List<String> probes = new ArrayList<>(colliders);
+        probes.add(null);
+        probes.add("k7");
+        probes.add("k999");
+        probes.add("k1000");
+        probes.add("AaAaAaAa");
+
+        lookupsMatchEntry(mu, probes);
+        PersistentHashMap<String,Integer> im = mu.immutable();
+        lookupsMatchEntry(im, probes);
+        assertTrue(im.containsKey("k7"));
+        assertNull(im.getOrElse("k7", 3));
+        assertEquals(Integer.valueOf(-1), im.without("k7").getOrElse(null, 3));
+        assertEquals(Integer.valueOf(3), im.without(null).getOrElse(null, 3));
+        assertFalse(PersistentHashMap.<String,Integer>empty().containsKey("k1"));
+    }
+
+    private static void lookupsMatchEntry(BaseMap<String,Integer> m, List<String> probes) {
+        for (String key : probes) {
+            Option<UnmodMap.UnEntry<String,Integer>> entry = m.entry(key);
+            assertEquals(entry.isSome(), m.containsKey(key));
+            Integer expected = entry.isSome() ? entry.get().getValue() : null;
+            assertEquals(expected, m.get(key));
+            assertEquals(entry.isSome() ? expected : Integer.valueOf(-99), m.getOrElse(key, -99));
+        }
+    }
 }
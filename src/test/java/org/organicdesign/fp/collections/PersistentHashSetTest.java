@@ -1,10 +1,12 @@
 package org.organicdesign.fp.collections;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.jupiter.api.Test;
@@ -375,6 +377,86 @@ public class PersistentHashSetTest {
                                PersistentHashSet.of(vec("hello", "an", "work", "the")));
     }
 
+    /** Puts and removes the same random items in a PersistentHashSet, a MutHashSet, and a HashSet. */
+    private static <E> PersistentHashSet<E> randomGuts(List<E> items, Random rnd) {
+        Set<E> control = new HashSet<>();
+        PersistentHashSet<E> im = PersistentHashSet.empty();
+        PersistentHashSet.MutHashSet<E> mu = PersistentHashSet.emptyMutable();
+        for (int i = 0; i < items.size() * 3; i++) {
+            E item = items.get(rnd.nextInt(items.size()));
+            if (rnd.nextInt(3) == 0) {
+                control.remove(item);
+                im = im.without(item);
+                mu.without(item);
+            } else {
+                control.add(item);
+                im = im.put(item);
+                mu.put(item);
+            }
+            assertEquals(control.contains(item), im.contains(item));
+            assertEquals(control.contains(item), mu.contains(item));
+        }
+        assertEquals(control.size(), im.size());
+        assertEquals(control, im);
+        assertEquals(control, mu);
+        setIterTest(control, im.iterator());
+        setIterTest(control, mu.iterator());
+
+        // Changes to the mutable set after immutable() don't show up in earlier snapshots.
+        PersistentHashSet<E> snapshot = mu.immutable();
+        assertEquals(control, snapshot);
+        PersistentHashSet.MutHashSet<E> mu2 = snapshot.mutable();
+        for (E item : items) {
+            mu2.without(item);
+        }
+        assertEquals(0, mu2.size());
+        assertEquals(control, snapshot);
+
+        // Remove everything, in some other order, from the persistent set.
+        for (E item : items) {
+            im = im.without(item);
+        }
+        assertEquals(0, im.size());
+        assertFalse(im.iterator().hasNext());
+        return snapshot;
+    }
+
+    @Test public void randomPutWithout() {
+        Random rnd = new Random(34);
+        List<Integer> ints = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            ints.add(rnd.nextInt());
+        }
+        // Small ints fill the first few levels of the trie densely.
+        for (int i = 0; i < 2000; i++) {
+            ints.add(i);
+        }
+        ints.add(null);
+        PersistentHashSet<Integer> intSet = randomGuts(ints, rnd);
+        assertEquals(intSet, serializeDeserialize(intSet));
+
+        // Collisions, some sorted and some not.
+        List<Object> mixed = new ArrayList<>(PersistentHashMapTest.collidingStrings(6));
+        for (int i = 0; i < 30; i++) {
+            mixed.add(new PersistentHashMapTest.ComparableCollision(((char) ('a' + (i % 4))) + "-" + i));
+            if ((i % 5) == 0) {
+                mixed.add(new PersistentHashMapTest.HashCollision("h" + i));
+            }
+        }
+        mixed.add(null);
+        randomGuts(mixed, rnd);
+    }
+
+    @Test public void ofMapTest() {
+        PersistentHashMap<Integer,String> m = PersistentHashMap.<Integer,String>empty(mod3Eq)
+                .assoc(1, "a").assoc(2, "b").assoc(6, "c");
+        PersistentHashSet<Integer> s = PersistentHashSet.ofMap(m);
+        assertEquals(mod3Eq, s.equator());
+        assertEquals(3, s.size());
+        assertTrue(s.contains(4));
+        assertTrue(s.contains(0));
+    }
+
 //    // TODO: Finish this!
 //    @Test public void testToString() {
 //        PersistentHashSet<String> s2 = PersistentHashSet.ofComp(STR_LEN_COMP);
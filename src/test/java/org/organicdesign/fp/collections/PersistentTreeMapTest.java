@@ -925,4 +925,134 @@ public class PersistentTreeMapTest {
                                                                Fn1.identity()),
                                         max);
     }
+
+    @Test public void mapValuesTest() {
+        for (int size : new int[] { 0, 1, 2, 3, 100, 10000 }) {
+            PersistentTreeMap<Integer,Integer> m = empty();
+            SortedMap<Integer,String> control = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                m = m.assoc(i, i * 2);
+                control.put(i, i + "=" + (i * 2));
+            }
+            PersistentTreeMap<Integer,String> mapped = m.mapValues((k, v) -> k + "=" + v);
+            assertEquals(control, mapped);
+            compareIterators(control.entrySet().iterator(), mapped.iterator());
+            assertEquals(control, m.parallelMapValues((k, v) -> k + "=" + v));
+
+            // Still a working map
+            mapped = mapped.assoc(-1, "new").without(size / 2);
+            control.put(-1, "new");
+            control.remove(size / 2);
+            assertEquals(control, mapped);
+        }
+    }
+
+    @Test public void filterEntriesTest() {
+        for (int size : new int[] { 0, 1, 2, 3, 7, 8, 100, 10000 }) {
+            PersistentTreeMap<Integer,Integer> m = empty();
+            for (int i = 0; i < size; i++) {
+                m = m.assoc(i, i);
+            }
+            assertSame(m, m.filterEntries((k, v) -> true));
+            assertSame(m, m.parallelFilterEntries((k, v) -> true));
+            assertEquals(0, m.filterEntries((k, v) -> false).size());
+
+            for (int mod = 2; mod < 6; mod++) {
+                final int md = mod;
+                SortedMap<Integer,Integer> control = new TreeMap<>();
+                for (int i = 0; i < size; i++) {
+                    if ((i % md) != 0) {
+                        control.put(i, i);
+                    }
+                }
+                PersistentTreeMap<Integer,Integer> filtered =
+                        m.filterEntries((k, v) -> (v % md) != 0);
+                assertEquals(control, filtered);
+                assertEquals(control.size(), filtered.size());
+                assertEquals(control, m.parallelFilterEntries((k, v) -> (v % md) != 0));
+
+                // The rebuilt tree must be a valid red-black tree, so keep changing it.
+                for (int i = 0; i < size; i += 3) {
+                    filtered = filtered.without(i);
+                    control.remove(i);
+                    filtered = filtered.assoc(-i, i);
+                    control.put(-i, i);
+                }
+                assertEquals(control, filtered);
+                compareIterators(control.entrySet().iterator(), filtered.iterator());
+            }
+        }
+    }
+
+    /** Nodes with null values have no value field, so switching a value to or from null changes the node class. */
+    @Test public void nullValueNodes() {
+        TreeMap<Integer,String> control = new TreeMap<>();
+        PersistentTreeMap<Integer,String> m = empty();
+        java.util.Random rnd = new java.util.Random(35);
+        for (int i = 0; i < 5000; i++) {
+            int key = rnd.nextInt(1000);
+            int op = rnd.nextInt(4);
+            if (op == 0) {
+                control.remove(key);
+                m = m.without(key);
+            } else {
+                String val = (op == 1) ? null : ordinal(key);
+                control.put(key, val);
+                m = m.assoc(key, val);
+            }
+            assertEquals(control.size(), m.size());
+        }
+        assertEquals(control, m);
+        compareIterators(control.entrySet().iterator(), m.iterator());
+        compareIterators(control.values().iterator(), m.valIterator());
+
+        // Replacing a null value with null is a no-op.
+        Integer nullKey = null;
+        for (Map.Entry<Integer,String> entry : control.entrySet()) {
+            if (entry.getValue() == null) {
+                nullKey = entry.getKey();
+                break;
+            }
+        }
+        assertNotNull(nullKey);
+        assertTrue(m == m.assoc(nullKey, null));
+        assertEquals("x", m.assoc(nullKey, "x").get(nullKey));
+        assertNull(m.assoc(nullKey, "x").assoc(nullKey, null).get(nullKey));
+
+        // Entries with and without values are Map.Entries with the usual equals and hashCode.
+        UnmodMap.UnEntry<Integer,String> nullEntry = m.entry(nullKey).get();
+        assertEquals(Tuple2.of(nullKey, null), nullEntry);
+        assertEquals(nullEntry, Tuple2.of(nullKey, null));
+        assertEquals(Tuple2.of(nullKey, null).hashCode(), nullEntry.hashCode());
+        UnmodMap.UnEntry<Integer,String> valEntry = m.entry(control.firstKey()).get();
+        assertEquals(new java.util.AbstractMap.SimpleEntry<>(control.firstEntry()), valEntry);
+        assertEquals(control.firstEntry().hashCode(), valEntry.hashCode());
+
+        // An entry is serialized as a Tuple2, without the tree under it.
+        assertEquals(Tuple2.of(nullKey, null), serializeDeserialize(nullEntry));
+        assertEquals(Tuple2.class, serializeDeserialize(valEntry).getClass());
+
+        assertEquals(m, serializeDeserialize(m));
+    }
+
+    /** get(), getOrElse(), and containsKey() skip entry(), so check that they agree with it. */
+    @Test public void lookupsWithoutEntry() {
+        PersistentTreeMap<String,Integer> m = empty();
+        for (int i = 0; i < 100; i++) {
+            m = m.assoc("k" + i, (i == 7) ? null : i);
+        }
+        for (int i = -5; i < 105; i++) {
+            String key = "k" + i;
+            assertEquals(m.entry(key).isSome(), m.containsKey(key));
+            assertEquals(m.entry(key).isSome() ? m.entry(key).get().getValue() : null, m.get(key));
+        }
+        assertTrue(m.containsKey("k7"));
+        assertNull(m.get("k7"));
+        assertNull(m.getOrElse("k7", 3));
+        assertEquals(Integer.valueOf(3), m.getOrElse("k100", 3));
+        assertEquals(Integer.valueOf(42), m.getOrElse("k42", 3));
+        assertFalse(PersistentTreeMap.<String,Integer>empty().containsKey("k1"));
+        assertEquals("x", PersistentTreeMap.<String,String>empty().getOrElse("k1", "x"));
+    }
 }
+
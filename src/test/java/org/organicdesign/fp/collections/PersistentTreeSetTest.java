@@ -343,4 +343,26 @@ public class PersistentTreeSetTest {
                      s2.put("hello").put("an").put("work").put("b").put("the").toString());
     }
 
+
+    @Test public void randomPutWithout() {
+        TreeSet<Integer> control = new TreeSet<>();
+        PersistentTreeSet<Integer> s = PersistentTreeSet.empty();
+        java.util.Random rnd = new java.util.Random(35);
+        for (int i = 0; i < 20000; i++) {
+            Integer item = rnd.nextInt(3000);
+            if (rnd.nextInt(3) == 0) {
+                control.remove(item);
+                s = s.without(item);
+            } else {
+                control.add(item);
+                s = s.put(item);
+            }
+            assertEquals(control.contains(item), s.contains(item));
+        }
+        assertEquals(control.size(), s.size());
+        compareIterators(control.iterator(), s.iterator());
+        assertEquals(control.first(), s.first());
+        assertEquals(control.last(), s.last());
+        assertEquals(s, serializeDeserialize(s));
+    }
 }
@@ -519,4 +519,122 @@ public class PersistentVectorTest {
         m = m.replace(idx, "fixed");
         assertEquals("fixed", m.get(idx));
     }
+
+    @Test
+    public void sortedTest() {
+        Random rand = new Random(7);
+        // Sizes around leaf, tail, and root-overflow boundaries.
+        for (int size : new int[] { 0, 1, 31, 32, 33, 64, 65, 1055, 1056, 1057, 1088, 1089,
+                                    32 * 32 * 32 + 32, 32 * 32 * 32 + 33, 40_000 }) {
+            PersistentVector<Integer> v = PersistentVector.empty();
+            List<Integer> control = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                int item = rand.nextInt(size + 1);
+                v = v.append(item);
+                control.add(item);
+            }
+            PersistentVector<Integer> orig = v;
+            Collections.sort(control);
+
+            PersistentVector<Integer> sorted = v.sorted(Comparator.naturalOrder());
+            assertEquals(control, sorted);
+            for (int i = 0; i < size; i++) {
+                assertEquals(control.get(i), sorted.get(i));
+            }
+            assertEquals(control, v.parallelSorted(Comparator.naturalOrder()));
+            // Didn't change the original
+            assertEquals(orig, v);
+
+            // The sorted vector must have a sane internal structure, so keep appending to it.
+            PersistentVector<Integer> im = sorted;
+            MutList<Integer> mu = sorted.mutable();
+            for (int i = 0; i < 1100; i++) {
+                control.add(-i);
+                im = im.append(-i);
+                mu.append(-i);
+            }
+            assertEquals(control, im);
+            assertEquals(control, mu);
+            assertEquals(control, mu.immutable());
+        }
+
+        // Stable
+        PersistentVector<String> strs =
+                PersistentVector.ofIter(Arrays.asList("b1", "a1", "b2", "a2", "c1", "a3"));
+        Comparator<String> firstLetter = Comparator.comparing(str -> str.charAt(0));
+        assertEquals(vec("a1", "a2", "a3", "b1", "b2", "c1"), strs.sorted(firstLetter));
+        assertEquals(vec("a1", "a2", "a3", "b1", "b2", "c1"), strs.parallelSorted(firstLetter));
+    }
+
+    @Test
+    public void mapPreservingShapeTest() {
+        for (int size : new int[] { 0, 1, 31, 32, 33, 1056, 1057, 32 * 32 * 32 + 33, 70_000 }) {
+            PersistentVector<Integer> v = PersistentVector.empty();
+            List<String> control = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                v = v.append(i);
+                control.add("x" + i);
+            }
+            PersistentVector<String> mapped = v.mapPreservingShape(i -> "x" + i);
+            assertEquals(control, mapped);
+            for (int i = 0; i < size; i++) {
+                assertEquals(control.get(i), mapped.get(i));
+            }
+            assertEquals(control, v.parallelMapPreservingShape(i -> "x" + i));
+
+            // The mapped vector must have a sane internal structure, so keep changing it.
+            PersistentVector<String> im = mapped;
+            MutList<String> mu = mapped.mutable();
+            for (int i = 0; i < 1100; i++) {
+                control.add("y" + i);
+                im = im.append("y" + i);
+                mu.append("y" + i);
+            }
+            assertEquals(control, im);
+            assertEquals(control, mu);
+            assertEquals(control, mu.immutable());
+            if (size > 0) {
+                assertEquals("z", im.replace(size - 1, "z").get(size - 1));
+                assertEquals("x" + (size - 1), im.get(size - 1));
+            }
+        }
+    }
+
+    @Test public void mutableEditTokens() {
+        // Big enough for a three-level tree.
+        int size = 40000;
+        PersistentVector.MutVector<Integer> mu = emptyMutable();
+        List<Integer> control = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            mu.append(i);
+            control.add(i);
+        }
+        PersistentVector<Integer> snap1 = mu.immutable();
+        assertEquals(control, snap1);
+        try {
+            mu.append(-1);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // Mutable used after immutable! call
+        }
+
+        // A new mutable has a new token and must copy the nodes it shares with snap1.
+        PersistentVector.MutVector<Integer> mu2 = snap1.mutable();
+        for (int i = 0; i < size; i++) {
+            mu2.replace(i, -i);
+            mu2.append(i);
+        }
+        PersistentVector<Integer> snap2 = mu2.immutable();
+        assertEquals(control, snap1);
+        assertEquals(size * 2, snap2.size());
+        for (int i = 1; i < size; i++) {
+            assertEquals(Integer.valueOf(-i), snap2.get(i));
+            assertEquals(Integer.valueOf(i), snap2.get(size + i));
+        }
+        // Persistent changes to a snapshot never touch the nodes of another.
+        PersistentVector<Integer> snap3 = snap2.replace(7, 7).append(99);
+        assertEquals(Integer.valueOf(-7), snap2.get(7));
+        assertEquals(Integer.valueOf(7), snap3.get(7));
+        assertEquals(size * 2, snap2.size());
+    }
 }
@@ -1048,6 +1048,89 @@ public class RrbTreeTest {
         }
     }
 
+    @Test public void sortedTest() {
+        for (int size : new int[] { 0, 1, 31, 32, 33, 43, 44, 1024, 1057, ONE_LEVEL_SZ + 5,
+                                    TWO_LEVEL_SZ / 3 }) {
+            // Build with random inserts so we sort a relaxed tree.
+            ImRrbt<Integer> im = generateRelaxed(size, RrbTree.empty());
+            List<Integer> control = new ArrayList<>(im);
+            Collections.sort(control);
+
+            ImRrbt<Integer> sorted = im.sorted(Comparator.naturalOrder());
+            sorted.debugValidate();
+            assertEquals(control, sorted);
+            ImRrbt<Integer> parSorted = im.parallelSorted(Comparator.naturalOrder());
+            parSorted.debugValidate();
+            assertEquals(control, parSorted);
+
+            for (int i = 0; i < size; i += 97) {
+                assertEquals(i, sorted.binarySearch(i, Comparator.naturalOrder()));
+            }
+            assertEquals(-1, sorted.binarySearch(-5, Comparator.naturalOrder()));
+            assertEquals(-size - 1, sorted.binarySearch(size, Comparator.naturalOrder()));
+
+            ImRrbt<Integer> appended = sorted.append(-1).insert(0, -2);
+            appended.debugValidate();
+            assertEquals(Integer.valueOf(-1), appended.get(size + 1));
+        }
+
+        ImRrbt<Object> hetero = StaticImports.<Object>rrb(3, "b", 1.5, "a", 2);
+        assertEquals(rrb(1.5, 2, 3, "a", "b"),
+                     hetero.sorted(Comparator.comparing(Object::toString)));
+    }
+
+    @Test public void mapPreservingShapeTest() {
+        for (int size : new int[] { 0, 1, 32, 33, 1057, ONE_LEVEL_SZ + 5, TWO_LEVEL_SZ / 3 }) {
+            ImRrbt<Integer> im = generateRelaxed(size, RrbTree.empty());
+            List<String> control = new ArrayList<>();
+            for (Integer i : im) {
+                control.add("x" + i);
+            }
+
+            ImRrbt<String> mapped = im.mapPreservingShape(i -> "x" + i);
+            mapped.debugValidate();
+            assertEquals(control, mapped);
+            ImRrbt<String> parMapped = im.parallelMapPreservingShape(i -> "x" + i);
+            parMapped.debugValidate();
+            assertEquals(control, parMapped);
+
+            // Identity mapping gives the same structure, focus and all.
+            assertEquals(im.indentedStr(0), im.mapPreservingShape(i -> i).indentedStr(0));
+            assertEquals(im.indentedStr(0), im.parallelMapPreservingShape(i -> i).indentedStr(0));
+
+            ImRrbt<String> appended = mapped.append("end").insert(0, "start");
+            appended.debugValidate();
+            assertEquals("end", appended.get(size + 1));
+        }
+
+        // Mapping a MutRrbt with a partly-filled focus leaves it usable and unchanged.
+        MutRrbt<Integer> mu = generateRelaxed(ONE_LEVEL_SZ, RrbTree.emptyMutable());
+        mu.append(-1);
+        List<Integer> before = new ArrayList<>(mu);
+        MutRrbt<Integer> muMapped = mu.parallelMapPreservingShape(i -> i * 2);
+        muMapped.debugValidate();
+        assertEquals(before, mu);
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(Integer.valueOf(before.get(i) * 2), muMapped.get(i));
+        }
+        muMapped.append(7);
+        assertEquals(Integer.valueOf(7), muMapped.get(before.size()));
+        assertEquals(before, mu);
+    }
+
+    @Test public void appendAfterJoin() {
+        ImRrbt<Integer> im1 = RrbTree.<Integer>empty().concat(intRange(0, 100));
+        ImRrbt<Integer> im2 = RrbTree.<Integer>empty().concat(intRange(100, 200));
+        ImRrbt<Integer> joined = im1.join(im2).append(200);
+        joined.debugValidate();
+        assertEquals(intRange(0, 201), joined);
+
+        MutRrbt<Integer> mu = im1.mutable().join(im2.mutable());
+        mu.append(200);
+        mu.debugValidate();
+        assertEquals(intRange(0, 201), mu);
+    }
+
     @Test public void testWithout() {
         assertEquals(rrb(1,2,3,5,6), rrb(1,2,3,4,5,6).without(3));
         assertEquals(mut(1,2,3,5,6), mut(1,2,3,4,5,6).without(3));
@@ -1081,6 +1164,158 @@ public class RrbTreeTest {
 //        }
     }
 
+    private static List<Integer> intRange(int from, int to) {
+        List<Integer> ret = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ret.add(i);
+        }
+        return ret;
+    }
+
+    @Test public void insertAllTest() {
+        assertEquals(rrb(1,2,7,8,9,3,4), rrb(1,2,3,4).insertAll(2, Arrays.asList(7,8,9)));
+        assertEquals(mut(7,8,9,1,2,3,4), mut(1,2,3,4).insertAll(0, Arrays.asList(7,8,9)));
+        assertEquals(rrb(1,2,3,4,7,8,9), rrb(1,2,3,4).insertAll(4, Arrays.asList(7,8,9)));
+        assertEquals(rrb(1,2,3), rrb(1,2,3).insertAll(1, null));
+        assertEquals(rrb(1,2,3), rrb(1,2,3).insertAll(1, Collections.emptyList()));
+        assertEquals(rrb(7,8,9), RrbTree.<Integer>empty().insertAll(0, Arrays.asList(7,8,9)));
+
+        MutRrbt<Integer> mu = RrbTree.emptyMutable();
+        mu.concat(intRange(0, 100));
+        assertSame(mu, mu.insertAll(50, intRange(1000, 1100)));
+        assertEquals(200, mu.size());
+
+        for (int sz : new int[] { 0, 1, 31, 32, 33, 43, 44, 100, ONE_LEVEL_SZ }) {
+            ImRrbt<Integer> im = RrbTree.<Integer>empty().concat(intRange(0, sz));
+            for (int k : new int[] { 1, 5, 32, 33, 100, 1025, ONE_LEVEL_SZ + 7 }) {
+                List<Integer> inserted = intRange(-k, 0);
+                for (int idx : new int[] { 0, sz / 3, sz / 2, sz }) {
+                    List<Integer> control = new ArrayList<>(intRange(0, sz));
+                    control.addAll(idx, inserted);
+
+                    ImRrbt<Integer> im2 = im.insertAll(idx, inserted);
+                    im2.debugValidate();
+                    assertEquals(control, im2);
+
+                    MutRrbt<Integer> mu2 = im.mutable();
+                    mu2.insertAll(idx, inserted);
+                    mu2.debugValidate();
+                    assertEquals(control, mu2);
+                }
+            }
+            // insertAll should not have changed the original.
+            assertEquals(intRange(0, sz), im);
+        }
+
+        assertThrows(IndexOutOfBoundsException.class,
+                     () -> rrb(1,2,3).insertAll(-1, Arrays.asList(7,8,9)));
+        assertThrows(IndexOutOfBoundsException.class,
+                     () -> rrb(1,2,3).insertAll(4, Arrays.asList(7,8,9)));
+    }
+
+    @Test public void removeRangeTest() {
+        assertEquals(rrb(1,2,5,6), rrb(1,2,3,4,5,6).removeRange(2, 4));
+        assertEquals(mut(3,4,5,6), mut(1,2,3,4,5,6).removeRange(0, 2));
+        assertEquals(rrb(1,2,3,4), rrb(1,2,3,4,5,6).removeRange(4, 6));
+        assertEquals(rrb(), rrb(1,2,3,4,5,6).removeRange(0, 6));
+        assertEquals(rrb(1,2,3), rrb(1,2,3).removeRange(1, 1));
+
+        MutRrbt<Integer> mu = RrbTree.emptyMutable();
+        mu.concat(intRange(0, 100));
+        assertSame(mu, mu.removeRange(10, 90));
+        assertEquals(20, mu.size());
+
+        int sz = TWO_LEVEL_SZ / 4;
+        ImRrbt<Integer> im = RrbTree.<Integer>empty().concat(intRange(0, sz));
+        for (int i = 0; i < 200; i++) {
+            int from = rand.nextInt(sz + 1);
+            int to = from + rand.nextInt(sz - from + 1);
+            List<Integer> control = new ArrayList<>(intRange(0, sz));
+            control.subList(from, to).clear();
+
+            ImRrbt<Integer> im2 = im.removeRange(from, to);
+            im2.debugValidate();
+            assertEquals(control, im2);
+
+            MutRrbt<Integer> mu2 = im.mutable().removeRange(from, to);
+            mu2.debugValidate();
+            assertEquals(control, mu2);
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> rrb(1,2,3).removeRange(-1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> rrb(1,2,3).removeRange(2, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> rrb(1,2,3).removeRange(2, 1));
+    }
+
+    @Test public void mutableImmutableCycles() {
+        MutRrbt<Integer> mu = RrbTree.emptyMutable();
+        List<Integer> control = new ArrayList<>();
+        List<ImRrbt<Integer>> snapshots = new ArrayList<>();
+        List<List<Integer>> controlSnapshots = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // Append some, replace some (in the focus and in the tree), insert some.
+            for (int j = 0; j < 7; j++) {
+                mu.append(i * 10 + j);
+                control.add(i * 10 + j);
+            }
+            // Replace the same few items over and over so that we update nodes in place.
+            // Don't iterate through mu here, because that makes it give up its nodes.
+            for (int j = 0; j < 4; j++) {
+                int idx = (i * 3 + j) % control.size();
+                mu.replace(idx, -i);
+                control.set(idx, -i);
+            }
+            mu.replace(control.size() - 1, -i - 1);
+            control.set(control.size() - 1, -i - 1);
+            if (i % 5 == 0) {
+                int idx = rand.nextInt(control.size() + 1);
+                mu.insert(idx, i);
+                control.add(idx, i);
+            }
+
+            ImRrbt<Integer> im = mu.immutable();
+            snapshots.add(im);
+            controlSnapshots.add(new ArrayList<>(control));
+
+            // Every third time, thaw the snapshot instead of continuing with the same MutRrbt.
+            if (i % 3 == 0) {
+                mu = im.mutable();
+            }
+        }
+        assertEquals(control, mu);
+        mu.debugValidate();
+        // No later change should have leaked into an earlier snapshot.
+        for (int i = 0; i < snapshots.size(); i++) {
+            snapshots.get(i).debugValidate();
+            assertEquals(controlSnapshots.get(i), snapshots.get(i));
+        }
+
+        // Editing a thawed copy must not change the original
+        ImRrbt<Integer> im = snapshots.get(snapshots.size() - 1);
+        MutRrbt<Integer> mu2 = im.mutable();
+        for (int i = 0; i < im.size(); i++) {
+            mu2.replace(i, -1);
+        }
+        assertEquals(controlSnapshots.get(snapshots.size() - 1), im);
+        for (int i : mu2) {
+            assertEquals(-1, i);
+        }
+
+        // Editing pieces of a split must not change the original either.
+        mu2 = im.mutable();
+        Tuple2<MutRrbt<Integer>,MutRrbt<Integer>> split = mu2.split(im.size() / 2);
+        for (int i = 0; i < split._1().size(); i++) {
+            split._1().replace(i, -2);
+        }
+        for (int i = 0; i < split._2().size(); i++) {
+            split._2().replace(i, -3);
+        }
+        mu2.replace(0, -4);
+        assertEquals(controlSnapshots.get(snapshots.size() - 1), im);
+        assertEquals(Integer.valueOf(-2), split._1().get(0));
+        assertEquals(Integer.valueOf(-3), split._2().get(0));
+    }
+
     /**
      Thanks to fcurts for finding this!
      */
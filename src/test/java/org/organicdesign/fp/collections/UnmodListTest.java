@@ -16,6 +16,7 @@ package org.organicdesign.fp.collections;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -54,6 +55,31 @@ public class UnmodListTest {
         @Override public String get(int index) { return sticksAndStones[index]; }
     };
 
+    private static UnmodList<Integer> intList(Integer... is) {
+        return new UnmodList<Integer>() {
+            @Override public int size() { return is.length; }
+
+            @Override public Integer get(int index) { return is[index]; }
+        };
+    }
+
+    @Test public void binarySearchTest() {
+        UnmodList<Integer> list = intList(1, 3, 3, 5, 7);
+        assertEquals(0, list.binarySearch(1, Comparator.naturalOrder()));
+        assertEquals(3, list.binarySearch(5, Comparator.naturalOrder()));
+        assertEquals(4, list.binarySearch(7, Comparator.naturalOrder()));
+        assertTrue(list.binarySearch(3, Comparator.naturalOrder()) == 1 ||
+                   list.binarySearch(3, Comparator.naturalOrder()) == 2);
+        assertEquals(-1, list.binarySearch(0, Comparator.naturalOrder()));
+        assertEquals(-4, list.binarySearch(4, Comparator.naturalOrder()));
+        assertEquals(-6, list.binarySearch(8, Comparator.naturalOrder()));
+        assertEquals(-1, intList().binarySearch(8, Comparator.naturalOrder()));
+
+        UnmodList<Integer> reversed = intList(9, 6, 3);
+        assertEquals(1, reversed.binarySearch(6, Comparator.reverseOrder()));
+        assertEquals(-3, reversed.binarySearch(5, Comparator.reverseOrder()));
+    }
+
     @SuppressWarnings("deprecation")
     @Test public void containsTest() {
         for (String s : sticksAndStones) {
@@ -0,0 +1,118 @@
+package org.organicdesign.fp.xform;
+
+import org.junit.jupiter.api.Test;
+import org.organicdesign.fp.collections.RangeOfInt;
+import org.organicdesign.fp.oneOf.Option;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntXformTest {
+
+    @Test public void sources() {
+        assertArrayEquals(new int[0], IntXform.empty().toArray());
+        assertArrayEquals(new int[] { 1, 2, 3 }, IntXform.of(1, 2, 3).toArray());
+        assertArrayEquals(new int[] { 2, 3 }, IntXform.of(new int[] { 1, 2, 3, 4 }, 1, 3).toArray());
+        assertThrows(IndexOutOfBoundsException.class, () -> IntXform.of(new int[2], 1, 3));
+        assertArrayEquals(new int[] { 5, 6, 7 }, IntXform.of(RangeOfInt.of(5, 8)).toArray());
+        assertEquals(0, IntXform.of(RangeOfInt.of(5, 5)).count());
+        assertArrayEquals(new int[] { 'h', 'i' }, IntXform.ofChars("hi").toArray());
+        assertArrayEquals(new long[] { 3, 4 }, LongXform.range(3, 5).toArray());
+        assertArrayEquals(new double[] { 0.5, 1.5 }, DoubleXform.of(0.5, 1.5).toArray());
+    }
+
+    @Test public void stagesAndTerminals() {
+        IntXform xf = IntXform.of(RangeOfInt.of(0, 100))
+                              .filter(i -> (i % 3) == 0)
+                              .map(i -> i * 2)
+                              .drop(2)
+                              .take(5);
+        int[] expected = { 12, 18, 24, 30, 36 };
+        assertArrayEquals(expected, xf.toArray());
+        // Running it again starts over.
+        assertArrayEquals(expected, xf.toArray());
+        assertEquals(120, xf.sum());
+        assertEquals(5, xf.count());
+        assertEquals(Option.some(12), xf.min());
+        assertEquals(Option.some(36), xf.max());
+        assertEquals(Option.some(12), xf.head());
+        assertEquals(12 * 18 * 24 * 30 * 36, xf.fold(1, (a, b) -> a * b));
+
+        IntXform none = xf.filter(i -> i > 1000);
+        assertEquals(Option.none(), none.min());
+        assertEquals(Option.none(), none.max());
+        assertEquals(Option.none(), none.head());
+        assertEquals(0, none.sum());
+        assertArrayEquals(new int[0], xf.take(0).toArray());
+        assertSame(xf, xf.drop(0));
+        assertThrows(IllegalArgumentException.class, () -> xf.drop(-1));
+        assertThrows(IllegalArgumentException.class, () -> xf.take(-1));
+    }
+
+    @Test public void sumDoesNotOverflow() {
+        assertEquals(2L * Integer.MAX_VALUE, IntXform.of(Integer.MAX_VALUE, Integer.MAX_VALUE).sum());
+        assertEquals(2L * Integer.MAX_VALUE,
+                     IntXform.of(Integer.MAX_VALUE, Integer.MAX_VALUE).mapToLong(i -> i).sum());
+    }
+
+    @Test public void conversions() {
+        assertArrayEquals(new long[] { 1L << 32, 2L << 32 },
+                          IntXform.of(1, 2).mapToLong(i -> ((long) i) << 32).toArray());
+        assertArrayEquals(new double[] { 0.5, 1.0 },
+                          IntXform.of(1, 2).mapToDouble(i -> i / 2.0).toArray());
+        assertArrayEquals(new int[] { 1, 2 }, DoubleXform.of(1.2, 2.7).mapToInt(d -> (int) d).toArray());
+        assertEquals(2.5, LongXform.range(0, 3).mapToDouble(l -> l + 0.5).fold(0, Math::max));
+        assertEquals(Option.some(-0.0), DoubleXform.of(0.0, -0.0).min());
+
+        List<String> words = Arrays.asList("a", "bb", "ccc");
+        assertEquals(6, Xform.of(words).mapToInt(String::length).sum());
+        assertEquals(6L, Xform.of(words).mapToLong(String::length).sum());
+        assertEquals(3.0, Xform.of(words).mapToDouble(String::length).max().get());
+
+        assertEquals(Arrays.asList(1, 2, 3), IntXform.of(1, 2, 3).boxed().toMutList());
+        assertEquals(Arrays.asList("1!", "3!"),
+                     IntXform.of(1, 2, 3).filter(i -> i != 2).mapToObj(i -> i + "!").toMutList());
+        assertEquals(Arrays.asList(2L, 3L), LongXform.range(0, 10).boxed().drop(2).take(2).toMutList());
+    }
+
+    /** Stops reading the source as soon as the result is known, whether pushed or pulled. */
+    @Test public void lazy() {
+        AtomicInteger reads = new AtomicInteger();
+        IntXform src = IntXform.of(RangeOfInt.of(0, 1000)).map(i -> {
+            reads.incrementAndGet();
+            return i;
+        });
+
+        assertEquals(Option.some(10), src.filter(i -> i >= 10).head());
+        assertEquals(11, reads.get());
+
+        reads.set(0);
+        assertEquals(3, src.take(3).count());
+        assertEquals(3, reads.get());
+
+        reads.set(0);
+        Iterator<Integer> iter = src.drop(5).filter(i -> (i & 1) == 0).boxed().iterator();
+        assertEquals(0, reads.get());
+        assertEquals(Integer.valueOf(6), iter.next());
+        assertEquals(7, reads.get());
+        assertEquals(Integer.valueOf(8), iter.next());
+        assertEquals(9, reads.get());
+
+        reads.set(0);
+        assertEquals(Arrays.asList(0, 1), src.mapToObj(i -> i).take(2).toMutList());
+        assertEquals(2, reads.get());
+
+        // From an Xform, too.
+        AtomicInteger xfReads = new AtomicInteger();
+        Xform<Integer> xf = Xform.of(RangeOfInt.of(0, 1000)).map(i -> {
+            xfReads.incrementAndGet();
+            return i;
+        });
+        assertEquals(Option.some(3), xf.mapToInt(i -> i).filter(i -> i > 2).head());
+        assertEquals(4, xfReads.get());
+    }
+}
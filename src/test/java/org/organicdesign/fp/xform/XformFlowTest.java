@@ -0,0 +1,239 @@
+package org.organicdesign.fp.xform;
+
+import org.junit.jupiter.api.Test;
+import org.organicdesign.fp.collections.RangeOfInt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XformFlowTest {
+
+    // Runs everything on the calling thread, so the tests don't have to wait.
+    private static final Executor DIRECT = Runnable::run;
+
+    /** Records what it's sent.  Asks for more only when the test tells it to. */
+    private static class TestSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Throwable error = null;
+        volatile boolean completed = false;
+        volatile Flow.Subscription subscription;
+        private final long initialRequest;
+
+        TestSubscriber(long initial) { initialRequest = initial; }
+
+        @Override public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            if (initialRequest > 0) {
+                s.request(initialRequest);
+            }
+        }
+
+        @Override public void onNext(T item) { items.add(item); }
+
+        @Override public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+
+        @Override public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    /** An endless source of 0, 1, 2... that counts how many items have been read. */
+    private static Iterable<Integer> counting(AtomicInteger read) {
+        return () -> new Iterator<Integer>() {
+            @Override public boolean hasNext() { return true; }
+            @Override public Integer next() { return read.getAndIncrement(); }
+        };
+    }
+
+    /** 0 up to size, failing at 5.  Counts how many times its iterators are closed. */
+    private static Iterable<Integer> closeable(int size, AtomicInteger closed) {
+        return () -> {
+            class CloseableIter implements Iterator<Integer>, AutoCloseable {
+                private int i = 0;
+                @Override public boolean hasNext() { return i < size; }
+                @Override public Integer next() {
+                    if (i == 5) { throw new IllegalStateException("five"); }
+                    return i++;
+                }
+                @Override public void close() { closed.incrementAndGet(); }
+            }
+            return new CloseableIter();
+        };
+    }
+
+    @Test public void publisherClosesSource() {
+        AtomicInteger closed = new AtomicInteger();
+        // The take cancels the publisher.
+        Flow.Processor<Integer,Integer> proc = XformFlow.processor(xf -> xf.take(3), 16);
+        XformFlow.publisher(closeable(Integer.MAX_VALUE, closed), DIRECT).subscribe(proc);
+        TestSubscriber<Integer> sub = new TestSubscriber<>(Long.MAX_VALUE);
+        proc.subscribe(sub);
+        assertEquals(Arrays.asList(0, 1, 2), sub.items);
+        assertEquals(1, closed.get());
+
+        // The subscriber cancels.
+        TestSubscriber<Integer> cancelling = new TestSubscriber<>(2);
+        XformFlow.publisher(closeable(Integer.MAX_VALUE, closed), DIRECT).subscribe(cancelling);
+        cancelling.subscription.cancel();
+        assertEquals(2, closed.get());
+
+        // The source throws.
+        TestSubscriber<Integer> failing = new TestSubscriber<>(Long.MAX_VALUE);
+        XformFlow.publisher(closeable(Integer.MAX_VALUE, closed), DIRECT).subscribe(failing);
+        assertEquals("five", failing.error.getMessage());
+        assertEquals(3, closed.get());
+
+        // The source runs out.
+        TestSubscriber<Integer> completing = new TestSubscriber<>(Long.MAX_VALUE);
+        XformFlow.publisher(closeable(2, closed), DIRECT).subscribe(completing);
+        assertTrue(completing.completed);
+        assertEquals(4, closed.get());
+    }
+
+    @Test public void publisherHonorsDemand() {
+        AtomicInteger read = new AtomicInteger();
+        TestSubscriber<Integer> sub = new TestSubscriber<>(3);
+        XformFlow.publisher(counting(read), DIRECT).subscribe(sub);
+        assertEquals(Arrays.asList(0, 1, 2), sub.items);
+        assertEquals(3, read.get());
+        sub.subscription.request(2);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), sub.items);
+        sub.subscription.cancel();
+        sub.subscription.request(5);
+        assertEquals(5, sub.items.size());
+        assertFalse(sub.completed);
+
+        // Completes without waiting for another request, and each subscriber starts over.
+        Flow.Publisher<Integer> pub = XformFlow.publisher(Arrays.asList(1, 2), DIRECT);
+        for (int i = 0; i < 2; i++) {
+            TestSubscriber<Integer> s = new TestSubscriber<>(2);
+            pub.subscribe(s);
+            assertEquals(Arrays.asList(1, 2), s.items);
+            assertTrue(s.completed);
+        }
+
+        TestSubscriber<Integer> bad = new TestSubscriber<>(0);
+        XformFlow.publisher(Arrays.asList(1, 2), DIRECT).subscribe(bad);
+        bad.subscription.request(0);
+        assertTrue(bad.error instanceof IllegalArgumentException);
+
+        TestSubscriber<Integer> nulls = new TestSubscriber<>(5);
+        XformFlow.publisher(Arrays.asList(1, null), DIRECT).subscribe(nulls);
+        assertEquals(Arrays.asList(1), nulls.items);
+        assertTrue(nulls.error instanceof NullPointerException);
+    }
+
+    @Test public void processorRunsPipeline() {
+        AtomicInteger read = new AtomicInteger();
+        Flow.Processor<Integer,Integer> proc =
+                XformFlow.processor(xf -> xf.filter(i -> (i % 2) == 0).map(i -> i * 10).take(5), 4);
+        XformFlow.publisher(counting(read), DIRECT).subscribe(proc);
+        TestSubscriber<Integer> sub = new TestSubscriber<>(Long.MAX_VALUE);
+        proc.subscribe(sub);
+        assertEquals(Arrays.asList(0, 20, 40, 60, 80), sub.items);
+        assertTrue(sub.completed);
+        // The take cancelled the (endless) publisher.
+        assertTrue(read.get() < 9 + 4);
+
+        // A flatMap can make several results for each item.
+        Flow.Processor<Integer,String> flat =
+                XformFlow.processor(xf -> xf.drop(1).flatMap(i -> Arrays.asList(i + "a", i + "b")),
+                                    2);
+        XformFlow.publisher(RangeOfInt.of(0, 3), DIRECT).subscribe(flat);
+        TestSubscriber<String> flatSub = new TestSubscriber<>(100);
+        flat.subscribe(flatSub);
+        assertEquals(Arrays.asList("1a", "1b", "2a", "2b"), flatSub.items);
+        assertTrue(flatSub.completed);
+    }
+
+    @Test public void processorBackpressure() {
+        AtomicInteger read = new AtomicInteger();
+        Flow.Processor<Integer,Integer> proc = XformFlow.processor(xf -> xf.map(i -> i + 1), 8);
+        XformFlow.publisher(counting(read), DIRECT).subscribe(proc);
+        TestSubscriber<Integer> sub = new TestSubscriber<>(0);
+        proc.subscribe(sub);
+        // Fills the buffer, but no more.
+        assertEquals(8, read.get());
+        assertEquals(Collections.emptyList(), sub.items);
+
+        sub.subscription.request(3);
+        assertEquals(Arrays.asList(1, 2, 3), sub.items);
+        assertEquals(8, read.get());
+        sub.subscription.request(2);
+        // Half the buffer was free, so it asked for more.
+        assertEquals(5, sub.items.size());
+        assertTrue(read.get() > 8);
+        assertTrue(read.get() <= 8 + 5);
+
+        sub.subscription.cancel();
+        int readBefore = read.get();
+        sub.subscription.request(100);
+        assertEquals(readBefore, read.get());
+        assertEquals(5, sub.items.size());
+    }
+
+    @Test public void processorErrors() {
+        Flow.Processor<Integer,Integer> proc = XformFlow.processor(xf -> xf.map(i -> {
+            if (i == 3) { throw new IllegalStateException("three"); }
+            return i;
+        }), 16);
+        XformFlow.publisher(RangeOfInt.of(0, 10), DIRECT).subscribe(proc);
+        TestSubscriber<Integer> sub = new TestSubscriber<>(Long.MAX_VALUE);
+        proc.subscribe(sub);
+        assertEquals(Arrays.asList(0, 1, 2), sub.items);
+        assertEquals("three", sub.error.getMessage());
+
+        TestSubscriber<Integer> second = new TestSubscriber<>(1);
+        proc.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> XformFlow.<Integer,Integer>processor(xf -> xf.concat(Arrays.asList(1)),
+                                                                4));
+        assertThrows(IllegalArgumentException.class,
+                     () -> XformFlow.<Integer,Integer>processor(xf -> xf, 0));
+
+        // An upstream error is passed on.
+        Flow.Processor<Integer,Integer> pass = XformFlow.processor(xf -> xf, 4);
+        TestSubscriber<Integer> passSub = new TestSubscriber<>(1);
+        pass.subscribe(passSub);
+        pass.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) {}
+            @Override public void cancel() {}
+        });
+        pass.onError(new IllegalStateException("upstream"));
+        assertEquals("upstream", passSub.error.getMessage());
+    }
+
+    @Test public void asynchronous() throws InterruptedException {
+        Flow.Processor<Integer,Integer> proc =
+                XformFlow.processor(xf -> xf.filter(i -> (i % 3) == 0), 16);
+        XformFlow.publisher(RangeOfInt.of(0, 30000)).subscribe(proc);
+        TestSubscriber<Integer> sub = new TestSubscriber<Integer>(1) {
+            @Override public void onNext(Integer item) {
+                super.onNext(item);
+                subscription.request(1);
+            }
+        };
+        proc.subscribe(sub);
+        assertTrue(sub.done.await(30, TimeUnit.SECONDS));
+        assertNull(sub.error);
+        assertEquals(Xform.of(RangeOfInt.of(0, 30000)).filter(i -> (i % 3) == 0).toMutList(),
+                     sub.items);
+    }
+}
@@ -18,14 +18,32 @@ import junit.framework.TestCase;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.organicdesign.fp.collections.ImList;
+import org.organicdesign.fp.collections.ImMap;
+import org.organicdesign.fp.collections.PersistentVector;
 import org.organicdesign.fp.collections.RangeOfInt;
+import org.organicdesign.fp.collections.RrbTree;
+import org.organicdesign.fp.collections.UnmodList;
+import org.organicdesign.fp.function.Fn1;
 import org.organicdesign.fp.oneOf.Option;
-
+import org.organicdesign.fp.oneOf.Or;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -907,6 +925,609 @@ public class XformTest extends TestCase {
                                .toMutList().toArray(),
                           new Integer[]{4, 5, 6});
     }
+
+    /** An endless source that counts how many items have been pulled from it. */
+    static Iterable<Integer> countingSource(AtomicInteger pulled) {
+        return () -> new Iterator<Integer>() {
+            @Override public boolean hasNext() { return true; }
+            @Override public Integer next() { return pulled.incrementAndGet(); }
+        };
+    }
+
+    @Test public void lazyIterator() {
+        AtomicInteger pulled = new AtomicInteger(0);
+        Iterator<Integer> iter = Xform.of(countingSource(pulled))
+                                      .filter(i -> (i % 2) == 0)
+                                      .map(i -> i * 10)
+                                      .iterator();
+        assertEquals(0, pulled.get());
+        assertTrue(iter.hasNext());
+        assertEquals(2, pulled.get());
+        assertTrue(iter.hasNext());
+        assertEquals(Integer.valueOf(20), iter.next());
+        List<Integer> firstTen = new ArrayList<>();
+        firstTen.add(20);
+        while (firstTen.size() < 10) {
+            firstTen.add(iter.next());
+        }
+        assertEquals(Arrays.asList(20, 40, 60, 80, 100, 120, 140, 160, 180, 200), firstTen);
+        assertEquals(20, pulled.get());
+    }
+
+    @Test public void lazyIteratorFlatMapAndTake() {
+        AtomicInteger pulled = new AtomicInteger(0);
+        Xform<Integer> xf = Xform.of(countingSource(pulled))
+                                 .flatMap(i -> Xform.of(Arrays.asList(i, i * 100))
+                                                    .flatMap(j -> Arrays.asList(j, -j)))
+                                 .take(7);
+        List<Integer> result = new ArrayList<>();
+        for (Integer i : xf) {
+            result.add(i);
+        }
+        assertEquals(Arrays.asList(1, -1, 100, -100, 2, -2, 200), result);
+        assertEquals(2, pulled.get());
+
+        // TERMINATE from takeWhile inside a flatMap stops everything.
+        pulled.set(0);
+        Iterator<Integer> iter = Xform.of(countingSource(pulled))
+                                      .flatMap(i -> Arrays.asList(i, i))
+                                      .takeWhile(i -> i < 3)
+                                      .iterator();
+        result.clear();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals(Arrays.asList(1, 1, 2, 2), result);
+        assertEquals(3, pulled.get());
+        assertFalse(iter.hasNext());
+        try {
+            iter.next();
+            fail("Expected an exception");
+        } catch (java.util.NoSuchElementException expected) {
+            // Expected
+        }
+
+        // Empty inner iterables
+        assertEquals(Arrays.asList(3, 3, 3),
+                     Xform.of(Arrays.asList(1, 2, 3))
+                          .flatMap(i -> (i < 3) ? Collections.<Integer>emptyList()
+                                                : Arrays.asList(i, i, i))
+                          .toMutList());
+    }
+
+    @Test public void lazyIteratorConcat() {
+        AtomicInteger pulled = new AtomicInteger(0);
+        Iterator<Integer> iter = Xform.of(Arrays.asList(-2, -1))
+                                      .concat(countingSource(pulled))
+                                      .map(i -> i + 1)
+                                      .iterator();
+        assertEquals(Integer.valueOf(-1), iter.next());
+        assertEquals(Integer.valueOf(0), iter.next());
+        assertEquals(0, pulled.get());
+        assertEquals(Integer.valueOf(2), iter.next());
+        assertEquals(1, pulled.get());
+
+        pulled.set(0);
+        iter = Xform.of(countingSource(pulled)).take(3)
+                    .concat(Arrays.asList(7, 8))
+                    .iterator();
+        List<Integer> result = new ArrayList<>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 7, 8), result);
+        assertEquals(3, pulled.get());
+    }
+
+    @Test public void foldUntilStopsReading() {
+        AtomicInteger pulled = new AtomicInteger(0);
+        // First items whose running total exceeds 20: 1+2+3+4+5+6 = 21
+        assertEquals(Or.bad(14),
+                     Xform.of(countingSource(pulled))
+                          .foldUntil(0,
+                                     (total, i) -> (total > 20) ? total - i : null,
+                                     (total, i) -> total + i));
+        assertEquals(7, pulled.get());
+
+        // Inside nested flatMaps
+        pulled.set(0);
+        List<Integer> seen = new ArrayList<>();
+        Or<List<Integer>,String> result =
+                Xform.of(countingSource(pulled))
+                     .flatMap(i -> Xform.of(Arrays.asList(i, i + 100))
+                                        .flatMap(j -> Arrays.asList(j, j + 1000)))
+                     .foldUntil(seen,
+                                (accum, i) -> (accum.size() >= 6) ? "stopped at " + i : null,
+                                (accum, i) -> { accum.add(i); return accum; });
+        assertEquals(Or.bad("stopped at 102"), result);
+        assertEquals(Arrays.asList(1, 1001, 101, 1101, 2, 1002), seen);
+        assertEquals(2, pulled.get());
+
+        // Never terminates
+        assertEquals(Or.good(45),
+                     Xform.of(RangeOfInt.of(0, 10))
+                          .flatMap(i -> Collections.singletonList(i))
+                          .foldUntil(0, (t, i) -> null, (t, i) -> t + i));
+    }
+
+    @Test public void takeAfterFlatMapStopsReading() {
+        AtomicInteger pulled = new AtomicInteger(0);
+        assertEquals(Arrays.asList(1, 1, 1, 2, 2),
+                     Xform.of(countingSource(pulled))
+                          .flatMap(i -> Arrays.asList(i, i, i))
+                          .take(5)
+                          .toMutList());
+        assertEquals(2, pulled.get());
+
+        pulled.set(0);
+        assertEquals(Arrays.asList(1, -1, 2, -2, 3, -3),
+                     Xform.of(countingSource(pulled))
+                          .take(3)
+                          .flatMap(i -> Arrays.asList(i, -i))
+                          .toMutList());
+        assertEquals(3, pulled.get());
+
+        pulled.set(0);
+        assertEquals(Option.some(10),
+                     Xform.of(countingSource(pulled)).filter(i -> (i % 5) == 0).drop(1).head());
+        assertEquals(10, pulled.get());
+    }
+
+    @Test public void fusedStages() {
+        Xform<Integer> xf = Xform.of(RangeOfInt.of(0, 1000))
+                                 .filter(i -> (i % 2) == 0)
+                                 .filter(i -> (i % 3) == 0)
+                                 .map(i -> i + 1)
+                                 .filter(i -> (i % 5) != 0)
+                                 .map(i -> i * 2)
+                                 .dropWhile(i -> i < 20)
+                                 .takeWhile(i -> i < 1500)
+                                 .map(i -> i - 1);
+        // 8 stages become one operation.
+        assertEquals(1, xf.toRunList().opArray().length);
+
+        List<Integer> expected = new ArrayList<>();
+        boolean dropping = true;
+        for (int i = 0; i < 1000; i++) {
+            if ( ((i % 2) != 0) || ((i % 3) != 0) ) { continue; }
+            int j = i + 1;
+            if ((j % 5) == 0) { continue; }
+            j = j * 2;
+            if (dropping && (j < 20)) { continue; }
+            dropping = false;
+            if (j >= 1500) { break; }
+            expected.add(j - 1);
+        }
+        assertEquals(expected, xf.toMutList());
+        assertEquals(expected, xf.fold(new ArrayList<>(), (l, i) -> { l.add(i); return l; }));
+        List<Integer> iterated = new ArrayList<>();
+        for (Integer i : xf) {
+            iterated.add(i);
+        }
+        assertEquals(expected, iterated);
+
+        // Takes and flatMaps aren't fused, but the filters and maps around them are.
+        Xform<Integer> xf2 = Xform.of(RangeOfInt.of(0, 100))
+                                  .filter(i -> i > 10)
+                                  .map(i -> i * 2)
+                                  .take(5)
+                                  .map(i -> i + 1)
+                                  .filter(i -> i != 25)
+                                  .flatMap(i -> Arrays.asList(i, i));
+        assertEquals(4, xf2.toRunList().opArray().length);
+        assertEquals(Arrays.asList(23, 23, 27, 27, 29, 29, 31, 31), xf2.toMutList());
+    }
+
+    @Test public void dropAndTakeFromIndexedSources() {
+        // Would take minutes if the drop iterated.
+        assertEquals(Arrays.asList(Integer.MAX_VALUE - 3, Integer.MAX_VALUE - 2),
+                     Xform.of(RangeOfInt.of(0, Integer.MAX_VALUE))
+                          .map(i -> i - 1)
+                          .drop(Integer.MAX_VALUE - 2)
+                          .take(2)
+                          .toMutList());
+
+        // Counts the items read from an indexed source.
+        AtomicInteger gets = new AtomicInteger(0);
+        UnmodList<Integer> counted = new UnmodList<Integer>() {
+            @Override public int size() { return 1000000; }
+            @Override public Integer get(int i) {
+                gets.incrementAndGet();
+                return i;
+            }
+        };
+        assertEquals(Arrays.asList(900000, 900002, 900004),
+                     Xform.of(counted).drop(400000).map(i -> i * 2).drop(50000).take(3)
+                          .toMutList());
+        assertEquals(3, gets.get());
+
+        RrbTree.ImRrbt<Integer> rrb = RrbTree.empty();
+        PersistentVector<Integer> pv = PersistentVector.empty();
+        List<Integer> arrayList = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rrb = rrb.append(i);
+            pv = pv.append(i);
+            arrayList.add(i);
+        }
+        for (Iterable<Integer> src : Arrays.<Iterable<Integer>>asList(rrb, pv, arrayList,
+                                                                       RangeOfInt.of(0, 5000))) {
+            // Pages
+            assertEquals(Arrays.asList(4990, 4991, 4992),
+                         Xform.of(src).drop(4990).take(3).toMutList());
+            // A concat has more items than its source, so the drop can't slice it.
+            assertEquals(Arrays.asList(4998, 4999, -1),
+                         Xform.of(src).concat(Collections.singletonList(-1)).drop(4998)
+                              .toMutList());
+            assertEquals(Arrays.asList(1000, 1001),
+                         Xform.of(src).take(4000).drop(1000).take(2).toMutList());
+            assertEquals(Collections.emptyList(), Xform.of(src).drop(6000).toMutList());
+            assertEquals(Collections.emptyList(), Xform.of(src).take(0).toMutList());
+            assertEquals(5000, Xform.of(src).take(6000).toMutList().size());
+            // Not after a filter
+            assertEquals(Arrays.asList(2000, 2002),
+                         Xform.of(src).filter(i -> (i % 2) == 0).drop(1000).take(2).toMutList());
+        }
+    }
+
+    @Test public void dropNotMovedAheadOfTakeWhile() {
+        List<Integer> ints = Arrays.asList(1, 2, 3, 10, 4, 5);
+        assertEquals(Arrays.asList(3),
+                     Xform.of(ints).takeWhile(i -> i < 5).drop(2).toMutList());
+        // Dropping first would skip the item that ends the takeWhile.
+        assertEquals(Collections.emptyList(),
+                     Xform.of(Arrays.asList(6, 1, 2)).takeWhile(i -> i < 5).drop(1).toMutList());
+        assertEquals(Collections.emptyList(),
+                     Xform.of(Arrays.asList(0, 6, 2, 3)).drop(1).takeWhile(i -> i < 5).drop(1)
+                          .toMutList());
+        assertEquals(Arrays.asList(1, 2),
+                     Xform.of(ints).takeWhile(i -> i < 5).take(2).toMutList());
+    }
+
+    @Test public void groupByInParallel() {
+        List<Integer> src = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            src.add(i);
+        }
+        Map<Integer,List<Integer>> control = new HashMap<>();
+        long evens = 0;
+        for (int i : src) {
+            if ((i % 3) != 0) {
+                control.computeIfAbsent(i % 7, k -> new ArrayList<>()).add(i * 2);
+                evens += ((i & 1) == 0) ? 1 : 0;
+            }
+        }
+        Xform<Integer> xf = Xform.of(src).filter(i -> (i % 3) != 0).map(i -> i * 2);
+
+        ImMap<Integer,ImList<Integer>> groups = xf.groupBy(i -> (i / 2) % 7);
+        assertEquals(control, groups);
+        // Same from an UnmodList source, which is sliced differently.
+        assertEquals(control, xform(PersistentVector.ofIter(src)).filter(i -> (i % 3) != 0)
+                                                                  .map(i -> i * 2)
+                                                                  .groupBy(i -> (i / 2) % 7));
+
+        ImMap<Integer,Long> sums = xf.groupBy(i -> (i / 2) % 7, i -> (long) i, Long::sum);
+        ImMap<Integer,Long> counts = xf.countBy(i -> (i / 2) % 7);
+        for (Map.Entry<Integer,List<Integer>> entry : control.entrySet()) {
+            long sum = 0;
+            for (int i : entry.getValue()) {
+                sum += i;
+            }
+            assertEquals(Long.valueOf(sum), sums.get(entry.getKey()));
+            assertEquals(Long.valueOf(entry.getValue().size()), counts.get(entry.getKey()));
+        }
+
+        ImMap<Boolean,ImList<Integer>> parts = Xform.of(src).filter(i -> (i % 3) != 0)
+                                                    .partitionBy(i -> (i & 1) == 0);
+        assertEquals(evens, parts.get(true).size());
+        assertEquals(Integer.valueOf(2), parts.get(true).get(0));
+        assertEquals(Integer.valueOf(1), parts.get(false).get(0));
+
+        // flatMap is per-item too.
+        assertEquals(Long.valueOf(200000),
+                     Xform.of(src).flatMap(i -> Arrays.asList(i, -i)).countBy(i -> 0).get(0));
+    }
+
+    @Test public void groupByWithStatefulOps() {
+        List<Integer> src = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            src.add(i);
+        }
+        // None of these can be split into parts, so they are done in one ordinary fold.
+        ImMap<Integer,Long> counts = Xform.of(src).dropWhile(i -> i < 50000).countBy(i -> i & 1);
+        assertEquals(Long.valueOf(25000), counts.get(0));
+        assertEquals(Long.valueOf(25000), counts.get(1));
+        assertEquals(Long.valueOf(1000),
+                     Xform.of(src).filter(i -> i > 5).take(1000).countBy(i -> 0).get(0));
+        assertEquals(Long.valueOf(10),
+                     Xform.of(src).takeWhile(i -> i < 10).countBy(i -> 0).get(0));
+        assertEquals(Long.valueOf(100100),
+                     Xform.of(src).concat(src.subList(0, 100)).countBy(i -> 0).get(0));
+
+        ImMap<Boolean,ImList<Integer>> parts = vec(1, 3, 5).partitionBy(i -> i > 2);
+        assertEquals(vec(3, 5), parts.get(true));
+        assertEquals(vec(1), parts.get(false));
+        parts = Xform.<Integer>empty().partitionBy(i -> i > 2);
+        assertEquals(vec(), parts.get(true));
+        assertEquals(vec(), parts.get(false));
+        assertEquals(2, parts.size());
+    }
+
+    @Test public void distinct() {
+        assertEquals(Arrays.asList(3, 1, null, 2),
+                     Xform.of(Arrays.asList(3, 1, 3, null, 2, 1, null)).distinct().toMutList());
+        Xform<Integer> xf = Xform.of(Arrays.asList(1, 1, 2)).distinct();
+        // Each run starts with nothing seen.
+        assertEquals(Arrays.asList(1, 2), xf.toMutList());
+        assertEquals(Arrays.asList(1, 2), xf.toMutList());
+        assertEquals(Arrays.asList(2), xf.drop(1).toMutList());
+        assertEquals(Arrays.asList(1), xf.take(1).toMutList());
+    }
+
+    @Test public void sortedByAndTopK() {
+        List<String> words = Arrays.asList("pear", "fig", "apple", "kiwi", "date", "plum", "yam");
+        Comparator<String> byLength = Comparator.comparing(String::length);
+        // Stable
+        assertEquals(Arrays.asList("fig", "yam", "pear", "kiwi", "date", "plum", "apple"),
+                     Xform.of(words).sortedBy(byLength).toMutList());
+        assertEquals(Arrays.asList("kiwi", "date", "plum"),
+                     Xform.of(words).sortedBy(byLength).drop(3).filter(w -> w.length() < 5)
+                          .toMutList());
+        for (int k = 0; k <= words.size() + 1; k++) {
+            assertEquals(Xform.of(words).sortedBy(byLength).take(k).toMutList(),
+                         Xform.of(words).topK(k, byLength).toMutList());
+            assertEquals(Xform.of(words).sortedBy(byLength.reversed()).take(k).toMutList(),
+                         Xform.of(words).topK(k, byLength.reversed()).toMutList());
+        }
+        assertEquals(Collections.emptyList(),
+                     Xform.<String>empty().topK(3, byLength).toMutList());
+        assertEquals(Arrays.asList(999999, 999998),
+                     Xform.of(RangeOfInt.of(0, 1000000)).topK(2, Comparator.reverseOrder())
+                          .toMutList());
+        try {
+            Xform.of(words).topK(-1, byLength);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Good
+        }
+    }
+
+    @Test public void windowAndChunk() {
+        List<Integer> ints = Arrays.asList(1, 2, 3, 4, 5, 6, 7);
+        assertEquals(Arrays.asList(vec(1, 2, 3), vec(4, 5, 6), vec(7)),
+                     Xform.of(ints).chunk(3).toMutList());
+        assertEquals(Arrays.asList(vec(1, 2, 3, 4, 5, 6, 7)), Xform.of(ints).chunk(10).toMutList());
+        assertEquals(Collections.emptyList(), Xform.empty().chunk(2).toMutList());
+        assertEquals(Arrays.asList(vec(1, 2, 3), vec(2, 3, 4), vec(3, 4, 5), vec(4, 5, 6),
+                                   vec(5, 6, 7)),
+                     Xform.of(ints).window(3, 1).toMutList());
+        assertEquals(Arrays.asList(vec(1, 2, 3), vec(3, 4, 5), vec(5, 6, 7)),
+                     Xform.of(ints).window(3, 2).toMutList());
+        assertEquals(Arrays.asList(vec(1, 2), vec(5, 6)), Xform.of(ints).window(2, 4).toMutList());
+        assertEquals(Collections.emptyList(), Xform.of(ints).window(8, 1).toMutList());
+        assertEquals(Arrays.asList(3, 12, 21),
+                     Xform.of(RangeOfInt.of(0, 9)).chunk(3).map(l -> l.fold(0, Integer::sum))
+                          .toMutList());
+
+        // Lazy: only reads what it needs.
+        AtomicInteger count = new AtomicInteger();
+        assertEquals(Arrays.asList(vec(1, 2), vec(2, 3)),
+                     Xform.of(countingSource(count)).window(2, 1).take(2).toMutList());
+        assertEquals(3, count.get());
+
+        try {
+            Xform.of(ints).window(2, 0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Good
+        }
+    }
+
+    /** Returns a function that sleeps a little, keeping track of how many calls run at once. */
+    private static Fn1<Integer,Integer> slowDouble(AtomicInteger running, AtomicInteger maxRunning) {
+        return i -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            // Later items finish sooner, to mix up the order they finish in.
+            Thread.sleep(20 - (i % 10));
+            running.decrementAndGet();
+            return i * 2;
+        };
+    }
+
+    @Test public void mapAsync() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            expected.add(i * 2);
+        }
+
+        assertEquals(expected, Xform.of(RangeOfInt.of(0, 40))
+                                    .mapAsync(slowDouble(running, maxRunning), 8)
+                                    .toMutList());
+        assertEquals(0, running.get());
+        assertTrue(maxRunning.get() <= 8);
+        assertTrue(maxRunning.get() > 1);
+
+        maxRunning.set(0);
+        List<Integer> unordered = new ArrayList<>(Xform.of(RangeOfInt.of(0, 40))
+                                                       .mapAsyncUnordered(slowDouble(running,
+                                                                                     maxRunning),
+                                                                          4)
+                                                       .toMutList());
+        assertTrue(maxRunning.get() <= 4);
+        Collections.sort(unordered);
+        assertEquals(expected, unordered);
+
+        // With the rest of the pipeline
+        ExecutorService exec = Executors.newFixedThreadPool(3);
+        try {
+            assertEquals(Arrays.asList(6, 10),
+                         Xform.of(RangeOfInt.of(0, 10))
+                              .filter(i -> (i & 1) == 1)
+                              .mapAsync(i -> i * 2, 3, exec)
+                              .drop(1)
+                              .take(2)
+                              .toMutList());
+        } finally {
+            exec.shutdown();
+        }
+
+        // Reads the source only as needed to keep maxConcurrency calls going.
+        AtomicInteger pulled = new AtomicInteger();
+        assertEquals(Arrays.asList(1, 2), Xform.of(countingSource(pulled))
+                                               .mapAsync(i -> i, 3)
+                                               .take(2)
+                                               .toMutList());
+        assertTrue(pulled.get() <= 5);
+    }
+
+    @Test public void mapAsyncExceptions() {
+        Xform<Integer> xf = Xform.of(RangeOfInt.of(0, 10)).mapAsync(i -> {
+            if (i == 5) { throw new IllegalStateException("five"); }
+            return i;
+        }, 2);
+        try {
+            xf.toMutList();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("five", e.getMessage());
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), xf.take(5).toMutList());
+        try {
+            xf.mapAsyncUnordered(i -> i, 0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Good
+        }
+    }
+
+    /** An endless source of 0, 1, 2... whose iterators count how many times they're closed. */
+    private static Iterable<Integer> closeableSource(AtomicInteger opened, AtomicInteger closed) {
+        return () -> {
+            opened.incrementAndGet();
+            class CloseableIter implements Iterator<Integer>, AutoCloseable {
+                private int i = 0;
+                private boolean isClosed = false;
+                @Override public boolean hasNext() { return !isClosed; }
+                @Override public Integer next() {
+                    if (isClosed) { throw new IllegalStateException("Read after close"); }
+                    return i++;
+                }
+                @Override public void close() {
+                    if (!isClosed) {
+                        isClosed = true;
+                        closed.incrementAndGet();
+                    }
+                }
+            }
+            return new CloseableIter();
+        };
+    }
+
+    @Test public void sourcesClosedWhenFoldStops() {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        Xform<Integer> src = Xform.of(closeableSource(opened, closed));
+
+        assertEquals(Arrays.asList(0, 2, 4), src.filter(i -> (i % 2) == 0).take(3).toMutList());
+        assertEquals(Or.bad(10), src.foldUntil(0, (acc, i) -> (i == 10) ? i : null, (acc, i) -> i));
+        assertEquals(Arrays.asList(0, 1, 2), src.takeWhile(i -> i < 3).toMutList());
+        assertEquals(Option.some(0), src.head());
+        assertEquals(Arrays.asList(vec(0, 1), vec(2, 3)), src.chunk(2).take(2).toMutList());
+        assertEquals(Arrays.asList(0, 1), src.mapAsync(i -> i, 2).take(2).toMutList());
+        assertEquals(Option.some(5), src.mapToInt(i -> i).filter(i -> i > 4).head());
+        // The inner sources of a flatMap are closed too.
+        assertEquals(Arrays.asList(0, 1, 0, 1), Xform.of(Arrays.asList(1, 2))
+                                                     .flatMap(i -> src.take(2))
+                                                     .toMutList());
+        assertEquals(Arrays.asList(0, 1, 2), Xform.of(Arrays.asList(1, 2))
+                                                  .flatMap(i -> src)
+                                                  .take(3)
+                                                  .toMutList());
+        assertEquals(Arrays.asList(7, 0), Xform.of(Arrays.asList(7)).concat(src).take(2)
+                                               .toMutList());
+        assertEquals(opened.get(), closed.get());
+
+        // An iterator closes its source when it runs out.
+        Iterator<Integer> iter = src.take(2).iterator();
+        iter.next();
+        iter.next();
+        assertFalse(iter.hasNext());
+        assertEquals(opened.get(), closed.get());
+    }
+
+    /** Pulling through a primitive Xform and back (with boxed() or mapToObj()) still closes. */
+    @Test public void sourcesClosedThroughPrimitives() {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        Xform<Integer> src = Xform.of(closeableSource(opened, closed));
+
+        assertEquals(Arrays.asList(0), src.mapToInt(i -> i).boxed().take(1).toMutList());
+        assertEquals(Option.some(3), src.mapToInt(i -> i).filter(i -> i > 2).boxed().head());
+        assertEquals(Arrays.asList(2L, 3L), src.mapToLong(i -> i).drop(2).boxed().take(2)
+                                               .toMutList());
+        assertEquals(Arrays.asList("1.0"), src.mapToDouble(i -> i).map(d -> d + 1).take(5)
+                                              .mapToInt(d -> (int) d).mapToObj(i -> i + ".0")
+                                              .take(1).toMutList());
+        assertEquals(Arrays.asList(0, 1), src.mapToInt(i -> i).boxed()
+                                             .takeWhile(i -> i < 2).toMutList());
+        assertEquals(opened.get(), closed.get());
+        assertEquals(5, opened.get());
+    }
+
+    @Test public void fileSources() throws IOException {
+        Path file = Files.createTempFile("XformTest", ".txt");
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                lines.add("line " + i);
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            assertEquals(lines, Xform.lines(file).toMutList());
+            assertEquals(Arrays.asList("line 500", "line 501"),
+                         Xform.lines(file).drop(500).take(2).toMutList());
+            assertEquals(Long.valueOf(1000), Xform.lines(file).countBy(l -> 0).get(0));
+
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7 });
+            List<List<Byte>> records = new ArrayList<>();
+            for (byte[] record : Xform.records(file, 3)) {
+                List<Byte> bytes = new ArrayList<>();
+                for (byte b : record) {
+                    bytes.add(b);
+                }
+                records.add(bytes);
+            }
+            assertEquals(Arrays.asList(Arrays.asList((byte) 1, (byte) 2, (byte) 3),
+                                       Arrays.asList((byte) 4, (byte) 5, (byte) 6),
+                                       Arrays.asList((byte) 7)),
+                         records);
+
+            List<Integer> chunkSizes = Xform.mappedChunks(file, 3).map(ByteBuffer::remaining)
+                                            .toMutList();
+            assertEquals(Arrays.asList(3, 3, 1), chunkSizes);
+            assertEquals(Integer.valueOf(28),
+                         Xform.mappedChunks(file, 2).fold(0, (sum, buf) -> {
+                             while (buf.hasRemaining()) {
+                                 sum += buf.get();
+                             }
+                             return sum;
+                         }));
+
+            Files.write(file, new byte[0]);
+            assertEquals(Collections.emptyList(), Xform.records(file, 3).toMutList());
+            assertEquals(Collections.emptyList(), Xform.mappedChunks(file, 3).toMutList());
+            assertEquals(Collections.emptyList(), Xform.lines(file).toMutList());
+        } finally {
+            Files.delete(file);
+        }
+        try {
+            Xform.lines(file).toMutList();
+            fail("Expected an UncheckedIOException");
+        } catch (UncheckedIOException expected) {
+            // Good
+        }
+    }
+
     // Above here taken from SequenceTest.
 
 //    @Test